@@ -0,0 +1,96 @@
+package com.ecwid.consul.benchmark;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of typical responses. {@code *FromString} is the buffered path (body read into a String, then parsed),
+ * {@code *FromStream} decodes straight from the bytes like the transports do for successful GETs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodingBenchmark {
+
+	private static final Type HEALTH_SERVICES = new TypeToken<List<HealthService>>() {}.getType();
+	private static final Type CATALOG_SERVICE = new TypeToken<List<CatalogService>>() {}.getType();
+	private static final Type KV_VALUES = new TypeToken<List<GetValue>>() {}.getType();
+
+	private static final ContentDecoder<List<HealthService>> HEALTH_SERVICES_DECODER = GsonFactory.getDecoder(HEALTH_SERVICES);
+	private static final ContentDecoder<List<CatalogService>> CATALOG_SERVICE_DECODER = GsonFactory.getDecoder(CATALOG_SERVICE);
+	private static final ContentDecoder<List<GetValue>> KV_VALUES_DECODER = GsonFactory.getDecoder(KV_VALUES);
+
+	@Param({"1", "10", "100", "1000"})
+	public int size;
+
+	private byte[] healthServices;
+	private byte[] catalogService;
+	private byte[] kvValues;
+
+	@Setup
+	public void setUp() {
+		healthServices = Payloads.healthServices(size);
+		catalogService = Payloads.catalogService(size);
+		kvValues = Payloads.kvValues(size);
+	}
+
+	@Benchmark
+	public List<HealthService> healthServicesFromString() {
+		return GsonFactory.getGson().fromJson(new String(healthServices, StandardCharsets.UTF_8), HEALTH_SERVICES);
+	}
+
+	@Benchmark
+	public List<HealthService> healthServicesFromStream() throws IOException {
+		return HEALTH_SERVICES_DECODER.decode(reader(healthServices));
+	}
+
+	@Benchmark
+	public List<CatalogService> catalogServiceFromString() {
+		return GsonFactory.getGson().fromJson(new String(catalogService, StandardCharsets.UTF_8), CATALOG_SERVICE);
+	}
+
+	@Benchmark
+	public List<CatalogService> catalogServiceFromStream() throws IOException {
+		return CATALOG_SERVICE_DECODER.decode(reader(catalogService));
+	}
+
+	@Benchmark
+	public List<GetValue> kvValuesFromString() {
+		return GsonFactory.getGson().fromJson(new String(kvValues, StandardCharsets.UTF_8), KV_VALUES);
+	}
+
+	@Benchmark
+	public List<GetValue> kvValuesFromStream() throws IOException {
+		return KV_VALUES_DECODER.decode(reader(kvValues));
+	}
+
+	private static InputStreamReader reader(byte[] bytes) {
+		return new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+	}
+}
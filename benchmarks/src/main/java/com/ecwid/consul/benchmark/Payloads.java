@@ -0,0 +1,82 @@
+package com.ecwid.consul.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Realistic JSON payloads, shaped like the responses of a real Consul agent.
+ */
+final class Payloads {
+
+	private Payloads() {
+	}
+
+	static byte[] healthServices(int count) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			String node = "node-" + i;
+			String address = "10.0." + (i / 250) + "." + (i % 250);
+			sb.append("{\"Node\":{\"ID\":\"").append(uuid(i)).append("\",\"Node\":\"").append(node)
+				.append("\",\"Address\":\"").append(address).append("\",\"Datacenter\":\"dc1\",")
+				.append("\"TaggedAddresses\":{\"lan\":\"").append(address).append("\",\"wan\":\"").append(address).append("\"},")
+				.append("\"Meta\":{\"consul-network-segment\":\"\",\"rack\":\"r").append(i % 8).append("\"},")
+				.append("\"CreateIndex\":").append(100 + i).append(",\"ModifyIndex\":").append(200 + i).append("},")
+				.append("\"Service\":{\"ID\":\"web-").append(i).append("\",\"Service\":\"web\",\"Tags\":[\"primary\",\"v2\",\"eu-west\"],")
+				.append("\"Address\":\"").append(address).append("\",\"Meta\":{\"version\":\"2.4.1\",\"protocol\":\"http\"},")
+				.append("\"Port\":8080,\"EnableTagOverride\":false,\"CreateIndex\":").append(300 + i)
+				.append(",\"ModifyIndex\":").append(400 + i).append("},")
+				.append("\"Checks\":[")
+				.append(check(node, "serfHealth", "Serf Health Status", "", "", "Agent alive and reachable", i)).append(',')
+				.append(check(node, "service:web-" + i, "Service 'web' check", "web-" + i, "web",
+					"HTTP GET http://" + address + ":8080/health: 200 OK Output: ok", i))
+				.append("]}");
+		}
+		return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	static byte[] catalogService(int count) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			String address = "10.0." + (i / 250) + "." + (i % 250);
+			sb.append("{\"ID\":\"").append(uuid(i)).append("\",\"Node\":\"node-").append(i)
+				.append("\",\"Address\":\"").append(address).append("\",\"Datacenter\":\"dc1\",")
+				.append("\"TaggedAddresses\":{\"lan\":\"").append(address).append("\",\"wan\":\"").append(address).append("\"},")
+				.append("\"NodeMeta\":{\"rack\":\"r").append(i % 8).append("\"},")
+				.append("\"ServiceID\":\"web-").append(i).append("\",\"ServiceName\":\"web\",\"ServiceTags\":[\"primary\",\"v2\"],")
+				.append("\"ServiceAddress\":\"").append(address).append("\",\"ServiceMeta\":{\"version\":\"2.4.1\"},")
+				.append("\"ServicePort\":8080,\"ServiceEnableTagOverride\":false,")
+				.append("\"CreateIndex\":").append(300 + i).append(",\"ModifyIndex\":").append(400 + i).append('}');
+		}
+		return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	static byte[] kvValues(int count) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			String value = "{\"enabled\":" + (i % 2 == 0) + ",\"rollout\":" + (i % 100) + ",\"owner\":\"team-" + (i % 12) + "\"}";
+			sb.append("{\"LockIndex\":0,\"Key\":\"config/app/feature-").append(i).append("\",\"Flags\":0,")
+				.append("\"Value\":\"").append(Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8))).append("\",")
+				.append("\"CreateIndex\":").append(100 + i).append(",\"ModifyIndex\":").append(500 + i).append('}');
+		}
+		return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String check(String node, String checkId, String name, String serviceId, String serviceName, String output, int i) {
+		return "{\"Node\":\"" + node + "\",\"CheckID\":\"" + checkId + "\",\"Name\":\"" + name + "\",\"Status\":\"passing\","
+			+ "\"Notes\":\"\",\"Output\":\"" + output + "\",\"ServiceID\":\"" + serviceId + "\",\"ServiceName\":\"" + serviceName + "\","
+			+ "\"ServiceTags\":[],\"CreateIndex\":" + (500 + i) + ",\"ModifyIndex\":" + (600 + i) + "}";
+	}
+
+	private static String uuid(int i) {
+		return String.format("%08x-0000-4000-8000-%012x", i, i * 7919L);
+	}
+}
@@ -0,0 +1,107 @@
+package com.ecwid.consul.benchmark;
+
+import com.ecwid.consul.SingleUrlParameters;
+import com.ecwid.consul.UrlParameters;
+import com.ecwid.consul.Utils;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+import com.ecwid.consul.v1.ConsistencyMode;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.health.HealthServicesRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a request into an {@link HttpRequest}: parameter rendering, URL generation and token handling.
+ * The transport does no I/O and hands back a constant response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+	private static final HttpResponse EMPTY_RESPONSE = new HttpResponse(200, "OK", "[]", 1L, true, 0L);
+
+	private ConsulRawClient rawClient;
+	private HealthServicesRequest healthServicesRequest;
+	private List<UrlParameters> kvParams;
+
+	/**
+	 * Keeps the last request reachable, so request construction can't be eliminated.
+	 */
+	public volatile HttpRequest lastRequest;
+
+	@Setup
+	public void setUp() {
+		rawClient = ConsulRawClient.Builder.builder()
+			.setHttpTransport(new HttpTransport() {
+				@Override
+				public HttpResponse makeGetRequest(HttpRequest request) {
+					lastRequest = request;
+					return EMPTY_RESPONSE;
+				}
+
+				@Override
+				public HttpResponse makePutRequest(HttpRequest request) {
+					lastRequest = request;
+					return EMPTY_RESPONSE;
+				}
+
+				@Override
+				public HttpResponse makeDeleteRequest(HttpRequest request) {
+					lastRequest = request;
+					return EMPTY_RESPONSE;
+				}
+			})
+			.build();
+
+		QueryParams queryParams = QueryParams.Builder.builder()
+			.setDatacenter("dc1")
+			.setConsistencyMode(ConsistencyMode.STALE)
+			.setIndex(123456789L)
+			.setWaitTime(300)
+			.build();
+
+		healthServicesRequest = HealthServicesRequest.newBuilder()
+			.setPassing(true)
+			.setFilter("Service.Meta.version == \"2.4.1\"")
+			.setQueryParams(queryParams)
+			.setToken("8f246b77-f3e1-ff88-5b48-8ec93abf3e05")
+			.build();
+
+		kvParams = Arrays.asList(new SingleUrlParameters("recurse"),
+			new SingleUrlParameters("token", "8f246b77-f3e1-ff88-5b48-8ec93abf3e05"), queryParams);
+	}
+
+	@Benchmark
+	public HttpResponse healthServicesRequest() {
+		return rawClient.makeGetRequest("/v1/health/service/web", healthServicesRequest.asUrlParameters());
+	}
+
+	@Benchmark
+	public HttpResponse kvRequestWithTokenParam() {
+		return rawClient.makeGetRequest("/v1/kv/config/app", kvParams);
+	}
+
+	@Benchmark
+	public String generateUrl() {
+		return Utils.generateUrl("http://localhost:8500/v1/kv/config/app", kvParams);
+	}
+}
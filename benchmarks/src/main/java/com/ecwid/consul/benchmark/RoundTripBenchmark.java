@@ -0,0 +1,102 @@
+package com.ecwid.consul.benchmark;
+
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.health.HealthConsulClient;
+import com.ecwid.consul.v1.health.HealthServicesRequest;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full client round trip (request building, HTTP over loopback, decoding) against an in-process stub agent, so the
+ * transport overhead can be compared with the decoding cost measured by {@link DecodingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+	static {
+		// the stub writes headers and body separately; without TCP_NODELAY every call pays a delayed-ACK stall
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	@Param({"1", "100"})
+	public int size;
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private HealthConsulClient client;
+	private HealthServicesRequest request;
+
+	@Setup
+	public void setUp() throws IOException {
+		byte[] payload = Payloads.healthServices(size);
+
+		serverExecutor = Executors.newFixedThreadPool(4);
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(serverExecutor);
+		server.createContext("/v1/health/service/", exchange -> {
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.getResponseHeaders().add("X-Consul-Index", "42");
+			exchange.getResponseHeaders().add("X-Consul-Knownleader", "true");
+			exchange.getResponseHeaders().add("X-Consul-Lastcontact", "0");
+			exchange.sendResponseHeaders(200, payload.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(payload);
+			}
+		});
+		server.start();
+
+		client = new HealthConsulClient(ConsulRawClient.Builder.builder()
+			.setHost("localhost")
+			.setPort(server.getAddress().getPort())
+			.build());
+
+		request = HealthServicesRequest.newBuilder()
+			.setPassing(true)
+			.setQueryParams(QueryParams.DEFAULT)
+			.setToken("8f246b77-f3e1-ff88-5b48-8ec93abf3e05")
+			.build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public Response<List<HealthService>> healthServices() {
+		return client.getHealthServices("web", request);
+	}
+
+	@Benchmark
+	public Response<List<HealthService>> healthServicesAsync() {
+		return client.getHealthServicesAsync("web", request).join();
+	}
+}
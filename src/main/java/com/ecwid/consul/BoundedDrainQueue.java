@@ -0,0 +1,135 @@
+package com.ecwid.consul;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Queue of items which are processed on an executor by at most {@code maxWorkers} workers at a time.
+ * <p>
+ * Items wait in the queue for a free worker. A worker takes items until the queue is empty and then finishes, so no
+ * thread is held while there is nothing to do. Used by the managers which keep many sessions or checks alive with a
+ * bounded number of requests in flight.
+ *
+ * @param <T> type of the queued items
+ */
+public final class BoundedDrainQueue<T> {
+
+	private static final Logger log = Logger.getLogger(BoundedDrainQueue.class.getName());
+
+	private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger activeWorkers = new AtomicInteger();
+	private final ExecutorService executor;
+	private final int maxWorkers;
+	private final Consumer<T> processor;
+
+	/**
+	 * @param executor   executor to run the workers on
+	 * @param maxWorkers maximum number of items processed at a time
+	 * @param processor  processes one item; it should handle its own failures
+	 */
+	public BoundedDrainQueue(ExecutorService executor, int maxWorkers, Consumer<T> processor) {
+		if (maxWorkers <= 0) {
+			throw new IllegalArgumentException("maxWorkers must be positive");
+		}
+		this.executor = executor;
+		this.maxWorkers = maxWorkers;
+		this.processor = processor;
+	}
+
+	/**
+	 * Queues the item. It is processed once workers are started with {@link #startWorkers()}, or by a running worker.
+	 */
+	public void add(T item) {
+		queue.add(item);
+	}
+
+	/**
+	 * Starts workers for the queued items, as long as there are less than {@code maxWorkers} of them.
+	 */
+	public void startWorkers() {
+		while (!queue.isEmpty()) {
+			int active = activeWorkers.get();
+			if (active >= maxWorkers) {
+				return;
+			}
+			if (activeWorkers.compareAndSet(active, active + 1)) {
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					activeWorkers.decrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of workers running right now
+	 */
+	public int getActiveWorkers() {
+		return activeWorkers.get();
+	}
+
+	private void drain() {
+		while (true) {
+			T item = queue.poll();
+			if (item == null) {
+				activeWorkers.decrementAndGet();
+				// an item may have been queued after the poll but before the decrement
+				if (queue.isEmpty() || !tryReactivate()) {
+					return;
+				}
+				continue;
+			}
+
+			try {
+				processor.accept(item);
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "Failed to process " + item, e);
+			}
+		}
+	}
+
+	private boolean tryReactivate() {
+		while (true) {
+			int active = activeWorkers.get();
+			if (active >= maxWorkers) {
+				return false;
+			}
+			if (activeWorkers.compareAndSet(active, active + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return single-threaded scheduler on a daemon thread with the given name
+	 */
+	public static ScheduledExecutorService newDaemonScheduler(String threadName) {
+		return Executors.newSingleThreadScheduledExecutor(daemonThreads(threadName));
+	}
+
+	/**
+	 * @return executor which creates daemon threads with the given name as needed
+	 */
+	public static ExecutorService newDaemonExecutor(String threadName) {
+		return Executors.newCachedThreadPool(daemonThreads(threadName));
+	}
+
+	private static ThreadFactory daemonThreads(String threadName) {
+		return runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -9,6 +9,12 @@ import java.util.Objects;
  */
 public final class SingleUrlParameters implements UrlParameters {
 
+	/**
+	 * Name of the ACL token parameter; {@link com.ecwid.consul.v1.ConsulRawClient} sends it as the
+	 * {@code X-Consul-Token} header instead of putting it into the URL.
+	 */
+	public static final String TOKEN_KEY = "token";
+
 	private final String key;
 	private final String value;
 
@@ -22,6 +28,21 @@ public final class SingleUrlParameters implements UrlParameters {
 		this.value = value;
 	}
 
+	public String getKey() {
+		return key;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return true if this parameter carries an ACL token
+	 */
+	public boolean isToken() {
+		return TOKEN_KEY.equals(key);
+	}
+
 	@Override
 	public List<String> toUrlParameters() {
 		if (value != null) {
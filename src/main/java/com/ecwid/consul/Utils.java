@@ -30,25 +30,30 @@ public class Utils {
 	}
 
 	public static String generateUrl(String baseUrl, List<UrlParameters> params) {
+		return generateUrl(baseUrl, params, null);
+	}
+
+	/**
+	 * Same as {@link #generateUrl(String, List)}, but skips parameters equal to {@code excluded}, so callers don't need
+	 * to copy the list just to drop one entry.
+	 */
+	public static String generateUrl(String baseUrl, List<UrlParameters> params, UrlParameters excluded) {
 		if (params == null) {
 			return baseUrl;
 		}
 
-		List<String> allParams = new ArrayList<String>();
-		for (UrlParameters item : params) {
-			if (item != null) {
-				allParams.addAll(item.toUrlParameters());
-			}
-		}
-
 		// construct the whole url
 		StringBuilder result = new StringBuilder(baseUrl);
 
-		Iterator<String> paramsIterator = allParams.iterator();
-		if (paramsIterator.hasNext()) {
-			result.append("?").append(paramsIterator.next());
-			while (paramsIterator.hasNext()) {
-				result.append("&").append(paramsIterator.next());
+		char separator = '?';
+		for (UrlParameters item : params) {
+			if (item == null || (excluded != null && excluded.equals(item))) {
+				continue;
+			}
+
+			for (String param : item.toUrlParameters()) {
+				result.append(separator).append(param);
+				separator = '&';
 			}
 		}
 		return result.toString();
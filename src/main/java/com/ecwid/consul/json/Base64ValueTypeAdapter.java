@@ -0,0 +1,33 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.kv.model.Base64Value;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Keeps base64 strings encoded, see {@link Base64Value}.
+ */
+public class Base64ValueTypeAdapter extends TypeAdapter<Base64Value> {
+
+	@Override
+	public void write(JsonWriter out, Base64Value value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+		} else {
+			out.value(value.getEncoded());
+		}
+	}
+
+	@Override
+	public Base64Value read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return Base64Value.fromEncoded(in.nextString());
+	}
+}
@@ -0,0 +1,113 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.ecwid.consul.json.JsonValues.readBoolean;
+import static com.ecwid.consul.json.JsonValues.readInteger;
+import static com.ecwid.consul.json.JsonValues.readLong;
+import static com.ecwid.consul.json.JsonValues.readString;
+import static com.ecwid.consul.json.JsonValues.readStringList;
+import static com.ecwid.consul.json.JsonValues.readStringMap;
+import static com.ecwid.consul.json.JsonValues.writeStringList;
+import static com.ecwid.consul.json.JsonValues.writeStringMap;
+
+final class CatalogServiceTypeAdapter extends TypeAdapter<CatalogService> {
+
+	private final StringInterner interner;
+
+	/**
+	 * @param interner pool the strings are interned in, or null
+	 */
+	CatalogServiceTypeAdapter(StringInterner interner) {
+		this.interner = interner;
+	}
+
+	@Override
+	public void write(JsonWriter out, CatalogService service) throws IOException {
+		out.beginObject();
+		out.name("ID").value(service.getId());
+		out.name("Node").value(service.getNode());
+		out.name("Address").value(service.getAddress());
+		out.name("Datacenter").value(service.getDatacenter());
+		out.name("TaggedAddresses");
+		writeStringMap(out, service.getTaggedAddresses());
+		out.name("NodeMeta");
+		writeStringMap(out, service.getNodeMeta());
+		out.name("ServiceID").value(service.getServiceId());
+		out.name("ServiceName").value(service.getServiceName());
+		out.name("ServiceTags");
+		writeStringList(out, service.getServiceTags());
+		out.name("ServiceAddress").value(service.getServiceAddress());
+		out.name("ServiceMeta");
+		writeStringMap(out, service.getServiceMeta());
+		out.name("ServicePort").value(service.getServicePort());
+		out.name("ServiceEnableTagOverride").value(service.getServiceEnableTagOverride());
+		out.name("CreateIndex").value(service.getCreateIndex());
+		out.name("ModifyIndex").value(service.getModifyIndex());
+		out.endObject();
+	}
+
+	@Override
+	public CatalogService read(JsonReader in) throws IOException {
+		CatalogService service = new CatalogService();
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "ID":
+					service.setId(readString(in, interner));
+					break;
+				case "Node":
+					service.setNode(readString(in, interner));
+					break;
+				case "Address":
+					service.setAddress(readString(in, interner));
+					break;
+				case "Datacenter":
+					service.setDatacenter(readString(in, interner));
+					break;
+				case "TaggedAddresses":
+					service.setTaggedAddresses(readStringMap(in, interner));
+					break;
+				case "NodeMeta":
+					service.setNodeMeta(readStringMap(in, interner));
+					break;
+				case "ServiceID":
+					service.setServiceId(readString(in, interner));
+					break;
+				case "ServiceName":
+					service.setServiceName(readString(in, interner));
+					break;
+				case "ServiceTags":
+					service.setServiceTags(readStringList(in, interner));
+					break;
+				case "ServiceAddress":
+					service.setServiceAddress(readString(in, interner));
+					break;
+				case "ServiceMeta":
+					service.setServiceMeta(readStringMap(in, interner));
+					break;
+				case "ServicePort":
+					service.setServicePort(readInteger(in));
+					break;
+				case "ServiceEnableTagOverride":
+					service.setServiceEnableTagOverride(readBoolean(in));
+					break;
+				case "CreateIndex":
+					service.setCreateIndex(readLong(in));
+					break;
+				case "ModifyIndex":
+					service.setModifyIndex(readLong(in));
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return service;
+	}
+}
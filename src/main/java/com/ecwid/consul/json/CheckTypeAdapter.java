@@ -0,0 +1,111 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.health.model.Check;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.ecwid.consul.json.JsonValues.readLong;
+import static com.ecwid.consul.json.JsonValues.readString;
+import static com.ecwid.consul.json.JsonValues.readStringList;
+import static com.ecwid.consul.json.JsonValues.writeStringList;
+
+final class CheckTypeAdapter extends TypeAdapter<Check> {
+
+	private final StringInterner interner;
+
+	/**
+	 * @param interner pool the strings are interned in, or null
+	 */
+	CheckTypeAdapter(StringInterner interner) {
+		this.interner = interner;
+	}
+
+	@Override
+	public void write(JsonWriter out, Check check) throws IOException {
+		out.beginObject();
+		out.name("Node").value(check.getNode());
+		out.name("CheckID").value(check.getCheckId());
+		out.name("Name").value(check.getName());
+		out.name("Status").value(check.getStatus() == null ? null : check.getStatus().name().toLowerCase());
+		out.name("Notes").value(check.getNotes());
+		out.name("Output").value(check.getOutput());
+		out.name("ServiceID").value(check.getServiceId());
+		out.name("ServiceName").value(check.getServiceName());
+		out.name("ServiceTags");
+		writeStringList(out, check.getServiceTags());
+		out.name("CreateIndex").value(check.getCreateIndex());
+		out.name("ModifyIndex").value(check.getModifyIndex());
+		out.endObject();
+	}
+
+	@Override
+	public Check read(JsonReader in) throws IOException {
+		Check check = new Check();
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "Node":
+					check.setNode(readString(in, interner));
+					break;
+				case "CheckID":
+					check.setCheckId(readString(in, interner));
+					break;
+				case "Name":
+					check.setName(readString(in, interner));
+					break;
+				case "Status":
+					check.setStatus(readStatus(in));
+					break;
+				case "Notes":
+					check.setNotes(readString(in, interner));
+					break;
+				case "Output":
+					check.setOutput(readString(in));
+					break;
+				case "ServiceID":
+					check.setServiceId(readString(in, interner));
+					break;
+				case "ServiceName":
+					check.setServiceName(readString(in, interner));
+					break;
+				case "ServiceTags":
+					check.setServiceTags(readStringList(in, interner));
+					break;
+				case "CreateIndex":
+					check.setCreateIndex(readLong(in));
+					break;
+				case "ModifyIndex":
+					check.setModifyIndex(readLong(in));
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return check;
+	}
+
+	// unknown statuses are read as null, like Gson's enum adapter does
+	private static Check.CheckStatus readStatus(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		switch (in.nextString()) {
+			case "unknown":
+				return Check.CheckStatus.UNKNOWN;
+			case "passing":
+				return Check.CheckStatus.PASSING;
+			case "warning":
+				return Check.CheckStatus.WARNING;
+			case "critical":
+				return Check.CheckStatus.CRITICAL;
+			default:
+				return null;
+		}
+	}
+}
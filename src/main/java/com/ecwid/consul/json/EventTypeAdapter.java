@@ -0,0 +1,71 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.event.model.Event;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.ecwid.consul.json.JsonValues.readInteger;
+import static com.ecwid.consul.json.JsonValues.readString;
+
+final class EventTypeAdapter extends TypeAdapter<Event> {
+
+	@Override
+	public void write(JsonWriter out, Event event) throws IOException {
+		out.beginObject();
+		out.name("ID").value(event.getId());
+		out.name("Name").value(event.getName());
+		out.name("Payload").value(event.getPayload());
+		out.name("NodeFilter").value(event.getNodeFilter());
+		out.name("ServiceFilter").value(event.getServiceFilter());
+		out.name("TagFilter").value(event.getTagFilter());
+		out.name("Version").value(event.getVersion());
+		out.name("LTime").value(event.getlTime());
+		out.endObject();
+	}
+
+	@Override
+	public Event read(JsonReader in) throws IOException {
+		Event event = new Event();
+		in.beginObject();
+		while (in.hasNext()) {
+			Integer number;
+			switch (in.nextName()) {
+				case "ID":
+					event.setId(readString(in));
+					break;
+				case "Name":
+					event.setName(readString(in));
+					break;
+				case "Payload":
+					event.setPayload(readString(in));
+					break;
+				case "NodeFilter":
+					event.setNodeFilter(readString(in));
+					break;
+				case "ServiceFilter":
+					event.setServiceFilter(readString(in));
+					break;
+				case "TagFilter":
+					event.setTagFilter(readString(in));
+					break;
+				case "Version":
+					if ((number = readInteger(in)) != null) {
+						event.setVersion(number);
+					}
+					break;
+				case "LTime":
+					if ((number = readInteger(in)) != null) {
+						event.setlTime(number);
+					}
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return event;
+	}
+}
@@ -0,0 +1,71 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.kv.model.Base64Value;
+import com.ecwid.consul.v1.kv.model.GetBinaryValue;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.ecwid.consul.json.JsonValues.readLong;
+import static com.ecwid.consul.json.JsonValues.readString;
+
+final class GetBinaryValueTypeAdapter extends TypeAdapter<GetBinaryValue> {
+
+	@Override
+	public void write(JsonWriter out, GetBinaryValue value) throws IOException {
+		out.beginObject();
+		out.name("CreateIndex").value(value.getCreateIndex());
+		out.name("ModifyIndex").value(value.getModifyIndex());
+		out.name("LockIndex").value(value.getLockIndex());
+		out.name("Flags").value(value.getFlags());
+		out.name("Session").value(value.getSession());
+		out.name("Key").value(value.getKey());
+		Base64Value base64Value = value.getBase64Value();
+		out.name("Value").value(base64Value == null ? null : base64Value.getEncoded());
+		out.endObject();
+	}
+
+	@Override
+	public GetBinaryValue read(JsonReader in) throws IOException {
+		GetBinaryValue value = new GetBinaryValue();
+		in.beginObject();
+		while (in.hasNext()) {
+			Long number;
+			switch (in.nextName()) {
+				case "CreateIndex":
+					if ((number = readLong(in)) != null) {
+						value.setCreateIndex(number);
+					}
+					break;
+				case "ModifyIndex":
+					if ((number = readLong(in)) != null) {
+						value.setModifyIndex(number);
+					}
+					break;
+				case "LockIndex":
+					value.setLockIndex(readLong(in));
+					break;
+				case "Flags":
+					if ((number = readLong(in)) != null) {
+						value.setFlags(number);
+					}
+					break;
+				case "Session":
+					value.setSession(readString(in));
+					break;
+				case "Key":
+					value.setKey(readString(in));
+					break;
+				case "Value":
+					value.setBase64Value(Base64Value.fromEncoded(readString(in)));
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return value;
+	}
+}
@@ -0,0 +1,69 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.ecwid.consul.json.JsonValues.readLong;
+import static com.ecwid.consul.json.JsonValues.readString;
+
+final class GetValueTypeAdapter extends TypeAdapter<GetValue> {
+
+	@Override
+	public void write(JsonWriter out, GetValue value) throws IOException {
+		out.beginObject();
+		out.name("CreateIndex").value(value.getCreateIndex());
+		out.name("ModifyIndex").value(value.getModifyIndex());
+		out.name("LockIndex").value(value.getLockIndex());
+		out.name("Flags").value(value.getFlags());
+		out.name("Session").value(value.getSession());
+		out.name("Key").value(value.getKey());
+		out.name("Value").value(value.getValue());
+		out.endObject();
+	}
+
+	@Override
+	public GetValue read(JsonReader in) throws IOException {
+		GetValue value = new GetValue();
+		in.beginObject();
+		while (in.hasNext()) {
+			Long number;
+			switch (in.nextName()) {
+				case "CreateIndex":
+					if ((number = readLong(in)) != null) {
+						value.setCreateIndex(number);
+					}
+					break;
+				case "ModifyIndex":
+					if ((number = readLong(in)) != null) {
+						value.setModifyIndex(number);
+					}
+					break;
+				case "LockIndex":
+					value.setLockIndex(readLong(in));
+					break;
+				case "Flags":
+					if ((number = readLong(in)) != null) {
+						value.setFlags(number);
+					}
+					break;
+				case "Session":
+					value.setSession(readString(in));
+					break;
+				case "Key":
+					value.setKey(readString(in));
+					break;
+				case "Value":
+					value.setValue(readString(in));
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return value;
+	}
+}
@@ -1,17 +1,66 @@
 package com.ecwid.consul.json;
 
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.ecwid.consul.v1.event.model.Event;
+import com.ecwid.consul.v1.health.model.Check;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.ecwid.consul.v1.kv.model.GetBinaryValue;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.session.model.Session;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.lang.reflect.Type;
+
 /**
  * @author Vasily Vasilkov (vgv@ecwid.com)
  */
 public class GsonFactory {
 
-	private static final Gson GSON = new Gson();
+	// the models on the hot read paths are (de)serialized by hand-written streaming adapters instead of reflection
+	private static final Gson GSON = createGson(null);
 
 	public static Gson getGson() {
 		return GSON;
 	}
 
+	/**
+	 * @param stringInterner pool the node, service and check strings of decoded health and catalog responses are
+	 *                       interned in, see {@link StringInterner}; null for none
+	 * @return the shared instance without a pool, otherwise a new one, which should be created once per pool
+	 */
+	public static Gson getGson(StringInterner stringInterner) {
+		return stringInterner == null ? GSON : createGson(stringInterner);
+	}
+
+	/**
+	 * @return decoder which reads a value of the given type straight from the response stream
+	 */
+	public static <T> ContentDecoder<T> getDecoder(Type type) {
+		return getDecoder(GSON, type);
+	}
+
+	/**
+	 * @return decoder which reads a value of the given type straight from the response stream with the given Gson
+	 */
+	public static <T> ContentDecoder<T> getDecoder(Gson gson, Type type) {
+		return reader -> gson.fromJson(reader, type);
+	}
+
+	private static Gson createGson(StringInterner stringInterner) {
+		HealthServiceTypeAdapter healthServiceAdapter = new HealthServiceTypeAdapter(stringInterner);
+		return new GsonBuilder()
+				.registerTypeAdapter(HealthService.class, healthServiceAdapter.nullSafe())
+				.registerTypeAdapter(HealthService.Node.class, healthServiceAdapter.node)
+				.registerTypeAdapter(HealthService.Service.class, healthServiceAdapter.service)
+				.registerTypeAdapter(Check.class, healthServiceAdapter.check)
+				.registerTypeAdapter(CatalogService.class, new CatalogServiceTypeAdapter(stringInterner).nullSafe())
+				.registerTypeAdapter(GetValue.class, new GetValueTypeAdapter().nullSafe())
+				.registerTypeAdapter(GetBinaryValue.class, new GetBinaryValueTypeAdapter().nullSafe())
+				.registerTypeAdapter(Session.class, new SessionTypeAdapter().nullSafe())
+				.registerTypeAdapter(Event.class, new EventTypeAdapter().nullSafe())
+				.create();
+	}
+
 }
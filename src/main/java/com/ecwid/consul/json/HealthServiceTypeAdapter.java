@@ -0,0 +1,226 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.health.model.Check;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ecwid.consul.json.JsonValues.readBoolean;
+import static com.ecwid.consul.json.JsonValues.readInteger;
+import static com.ecwid.consul.json.JsonValues.readLong;
+import static com.ecwid.consul.json.JsonValues.readString;
+import static com.ecwid.consul.json.JsonValues.readStringList;
+import static com.ecwid.consul.json.JsonValues.readStringMap;
+import static com.ecwid.consul.json.JsonValues.writeStringList;
+import static com.ecwid.consul.json.JsonValues.writeStringMap;
+
+final class HealthServiceTypeAdapter extends TypeAdapter<HealthService> {
+
+	// registered for the nested types too, so they're decoded alike on their own
+	final TypeAdapter<HealthService.Node> node;
+	final TypeAdapter<HealthService.Service> service;
+	final TypeAdapter<Check> check;
+
+	/**
+	 * @param interner pool the node, service and check strings are interned in, or null
+	 */
+	HealthServiceTypeAdapter(StringInterner interner) {
+		this.node = new NodeTypeAdapter(interner).nullSafe();
+		this.service = new ServiceTypeAdapter(interner).nullSafe();
+		this.check = new CheckTypeAdapter(interner).nullSafe();
+	}
+
+	private static final class NodeTypeAdapter extends TypeAdapter<HealthService.Node> {
+
+		private final StringInterner interner;
+
+		NodeTypeAdapter(StringInterner interner) {
+			this.interner = interner;
+		}
+
+		@Override
+		public void write(JsonWriter out, HealthService.Node node) throws IOException {
+			out.beginObject();
+			out.name("ID").value(node.getId());
+			out.name("Node").value(node.getNode());
+			out.name("Address").value(node.getAddress());
+			out.name("Datacenter").value(node.getDatacenter());
+			out.name("TaggedAddresses");
+			writeStringMap(out, node.getTaggedAddresses());
+			out.name("Meta");
+			writeStringMap(out, node.getMeta());
+			out.name("CreateIndex").value(node.getCreateIndex());
+			out.name("ModifyIndex").value(node.getModifyIndex());
+			out.endObject();
+		}
+
+		@Override
+		public HealthService.Node read(JsonReader in) throws IOException {
+			HealthService.Node node = new HealthService.Node();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "ID":
+						node.setId(readString(in, interner));
+						break;
+					case "Node":
+						node.setNode(readString(in, interner));
+						break;
+					case "Address":
+						node.setAddress(readString(in, interner));
+						break;
+					case "Datacenter":
+						node.setDatacenter(readString(in, interner));
+						break;
+					case "TaggedAddresses":
+						node.setTaggedAddresses(readStringMap(in, interner));
+						break;
+					case "Meta":
+						node.setMeta(readStringMap(in, interner));
+						break;
+					case "CreateIndex":
+						node.setCreateIndex(readLong(in));
+						break;
+					case "ModifyIndex":
+						node.setModifyIndex(readLong(in));
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return node;
+		}
+	}
+
+	private static final class ServiceTypeAdapter extends TypeAdapter<HealthService.Service> {
+
+		private final StringInterner interner;
+
+		ServiceTypeAdapter(StringInterner interner) {
+			this.interner = interner;
+		}
+
+		@Override
+		public void write(JsonWriter out, HealthService.Service service) throws IOException {
+			out.beginObject();
+			out.name("ID").value(service.getId());
+			out.name("Service").value(service.getService());
+			out.name("Tags");
+			writeStringList(out, service.getTags());
+			out.name("Address").value(service.getAddress());
+			out.name("Meta");
+			writeStringMap(out, service.getMeta());
+			out.name("Port").value(service.getPort());
+			out.name("EnableTagOverride").value(service.getEnableTagOverride());
+			out.name("CreateIndex").value(service.getCreateIndex());
+			out.name("ModifyIndex").value(service.getModifyIndex());
+			out.endObject();
+		}
+
+		@Override
+		public HealthService.Service read(JsonReader in) throws IOException {
+			HealthService.Service service = new HealthService.Service();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "ID":
+						service.setId(readString(in, interner));
+						break;
+					case "Service":
+						service.setService(readString(in, interner));
+						break;
+					case "Tags":
+						service.setTags(readStringList(in, interner));
+						break;
+					case "Address":
+						service.setAddress(readString(in, interner));
+						break;
+					case "Meta":
+						service.setMeta(readStringMap(in, interner));
+						break;
+					case "Port":
+						service.setPort(readInteger(in));
+						break;
+					case "EnableTagOverride":
+						service.setEnableTagOverride(readBoolean(in));
+						break;
+					case "CreateIndex":
+						service.setCreateIndex(readLong(in));
+						break;
+					case "ModifyIndex":
+						service.setModifyIndex(readLong(in));
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return service;
+		}
+	}
+
+	@Override
+	public void write(JsonWriter out, HealthService healthService) throws IOException {
+		out.beginObject();
+		out.name("Node");
+		node.write(out, healthService.getNode());
+		out.name("Service");
+		service.write(out, healthService.getService());
+		out.name("Checks");
+		List<Check> checks = healthService.getChecks();
+		if (checks == null) {
+			out.nullValue();
+		} else {
+			out.beginArray();
+			for (Check item : checks) {
+				check.write(out, item);
+			}
+			out.endArray();
+		}
+		out.endObject();
+	}
+
+	@Override
+	public HealthService read(JsonReader in) throws IOException {
+		HealthService healthService = new HealthService();
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "Node":
+					healthService.setNode(node.read(in));
+					break;
+				case "Service":
+					healthService.setService(service.read(in));
+					break;
+				case "Checks":
+					healthService.setChecks(readChecks(in));
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return healthService;
+	}
+
+	private List<Check> readChecks(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		List<Check> checks = new ArrayList<>();
+		in.beginArray();
+		while (in.hasNext()) {
+			checks.add(check.read(in));
+		}
+		in.endArray();
+		return checks;
+	}
+}
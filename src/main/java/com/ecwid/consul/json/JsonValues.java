@@ -0,0 +1,145 @@
+package com.ecwid.consul.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the value types used by the model type adapters, with the same leniency as Gson's built-in adapters.
+ */
+final class JsonValues {
+
+	private JsonValues() {
+	}
+
+	static String readString(JsonReader in) throws IOException {
+		JsonToken token = in.peek();
+		if (token == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		if (token == JsonToken.BOOLEAN) {
+			return Boolean.toString(in.nextBoolean());
+		}
+		return in.nextString();
+	}
+
+	/**
+	 * @param interner pool to intern the value in, or null
+	 */
+	static String readString(JsonReader in, StringInterner interner) throws IOException {
+		String value = readString(in);
+		return interner != null ? interner.intern(value) : value;
+	}
+
+	static Long readLong(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		try {
+			return in.nextLong();
+		} catch (NumberFormatException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+	static Integer readInteger(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		try {
+			return in.nextInt();
+		} catch (NumberFormatException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+	static Boolean readBoolean(JsonReader in) throws IOException {
+		JsonToken token = in.peek();
+		if (token == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		if (token == JsonToken.STRING) {
+			return Boolean.parseBoolean(in.nextString());
+		}
+		return in.nextBoolean();
+	}
+
+	static List<String> readStringList(JsonReader in) throws IOException {
+		return readStringList(in, null);
+	}
+
+	static List<String> readStringList(JsonReader in, StringInterner interner) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		List<String> list = new ArrayList<>();
+		in.beginArray();
+		while (in.hasNext()) {
+			list.add(readString(in, interner));
+		}
+		in.endArray();
+		return list;
+	}
+
+	static Map<String, String> readStringMap(JsonReader in) throws IOException {
+		return readStringMap(in, null);
+	}
+
+	// interns keys and values
+	static Map<String, String> readStringMap(JsonReader in, StringInterner interner) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		Map<String, String> map = new LinkedHashMap<>();
+		in.beginObject();
+		while (in.hasNext()) {
+			String key = in.nextName();
+			if (map.containsKey(key)) {
+				throw new JsonSyntaxException("duplicate key: " + key);
+			}
+			map.put(interner != null ? interner.intern(key) : key, readString(in, interner));
+		}
+		in.endObject();
+		return map;
+	}
+
+	// a null value drops the name as well unless the writer serializes nulls
+
+	static void writeStringList(JsonWriter out, List<String> list) throws IOException {
+		if (list == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginArray();
+		for (String value : list) {
+			out.value(value);
+		}
+		out.endArray();
+	}
+
+	static void writeStringMap(JsonWriter out, Map<String, String> map) throws IOException {
+		if (map == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			out.name(String.valueOf(entry.getKey()));
+			out.value(entry.getValue());
+		}
+		out.endObject();
+	}
+}
@@ -0,0 +1,97 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.session.model.Session;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.ecwid.consul.json.JsonValues.readLong;
+import static com.ecwid.consul.json.JsonValues.readString;
+import static com.ecwid.consul.json.JsonValues.readStringList;
+import static com.ecwid.consul.json.JsonValues.writeStringList;
+
+final class SessionTypeAdapter extends TypeAdapter<Session> {
+
+	@Override
+	public void write(JsonWriter out, Session session) throws IOException {
+		out.beginObject();
+		out.name("LockDelay").value(session.getLockDelay());
+		out.name("Checks");
+		writeStringList(out, session.getChecks());
+		out.name("Node").value(session.getNode());
+		out.name("ID").value(session.getId());
+		out.name("Name").value(session.getName());
+		out.name("CreateIndex").value(session.getCreateIndex());
+		out.name("ModifyIndex").value(session.getModifyIndex());
+		out.name("TTL").value(session.getTtl());
+		out.name("Behavior").value(session.getBehavior() == null ? null : session.getBehavior().name().toLowerCase());
+		out.endObject();
+	}
+
+	@Override
+	public Session read(JsonReader in) throws IOException {
+		Session session = new Session();
+		in.beginObject();
+		while (in.hasNext()) {
+			Long number;
+			switch (in.nextName()) {
+				case "LockDelay":
+					if ((number = readLong(in)) != null) {
+						session.setLockDelay(number);
+					}
+					break;
+				case "Checks":
+					session.setChecks(readStringList(in));
+					break;
+				case "Node":
+					session.setNode(readString(in));
+					break;
+				case "ID":
+					session.setId(readString(in));
+					break;
+				case "Name":
+					session.setName(readString(in));
+					break;
+				case "CreateIndex":
+					if ((number = readLong(in)) != null) {
+						session.setCreateIndex(number);
+					}
+					break;
+				case "ModifyIndex":
+					if ((number = readLong(in)) != null) {
+						session.setModifyIndex(number);
+					}
+					break;
+				case "TTL":
+					session.setTtl(readString(in));
+					break;
+				case "Behavior":
+					session.setBehavior(readBehavior(in));
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+		return session;
+	}
+
+	// unknown behaviors are read as null, like Gson's enum adapter does
+	private static Session.Behavior readBehavior(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		switch (in.nextString()) {
+			case "release":
+				return Session.Behavior.RELEASE;
+			case "delete":
+				return Session.Behavior.DELETE;
+			default:
+				return null;
+		}
+	}
+}
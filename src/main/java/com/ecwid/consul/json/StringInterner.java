@@ -0,0 +1,73 @@
+package com.ecwid.consul.json;
+
+/**
+ * Bounded pool which deduplicates the strings of decoded responses, e.g. node and service names, tags and meta keys
+ * and values. Every poll of a health or catalog endpoint decodes the same few thousand strings again; with interning
+ * a long-lived cache of the results holds one instance of each instead of one per response.
+ * <p>
+ * The pool is a fixed-size table indexed by hash, a string replaces whatever occupies its slot. Memory is bounded by
+ * the capacity and the maximum length, and a lookup is a single array access without locking. Strings which change
+ * often just evict each other and cost nothing but the lookup. This class is thread safe.
+ *
+ * @see com.ecwid.consul.v1.ConsulRawClient.Builder#setStringInterner(StringInterner)
+ */
+public final class StringInterner {
+
+	public static final int DEFAULT_CAPACITY = 16 * 1024;
+	public static final int DEFAULT_MAX_LENGTH = 128;
+
+	// racy reads and writes are fine, a String is safely published through its final fields
+	private final String[] table;
+	private final int mask;
+	private final int maxLength;
+
+	public StringInterner() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+	}
+
+	/**
+	 * @param capacity  number of strings the pool holds at most, rounded up to a power of two
+	 * @param maxLength longer strings, e.g. check outputs, are never interned
+	 */
+	public StringInterner(int capacity, int maxLength) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Expected capacity 1.." + (1 << 30) + ", got " + capacity);
+		}
+		if (maxLength < 0) {
+			throw new IllegalArgumentException("maxLength must not be negative");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.table = new String[size];
+		this.mask = size - 1;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * @return an equal pooled string if there is one, otherwise {@code value}, which is pooled unless it's too long
+	 */
+	public String intern(String value) {
+		if (value == null || value.length() > maxLength) {
+			return value;
+		}
+
+		int hash = value.hashCode();
+		int index = (hash ^ (hash >>> 16)) & mask;
+		String pooled = table[index];
+		if (value.equals(pooled)) {
+			return pooled;
+		}
+		table[index] = value;
+		return value;
+	}
+
+	public int getCapacity() {
+		return table.length;
+	}
+
+	public int getMaxLength() {
+		return maxLength;
+	}
+}
@@ -2,7 +2,9 @@ package com.ecwid.consul.transport;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderIterator;
+import org.apache.http.HttpEntity;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
@@ -13,6 +15,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.StreamSupport;
 
@@ -30,30 +33,37 @@ public abstract class AbstractHttpTransport implements HttpTransport {
 
 	@Override
 	public HttpResponse makeGetRequest(HttpRequest request) {
-		HttpGet httpGet = new HttpGet(request.getUrl());
-		addHeadersToRequest(httpGet, request.getHeaders());
-
-		return executeRequest(httpGet);
+		HttpGet httpGet = createGetRequest(request);
+		if (isResponseCompression()) {
+			acceptCompressedResponse(httpGet);
+		}
+		return executeRequest(selectHttpClient(request, httpGet), httpGet);
 	}
 
 	@Override
 	public HttpResponse makePutRequest(HttpRequest request) {
-		HttpPut httpPut = new HttpPut(request.getUrl());
-		addHeadersToRequest(httpPut, request.getHeaders());
-		if (request.getContent() != null) {
-			httpPut.setEntity(new StringEntity(request.getContent(), StandardCharsets.UTF_8));
-		} else {
-			httpPut.setEntity(new ByteArrayEntity(request.getBinaryContent()));
-		}
-
-		return executeRequest(httpPut);
+		return executeRequest(getHttpClient(), createPutRequest(request));
 	}
 
 	@Override
 	public HttpResponse makeDeleteRequest(HttpRequest request) {
-		HttpDelete httpDelete = new HttpDelete(request.getUrl());
-		addHeadersToRequest(httpDelete, request.getHeaders());
-		return executeRequest(httpDelete);
+		return executeRequest(getHttpClient(), createDeleteRequest(request));
+	}
+
+	@Override
+	public <T> DecodedHttpResponse<T> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		HttpGet httpGet = createGetRequest(request);
+		if (isResponseCompression()) {
+			acceptCompressedResponse(httpGet);
+		}
+		HttpClient httpClient = selectHttpClient(request, httpGet);
+		logRequest(httpGet);
+
+		try {
+			return httpClient.execute(httpGet, response -> toDecodedHttpResponse(response, decoder));
+		} catch (IOException e) {
+			throw new TransportException(e);
+		}
 	}
 
 	/**
@@ -63,33 +73,161 @@ public abstract class AbstractHttpTransport implements HttpTransport {
 	 */
 	protected abstract HttpClient getHttpClient();
 
-	private HttpResponse executeRequest(HttpUriRequest httpRequest) {
-		logRequest(httpRequest);
+	/**
+	 * Override to send blocking queries through a separate connection pool, so long polls can't take all connections
+	 * from short requests. By default they share {@link #getHttpClient()}.
+	 *
+	 * @return HttpClient for blocking queries
+	 */
+	protected HttpClient getLongPollHttpClient() {
+		return getHttpClient();
+	}
 
-		try {
-			return getHttpClient().execute(httpRequest, response -> {
-				int statusCode = response.getStatusLine().getStatusCode();
-				String statusMessage = response.getStatusLine().getReasonPhrase();
+	/**
+	 * @param waitMillis wait time of the blocking query
+	 * @return request config of a blocking query, or {@code null} to keep the defaults of the client
+	 */
+	protected RequestConfig getLongPollRequestConfig(long waitMillis) {
+		return null;
+	}
+
+	/**
+	 * Override to ask for gzip or deflate compressed responses to GET requests, which are decompressed while they are
+	 * decoded. The client must not decompress them itself, see {@link org.apache.http.impl.client.HttpClientBuilder#disableContentCompression()}.
+	 *
+	 * @return whether to send {@code Accept-Encoding}, false by default
+	 */
+	protected boolean isResponseCompression() {
+		return false;
+	}
 
-				String content = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+	// blocking queries go to the long-poll lane, with a read timeout derived from their wait time
+	private HttpClient selectHttpClient(HttpRequest request, HttpRequestBase httpRequest) {
+		if (!BlockingQueries.isBlockingQuery(request.getUrl())) {
+			return getHttpClient();
+		}
+		RequestConfig requestConfig = getLongPollRequestConfig(BlockingQueries.requestedWaitMillis(request.getUrl()));
+		if (requestConfig != null) {
+			httpRequest.setConfig(requestConfig);
+		}
+		return getLongPollHttpClient();
+	}
 
-				Long consulIndex = parseUnsignedLong(response.getFirstHeader("X-Consul-Index"));
-				Boolean consulKnownLeader = parseBoolean(response.getFirstHeader("X-Consul-Knownleader"));
-				Long consulLastContact = parseUnsignedLong(response.getFirstHeader("X-Consul-Lastcontact"));
+	private HttpResponse executeRequest(HttpClient httpClient, HttpUriRequest httpRequest) {
+		logRequest(httpRequest);
 
-				return new HttpResponse(statusCode, statusMessage, content, consulIndex, consulKnownLeader, consulLastContact);
-			});
+		try {
+			return httpClient.execute(httpRequest, AbstractHttpTransport::toHttpResponse);
 		} catch (IOException e) {
 			throw new TransportException(e);
 		}
 	}
 
-	private Long parseUnsignedLong(Header header) {
-		if (header == null) {
-			return null;
+	static HttpGet createGetRequest(HttpRequest request) {
+		HttpGet httpGet = new HttpGet(request.getUrl());
+		addHeadersToRequest(httpGet, request.getHeaders());
+
+		return httpGet;
+	}
+
+	static HttpPut createPutRequest(HttpRequest request) {
+		HttpPut httpPut = new HttpPut(request.getUrl());
+		addHeadersToRequest(httpPut, request.getHeaders());
+		if (request.getContent() != null) {
+			httpPut.setEntity(new StringEntity(request.getContent(), StandardCharsets.UTF_8));
+		} else {
+			httpPut.setEntity(new ByteArrayEntity(request.getBinaryContent()));
+		}
+
+		return httpPut;
+	}
+
+	// an Accept-Encoding given by the caller wins
+	static void acceptCompressedResponse(HttpGet httpGet) {
+		if (!httpGet.containsHeader(ResponseBody.ACCEPT_ENCODING_HEADER)) {
+			httpGet.addHeader(ResponseBody.ACCEPT_ENCODING_HEADER, ResponseBody.SUPPORTED_ENCODINGS);
+		}
+	}
+
+	static HttpDelete createDeleteRequest(HttpRequest request) {
+		HttpDelete httpDelete = new HttpDelete(request.getUrl());
+		addHeadersToRequest(httpDelete, request.getHeaders());
+
+		return httpDelete;
+	}
+
+	static HttpResponse toHttpResponse(org.apache.http.HttpResponse response) throws IOException {
+		int statusCode = response.getStatusLine().getStatusCode();
+		String statusMessage = response.getStatusLine().getReasonPhrase();
+
+		HttpEntity entity = response.getEntity();
+		if (!isCompressed(response)) {
+			String content = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+			return toHttpResponse(response, statusCode, statusMessage, content, null);
+		}
+
+		try (ResponseBody body = openBody(response)) {
+			return toHttpResponse(response, statusCode, statusMessage, body.readString(), body.getCompressedBytes());
+		}
+	}
+
+	// decodes a successful response straight from the entity stream, without buffering the body
+	static <T> DecodedHttpResponse<T> toDecodedHttpResponse(org.apache.http.HttpResponse response, ContentDecoder<T> decoder) throws IOException {
+		int statusCode = response.getStatusLine().getStatusCode();
+		String statusMessage = response.getStatusLine().getReasonPhrase();
+		HttpEntity entity = response.getEntity();
+
+		if (entity == null) {
+			return new DecodedHttpResponse<>(toHttpResponse(response, statusCode, statusMessage, null, null), null);
+		}
+
+		String content = null;
+		T value = null;
+		try (ResponseBody body = openBody(response)) {
+			if (statusCode == 200) {
+				value = body.decode(decoder);
+			} else {
+				content = body.readString();
+			}
+			return new DecodedHttpResponse<>(toHttpResponse(response, statusCode, statusMessage, content, body.getCompressedBytes()), value);
 		}
+	}
+
+	private static boolean isCompressed(org.apache.http.HttpResponse response) {
+		return response.getEntity() != null && response.containsHeader(ResponseBody.CONTENT_ENCODING_HEADER);
+	}
+
+	private static ResponseBody openBody(org.apache.http.HttpResponse response) throws IOException {
+		Header contentEncoding = response.getFirstHeader(ResponseBody.CONTENT_ENCODING_HEADER);
+		return ResponseBody.open(response.getEntity().getContent(), contentEncoding != null ? contentEncoding.getValue() : null);
+	}
+
+	private static HttpResponse toHttpResponse(org.apache.http.HttpResponse response, int statusCode, String statusMessage,
+											   String content, Long compressedBytes) {
+		return toHttpResponse(statusCode, statusMessage, content, compressedBytes, name -> {
+			Header header = response.getFirstHeader(name);
+			return header != null ? header.getValue() : null;
+		});
+	}
+
+	// shared by all transports, `headers` returns the first value of a response header or null
+	static HttpResponse toHttpResponse(int statusCode, String statusMessage, String content, Function<String, String> headers) {
+		return toHttpResponse(statusCode, statusMessage, content, null, headers);
+	}
+
+	// `compressedBytes` is the size of a compressed body as received, or null
+	static HttpResponse toHttpResponse(int statusCode, String statusMessage, String content, Long compressedBytes,
+									   Function<String, String> headers) {
+		Long consulIndex = parseUnsignedLong(headers.apply("X-Consul-Index"));
+		Boolean consulKnownLeader = parseBoolean(headers.apply("X-Consul-Knownleader"));
+		Long consulLastContact = parseUnsignedLong(headers.apply("X-Consul-Lastcontact"));
+		Boolean cacheHit = parseCacheHit(headers.apply("X-Cache"));
+		Long cacheAge = parseUnsignedLong(headers.apply("Age"));
+
+		return new HttpResponse(statusCode, statusMessage, content, consulIndex, consulKnownLeader, consulLastContact, cacheHit, cacheAge, compressedBytes);
+	}
 
-		String value = header.getValue();
+	private static Long parseUnsignedLong(String value) {
 		if (value == null) {
 			return null;
 		}
@@ -101,23 +239,31 @@ public abstract class AbstractHttpTransport implements HttpTransport {
 		}
 	}
 
-	private Boolean parseBoolean(Header header) {
-		if (header == null) {
-			return null;
+	private static Boolean parseBoolean(String value) {
+		if ("true".equals(value)) {
+			return true;
 		}
 
-		if ("true".equals(header.getValue())) {
+		if ("false".equals(value)) {
+			return false;
+		}
+
+		return null;
+	}
+
+	private static Boolean parseCacheHit(String value) {
+		if ("HIT".equals(value)) {
 			return true;
 		}
 
-		if ("false".equals(header.getValue())) {
+		if ("MISS".equals(value)) {
 			return false;
 		}
 
 		return null;
 	}
 
-	private void addHeadersToRequest(HttpRequestBase request, Map<String, String> headers) {
+	private static void addHeadersToRequest(HttpRequestBase request, Map<String, String> headers) {
 		if (headers == null) {
 			return;
 		}
@@ -130,7 +276,7 @@ public abstract class AbstractHttpTransport implements HttpTransport {
 		}
 	}
 
-	private void logRequest(HttpUriRequest httpRequest) {
+	static void logRequest(HttpUriRequest httpRequest) {
 		StringBuilder sb = new StringBuilder();
 
 		// method
@@ -0,0 +1,25 @@
+package com.ecwid.consul.transport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link HttpTransport}. Returned futures are completed by the transport's I/O threads,
+ * so callers must not run long blocking work directly in their completion stages. Cancelling a returned future aborts
+ * the request, see {@link Futures}.
+ */
+public interface AsyncHttpTransport {
+
+	public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request);
+
+	public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request);
+
+	public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request);
+
+	/**
+	 * Non-blocking counterpart of {@link HttpTransport#makeGetRequest(HttpRequest, ContentDecoder)}.
+	 */
+	public default <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return Futures.thenApply(makeGetRequest(request), httpResponse -> DecodedHttpResponse.decode(httpResponse, decoder));
+	}
+
+}
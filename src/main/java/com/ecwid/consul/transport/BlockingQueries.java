@@ -0,0 +1,91 @@
+package com.ecwid.consul.transport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognizes blocking queries by the query parameters of their URL.
+ *
+ * @see <a href="https://developer.hashicorp.com/consul/api-docs/features/blocking">Blocking queries</a>
+ */
+public final class BlockingQueries {
+
+	// the agent's wait time of a blocking query without a wait parameter
+	public static final long DEFAULT_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	// longer wait times are cut to this by the agent
+	public static final long MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private BlockingQueries() {
+	}
+
+	/**
+	 * @return the {@code index} query parameter, 0 if there is none
+	 */
+	public static long requestedIndex(String url) {
+		String value = queryValue(url, "index=");
+		if (value == null) {
+			return 0;
+		}
+		try {
+			return Long.parseUnsignedLong(value);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	public static boolean isBlockingQuery(String url) {
+		return requestedIndex(url) != 0;
+	}
+
+	/**
+	 * @return time the agent waits for a change before it answers a blocking query, at most {@link #MAX_WAIT_MILLIS}
+	 */
+	public static long requestedWaitMillis(String url) {
+		String wait = queryValue(url, "wait=");
+		if (wait == null || wait.isEmpty()) {
+			return DEFAULT_WAIT_MILLIS;
+		}
+		try {
+			long millis;
+			if (wait.endsWith("ms")) {
+				millis = Long.parseLong(wait.substring(0, wait.length() - 2));
+			} else {
+				char unit = wait.charAt(wait.length() - 1);
+				long amount = Long.parseLong(Character.isDigit(unit) ? wait : wait.substring(0, wait.length() - 1));
+				switch (unit) {
+					case 'm':
+						millis = TimeUnit.MINUTES.toMillis(amount);
+						break;
+					case 'h':
+						millis = TimeUnit.HOURS.toMillis(amount);
+						break;
+					default:
+						millis = TimeUnit.SECONDS.toMillis(amount);
+				}
+			}
+			return Math.min(Math.max(millis, 0), MAX_WAIT_MILLIS);
+		} catch (NumberFormatException e) {
+			return DEFAULT_WAIT_MILLIS;
+		}
+	}
+
+	private static String queryValue(String url, String nameWithEquals) {
+		int query = url.indexOf('?');
+		if (query == -1) {
+			return null;
+		}
+		int start = query;
+		while (true) {
+			start = url.indexOf(nameWithEquals, start + 1);
+			if (start == -1) {
+				return null;
+			}
+			char before = url.charAt(start - 1);
+			if (before == '?' || before == '&') {
+				break;
+			}
+		}
+		start += nameWithEquals.length();
+		int end = url.indexOf('&', start);
+		return end == -1 ? url.substring(start) : url.substring(start, end);
+	}
+}
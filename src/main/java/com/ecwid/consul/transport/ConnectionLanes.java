@@ -0,0 +1,77 @@
+package com.ecwid.consul.transport;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * The two HTTP clients of the blocking Apache transports, see {@link ConnectionLanesConfig}.
+ */
+final class ConnectionLanes {
+
+	private final ConnectionLanesConfig config;
+	private final HttpClient fastHttpClient;
+	private final HttpClient longPollHttpClient;
+	private final RequestConfig longPollRequestConfig;
+
+	/**
+	 * @param registry socket factories by scheme, {@code null} for plain HTTP with system properties
+	 */
+	ConnectionLanes(ConnectionLanesConfig config, Registry<ConnectionSocketFactory> registry) {
+		this.config = config;
+
+		RequestConfig fastRequestConfig = requestConfig(config, config.getFastReadTimeoutMillis());
+		this.fastHttpClient = httpClient(registry, config.getFastMaxConnections(), config.getFastMaxPerRouteConnections(), fastRequestConfig);
+
+		// a blocking query gets its own read timeout, this one is for requests sent without it
+		this.longPollRequestConfig = requestConfig(config, config.getLongPollReadTimeoutMillis(BlockingQueries.MAX_WAIT_MILLIS));
+		this.longPollHttpClient = httpClient(registry, config.getLongPollMaxConnections(), config.getLongPollMaxPerRouteConnections(), longPollRequestConfig);
+	}
+
+	HttpClient getFastHttpClient() {
+		return fastHttpClient;
+	}
+
+	HttpClient getLongPollHttpClient() {
+		return longPollHttpClient;
+	}
+
+	boolean isResponseCompression() {
+		return config.isResponseCompression();
+	}
+
+	RequestConfig getLongPollRequestConfig(long waitMillis) {
+		return RequestConfig.copy(longPollRequestConfig)
+				.setSocketTimeout(config.getLongPollReadTimeoutMillis(waitMillis))
+				.build();
+	}
+
+	private static RequestConfig requestConfig(ConnectionLanesConfig config, int readTimeoutMillis) {
+		return RequestConfig.custom().
+				setConnectTimeout(config.getConnectTimeoutMillis()).
+				setConnectionRequestTimeout(config.getConnectTimeoutMillis()).
+				setSocketTimeout(readTimeoutMillis).
+				build();
+	}
+
+	private static HttpClient httpClient(Registry<ConnectionSocketFactory> registry, int maxConnections, int maxPerRouteConnections, RequestConfig requestConfig) {
+		PoolingHttpClientConnectionManager connectionManager = registry == null
+				? new PoolingHttpClientConnectionManager()
+				: new PoolingHttpClientConnectionManager(registry);
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxPerRouteConnections);
+
+		// compressed responses are decompressed by the transport, which streams them into the decoder and measures them
+		HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().
+				disableContentCompression().
+				setConnectionManager(connectionManager).
+				setDefaultRequestConfig(requestConfig);
+		if (registry == null) {
+			httpClientBuilder.useSystemProperties();
+		}
+		return httpClientBuilder.build();
+	}
+}
@@ -0,0 +1,169 @@
+package com.ecwid.consul.transport;
+
+/**
+ * Connection pools, timeouts and response compression of {@link DefaultHttpTransport} and {@link DefaultHttpsTransport}.
+ * <p>
+ * Blocking queries go through the long-poll lane, every other request through the fast lane. Each lane has its own
+ * connection pool, so watches holding connections for minutes can't starve short requests. Short requests time out
+ * after the fast read timeout; the read timeout of a blocking query is its wait time, plus the up to
+ * {@code wait / 16} the agent adds as jitter, plus the long-poll timeout margin.
+ * <p>
+ * GET requests ask for gzip or deflate compressed responses unless response compression is disabled. A compressed
+ * body is decompressed while it's decoded, and its size is reported in {@link HttpResponse#getCompressedBytes()}.
+ */
+public final class ConnectionLanesConfig {
+
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10 * 1000; // milliseconds
+	public static final int DEFAULT_FAST_MAX_CONNECTIONS = 200;
+	public static final int DEFAULT_FAST_MAX_PER_ROUTE_CONNECTIONS = 100;
+	public static final int DEFAULT_FAST_READ_TIMEOUT = 60 * 1000; // milliseconds
+	public static final int DEFAULT_LONG_POLL_MAX_CONNECTIONS = 1000;
+	public static final int DEFAULT_LONG_POLL_MAX_PER_ROUTE_CONNECTIONS = 500;
+	public static final int DEFAULT_LONG_POLL_TIMEOUT_MARGIN = 5 * 1000; // milliseconds
+
+	public static final ConnectionLanesConfig DEFAULT = newBuilder().build();
+
+	public static final class Builder {
+		private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT;
+		private int fastMaxConnections = DEFAULT_FAST_MAX_CONNECTIONS;
+		private int fastMaxPerRouteConnections = DEFAULT_FAST_MAX_PER_ROUTE_CONNECTIONS;
+		private int fastReadTimeoutMillis = DEFAULT_FAST_READ_TIMEOUT;
+		private int longPollMaxConnections = DEFAULT_LONG_POLL_MAX_CONNECTIONS;
+		private int longPollMaxPerRouteConnections = DEFAULT_LONG_POLL_MAX_PER_ROUTE_CONNECTIONS;
+		private int longPollTimeoutMarginMillis = DEFAULT_LONG_POLL_TIMEOUT_MARGIN;
+		private boolean responseCompression = true;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param connectTimeoutMillis timeout of connecting and of waiting for a pooled connection, in both lanes
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setConnectTimeoutMillis(int connectTimeoutMillis) {
+			this.connectTimeoutMillis = connectTimeoutMillis;
+			return this;
+		}
+
+		public Builder setFastMaxConnections(int fastMaxConnections) {
+			this.fastMaxConnections = fastMaxConnections;
+			return this;
+		}
+
+		public Builder setFastMaxPerRouteConnections(int fastMaxPerRouteConnections) {
+			this.fastMaxPerRouteConnections = fastMaxPerRouteConnections;
+			return this;
+		}
+
+		public Builder setFastReadTimeoutMillis(int fastReadTimeoutMillis) {
+			this.fastReadTimeoutMillis = fastReadTimeoutMillis;
+			return this;
+		}
+
+		public Builder setLongPollMaxConnections(int longPollMaxConnections) {
+			this.longPollMaxConnections = longPollMaxConnections;
+			return this;
+		}
+
+		public Builder setLongPollMaxPerRouteConnections(int longPollMaxPerRouteConnections) {
+			this.longPollMaxPerRouteConnections = longPollMaxPerRouteConnections;
+			return this;
+		}
+
+		/**
+		 * @param longPollTimeoutMarginMillis time a blocking query may take longer than its wait time and jitter
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setLongPollTimeoutMarginMillis(int longPollTimeoutMarginMillis) {
+			this.longPollTimeoutMarginMillis = longPollTimeoutMarginMillis;
+			return this;
+		}
+
+		/**
+		 * @param responseCompression whether GET requests ask for compressed responses, true by default. Compression
+		 *                            mostly pays off for large results fetched over slow links, e.g. from a remote
+		 *                            datacenter's servers.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setResponseCompression(boolean responseCompression) {
+			this.responseCompression = responseCompression;
+			return this;
+		}
+
+		public ConnectionLanesConfig build() {
+			if (connectTimeoutMillis <= 0 || fastReadTimeoutMillis <= 0 || longPollTimeoutMarginMillis <= 0) {
+				throw new IllegalArgumentException("Timeouts must be positive");
+			}
+			if (fastMaxConnections <= 0 || fastMaxPerRouteConnections <= 0
+				|| longPollMaxConnections <= 0 || longPollMaxPerRouteConnections <= 0) {
+				throw new IllegalArgumentException("Connection limits must be positive");
+			}
+			return new ConnectionLanesConfig(this);
+		}
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	private final int connectTimeoutMillis;
+	private final int fastMaxConnections;
+	private final int fastMaxPerRouteConnections;
+	private final int fastReadTimeoutMillis;
+	private final int longPollMaxConnections;
+	private final int longPollMaxPerRouteConnections;
+	private final int longPollTimeoutMarginMillis;
+	private final boolean responseCompression;
+
+	private ConnectionLanesConfig(Builder builder) {
+		this.connectTimeoutMillis = builder.connectTimeoutMillis;
+		this.fastMaxConnections = builder.fastMaxConnections;
+		this.fastMaxPerRouteConnections = builder.fastMaxPerRouteConnections;
+		this.fastReadTimeoutMillis = builder.fastReadTimeoutMillis;
+		this.longPollMaxConnections = builder.longPollMaxConnections;
+		this.longPollMaxPerRouteConnections = builder.longPollMaxPerRouteConnections;
+		this.longPollTimeoutMarginMillis = builder.longPollTimeoutMarginMillis;
+		this.responseCompression = builder.responseCompression;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public int getFastMaxConnections() {
+		return fastMaxConnections;
+	}
+
+	public int getFastMaxPerRouteConnections() {
+		return fastMaxPerRouteConnections;
+	}
+
+	public int getFastReadTimeoutMillis() {
+		return fastReadTimeoutMillis;
+	}
+
+	public int getLongPollMaxConnections() {
+		return longPollMaxConnections;
+	}
+
+	public int getLongPollMaxPerRouteConnections() {
+		return longPollMaxPerRouteConnections;
+	}
+
+	public int getLongPollTimeoutMarginMillis() {
+		return longPollTimeoutMarginMillis;
+	}
+
+	public boolean isResponseCompression() {
+		return responseCompression;
+	}
+
+	/**
+	 * @param waitMillis wait time of a blocking query
+	 * @return read timeout of the blocking query
+	 */
+	public int getLongPollReadTimeoutMillis(long waitMillis) {
+		long wait = Math.min(Math.max(waitMillis, 0), BlockingQueries.MAX_WAIT_MILLIS);
+		return (int) (wait + wait / 16 + longPollTimeoutMarginMillis);
+	}
+}
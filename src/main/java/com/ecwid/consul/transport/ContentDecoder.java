@@ -0,0 +1,17 @@
+package com.ecwid.consul.transport;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Decodes a response body directly from the character stream, so the body never has to be materialized as a
+ * {@link String}.
+ *
+ * @param <T> type of the decoded value
+ */
+@FunctionalInterface
+public interface ContentDecoder<T> {
+
+	public T decode(Reader reader) throws IOException;
+
+}
@@ -0,0 +1,54 @@
+package com.ecwid.consul.transport;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Response whose body was decoded by a {@link ContentDecoder}.
+ * <p>
+ * Only successful (200) responses are decoded. For them {@link HttpResponse#getContent()} of {@link #getHttpResponse()}
+ * is {@code null}; for any other status code the value is {@code null} and the raw body is available as content,
+ * so it can be reported as usual.
+ *
+ * @param <T> type of the decoded value
+ */
+public final class DecodedHttpResponse<T> {
+
+	private final HttpResponse httpResponse;
+	private final T value;
+
+	public DecodedHttpResponse(HttpResponse httpResponse, T value) {
+		this.httpResponse = httpResponse;
+		this.value = value;
+	}
+
+	/**
+	 * @return status and Consul metadata of the response
+	 */
+	public HttpResponse getHttpResponse() {
+		return httpResponse;
+	}
+
+	public T getValue() {
+		return value;
+	}
+
+	/**
+	 * Decodes an already buffered response, for transports which can't stream the body.
+	 */
+	public static <T> DecodedHttpResponse<T> decode(HttpResponse httpResponse, ContentDecoder<T> decoder) {
+		if (httpResponse.getStatusCode() != 200 || httpResponse.getContent() == null) {
+			return new DecodedHttpResponse<>(httpResponse, null);
+		}
+
+		try {
+			T value = decoder.decode(new StringReader(httpResponse.getContent()));
+			HttpResponse metadata = new HttpResponse(httpResponse.getStatusCode(), httpResponse.getStatusMessage(), null,
+				httpResponse.getConsulIndex(), httpResponse.isConsulKnownLeader(), httpResponse.getConsulLastContact(),
+				httpResponse.isCacheHit(), httpResponse.getCacheAge());
+			return new DecodedHttpResponse<>(metadata, value);
+		} catch (IOException e) {
+			throw new TransportException(e);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.ecwid.consul.transport;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Default non-blocking HTTP client, built on top of Apache HttpAsyncClient. A small pool of I/O reactor threads
+ * drives all in-flight requests, so long-running blocking queries do not pin a thread each.
+ * <p>
+ * The underlying client (and its I/O reactor) is created and started lazily on the first request, so an unused
+ * instance costs nothing. This class is thread safe.
+ * <p>
+ * With response compression enabled, GET requests ask for gzip or deflate compressed responses, which are decompressed
+ * while they are decoded.
+ * <p>
+ * Responses are decompressed and decoded on the decode executor, never on an I/O reactor thread: a large response
+ * decoded there would stall every other request the thread drives.
+ */
+public final class DefaultAsyncHttpTransport implements AsyncHttpTransport, Closeable {
+
+	// created on first use, decoding is CPU bound so one thread per processor is enough
+	private static final class DefaultDecodeExecutor {
+		private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+			Thread thread = new Thread(runnable, "consul-response-decoder");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private final Supplier<CloseableHttpAsyncClient> httpClientFactory;
+	private final boolean responseCompression;
+	private final Executor decodeExecutor;
+	private volatile CloseableHttpAsyncClient httpClient;
+
+	public DefaultAsyncHttpTransport() {
+		this(null, false);
+	}
+
+	public DefaultAsyncHttpTransport(TLSConfig tlsConfig) {
+		this(tlsConfig, false);
+	}
+
+	/**
+	 * @param tlsConfig           TLS settings, or null for plain HTTP
+	 * @param responseCompression whether GET requests ask for compressed responses
+	 */
+	public DefaultAsyncHttpTransport(TLSConfig tlsConfig, boolean responseCompression) {
+		this(tlsConfig, responseCompression, null);
+	}
+
+	/**
+	 * @param tlsConfig           TLS settings, or null for plain HTTP
+	 * @param responseCompression whether GET requests ask for compressed responses
+	 * @param decodeExecutor      decodes responses, a shared pool of one daemon thread per processor if null
+	 */
+	public DefaultAsyncHttpTransport(TLSConfig tlsConfig, boolean responseCompression, Executor decodeExecutor) {
+		this.httpClientFactory = () -> {
+			HttpAsyncClientBuilder httpClientBuilder = createHttpClientBuilder();
+			if (tlsConfig != null) {
+				httpClientBuilder.setSSLContext(DefaultHttpsTransport.createSslContext(tlsConfig));
+			}
+			return httpClientBuilder.build();
+		};
+		this.responseCompression = responseCompression;
+		this.decodeExecutor = decodeExecutor != null ? decodeExecutor : DefaultDecodeExecutor.INSTANCE;
+	}
+
+	public DefaultAsyncHttpTransport(CloseableHttpAsyncClient httpClient) {
+		this.httpClientFactory = () -> httpClient;
+		this.responseCompression = false;
+		this.decodeExecutor = DefaultDecodeExecutor.INSTANCE;
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+		return executeRequest(createGetRequest(request));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+		return executeRequest(AbstractHttpTransport.createPutRequest(request));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+		return executeRequest(AbstractHttpTransport.createDeleteRequest(request));
+	}
+
+	@Override
+	public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return executeRequest(createGetRequest(request),
+				response -> AbstractHttpTransport.toDecodedHttpResponse(response, decoder));
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (httpClient != null) {
+				httpClient.close();
+			}
+		}
+	}
+
+	private HttpGet createGetRequest(HttpRequest request) {
+		HttpGet httpGet = AbstractHttpTransport.createGetRequest(request);
+		if (responseCompression) {
+			AbstractHttpTransport.acceptCompressedResponse(httpGet);
+		}
+		return httpGet;
+	}
+
+	private CompletableFuture<HttpResponse> executeRequest(HttpUriRequest httpRequest) {
+		return executeRequest(httpRequest, AbstractHttpTransport::toHttpResponse);
+	}
+
+	private <R> CompletableFuture<R> executeRequest(HttpUriRequest httpRequest, ResponseConverter<R> converter) {
+		AbstractHttpTransport.logRequest(httpRequest);
+
+		CompletableFuture<R> result = new CompletableFuture<>();
+		Future<org.apache.http.HttpResponse> future = getHttpClient().execute(httpRequest, new FutureCallback<org.apache.http.HttpResponse>() {
+			@Override
+			public void completed(org.apache.http.HttpResponse response) {
+				// the body is buffered already, the reactor thread moves on to other requests
+				try {
+					decodeExecutor.execute(() -> convert(response, converter, result));
+				} catch (RejectedExecutionException e) {
+					result.completeExceptionally(new TransportException(e));
+				}
+			}
+
+			@Override
+			public void failed(Exception e) {
+				result.completeExceptionally(new TransportException(e));
+			}
+
+			@Override
+			public void cancelled() {
+				result.cancel(false);
+			}
+		});
+
+		// propagate cancellation to the underlying request, so a cancelled long-poll releases its connection
+		result.whenComplete((response, e) -> {
+			if (result.isCancelled()) {
+				future.cancel(true);
+			}
+		});
+
+		return result;
+	}
+
+	private static <R> void convert(org.apache.http.HttpResponse response, ResponseConverter<R> converter, CompletableFuture<R> result) {
+		if (result.isDone()) {
+			// cancelled while it waited for the executor
+			return;
+		}
+		try {
+			result.complete(converter.convert(response));
+		} catch (IOException e) {
+			result.completeExceptionally(new TransportException(e));
+		} catch (RuntimeException e) {
+			// e.g. malformed JSON, must not leave the future hanging
+			result.completeExceptionally(e);
+		}
+	}
+
+	private CloseableHttpAsyncClient getHttpClient() {
+		CloseableHttpAsyncClient client = httpClient;
+		if (client == null) {
+			synchronized (this) {
+				client = httpClient;
+				if (client == null) {
+					client = httpClientFactory.get();
+					if (!client.isRunning()) {
+						client.start();
+					}
+					httpClient = client;
+				}
+			}
+		}
+		return client;
+	}
+
+	private static HttpAsyncClientBuilder createHttpClientBuilder() {
+		IOReactorConfig ioReactorConfig = IOReactorConfig.custom().
+				setIoThreadCount(Runtime.getRuntime().availableProcessors()).
+				setConnectTimeout(AbstractHttpTransport.DEFAULT_CONNECTION_TIMEOUT).
+				setSoTimeout(AbstractHttpTransport.DEFAULT_READ_TIMEOUT).
+				build();
+
+		RequestConfig requestConfig = RequestConfig.custom().
+				setConnectTimeout(AbstractHttpTransport.DEFAULT_CONNECTION_TIMEOUT).
+				setConnectionRequestTimeout(AbstractHttpTransport.DEFAULT_CONNECTION_TIMEOUT).
+				setSocketTimeout(AbstractHttpTransport.DEFAULT_READ_TIMEOUT).
+				build();
+
+		return HttpAsyncClients.custom().
+				setDefaultIOReactorConfig(ioReactorConfig).
+				setDefaultRequestConfig(requestConfig).
+				setMaxConnTotal(AbstractHttpTransport.DEFAULT_MAX_CONNECTIONS).
+				setMaxConnPerRoute(AbstractHttpTransport.DEFAULT_MAX_PER_ROUTE_CONNECTIONS).
+				useSystemProperties();
+	}
+
+	@FunctionalInterface
+	private interface ResponseConverter<R> {
+		R convert(org.apache.http.HttpResponse response) throws IOException;
+	}
+}
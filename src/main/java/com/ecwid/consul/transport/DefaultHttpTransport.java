@@ -2,43 +2,51 @@ package com.ecwid.consul.transport;
 
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 /**
  * Default HTTP client This class is thread safe
+ * <p>
+ * Unless a ready HttpClient is given, blocking queries and short requests use separate connection pools and read
+ * timeouts, see {@link ConnectionLanesConfig}.
  *
  * @author Vasily Vasilkov (vgv@ecwid.com)
  */
 public final class DefaultHttpTransport extends AbstractHttpTransport {
 
 	private final HttpClient httpClient;
+	private final ConnectionLanes lanes;
 
 	public DefaultHttpTransport() {
-		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-		connectionManager.setMaxTotal(DEFAULT_MAX_CONNECTIONS);
-		connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_PER_ROUTE_CONNECTIONS);
-
-		RequestConfig requestConfig = RequestConfig.custom().
-				setConnectTimeout(DEFAULT_CONNECTION_TIMEOUT).
-				setConnectionRequestTimeout(DEFAULT_CONNECTION_TIMEOUT).
-				setSocketTimeout(DEFAULT_READ_TIMEOUT).
-				build();
-
-		HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().
-				setConnectionManager(connectionManager).
-				setDefaultRequestConfig(requestConfig).
-				useSystemProperties();
-
-		this.httpClient = httpClientBuilder.build();
+		this(ConnectionLanesConfig.DEFAULT);
+	}
+
+	public DefaultHttpTransport(ConnectionLanesConfig lanesConfig) {
+		this.lanes = new ConnectionLanes(lanesConfig, null);
+		this.httpClient = lanes.getFastHttpClient();
 	}
 
 	public DefaultHttpTransport(HttpClient httpClient) {
 		this.httpClient = httpClient;
+		this.lanes = null;
 	}
 
 	@Override
 	protected HttpClient getHttpClient() {
 		return httpClient;
 	}
+
+	@Override
+	protected HttpClient getLongPollHttpClient() {
+		return lanes != null ? lanes.getLongPollHttpClient() : httpClient;
+	}
+
+	@Override
+	protected RequestConfig getLongPollRequestConfig(long waitMillis) {
+		return lanes != null ? lanes.getLongPollRequestConfig(waitMillis) : null;
+	}
+
+	@Override
+	protected boolean isResponseCompression() {
+		return lanes != null && lanes.isResponseCompression();
+	}
 }
@@ -19,8 +19,6 @@ import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 
 import com.ecwid.consul.transport.TLSConfig.KeyStoreInstanceType;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.ssl.SSLContexts;
 
 /**
@@ -31,8 +29,49 @@ import org.apache.http.ssl.SSLContexts;
 public final class DefaultHttpsTransport extends AbstractHttpTransport {
 
 	private final HttpClient httpClient;
+	private final ConnectionLanes lanes;
 
 	public DefaultHttpsTransport(TLSConfig tlsConfig) {
+		this(tlsConfig, ConnectionLanesConfig.DEFAULT);
+	}
+
+	public DefaultHttpsTransport(TLSConfig tlsConfig, ConnectionLanesConfig lanesConfig) {
+		SSLContext sslContext = createSslContext(tlsConfig);
+		SSLConnectionSocketFactory factory = new SSLConnectionSocketFactory(sslContext);
+
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("https", factory).build();
+
+		this.lanes = new ConnectionLanes(lanesConfig, registry);
+		this.httpClient = lanes.getFastHttpClient();
+	}
+
+	public DefaultHttpsTransport(HttpClient httpClient) {
+		this.httpClient = httpClient;
+		this.lanes = null;
+	}
+
+	@Override
+	protected HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	@Override
+	protected HttpClient getLongPollHttpClient() {
+		return lanes != null ? lanes.getLongPollHttpClient() : httpClient;
+	}
+
+	@Override
+	protected RequestConfig getLongPollRequestConfig(long waitMillis) {
+		return lanes != null ? lanes.getLongPollRequestConfig(waitMillis) : null;
+	}
+
+	@Override
+	protected boolean isResponseCompression() {
+		return lanes != null && lanes.isResponseCompression();
+	}
+
+	static SSLContext createSslContext(TLSConfig tlsConfig) {
 		try {
 			KeyStore clientStore = KeyStore.getInstance(tlsConfig.getKeyStoreInstanceType().name());
 			clientStore.load(new FileInputStream(tlsConfig.getCertificatePath()), tlsConfig.getCertificatePassword().toCharArray());
@@ -50,39 +89,11 @@ public final class DefaultHttpsTransport extends AbstractHttpTransport {
 
 			SSLContext sslContext = SSLContexts.custom().loadTrustMaterial(new TrustSelfSignedStrategy()).build();
 			sslContext.init(kms, tms, new SecureRandom());
-			SSLConnectionSocketFactory factory = new SSLConnectionSocketFactory(sslContext);
-
-			Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
-					.register("https", factory).build();
-
-			PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
-			connectionManager.setMaxTotal(DEFAULT_MAX_CONNECTIONS);
-			connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_PER_ROUTE_CONNECTIONS);
-
-			RequestConfig requestConfig = RequestConfig.custom().
-					setConnectTimeout(DEFAULT_CONNECTION_TIMEOUT).
-					setConnectionRequestTimeout(DEFAULT_CONNECTION_TIMEOUT).
-					setSocketTimeout(DEFAULT_READ_TIMEOUT).
-					build();
-
-			HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().
-					setConnectionManager(connectionManager).
-					setDefaultRequestConfig(requestConfig);
-
-			this.httpClient = httpClientBuilder.build();
+			return sslContext;
 		} catch (GeneralSecurityException e) {
 			throw new TransportException(e);
 		} catch (IOException e) {
 			throw new TransportException(e);
 		}
 	}
-
-	public DefaultHttpsTransport(HttpClient httpClient) {
-		this.httpClient = httpClient;
-	}
-
-	@Override
-	protected HttpClient getHttpClient() {
-		return httpClient;
-	}
 }
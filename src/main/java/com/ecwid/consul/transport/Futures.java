@@ -0,0 +1,45 @@
+package com.ecwid.consul.transport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Stages of {@link CompletableFuture} which forward cancellation to their source.
+ * <p>
+ * Cancelling a stage derived with {@code thenApply} or {@code whenComplete} never reaches the future it was derived
+ * from, so a cancelled long-poll would keep its connection until the wait time is over. Asynchronous requests are
+ * chained with these methods instead, so cancelling the future a caller got aborts the HTTP request.
+ */
+public final class Futures {
+
+	private Futures() {
+	}
+
+	/**
+	 * Like {@code source.thenApply(fn)}, but cancelling the result cancels {@code source}.
+	 */
+	public static <T, U> CompletableFuture<U> thenApply(CompletableFuture<T> source, Function<? super T, ? extends U> fn) {
+		return forwardCancellation(source.thenApply(fn), source);
+	}
+
+	/**
+	 * Like {@code source.whenComplete(action)}, but cancelling the result cancels {@code source}.
+	 */
+	public static <T> CompletableFuture<T> whenComplete(CompletableFuture<T> source, BiConsumer<? super T, ? super Throwable> action) {
+		return forwardCancellation(source.whenComplete(action), source);
+	}
+
+	/**
+	 * @return {@code dependent}, which cancels {@code source} when it's cancelled
+	 */
+	public static <F extends CompletableFuture<?>> F forwardCancellation(F dependent, Future<?> source) {
+		dependent.whenComplete((value, error) -> {
+			if (dependent.isCancelled()) {
+				source.cancel(true);
+			}
+		});
+		return dependent;
+	}
+}
@@ -14,13 +14,31 @@ public final class HttpResponse {
 	private final Boolean consulKnownLeader;
 	private final Long consulLastContact;
 
+	private final Boolean cacheHit;
+	private final Long cacheAge;
+
+	private final Long compressedBytes;
+
 	public HttpResponse(int statusCode, String statusMessage, String content, Long consulIndex, Boolean consulKnownLeader, Long consulLastContact) {
+		this(statusCode, statusMessage, content, consulIndex, consulKnownLeader, consulLastContact, null, null);
+	}
+
+	public HttpResponse(int statusCode, String statusMessage, String content, Long consulIndex, Boolean consulKnownLeader, Long consulLastContact,
+						Boolean cacheHit, Long cacheAge) {
+		this(statusCode, statusMessage, content, consulIndex, consulKnownLeader, consulLastContact, cacheHit, cacheAge, null);
+	}
+
+	public HttpResponse(int statusCode, String statusMessage, String content, Long consulIndex, Boolean consulKnownLeader, Long consulLastContact,
+						Boolean cacheHit, Long cacheAge, Long compressedBytes) {
 		this.statusCode = statusCode;
 		this.statusMessage = statusMessage;
 		this.content = content;
 		this.consulIndex = consulIndex;
 		this.consulKnownLeader = consulKnownLeader;
 		this.consulLastContact = consulLastContact;
+		this.cacheHit = cacheHit;
+		this.cacheAge = cacheAge;
+		this.compressedBytes = compressedBytes;
 	}
 
 	public int getStatusCode() {
@@ -46,4 +64,26 @@ public final class HttpResponse {
 	public Long getConsulLastContact() {
 		return consulLastContact;
 	}
+
+	/**
+	 * @return value of the {@code X-Cache} header: true for {@code HIT}, false for {@code MISS}, null if the agent cache
+	 * was not involved
+	 */
+	public Boolean isCacheHit() {
+		return cacheHit;
+	}
+
+	/**
+	 * @return value of the {@code Age} header, the age of a cached result in seconds
+	 */
+	public Long getCacheAge() {
+		return cacheAge;
+	}
+
+	/**
+	 * @return size of the body as it was received gzip or deflate compressed, null if it was not compressed
+	 */
+	public Long getCompressedBytes() {
+		return compressedBytes;
+	}
 }
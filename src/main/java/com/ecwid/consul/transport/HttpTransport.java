@@ -1,7 +1,5 @@
 package com.ecwid.consul.transport;
 
-import java.util.Map;
-
 /**
  * @author Vasily Vasilkov (vgv@ecwid.com)
  */
@@ -13,4 +11,12 @@ public interface HttpTransport {
 
 	public HttpResponse makeDeleteRequest(HttpRequest request);
 
+	/**
+	 * Executes a GET request and decodes a successful response with the given decoder. Implementations should decode
+	 * straight from the response stream; the default implementation decodes the buffered body.
+	 */
+	public default <T> DecodedHttpResponse<T> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return DecodedHttpResponse.decode(makeGetRequest(request), decoder);
+	}
+
 }
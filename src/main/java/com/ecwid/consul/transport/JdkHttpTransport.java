@@ -0,0 +1,372 @@
+package com.ecwid.consul.transport;
+
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Transport on the JDK {@link HttpClient}, without Apache HttpClient on the request path.
+ * <p>
+ * HTTP/2 is negotiated where the agent supports it (via ALPN for HTTPS), otherwise HTTP/1.1 is used. With
+ * {@link Builder#setVirtualThreads(boolean) virtual threads} enabled on JDK 21+, the client's work runs on virtual
+ * threads, so blocking queries issued from virtual threads park without holding a platform thread.
+ * <p>
+ * The blocking API is this class itself, the non-blocking one sharing the same client is
+ * {@link #getAsyncHttpTransport()}. This class is thread safe.
+ * <p>
+ * With {@link Builder#setResponseCompression(boolean) response compression} enabled, GET requests ask for gzip or
+ * deflate compressed responses, which are decompressed while they are decoded.
+ */
+public final class JdkHttpTransport implements HttpTransport {
+
+	private static final Logger log = Logger.getLogger(JdkHttpTransport.class.getName());
+
+	// Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively, the library is compiled for Java 11
+	private static final Method VIRTUAL_THREAD_FACTORY = findVirtualThreadFactory();
+
+	public static final long DEFAULT_CONNECT_TIMEOUT = AbstractHttpTransport.DEFAULT_CONNECTION_TIMEOUT; // milliseconds
+	// blocking queries may take up to 10 minutes
+	public static final long DEFAULT_REQUEST_TIMEOUT = AbstractHttpTransport.DEFAULT_READ_TIMEOUT; // milliseconds
+
+	public static final class Builder {
+		private TLSConfig tlsConfig;
+		private HttpClient.Version version = HttpClient.Version.HTTP_2;
+		private long connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT;
+		private long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT;
+		private boolean virtualThreads;
+		private Executor executor;
+		private boolean responseCompression;
+
+		private Builder() {
+		}
+
+		public Builder setTlsConfig(TLSConfig tlsConfig) {
+			this.tlsConfig = tlsConfig;
+			return this;
+		}
+
+		/**
+		 * @param version preferred HTTP version, {@link HttpClient.Version#HTTP_2} by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setVersion(HttpClient.Version version) {
+			this.version = version;
+			return this;
+		}
+
+		public Builder setConnectTimeoutMillis(long connectTimeoutMillis) {
+			this.connectTimeoutMillis = connectTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * @param requestTimeoutMillis maximum time to wait for a response, must exceed the wait time of blocking queries
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setRequestTimeoutMillis(long requestTimeoutMillis) {
+			this.requestTimeoutMillis = requestTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * Runs the client's work on virtual threads. Ignored, with a warning, on JDKs without virtual threads.
+		 *
+		 * @param virtualThreads whether to use virtual threads
+		 * @return This {@link Builder} instance for method chaining.
+		 * @see #isVirtualThreadsSupported()
+		 */
+		public Builder setVirtualThreads(boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
+		/**
+		 * @param executor executor for the client's asynchronous work, takes precedence over virtual threads
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setExecutor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * @param responseCompression whether GET requests ask for compressed responses, false by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setResponseCompression(boolean responseCompression) {
+			this.responseCompression = responseCompression;
+			return this;
+		}
+
+		public JdkHttpTransport build() {
+			if (connectTimeoutMillis <= 0 || requestTimeoutMillis <= 0) {
+				throw new IllegalArgumentException("Timeouts must be positive");
+			}
+
+			HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+				.version(version)
+				.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+
+			if (tlsConfig != null) {
+				SSLContext sslContext = DefaultHttpsTransport.createSslContext(tlsConfig);
+				clientBuilder.sslContext(sslContext);
+			}
+
+			if (executor != null) {
+				clientBuilder.executor(executor);
+			} else if (virtualThreads) {
+				ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+				if (virtualThreadExecutor != null) {
+					clientBuilder.executor(virtualThreadExecutor);
+				} else {
+					log.warning("Virtual threads are not supported by this JVM, using the default executor");
+				}
+			}
+
+			return new JdkHttpTransport(clientBuilder.build(), Duration.ofMillis(requestTimeoutMillis), responseCompression);
+		}
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return true if this JVM supports virtual threads (JDK 21+)
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	private final HttpClient httpClient;
+	private final Duration requestTimeout;
+	private final boolean responseCompression;
+	private final AsyncHttpTransport asyncHttpTransport;
+
+	public JdkHttpTransport() {
+		this(HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.connectTimeout(Duration.ofMillis(DEFAULT_CONNECT_TIMEOUT))
+			.build());
+	}
+
+	public JdkHttpTransport(HttpClient httpClient) {
+		this(httpClient, Duration.ofMillis(DEFAULT_REQUEST_TIMEOUT), false);
+	}
+
+	private JdkHttpTransport(HttpClient httpClient, Duration requestTimeout, boolean responseCompression) {
+		this.httpClient = httpClient;
+		this.requestTimeout = requestTimeout;
+		this.responseCompression = responseCompression;
+		this.asyncHttpTransport = new Async();
+	}
+
+	/**
+	 * @return non-blocking transport sharing this transport's client and connections
+	 */
+	public AsyncHttpTransport getAsyncHttpTransport() {
+		return asyncHttpTransport;
+	}
+
+	@Override
+	public HttpResponse makeGetRequest(HttpRequest request) {
+		return send(createRequest(request, "GET"));
+	}
+
+	@Override
+	public HttpResponse makePutRequest(HttpRequest request) {
+		return send(createRequest(request, "PUT"));
+	}
+
+	@Override
+	public HttpResponse makeDeleteRequest(HttpRequest request) {
+		return send(createRequest(request, "DELETE"));
+	}
+
+	@Override
+	public <T> DecodedHttpResponse<T> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		java.net.http.HttpRequest httpRequest = createRequest(request, "GET");
+		try {
+			java.net.http.HttpResponse<InputStream> response = httpClient.send(httpRequest, java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+			return toDecodedHttpResponse(response.statusCode(), response.headers(), response.body(), decoder);
+		} catch (IOException e) {
+			throw new TransportException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TransportException(e);
+		}
+	}
+
+	private HttpResponse send(java.net.http.HttpRequest httpRequest) {
+		try {
+			java.net.http.HttpResponse<InputStream> response = httpClient.send(httpRequest, java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+			return toHttpResponse(response.statusCode(), response.headers(), response.body());
+		} catch (IOException e) {
+			throw new TransportException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TransportException(e);
+		}
+	}
+
+	private java.net.http.HttpRequest createRequest(HttpRequest request, String method) {
+		java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(request.getUrl()))
+			.timeout(requestTimeout);
+
+		Map<String, String> headers = request.getHeaders();
+		if (headers != null) {
+			for (Map.Entry<String, String> header : headers.entrySet()) {
+				builder.header(header.getKey(), header.getValue());
+			}
+		}
+		// an Accept-Encoding given by the caller wins
+		if (responseCompression && "GET".equals(method)
+			&& (headers == null || !headers.containsKey(ResponseBody.ACCEPT_ENCODING_HEADER))) {
+			builder.header(ResponseBody.ACCEPT_ENCODING_HEADER, ResponseBody.SUPPORTED_ENCODINGS);
+		}
+
+		java.net.http.HttpRequest.BodyPublisher body;
+		if (request.getContent() != null) {
+			body = java.net.http.HttpRequest.BodyPublishers.ofString(request.getContent(), StandardCharsets.UTF_8);
+		} else if (request.getBinaryContent() != null) {
+			body = java.net.http.HttpRequest.BodyPublishers.ofByteArray(request.getBinaryContent());
+		} else {
+			body = java.net.http.HttpRequest.BodyPublishers.noBody();
+		}
+
+		java.net.http.HttpRequest httpRequest = builder.method(method, body).build();
+		log.finest(() -> method + " " + request.getUrl());
+		return httpRequest;
+	}
+
+	private static HttpResponse toHttpResponse(int statusCode, HttpHeaders headers, InputStream stream) throws IOException {
+		try (ResponseBody body = openBody(headers, stream)) {
+			return toHttpResponse(statusCode, headers, body.readString(), body.getCompressedBytes());
+		}
+	}
+
+	private static HttpResponse toHttpResponse(int statusCode, HttpHeaders headers, String content, Long compressedBytes) {
+		return AbstractHttpTransport.toHttpResponse(statusCode, reasonPhrase(statusCode), content, compressedBytes,
+			name -> headers.firstValue(name).orElse(null));
+	}
+
+	private static <T> DecodedHttpResponse<T> toDecodedHttpResponse(int statusCode, HttpHeaders headers, InputStream stream,
+																	ContentDecoder<T> decoder) throws IOException {
+		try (ResponseBody body = openBody(headers, stream)) {
+			String content = null;
+			T value = null;
+			if (statusCode == 200) {
+				value = body.decode(decoder);
+			} else {
+				content = body.readString();
+			}
+			return new DecodedHttpResponse<>(toHttpResponse(statusCode, headers, content, body.getCompressedBytes()), value);
+		}
+	}
+
+	private static ResponseBody openBody(HttpHeaders headers, InputStream stream) throws IOException {
+		return ResponseBody.open(stream, headers.firstValue(ResponseBody.CONTENT_ENCODING_HEADER).orElse(null));
+	}
+
+	// the JDK client doesn't expose the reason phrase, use the standard one like the Apache based transports report
+	private static String reasonPhrase(int statusCode) {
+		return EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH);
+	}
+
+	private static Method findVirtualThreadFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		if (VIRTUAL_THREAD_FACTORY == null) {
+			return null;
+		}
+
+		try {
+			return (ExecutorService) VIRTUAL_THREAD_FACTORY.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private final class Async implements AsyncHttpTransport {
+
+		@Override
+		public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+			return sendAsync(request, "GET");
+		}
+
+		@Override
+		public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+			return sendAsync(request, "PUT");
+		}
+
+		@Override
+		public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+			return sendAsync(request, "DELETE");
+		}
+
+		@Override
+		public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+			// the body is buffered as bytes, decoding from a stream here would block the client's threads
+			return Futures.thenApply(sendAsync(createRequest(request, "GET"), java.net.http.HttpResponse.BodyHandlers.ofByteArray()),
+				response -> {
+					try {
+						return toDecodedHttpResponse(response.statusCode(), response.headers(), new ByteArrayInputStream(response.body()), decoder);
+					} catch (IOException e) {
+						throw new TransportException(e);
+					}
+				});
+		}
+
+		private CompletableFuture<HttpResponse> sendAsync(HttpRequest request, String method) {
+			return Futures.thenApply(sendAsync(createRequest(request, method), java.net.http.HttpResponse.BodyHandlers.ofByteArray()),
+				response -> {
+					try {
+						return toHttpResponse(response.statusCode(), response.headers(), new ByteArrayInputStream(response.body()));
+					} catch (IOException e) {
+						throw new TransportException(e);
+					}
+				});
+		}
+
+		// failures are reported as TransportException, like the other transports do
+		private <B> CompletableFuture<java.net.http.HttpResponse<B>> sendAsync(java.net.http.HttpRequest httpRequest,
+																			   java.net.http.HttpResponse.BodyHandler<B> bodyHandler) {
+			CompletableFuture<java.net.http.HttpResponse<B>> result = new CompletableFuture<>();
+			CompletableFuture<java.net.http.HttpResponse<B>> sent = httpClient.sendAsync(httpRequest, bodyHandler);
+			// the JDK client aborts a cancelled exchange since JDK 16
+			Futures.forwardCancellation(result, sent);
+			sent.whenComplete((response, error) -> {
+				if (error == null) {
+					result.complete(response);
+				} else {
+					Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+					result.completeExceptionally(cause instanceof IOException ? new TransportException(cause) : cause);
+				}
+			});
+			return result;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.ecwid.consul.transport;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connects with the Unix domain socket support of JDK 16+. The JDK classes are looked up reflectively, the library
+ * is compiled for Java 11.
+ */
+final class JdkUnixSocketConnector implements UnixSocketConnector {
+
+	private static final JdkUnixSocketConnector INSTANCE = create();
+
+	private final ProtocolFamily unix;
+	// SocketChannel.open(ProtocolFamily) and UnixDomainSocketAddress.of(String)
+	private final MethodHandle openChannel;
+	private final MethodHandle socketAddress;
+
+	private JdkUnixSocketConnector(ProtocolFamily unix, MethodHandle openChannel, MethodHandle socketAddress) {
+		this.unix = unix;
+		this.openChannel = openChannel;
+		this.socketAddress = socketAddress;
+	}
+
+	/**
+	 * @return connector, {@code null} if this JVM doesn't support Unix domain sockets
+	 */
+	static JdkUnixSocketConnector getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public ByteChannel connect(String socketPath) throws IOException {
+		SocketChannel channel = open();
+		try {
+			channel.connect(address(socketPath));
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private SocketChannel open() throws IOException {
+		try {
+			return (SocketChannel) openChannel.invoke(unix);
+		} catch (IOException | RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
+	}
+
+	private SocketAddress address(String socketPath) {
+		try {
+			return (SocketAddress) socketAddress.invoke(socketPath);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static JdkUnixSocketConnector create() {
+		try {
+			ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MethodHandle openChannel = lookup.findStatic(SocketChannel.class, "open", MethodType.methodType(SocketChannel.class, ProtocolFamily.class));
+			Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+			MethodHandle socketAddress = lookup.findStatic(addressClass, "of", MethodType.methodType(addressClass, String.class));
+			return new JdkUnixSocketConnector(unix, openChannel, socketAddress);
+		} catch (IllegalArgumentException | ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
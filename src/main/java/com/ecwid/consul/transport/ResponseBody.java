@@ -0,0 +1,123 @@
+package com.ecwid.consul.transport;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A response body stream, decompressed while it's read if the agent sent it gzip or deflate encoded. The body is
+ * never buffered compressed, so a decoder consumes it at the pace it inflates.
+ */
+final class ResponseBody implements Closeable {
+
+	static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+	static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+	static final String SUPPORTED_ENCODINGS = "gzip, deflate";
+
+	private final CountingInputStream wire;
+	private final InputStream content;
+	private final boolean compressed;
+
+	private ResponseBody(CountingInputStream wire, InputStream content, boolean compressed) {
+		this.wire = wire;
+		this.content = content;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * @param stream          body as received
+	 * @param contentEncoding value of the {@code Content-Encoding} header, or null
+	 * @throws TransportException if the body is compressed with an unsupported encoding
+	 */
+	static ResponseBody open(InputStream stream, String contentEncoding) throws IOException {
+		String encoding = contentEncoding != null ? contentEncoding.trim().toLowerCase(Locale.ROOT) : "";
+		switch (encoding) {
+			case "":
+			case "identity":
+				return new ResponseBody(null, stream, false);
+			case "gzip":
+			case "x-gzip": {
+				CountingInputStream wire = new CountingInputStream(stream);
+				return new ResponseBody(wire, new GZIPInputStream(wire), true);
+			}
+			case "deflate": {
+				// zlib wrapped, as RFC 9110 defines it
+				CountingInputStream wire = new CountingInputStream(stream);
+				return new ResponseBody(wire, new InflaterInputStream(wire), true);
+			}
+			default:
+				stream.close();
+				throw new TransportException("Unsupported Content-Encoding: " + contentEncoding);
+		}
+	}
+
+	String readString() throws IOException {
+		return new String(content.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	<T> T decode(ContentDecoder<T> decoder) throws IOException {
+		T value = decoder.decode(new InputStreamReader(content, StandardCharsets.UTF_8));
+		if (compressed) {
+			// the decoder stops at the end of the JSON, the rest counts towards the compressed size too
+			content.transferTo(OutputStream.nullOutputStream());
+		}
+		return value;
+	}
+
+	/**
+	 * @return bytes of the compressed body read so far, or null if the body is not compressed
+	 */
+	Long getCompressedBytes() {
+		return compressed ? wire.getCount() : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		content.close();
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int n = super.read(buffer, offset, length);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+}
@@ -13,4 +13,8 @@ public class TransportException extends ConsulException {
 		super(cause);
 	}
 
+	public TransportException(String message) {
+		super(message);
+	}
+
 }
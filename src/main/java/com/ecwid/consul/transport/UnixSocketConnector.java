@@ -0,0 +1,21 @@
+package com.ecwid.consul.transport;
+
+import java.io.IOException;
+import java.nio.channels.ByteChannel;
+
+/**
+ * Opens connections to a Unix domain socket for {@link UnixSocketHttpTransport}.
+ * <p>
+ * The default connector needs JDK 16+. On older JDKs a connector backed by a native library, e.g. junixsocket,
+ * can be plugged in.
+ */
+@FunctionalInterface
+public interface UnixSocketConnector {
+
+	/**
+	 * @param socketPath file system path of the socket
+	 * @return connected channel in blocking mode; closing it from another thread must abort blocked reads
+	 */
+	public ByteChannel connect(String socketPath) throws IOException;
+
+}
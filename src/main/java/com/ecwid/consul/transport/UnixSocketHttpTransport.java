@@ -0,0 +1,662 @@
+package com.ecwid.consul.transport;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport which speaks HTTP/1.1 over the Unix domain socket of a local agent, so calls skip the TCP loopback stack
+ * and don't use up ephemeral ports.
+ * <p>
+ * Every request goes to the socket of this transport, only the path and query of its URL are used. Connections are
+ * kept alive and reused; up to {@code maxIdleConnections} idle ones are kept. Read timeouts are those of the
+ * {@link ConnectionLanesConfig}: the fast read timeout for short requests, one derived from the wait time for
+ * blocking queries.
+ * <p>
+ * The blocking API is this class itself, the non-blocking one is {@link #getAsyncHttpTransport()}, which runs the
+ * blocking calls on an executor. A request occupies an executor thread until it completes, so every blocking query,
+ * e.g. of a watch, pins one thread for its whole wait time; the default executor grows with them. Cancelling a
+ * request of the non-blocking transport closes its connection, which frees the thread. This class is thread safe.
+ */
+public final class UnixSocketHttpTransport implements HttpTransport, Closeable {
+
+	public static final String SCHEME = "unix://";
+	// requests to the socket are addressed to this host, the agent doesn't check it
+	public static final String HOST = "localhost";
+	public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+
+	// the status line and every header line, Consul's are far shorter
+	private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+	// closes the connections of timed out requests, which aborts their blocked reads
+	private static final class Timeouts {
+		private static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, daemonThreads("consul-unix-socket-timeout"));
+
+		static {
+			INSTANCE.setRemoveOnCancelPolicy(true);
+		}
+	}
+
+	// created on first use by the non-blocking transport, idle threads die after a minute
+	private static final class DefaultExecutor {
+		private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(daemonThreads("consul-unix-socket"));
+	}
+
+	public static final class Builder {
+		private final String socketPath;
+		private UnixSocketConnector connector;
+		private ConnectionLanesConfig lanesConfig = ConnectionLanesConfig.DEFAULT;
+		private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+		private Executor executor;
+
+		private Builder(String socketPath) {
+			this.socketPath = socketPath;
+		}
+
+		/**
+		 * @param connector opens the connections, the JDK 16+ Unix domain socket support by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setConnector(UnixSocketConnector connector) {
+			this.connector = connector;
+			return this;
+		}
+
+		/**
+		 * @param lanesConfig read timeouts of short requests and blocking queries; the connection limits are not used
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setLanesConfig(ConnectionLanesConfig lanesConfig) {
+			this.lanesConfig = lanesConfig;
+			return this;
+		}
+
+		public Builder setMaxIdleConnections(int maxIdleConnections) {
+			this.maxIdleConnections = maxIdleConnections;
+			return this;
+		}
+
+		/**
+		 * @param executor runs the requests of the non-blocking transport, one thread per request in flight; a shared
+		 *                 unbounded pool of daemon threads by default. A bounded executor queues requests once all its
+		 *                 threads wait on blocking queries.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setExecutor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		public UnixSocketHttpTransport build() {
+			if (socketPath == null || socketPath.isEmpty()) {
+				throw new IllegalArgumentException("socketPath must not be empty");
+			}
+			if (lanesConfig == null || maxIdleConnections < 0) {
+				throw new IllegalArgumentException("lanesConfig must not be null and maxIdleConnections must not be negative");
+			}
+			UnixSocketConnector connector = this.connector != null ? this.connector : JdkUnixSocketConnector.getInstance();
+			if (connector == null) {
+				throw new IllegalStateException("Unix domain sockets need JDK 16+, set a connector to use them on this JVM");
+			}
+			return new UnixSocketHttpTransport(this, connector);
+		}
+	}
+
+	/**
+	 * @param socketPath file system path of the agent's socket, e.g. {@code /var/run/consul/consul.sock}
+	 */
+	public static Builder newBuilder(String socketPath) {
+		return new Builder(socketPath);
+	}
+
+	/**
+	 * @return whether this JVM supports Unix domain sockets without a custom connector (JDK 16+)
+	 */
+	public static boolean isSupported() {
+		return JdkUnixSocketConnector.getInstance() != null;
+	}
+
+	/**
+	 * @return socket path of a {@code unix://} agent address, {@code null} for any other address
+	 */
+	public static String socketPathOf(String agentAddress) {
+		if (agentAddress == null || !agentAddress.regionMatches(true, 0, SCHEME, 0, SCHEME.length())) {
+			return null;
+		}
+		return agentAddress.substring(SCHEME.length());
+	}
+
+	private final String socketPath;
+	private final UnixSocketConnector connector;
+	private final ConnectionLanesConfig lanesConfig;
+	private final int maxIdleConnections;
+	private final Executor executor;
+	private final AsyncHttpTransport asyncHttpTransport;
+
+	private final Deque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private volatile boolean closed;
+
+	private UnixSocketHttpTransport(Builder builder, UnixSocketConnector connector) {
+		this.socketPath = builder.socketPath;
+		this.connector = connector;
+		this.lanesConfig = builder.lanesConfig;
+		this.maxIdleConnections = builder.maxIdleConnections;
+		this.executor = builder.executor;
+		this.asyncHttpTransport = new Async();
+	}
+
+	public String getSocketPath() {
+		return socketPath;
+	}
+
+	/**
+	 * @return non-blocking transport sharing this transport's connections
+	 */
+	public AsyncHttpTransport getAsyncHttpTransport() {
+		return asyncHttpTransport;
+	}
+
+	@Override
+	public HttpResponse makeGetRequest(HttpRequest request) {
+		return execute("GET", request, UnixSocketHttpTransport::toHttpResponse, null);
+	}
+
+	@Override
+	public HttpResponse makePutRequest(HttpRequest request) {
+		return execute("PUT", request, UnixSocketHttpTransport::toHttpResponse, null);
+	}
+
+	@Override
+	public HttpResponse makeDeleteRequest(HttpRequest request) {
+		return execute("DELETE", request, UnixSocketHttpTransport::toHttpResponse, null);
+	}
+
+	@Override
+	public <T> DecodedHttpResponse<T> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return execute("GET", request, decoding(decoder), null);
+	}
+
+	/**
+	 * Closes the idle connections; requests in flight complete, but their connections are not kept.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		Connection connection;
+		while ((connection = idleConnections.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			connection.close();
+		}
+	}
+
+	private static <T> ResponseHandler<DecodedHttpResponse<T>> decoding(ContentDecoder<T> decoder) {
+		return (statusCode, statusMessage, headers, body) -> {
+			String content = null;
+			T value = null;
+			if (statusCode == 200) {
+				value = decoder.decode(new InputStreamReader(body, StandardCharsets.UTF_8));
+			} else {
+				content = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+			}
+			return new DecodedHttpResponse<>(AbstractHttpTransport.toHttpResponse(statusCode, statusMessage, content, headers::get), value);
+		};
+	}
+
+	// cancel is null for requests of the blocking transport
+	private <R> R execute(String method, HttpRequest request, ResponseHandler<R> handler, Cancellation cancel) {
+		byte[] message = encode(method, request);
+		String url = request.getUrl();
+		int readTimeoutMillis = "GET".equals(method) && BlockingQueries.isBlockingQuery(url)
+			? lanesConfig.getLongPollReadTimeoutMillis(BlockingQueries.requestedWaitMillis(url))
+			: lanesConfig.getFastReadTimeoutMillis();
+
+		while (true) {
+			Connection connection = idleConnections.pollFirst();
+			if (connection != null) {
+				idleCount.decrementAndGet();
+			} else {
+				try {
+					connection = new Connection(connector.connect(socketPath));
+				} catch (IOException e) {
+					throw new TransportException(e);
+				}
+			}
+			if (cancel != null && !cancel.using(connection)) {
+				release(connection);
+				throw new TransportException(new InterruptedIOException("Request cancelled"));
+			}
+
+			ScheduledFuture<?> timeout = Timeouts.INSTANCE.schedule(connection::abort, readTimeoutMillis, TimeUnit.MILLISECONDS);
+			boolean keepAlive = false;
+			boolean sent = false;
+			try {
+				connection.out.write(message);
+				connection.out.flush();
+				sent = true;
+
+				Response response = connection.readResponseHead();
+				R result = handler.handle(response.statusCode, response.statusMessage, response.headers, response.body);
+				// the decoder may stop before the end of the body, the rest must be read to reuse the connection
+				response.body.transferTo(OutputStream.nullOutputStream());
+				keepAlive = response.keepAlive;
+				return result;
+			} catch (IOException e) {
+				// an idle connection may have been closed by the agent; then the request wasn't sent or answered
+				if (connection.reused && !connection.timedOut && (!sent || ("GET".equals(method) && !connection.responseStarted))) {
+					continue;
+				}
+				throw new TransportException(connection.timedOut
+					? new SocketTimeoutException("Read timed out after " + readTimeoutMillis + " ms")
+					: e);
+			} finally {
+				timeout.cancel(false);
+				boolean cancelled = cancel != null && !cancel.done();
+				if (keepAlive && !connection.timedOut && !cancelled) {
+					release(connection);
+				} else {
+					connection.close();
+				}
+			}
+		}
+	}
+
+	private void release(Connection connection) {
+		if (closed || idleCount.incrementAndGet() > maxIdleConnections) {
+			idleCount.decrementAndGet();
+			connection.close();
+			return;
+		}
+		connection.reused = true;
+		connection.responseStarted = false;
+		idleConnections.offerFirst(connection);
+	}
+
+	private static byte[] encode(String method, HttpRequest request) {
+		byte[] body = null;
+		if (request.getContent() != null) {
+			body = request.getContent().getBytes(StandardCharsets.UTF_8);
+		} else if (request.getBinaryContent() != null) {
+			body = request.getBinaryContent();
+		} else if ("PUT".equals(method)) {
+			body = new byte[0];
+		}
+
+		StringBuilder head = new StringBuilder(256)
+			.append(method).append(' ').append(requestTarget(request.getUrl())).append(" HTTP/1.1\r\n")
+			.append("Host: ").append(HOST).append("\r\n");
+		if (request.getHeaders() != null) {
+			for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+				String value = header.getValue();
+				if (value.indexOf('\r') != -1 || value.indexOf('\n') != -1) {
+					throw new IllegalArgumentException("Header " + header.getKey() + " must not contain line breaks");
+				}
+				head.append(header.getKey()).append(": ").append(value).append("\r\n");
+			}
+		}
+		if (body != null) {
+			head.append("Content-Length: ").append(body.length).append("\r\n");
+		}
+		head.append("\r\n");
+
+		byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+		if (body == null || body.length == 0) {
+			return headBytes;
+		}
+		byte[] message = new byte[headBytes.length + body.length];
+		System.arraycopy(headBytes, 0, message, 0, headBytes.length);
+		System.arraycopy(body, 0, message, headBytes.length, body.length);
+		return message;
+	}
+
+	// path and query of the URL; scheme and authority only say which agent to talk to, which is the socket
+	static String requestTarget(String url) {
+		int scheme = url.indexOf("://");
+		int path = url.indexOf('/', scheme == -1 ? 0 : scheme + 3);
+		if (path == -1) {
+			int query = url.indexOf('?', scheme == -1 ? 0 : scheme + 3);
+			return query == -1 ? "/" : "/" + url.substring(query);
+		}
+		return url.substring(path);
+	}
+
+	private static HttpResponse toHttpResponse(int statusCode, String statusMessage, Map<String, String> headers, InputStream body) throws IOException {
+		String content = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+		return AbstractHttpTransport.toHttpResponse(statusCode, statusMessage, content, headers::get);
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		return runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	@FunctionalInterface
+	private interface ResponseHandler<R> {
+		R handle(int statusCode, String statusMessage, Map<String, String> headers, InputStream body) throws IOException;
+	}
+
+	private static final class Response {
+		final int statusCode;
+		final String statusMessage;
+		final Map<String, String> headers;
+		final InputStream body;
+		final boolean keepAlive;
+
+		Response(int statusCode, String statusMessage, Map<String, String> headers, InputStream body, boolean keepAlive) {
+			this.statusCode = statusCode;
+			this.statusMessage = statusMessage;
+			this.headers = headers;
+			this.body = body;
+			this.keepAlive = keepAlive;
+		}
+	}
+
+	// lets a cancelled request of the non-blocking transport abort the read it's blocked in
+	private static final class Cancellation {
+		private Connection connection;
+		private boolean cancelled;
+
+		/**
+		 * @return false if the request was cancelled, then it must not use the connection
+		 */
+		synchronized boolean using(Connection connection) {
+			this.connection = connection;
+			return !cancelled;
+		}
+
+		/**
+		 * @return false if the request was cancelled while it used the connection, which is closed then
+		 */
+		synchronized boolean done() {
+			connection = null;
+			return !cancelled;
+		}
+
+		synchronized void cancel() {
+			cancelled = true;
+			if (connection != null) {
+				connection.close();
+			}
+		}
+	}
+
+	private static final class Connection {
+		private final ByteChannel channel;
+		private final InputStream in;
+		private final OutputStream out;
+
+		// whether the connection served a request before, so a failure may just mean the agent closed it
+		boolean reused;
+		boolean responseStarted;
+		volatile boolean timedOut;
+
+		Connection(ByteChannel channel) {
+			this.channel = channel;
+			this.in = new BufferedInputStream(Channels.newInputStream(channel), 8192);
+			this.out = Channels.newOutputStream(channel);
+		}
+
+		Response readResponseHead() throws IOException {
+			String statusLine = readLine();
+			responseStarted = true;
+			// HTTP/1.1 200 OK
+			int firstSpace = statusLine.indexOf(' ');
+			int secondSpace = statusLine.indexOf(' ', firstSpace + 1);
+			if (!statusLine.startsWith("HTTP/1.") || firstSpace == -1) {
+				throw new IOException("Malformed status line: " + statusLine);
+			}
+			int statusCode;
+			try {
+				statusCode = Integer.parseInt(secondSpace == -1 ? statusLine.substring(firstSpace + 1) : statusLine.substring(firstSpace + 1, secondSpace));
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed status line: " + statusLine);
+			}
+			String statusMessage = secondSpace == -1 ? "" : statusLine.substring(secondSpace + 1);
+
+			Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+				int colon = line.indexOf(':');
+				if (colon > 0) {
+					headers.putIfAbsent(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+				}
+			}
+
+			boolean keepAlive = statusLine.startsWith("HTTP/1.1") && !"close".equalsIgnoreCase(headers.get("Connection"));
+			InputStream body;
+			String contentLength = headers.get("Content-Length");
+			if (statusCode == 204 || statusCode == 304 || statusCode / 100 == 1) {
+				body = InputStream.nullInputStream();
+			} else if ("chunked".equalsIgnoreCase(headers.get("Transfer-Encoding"))) {
+				body = new ChunkedInputStream(this);
+			} else if (contentLength != null) {
+				try {
+					body = new FixedLengthInputStream(in, Long.parseLong(contentLength));
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed Content-Length: " + contentLength);
+				}
+			} else {
+				// the body ends when the agent closes the connection
+				body = in;
+				keepAlive = false;
+			}
+			return new Response(statusCode, statusMessage, headers, body, keepAlive);
+		}
+
+		String readLine() throws IOException {
+			ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+			while (true) {
+				int b = in.read();
+				if (b == -1) {
+					throw new EOFException("Connection closed by the agent");
+				}
+				if (b == '\n') {
+					break;
+				}
+				if (line.size() >= MAX_LINE_LENGTH) {
+					throw new IOException("Response line is longer than " + MAX_LINE_LENGTH + " bytes");
+				}
+				line.write(b);
+			}
+			String value = line.toString(StandardCharsets.ISO_8859_1);
+			return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+		}
+
+		void abort() {
+			timedOut = true;
+			close();
+		}
+
+		void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// nothing to do, the connection is gone anyway
+			}
+		}
+	}
+
+	private static final class FixedLengthInputStream extends FilterInputStream {
+		private long remaining;
+
+		FixedLengthInputStream(InputStream in, long length) {
+			super(in);
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = in.read();
+			if (b == -1) {
+				throw new EOFException("Response body ended early");
+			}
+			remaining--;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int n = in.read(buffer, offset, (int) Math.min(length, remaining));
+			if (n == -1) {
+				throw new EOFException("Response body ended early");
+			}
+			remaining -= n;
+			return n;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(in.available(), remaining);
+		}
+
+		@Override
+		public void close() {
+			// the connection is kept
+		}
+	}
+
+	private static final class ChunkedInputStream extends InputStream {
+		private final Connection connection;
+		private long chunkRemaining;
+		private boolean finished;
+
+		ChunkedInputStream(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (chunkRemaining == 0 && !nextChunk()) {
+				return -1;
+			}
+			int n = connection.in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+			if (n == -1) {
+				throw new EOFException("Response body ended early");
+			}
+			chunkRemaining -= n;
+			if (chunkRemaining == 0) {
+				// CRLF after the chunk data
+				connection.readLine();
+			}
+			return n;
+		}
+
+		private boolean nextChunk() throws IOException {
+			if (finished) {
+				return false;
+			}
+			String sizeLine = connection.readLine();
+			int extension = sizeLine.indexOf(';');
+			try {
+				chunkRemaining = Long.parseLong((extension == -1 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed chunk size: " + sizeLine);
+			}
+			if (chunkRemaining == 0) {
+				// trailers, up to the empty line
+				while (!connection.readLine().isEmpty()) {
+					// ignored
+				}
+				finished = true;
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public void close() {
+			// the connection is kept
+		}
+	}
+
+	private final class Async implements AsyncHttpTransport {
+
+		@Override
+		public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+			return supply("GET", request, UnixSocketHttpTransport::toHttpResponse);
+		}
+
+		@Override
+		public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+			return supply("PUT", request, UnixSocketHttpTransport::toHttpResponse);
+		}
+
+		@Override
+		public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+			return supply("DELETE", request, UnixSocketHttpTransport::toHttpResponse);
+		}
+
+		@Override
+		public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+			return supply("GET", request, decoding(decoder));
+		}
+
+		// failures complete the future as they are, like the other transports report them
+		private <R> CompletableFuture<R> supply(String method, HttpRequest request, ResponseHandler<R> handler) {
+			CompletableFuture<R> result = new CompletableFuture<>();
+			Cancellation cancel = new Cancellation();
+			result.whenComplete((response, error) -> {
+				if (result.isCancelled()) {
+					cancel.cancel();
+				}
+			});
+			try {
+				(executor != null ? executor : DefaultExecutor.INSTANCE).execute(() -> {
+					if (result.isDone()) {
+						return;
+					}
+					try {
+						result.complete(execute(method, request, handler, cancel));
+					} catch (Throwable e) {
+						result.completeExceptionally(e);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				result.completeExceptionally(new TransportException(e));
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.ecwid.consul.transport.coalescing;
+
+import com.ecwid.consul.transport.AsyncHttpTransport;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link CoalescingHttpTransport}. Every caller gets its own future, so cancelling or
+ * completing it doesn't affect the other callers of the shared request. The shared request itself is cancelled once
+ * all of its callers cancelled their futures.
+ */
+public final class CoalescingAsyncHttpTransport implements AsyncHttpTransport {
+
+	private final AsyncHttpTransport delegate;
+	private final ConcurrentMap<RequestKey, Shared<?>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	public CoalescingAsyncHttpTransport(AsyncHttpTransport delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+		return coalesce(new RequestKey(request, null), () -> delegate.makeGetRequest(request));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+		return delegate.makePutRequest(request);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+		return delegate.makeDeleteRequest(request);
+	}
+
+	@Override
+	public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return coalesce(new RequestKey(request, decoder), () -> delegate.makeGetRequest(request, decoder));
+	}
+
+	/**
+	 * @return number of requests which were not sent because they joined an identical in-flight request
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> CompletableFuture<R> coalesce(RequestKey key, Supplier<CompletableFuture<R>> call) {
+		Shared<R> created = new Shared<>();
+		// subscribers are only counted inside the map's per-key operations, which serialize them
+		Shared<R> shared = (Shared<R>) inFlight.compute(key, (k, current) -> {
+			Shared<?> target = current != null && current.subscribers > 0 ? current : created;
+			target.subscribers++;
+			return target;
+		});
+		if (shared != created) {
+			coalescedCount.incrementAndGet();
+			return subscribe(key, shared);
+		}
+
+		CompletableFuture<R> future;
+		try {
+			future = call.get();
+		} catch (RuntimeException e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		created.request = future;
+		if (created.cancelled) {
+			// every caller left before the request was published
+			future.cancel(false);
+		}
+		future.whenComplete((response, error) -> {
+			// leave the map first, so a request arriving now is sent instead of joining a completed one
+			inFlight.remove(key, created);
+			if (error != null) {
+				created.result.completeExceptionally(error);
+			} else {
+				created.result.complete(response);
+			}
+		});
+		return subscribe(key, created);
+	}
+
+	private <R> CompletableFuture<R> subscribe(RequestKey key, Shared<R> shared) {
+		CompletableFuture<R> copy = shared.result.copy();
+		copy.whenComplete((response, error) -> {
+			if (copy.isCancelled()) {
+				unsubscribe(key, shared);
+			}
+		});
+		return copy;
+	}
+
+	private void unsubscribe(RequestKey key, Shared<?> shared) {
+		inFlight.computeIfPresent(key, (k, current) -> {
+			if (current != shared || --current.subscribers > 0) {
+				return current;
+			}
+			shared.cancelled = true;
+			return null;
+		});
+		// cancelled outside of the map operation, the request's completion removes its key from the map
+		CompletableFuture<?> request = shared.request;
+		if (shared.cancelled && request != null) {
+			request.cancel(false);
+		}
+	}
+
+	private static final class Shared<R> {
+		private final CompletableFuture<R> result = new CompletableFuture<>();
+		private int subscribers;
+		private volatile CompletableFuture<R> request;
+		private volatile boolean cancelled;
+	}
+}
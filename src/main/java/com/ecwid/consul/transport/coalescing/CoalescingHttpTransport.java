@@ -0,0 +1,95 @@
+package com.ecwid.consul.transport.coalescing;
+
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Decorates a transport so that identical concurrent GET requests (same URL, headers and decoder) share a single
+ * in-flight request. The first caller sends the request, callers arriving while it is in flight wait for it and get
+ * the same response or exception. Nothing is cached: a request arriving after the response is sent again.
+ * <p>
+ * Callers of a coalesced request share the decoded value, so it must not be modified. PUT and DELETE requests are
+ * always passed through.
+ */
+public final class CoalescingHttpTransport implements HttpTransport {
+
+	private final HttpTransport delegate;
+	private final ConcurrentMap<RequestKey, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	public CoalescingHttpTransport(HttpTransport delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public HttpResponse makeGetRequest(HttpRequest request) {
+		return coalesce(new RequestKey(request, null), () -> delegate.makeGetRequest(request));
+	}
+
+	@Override
+	public HttpResponse makePutRequest(HttpRequest request) {
+		return delegate.makePutRequest(request);
+	}
+
+	@Override
+	public HttpResponse makeDeleteRequest(HttpRequest request) {
+		return delegate.makeDeleteRequest(request);
+	}
+
+	@Override
+	public <T> DecodedHttpResponse<T> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return coalesce(new RequestKey(request, decoder), () -> delegate.makeGetRequest(request, decoder));
+	}
+
+	/**
+	 * @return number of requests which were not sent because they joined an identical in-flight request
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <R> R coalesce(RequestKey key, Supplier<R> call) {
+		CompletableFuture<R> created = new CompletableFuture<>();
+		CompletableFuture<R> existing = (CompletableFuture<R>) inFlight.putIfAbsent(key, created);
+		if (existing != null) {
+			coalescedCount.incrementAndGet();
+			try {
+				return existing.join();
+			} catch (CompletionException e) {
+				throw rethrow(e.getCause());
+			}
+		}
+
+		try {
+			R response = call.get();
+			inFlight.remove(key, created);
+			created.complete(response);
+			return response;
+		} catch (RuntimeException | Error e) {
+			inFlight.remove(key, created);
+			created.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new CompletionException(cause);
+	}
+}
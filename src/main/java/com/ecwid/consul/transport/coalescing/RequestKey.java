@@ -0,0 +1,43 @@
+package com.ecwid.consul.transport.coalescing;
+
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.HttpRequest;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Identity of a GET request for coalescing: the URL, the headers (which carry the ACL token) and the decoder, because
+ * requests decoded differently can't share a result.
+ */
+final class RequestKey {
+
+	private final String url;
+	private final Map<String, String> headers;
+	private final ContentDecoder<?> decoder;
+	private final int hashCode;
+
+	RequestKey(HttpRequest request, ContentDecoder<?> decoder) {
+		this.url = request.getUrl();
+		this.headers = request.getHeaders() == null ? Map.of() : new TreeMap<>(request.getHeaders());
+		this.decoder = decoder;
+		this.hashCode = 31 * (31 * url.hashCode() + headers.hashCode()) + System.identityHashCode(decoder);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof RequestKey)) {
+			return false;
+		}
+		RequestKey that = (RequestKey) o;
+		return hashCode == that.hashCode && decoder == that.decoder && url.equals(that.url) && headers.equals(that.headers);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+}
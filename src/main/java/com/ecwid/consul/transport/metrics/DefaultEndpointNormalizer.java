@@ -0,0 +1,49 @@
+package com.ecwid.consul.transport.metrics;
+
+final class DefaultEndpointNormalizer implements EndpointNormalizer {
+
+	// a template ending with {key} takes the rest of the path, other templates only the next segment
+	private static final String[][] TEMPLATES = {
+			{"/v1/kv/", "{key}"},
+			{"/v1/health/service/", "{service}"},
+			{"/v1/health/checks/", "{service}"},
+			{"/v1/health/node/", "{node}"},
+			{"/v1/health/state/", "{state}"},
+			{"/v1/catalog/service/", "{service}"},
+			{"/v1/catalog/node/", "{node}"},
+			{"/v1/session/info/", "{session}"},
+			{"/v1/session/destroy/", "{session}"},
+			{"/v1/session/renew/", "{session}"},
+			{"/v1/session/node/", "{node}"},
+			{"/v1/agent/service/deregister/", "{service_id}"},
+			{"/v1/agent/service/maintenance/", "{service_id}"},
+			{"/v1/agent/check/deregister/", "{check_id}"},
+			{"/v1/agent/check/pass/", "{check_id}"},
+			{"/v1/agent/check/warn/", "{check_id}"},
+			{"/v1/agent/check/fail/", "{check_id}"},
+			{"/v1/agent/join/", "{address}"},
+			{"/v1/agent/force-leave/", "{node}"},
+			{"/v1/event/fire/", "{name}"},
+			{"/v1/acl/info/", "{id}"},
+			{"/v1/acl/destroy/", "{id}"},
+			{"/v1/acl/clone/", "{id}"},
+			{"/v1/coordinate/node/", "{node}"},
+			{"/v1/query/", "{query}"},
+	};
+
+	@Override
+	public String normalize(String path) {
+		for (String[] template : TEMPLATES) {
+			String prefix = template[0];
+			if (!path.startsWith(prefix)) {
+				continue;
+			}
+			if (template[1].equals("{key}")) {
+				return prefix + template[1];
+			}
+			int end = path.indexOf('/', prefix.length());
+			return end == -1 ? prefix + template[1] : prefix + template[1] + path.substring(end);
+		}
+		return path;
+	}
+}
@@ -0,0 +1,144 @@
+package com.ecwid.consul.transport.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Aggregated metrics of one logical endpoint, see {@link EndpointMetricsRecorder}.
+ */
+public final class EndpointMetrics {
+
+	private final String endpoint;
+
+	private final LatencyHistogram activeLatency = new LatencyHistogram();
+	private final LatencyHistogram blockingQueryLatency = new LatencyHistogram();
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	// 1xx..5xx
+	private final AtomicLongArray statusClasses = new AtomicLongArray(5);
+	private final AtomicLong responseBytes = new AtomicLong();
+	// the compressed responses only, before and after decompression
+	private final AtomicLong compressedResponses = new AtomicLong();
+	private final AtomicLong compressedBytes = new AtomicLong();
+	private final AtomicLong decompressedBytes = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	EndpointMetrics(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	void record(RequestMetrics metrics) {
+		requests.incrementAndGet();
+		int statusClass = metrics.getStatusCode() / 100;
+		if (statusClass >= 1 && statusClass <= 5) {
+			statusClasses.incrementAndGet(statusClass - 1);
+		} else {
+			failures.incrementAndGet();
+		}
+		responseBytes.addAndGet(metrics.getResponseBytes());
+		if (metrics.isCompressed()) {
+			compressedResponses.incrementAndGet();
+			compressedBytes.addAndGet(metrics.getCompressedBytes());
+			decompressedBytes.addAndGet(metrics.getResponseBytes());
+		}
+
+		if (metrics.isBlockingQuery()) {
+			blockingQueryLatency.recordNanos(metrics.getLatencyNanos());
+		}
+		if (metrics.getWaitNanos() >= 0) {
+			waitNanos.addAndGet(metrics.getWaitNanos());
+			activeLatency.recordNanos(metrics.getActiveNanos());
+		}
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return latency of the requests without the time blocking queries were held by the agent; this is the one to
+	 * alert on. Blocking queries whose result changed are left out, their wait is unknown.
+	 */
+	public LatencyHistogram getActiveLatency() {
+		return activeLatency;
+	}
+
+	/**
+	 * @return total latency of the blocking queries, including the wait
+	 */
+	public LatencyHistogram getBlockingQueryLatency() {
+		return blockingQueryLatency;
+	}
+
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of requests which failed without a response
+	 */
+	public long getFailureCount() {
+		return failures.get();
+	}
+
+	/**
+	 * @param statusClass 1..5, e.g. 5 for all 5xx responses
+	 */
+	public long getStatusCount(int statusClass) {
+		return statusClasses.get(statusClass - 1);
+	}
+
+	public long getResponseBytes() {
+		return responseBytes.get();
+	}
+
+	public long getCompressedResponseCount() {
+		return compressedResponses.get();
+	}
+
+	/**
+	 * @return bytes the compressed responses took on the wire
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * @return bytes of the compressed responses after decompression
+	 */
+	public long getDecompressedBytes() {
+		return decompressedBytes.get();
+	}
+
+	/**
+	 * @return compressed to decompressed size of the compressed responses, e.g. 0.1 if compression saved 90% of
+	 * their bandwidth, or 1 if there were none
+	 */
+	public double getCompressionRatio() {
+		long decompressed = decompressedBytes.get();
+		return decompressed > 0 ? (double) compressedBytes.get() / decompressed : 1;
+	}
+
+	/**
+	 * @return total time blocking queries were held by the agent, for the queries where it is known
+	 */
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		return "EndpointMetrics{" +
+				"endpoint='" + endpoint + '\'' +
+				", requests=" + requests +
+				", failures=" + failures +
+				", statusClasses=" + statusClasses +
+				", responseBytes=" + responseBytes +
+				", compressedBytes=" + compressedBytes +
+				", decompressedBytes=" + decompressedBytes +
+				", activeLatency=" + activeLatency +
+				", blockingQueryLatency=" + blockingQueryLatency +
+				'}';
+	}
+}
@@ -0,0 +1,42 @@
+package com.ecwid.consul.transport.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Built-in {@link RequestMetricsListener} which aggregates the metrics per method and logical endpoint, e.g.
+ * {@code GET /v1/health/service/{service}}, without any dependencies. Export them to a monitoring system by polling
+ * {@link #getEndpointMetrics()}.
+ */
+public final class EndpointMetricsRecorder implements RequestMetricsListener {
+
+	private final ConcurrentMap<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+
+	@Override
+	public void onRequest(RequestMetrics requestMetrics) {
+		String endpoint = requestMetrics.getMethod() + " " + requestMetrics.getEndpoint();
+		EndpointMetrics endpointMetrics = metrics.get(endpoint);
+		if (endpointMetrics == null) {
+			endpointMetrics = metrics.computeIfAbsent(endpoint, EndpointMetrics::new);
+		}
+		endpointMetrics.record(requestMetrics);
+	}
+
+	/**
+	 * @param endpoint method and logical endpoint, e.g. {@code GET /v1/kv/{key}}
+	 * @return metrics of the endpoint, or null if there were no requests to it
+	 */
+	public EndpointMetrics getEndpointMetrics(String endpoint) {
+		return metrics.get(endpoint);
+	}
+
+	public Collection<EndpointMetrics> getEndpointMetrics() {
+		return Collections.unmodifiableCollection(metrics.values());
+	}
+
+	public void reset() {
+		metrics.clear();
+	}
+}
@@ -0,0 +1,21 @@
+package com.ecwid.consul.transport.metrics;
+
+/**
+ * Maps a request path to the logical endpoint its metrics are recorded for, so that e.g. every
+ * {@code /v1/health/service/web} and {@code /v1/health/service/db} request is recorded as
+ * {@code /v1/health/service/{service}} and the number of recorded endpoints stays bounded.
+ */
+public interface EndpointNormalizer {
+
+	/**
+	 * Replaces the key, service, node, session, check and other names in the paths used by this library.
+	 */
+	public static final EndpointNormalizer DEFAULT = new DefaultEndpointNormalizer();
+
+	/**
+	 * @param path path of the request without the query string, starting with {@code /v1/}
+	 * @return the logical endpoint
+	 */
+	public String normalize(String path);
+
+}
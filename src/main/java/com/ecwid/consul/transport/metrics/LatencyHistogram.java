@@ -0,0 +1,129 @@
+package com.ecwid.consul.transport.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ * <p>
+ * Values below {@code 2 * 64} are counted exactly; above that every power of two is split into 64 linear sub-buckets,
+ * so a recorded value and the value reported for it differ by less than 1/64 (1.6%). Values up to about 18 minutes
+ * are tracked, larger ones are counted as the maximum trackable value. The histogram takes about 18 KB.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// 2^40 ns is about 18 minutes, longer than Consul's 10 minutes maximum wait time
+	private static final int MAX_VALUE_BITS = 40;
+	public static final long MAX_TRACKABLE_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+	private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalValue = new AtomicLong();
+	private final AtomicLong maxValue = new AtomicLong();
+
+	public void recordNanos(long nanos) {
+		long value = Math.min(Math.max(nanos, 0), MAX_TRACKABLE_VALUE);
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(value);
+		long max = maxValue.get();
+		while (value > max && !maxValue.compareAndSet(max, value)) {
+			max = maxValue.get();
+		}
+	}
+
+	public void record(long duration, TimeUnit unit) {
+		recordNanos(unit.toNanos(duration));
+	}
+
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	public long getMaxNanos() {
+		return maxValue.get();
+	}
+
+	public double getMeanNanos() {
+		long count = totalCount.get();
+		return count == 0 ? 0 : (double) totalValue.get() / count;
+	}
+
+	/**
+	 * @param percentile 0..100, e.g. 99.9
+	 * @return the highest value which the given share of the recorded values doesn't exceed, within the precision of
+	 * the histogram; 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be in 0..100, got " + percentile);
+		}
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += counts.get(i);
+		}
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValueOf(i), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	/**
+	 * Clears the histogram. Values recorded concurrently may be lost or kept partially.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		totalValue.set(0);
+		maxValue.set(0);
+	}
+
+	// package-private for tests
+	static int indexOf(long value) {
+		int highestBit = 63 - Long.numberOfLeadingZeros(value);
+		if (highestBit <= SUB_BUCKET_BITS) {
+			// values below 2 * SUB_BUCKET_COUNT are their own index
+			return (int) value;
+		}
+		int shift = highestBit - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	// package-private for tests
+	static long highestValueOf(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long lowest = (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram{" +
+				"count=" + getCount() +
+				", meanNanos=" + (long) getMeanNanos() +
+				", p50Nanos=" + getValueAtPercentile(50) +
+				", p99Nanos=" + getValueAtPercentile(99) +
+				", maxNanos=" + getMaxNanos() +
+				'}';
+	}
+}
@@ -0,0 +1,79 @@
+package com.ecwid.consul.transport.metrics;
+
+import com.ecwid.consul.transport.AsyncHttpTransport;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.Futures;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link MetricsHttpTransport}.
+ */
+public final class MetricsAsyncHttpTransport implements AsyncHttpTransport {
+
+	private final AsyncHttpTransport delegate;
+	private final RequestMetricsSupport support;
+
+	public MetricsAsyncHttpTransport(AsyncHttpTransport delegate, RequestMetricsListener listener) {
+		this(delegate, listener, EndpointNormalizer.DEFAULT);
+	}
+
+	public MetricsAsyncHttpTransport(AsyncHttpTransport delegate, RequestMetricsListener listener, EndpointNormalizer endpointNormalizer) {
+		this.delegate = delegate;
+		this.support = new RequestMetricsSupport(listener, endpointNormalizer);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+		return measure("GET", request, () -> delegate.makeGetRequest(request));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+		return measure("PUT", request, () -> delegate.makePutRequest(request));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+		return measure("DELETE", request, () -> delegate.makeDeleteRequest(request));
+	}
+
+	@Override
+	public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		AtomicLong decodedChars = new AtomicLong();
+		long start = System.nanoTime();
+		return Futures.whenComplete(delegate.makeGetRequest(request, RequestMetricsSupport.counting(decoder, decodedChars)),
+				(response, error) -> {
+					long latencyNanos = System.nanoTime() - start;
+					if (error != null) {
+						support.failed("GET", request, unwrap(error), latencyNanos);
+					} else {
+						HttpResponse httpResponse = response.getHttpResponse();
+						long responseBytes = httpResponse.getContent() == null ? decodedChars.get() : -1;
+						support.completed("GET", request, httpResponse, responseBytes, latencyNanos);
+					}
+				});
+	}
+
+	private CompletableFuture<HttpResponse> measure(String method, HttpRequest request, Supplier<CompletableFuture<HttpResponse>> call) {
+		long start = System.nanoTime();
+		return Futures.whenComplete(call.get(), (response, error) -> {
+			long latencyNanos = System.nanoTime() - start;
+			if (error != null) {
+				support.failed(method, request, unwrap(error), latencyNanos);
+			} else {
+				support.completed(method, request, response, -1, latencyNanos);
+			}
+		});
+	}
+
+	private static Throwable unwrap(Throwable error) {
+		return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+	}
+}
@@ -0,0 +1,74 @@
+package com.ecwid.consul.transport.metrics;
+
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Decorates a transport to report the metrics of every request to a {@link RequestMetricsListener}.
+ */
+public final class MetricsHttpTransport implements HttpTransport {
+
+	private final HttpTransport delegate;
+	private final RequestMetricsSupport support;
+
+	public MetricsHttpTransport(HttpTransport delegate, RequestMetricsListener listener) {
+		this(delegate, listener, EndpointNormalizer.DEFAULT);
+	}
+
+	public MetricsHttpTransport(HttpTransport delegate, RequestMetricsListener listener, EndpointNormalizer endpointNormalizer) {
+		this.delegate = delegate;
+		this.support = new RequestMetricsSupport(listener, endpointNormalizer);
+	}
+
+	@Override
+	public HttpResponse makeGetRequest(HttpRequest request) {
+		return measure("GET", request, () -> delegate.makeGetRequest(request));
+	}
+
+	@Override
+	public HttpResponse makePutRequest(HttpRequest request) {
+		return measure("PUT", request, () -> delegate.makePutRequest(request));
+	}
+
+	@Override
+	public HttpResponse makeDeleteRequest(HttpRequest request) {
+		return measure("DELETE", request, () -> delegate.makeDeleteRequest(request));
+	}
+
+	@Override
+	public <T> DecodedHttpResponse<T> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		AtomicLong decodedChars = new AtomicLong();
+		long start = System.nanoTime();
+		DecodedHttpResponse<T> response;
+		try {
+			response = delegate.makeGetRequest(request, RequestMetricsSupport.counting(decoder, decodedChars));
+		} catch (RuntimeException e) {
+			support.failed("GET", request, e, System.nanoTime() - start);
+			throw e;
+		}
+
+		HttpResponse httpResponse = response.getHttpResponse();
+		long responseBytes = httpResponse.getContent() == null ? decodedChars.get() : -1;
+		support.completed("GET", request, httpResponse, responseBytes, System.nanoTime() - start);
+		return response;
+	}
+
+	private HttpResponse measure(String method, HttpRequest request, Supplier<HttpResponse> call) {
+		long start = System.nanoTime();
+		HttpResponse response;
+		try {
+			response = call.get();
+		} catch (RuntimeException e) {
+			support.failed(method, request, e, System.nanoTime() - start);
+			throw e;
+		}
+		support.completed(method, request, response, -1, System.nanoTime() - start);
+		return response;
+	}
+}
@@ -0,0 +1,125 @@
+package com.ecwid.consul.transport.metrics;
+
+/**
+ * Metrics of a single completed or failed request.
+ * <p>
+ * For a blocking query the agent holds the request until the result changes or the wait time is over, so its latency
+ * says little about the agent's health. If the query returned the unchanged index, the requested wait time is
+ * accounted as wait time and only the rest as active time. If the result changed, the agent's processing can't be told
+ * apart from the wait, and both are reported as unknown.
+ */
+public final class RequestMetrics {
+
+	private final String method;
+	private final String endpoint;
+	private final int statusCode;
+	private final long responseBytes;
+	private final long compressedBytes;
+	private final long latencyNanos;
+	private final long waitNanos;
+	private final boolean blockingQuery;
+	private final Throwable failure;
+
+	public RequestMetrics(String method, String endpoint, int statusCode, long responseBytes, long latencyNanos,
+						  long waitNanos, boolean blockingQuery, Throwable failure) {
+		this(method, endpoint, statusCode, responseBytes, -1, latencyNanos, waitNanos, blockingQuery, failure);
+	}
+
+	public RequestMetrics(String method, String endpoint, int statusCode, long responseBytes, long compressedBytes,
+						  long latencyNanos, long waitNanos, boolean blockingQuery, Throwable failure) {
+		this.method = method;
+		this.endpoint = endpoint;
+		this.statusCode = statusCode;
+		this.responseBytes = responseBytes;
+		this.compressedBytes = compressedBytes;
+		this.latencyNanos = latencyNanos;
+		this.waitNanos = waitNanos;
+		this.blockingQuery = blockingQuery;
+		this.failure = failure;
+	}
+
+	/**
+	 * @return {@code GET}, {@code PUT} or {@code DELETE}
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return the logical endpoint, e.g. {@code /v1/health/service/{service}}
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return HTTP status code, or -1 if the request failed without a response
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * @return size of the response body after decompression. Bodies which are decoded straight from the stream are
+	 * measured in characters, which is the same for the ASCII JSON Consul sends.
+	 */
+	public long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * @return size of the response body as it was received gzip or deflate compressed, or -1 if it was not compressed
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes;
+	}
+
+	public boolean isCompressed() {
+		return compressedBytes >= 0;
+	}
+
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	/**
+	 * @return the part of the latency the agent held a blocking query, 0 for other requests, or -1 if it is unknown
+	 * because the result of the blocking query changed
+	 */
+	public long getWaitNanos() {
+		return waitNanos;
+	}
+
+	/**
+	 * @return the part of the latency the request was actually processed and transferred, or -1 if the wait is unknown
+	 */
+	public long getActiveNanos() {
+		return waitNanos >= 0 ? latencyNanos - waitNanos : -1;
+	}
+
+	public boolean isBlockingQuery() {
+		return blockingQuery;
+	}
+
+	/**
+	 * @return the exception the request failed with, or null
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestMetrics{" +
+				"method='" + method + '\'' +
+				", endpoint='" + endpoint + '\'' +
+				", statusCode=" + statusCode +
+				", responseBytes=" + responseBytes +
+				", compressedBytes=" + compressedBytes +
+				", latencyNanos=" + latencyNanos +
+				", waitNanos=" + waitNanos +
+				", blockingQuery=" + blockingQuery +
+				", failure=" + failure +
+				'}';
+	}
+}
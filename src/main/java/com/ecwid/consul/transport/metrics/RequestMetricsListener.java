@@ -0,0 +1,12 @@
+package com.ecwid.consul.transport.metrics;
+
+/**
+ * Receives the metrics of every request made through a {@link MetricsHttpTransport} or
+ * {@link MetricsAsyncHttpTransport}. It's called on the thread which completed the request, so it must be fast and
+ * must not throw.
+ */
+public interface RequestMetricsListener {
+
+	public void onRequest(RequestMetrics metrics);
+
+}
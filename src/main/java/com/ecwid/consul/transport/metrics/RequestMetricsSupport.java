@@ -0,0 +1,134 @@
+package com.ecwid.consul.transport.metrics;
+
+import com.ecwid.consul.transport.BlockingQueries;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * What the sync and async metrics transports share: taking a request apart and reporting its metrics.
+ */
+final class RequestMetricsSupport {
+
+	private static final Logger log = Logger.getLogger(RequestMetricsSupport.class.getName());
+
+	private final RequestMetricsListener listener;
+	private final EndpointNormalizer endpointNormalizer;
+
+	RequestMetricsSupport(RequestMetricsListener listener, EndpointNormalizer endpointNormalizer) {
+		if (listener == null || endpointNormalizer == null) {
+			throw new IllegalArgumentException("listener and endpointNormalizer must not be null");
+		}
+		this.listener = listener;
+		this.endpointNormalizer = endpointNormalizer;
+	}
+
+	/**
+	 * Reports a completed request.
+	 *
+	 * @param responseBytes size of a decoded body, or -1 to take it from the content of the response
+	 */
+	void completed(String method, HttpRequest request, HttpResponse response, long responseBytes, long latencyNanos) {
+		String url = request.getUrl();
+		long requestedIndex = BlockingQueries.requestedIndex(url);
+		boolean blockingQuery = requestedIndex != 0;
+
+		long waitNanos = 0;
+		if (blockingQuery && response.getStatusCode() == 200) {
+			Long responseIndex = response.getConsulIndex();
+			if (responseIndex != null && responseIndex == requestedIndex) {
+				// the wait time passed without a change
+				waitNanos = Math.min(latencyNanos, TimeUnit.MILLISECONDS.toNanos(BlockingQueries.requestedWaitMillis(url)));
+			} else {
+				// the result changed at some point of the wait, the wait can't be told apart from the processing
+				waitNanos = -1;
+			}
+		}
+
+		long bytes = responseBytes >= 0 ? responseBytes : utf8Length(response.getContent());
+		long compressedBytes = response.getCompressedBytes() != null ? response.getCompressedBytes() : -1;
+		report(new RequestMetrics(method, endpoint(url), response.getStatusCode(), bytes, compressedBytes, latencyNanos,
+				waitNanos, blockingQuery, null));
+	}
+
+	void failed(String method, HttpRequest request, Throwable failure, long latencyNanos) {
+		String url = request.getUrl();
+		boolean blockingQuery = BlockingQueries.isBlockingQuery(url);
+		report(new RequestMetrics(method, endpoint(url), -1, 0, latencyNanos, 0, blockingQuery, failure));
+	}
+
+	private void report(RequestMetrics metrics) {
+		try {
+			listener.onRequest(metrics);
+		} catch (RuntimeException e) {
+			log.log(Level.WARNING, "Request metrics listener failed", e);
+		}
+	}
+
+	String endpoint(String url) {
+		int start = url.indexOf("/v1/");
+		if (start == -1) {
+			int scheme = url.indexOf("://");
+			start = url.indexOf('/', scheme == -1 ? 0 : scheme + 3);
+			if (start == -1) {
+				return "/";
+			}
+		}
+		int end = url.indexOf('?', start);
+		return endpointNormalizer.normalize(end == -1 ? url.substring(start) : url.substring(start, end));
+	}
+
+	/**
+	 * @return decoder which counts the characters the given decoder reads
+	 */
+	static <T> ContentDecoder<T> counting(ContentDecoder<T> decoder, AtomicLong counter) {
+		return reader -> decoder.decode(new FilterReader(reader) {
+			@Override
+			public int read() throws IOException {
+				int c = super.read();
+				if (c != -1) {
+					counter.incrementAndGet();
+				}
+				return c;
+			}
+
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				int n = super.read(buffer, offset, length);
+				if (n > 0) {
+					counter.addAndGet(n);
+				}
+				return n;
+			}
+		});
+	}
+
+	private static long utf8Length(String content) {
+		if (content == null) {
+			return 0;
+		}
+		long length = 0;
+		for (int i = 0; i < content.length(); i++) {
+			char c = content.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c)) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+}
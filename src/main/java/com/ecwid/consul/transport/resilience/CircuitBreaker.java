@@ -0,0 +1,96 @@
+package com.ecwid.consul.transport.resilience;
+
+/**
+ * Per-agent circuit breaker. After {@code failureThreshold} consecutive transport failures the breaker opens and
+ * requests fail fast with {@link CircuitBreakerOpenException} instead of waiting on a dead agent. Once the open time
+ * has passed a single request probes the agent: a success closes the breaker, a failure opens it again.
+ * <p>
+ * The probe holds the breaker half open for the open time at most. A blocking query answers only when its wait time is
+ * over and a probe may be cancelled without an outcome, so after that time the next request probes once more.
+ */
+public final class CircuitBreaker {
+
+	public enum State {
+		CLOSED,
+		OPEN,
+		// a probe request is in flight, another one is sent if it has no outcome within the open time
+		HALF_OPEN
+	}
+
+	private final String agent;
+	private final int failureThreshold;
+	private final long openNanos;
+
+	// written under the lock, read without it on the fast path
+	private volatile State state = State.CLOSED;
+	private volatile int consecutiveFailures;
+	// end of the open time, or of the probe's lease while half open
+	private long nextProbeNanos;
+
+	CircuitBreaker(String agent, int failureThreshold, long openNanos) {
+		this.agent = agent;
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openNanos;
+	}
+
+	public String getAgent() {
+		return agent;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	/**
+	 * @return whether a request may be sent now; if the breaker is open and due, or the probe's lease is over, the
+	 * caller becomes the probe
+	 */
+	boolean tryAcquire(long nowNanos) {
+		if (state == State.CLOSED) {
+			return true;
+		}
+		synchronized (this) {
+			if (state == State.CLOSED) {
+				return true;
+			}
+			if (nowNanos - nextProbeNanos >= 0) {
+				state = State.HALF_OPEN;
+				nextProbeNanos = nowNanos + openNanos;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @return whether the breaker was closed by this call
+	 */
+	boolean recordSuccess() {
+		if (state == State.CLOSED && consecutiveFailures == 0) {
+			return false;
+		}
+		synchronized (this) {
+			boolean closed = state != State.CLOSED;
+			state = State.CLOSED;
+			consecutiveFailures = 0;
+			return closed;
+		}
+	}
+
+	/**
+	 * @return whether the breaker was opened by this call
+	 */
+	synchronized boolean recordFailure(long nowNanos) {
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+			state = State.OPEN;
+			nextProbeNanos = nowNanos + openNanos;
+			return true;
+		}
+		return false;
+	}
+}
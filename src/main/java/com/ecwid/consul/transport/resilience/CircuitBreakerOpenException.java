@@ -0,0 +1,20 @@
+package com.ecwid.consul.transport.resilience;
+
+import com.ecwid.consul.transport.TransportException;
+
+/**
+ * Thrown instead of sending a request to an agent whose {@link CircuitBreaker} is open. The request has not been sent.
+ */
+public class CircuitBreakerOpenException extends TransportException {
+
+	private final String agent;
+
+	public CircuitBreakerOpenException(String agent) {
+		super("Circuit breaker for Consul agent " + agent + " is open");
+		this.agent = agent;
+	}
+
+	public String getAgent() {
+		return agent;
+	}
+}
@@ -0,0 +1,229 @@
+package com.ecwid.consul.transport.resilience;
+
+import com.ecwid.consul.transport.BlockingQueries;
+import com.ecwid.consul.transport.HttpRequest;
+
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * Settings of {@link ResilientHttpTransport} and {@link ResilientAsyncHttpTransport}:
+ * <ul>
+ * <li>GET requests which failed with a transport error are retried up to {@code maxRetries} times, after a random
+ * delay of up to {@code retryBaseDelay * 2^retry}, capped at {@code retryMaxDelay} ("full jitter")</li>
+ * <li>if hedging is enabled, GET requests matching the hedge filter are sent a second time when the first one takes
+ * longer than the given percentile of the recent latencies of such requests, and the first success is used</li>
+ * <li>every agent has a {@link CircuitBreaker}, which fails requests fast after consecutive transport failures</li>
+ * </ul>
+ * PUT and DELETE requests are never retried or hedged, they only go through the circuit breaker.
+ */
+public final class ResiliencePolicy {
+
+	public static final int DEFAULT_MAX_RETRIES = 2;
+	public static final long DEFAULT_RETRY_BASE_DELAY = 50; // milliseconds
+	public static final long DEFAULT_RETRY_MAX_DELAY = 1000; // milliseconds
+	public static final double DEFAULT_HEDGE_PERCENTILE = 95;
+	public static final long DEFAULT_HEDGE_MIN_DELAY = 10; // milliseconds
+	public static final long DEFAULT_HEDGE_INITIAL_DELAY = 100; // milliseconds
+	public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+	public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_TIME = 5 * 1000; // milliseconds
+
+	/**
+	 * Hedges every request except blocking queries, which are expected to take up to their wait time.
+	 */
+	public static final Predicate<HttpRequest> NON_BLOCKING_REQUESTS = request -> !BlockingQueries.isBlockingQuery(request.getUrl());
+
+	public static final class Builder {
+		private int maxRetries = DEFAULT_MAX_RETRIES;
+		private long retryBaseDelayMillis = DEFAULT_RETRY_BASE_DELAY;
+		private long retryMaxDelayMillis = DEFAULT_RETRY_MAX_DELAY;
+		private boolean hedging;
+		private Predicate<HttpRequest> hedgeFilter = NON_BLOCKING_REQUESTS;
+		private double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+		private long hedgeMinDelayMillis = DEFAULT_HEDGE_MIN_DELAY;
+		private long hedgeInitialDelayMillis = DEFAULT_HEDGE_INITIAL_DELAY;
+		private Executor hedgeExecutor;
+		private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+		private long circuitBreakerOpenMillis = DEFAULT_CIRCUIT_BREAKER_OPEN_TIME;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param maxRetries how many times a failed GET request is sent again, 0 disables retries
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setMaxRetries(int maxRetries) {
+			this.maxRetries = maxRetries;
+			return this;
+		}
+
+		public Builder setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+			this.retryBaseDelayMillis = retryBaseDelayMillis;
+			return this;
+		}
+
+		public Builder setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+			this.retryMaxDelayMillis = retryMaxDelayMillis;
+			return this;
+		}
+
+		public Builder setHedging(boolean hedging) {
+			this.hedging = hedging;
+			return this;
+		}
+
+		/**
+		 * @param hedgeFilter selects the GET requests which are hedged, e.g. service discovery lookups;
+		 *                    {@link #NON_BLOCKING_REQUESTS} by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setHedgeFilter(Predicate<HttpRequest> hedgeFilter) {
+			this.hedgeFilter = hedgeFilter;
+			return this;
+		}
+
+		/**
+		 * @param hedgePercentile latency percentile of hedged requests after which the second request is sent
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setHedgePercentile(double hedgePercentile) {
+			this.hedgePercentile = hedgePercentile;
+			return this;
+		}
+
+		public Builder setHedgeMinDelayMillis(long hedgeMinDelayMillis) {
+			this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+			return this;
+		}
+
+		/**
+		 * @param hedgeInitialDelayMillis hedge delay used until enough latencies are recorded for the percentile
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setHedgeInitialDelayMillis(long hedgeInitialDelayMillis) {
+			this.hedgeInitialDelayMillis = hedgeInitialDelayMillis;
+			return this;
+		}
+
+		/**
+		 * @param hedgeExecutor runs hedged requests of the blocking transport, a shared pool of daemon threads by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setHedgeExecutor(Executor hedgeExecutor) {
+			this.hedgeExecutor = hedgeExecutor;
+			return this;
+		}
+
+		/**
+		 * @param circuitBreakerFailureThreshold consecutive transport failures which open an agent's circuit breaker,
+		 *                                       0 disables the circuit breakers
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold) {
+			this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+			return this;
+		}
+
+		public Builder setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+			this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+			return this;
+		}
+
+		public ResiliencePolicy build() {
+			if (maxRetries < 0 || circuitBreakerFailureThreshold < 0) {
+				throw new IllegalArgumentException("maxRetries and circuitBreakerFailureThreshold must not be negative");
+			}
+			if (retryBaseDelayMillis <= 0 || retryMaxDelayMillis < retryBaseDelayMillis) {
+				throw new IllegalArgumentException("Invalid retry delay range [" + retryBaseDelayMillis + ", " + retryMaxDelayMillis + "]");
+			}
+			if (hedgePercentile <= 0 || hedgePercentile > 100) {
+				throw new IllegalArgumentException("hedgePercentile must be in (0, 100], got " + hedgePercentile);
+			}
+			if (hedgeMinDelayMillis <= 0 || hedgeInitialDelayMillis <= 0 || circuitBreakerOpenMillis <= 0) {
+				throw new IllegalArgumentException("Hedge delays and circuitBreakerOpenMillis must be positive");
+			}
+			if (hedgeFilter == null) {
+				throw new IllegalArgumentException("hedgeFilter must not be null");
+			}
+			return new ResiliencePolicy(this);
+		}
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	private final int maxRetries;
+	private final long retryBaseDelayMillis;
+	private final long retryMaxDelayMillis;
+	private final boolean hedging;
+	private final Predicate<HttpRequest> hedgeFilter;
+	private final double hedgePercentile;
+	private final long hedgeMinDelayMillis;
+	private final long hedgeInitialDelayMillis;
+	private final Executor hedgeExecutor;
+	private final int circuitBreakerFailureThreshold;
+	private final long circuitBreakerOpenMillis;
+
+	private ResiliencePolicy(Builder builder) {
+		this.maxRetries = builder.maxRetries;
+		this.retryBaseDelayMillis = builder.retryBaseDelayMillis;
+		this.retryMaxDelayMillis = builder.retryMaxDelayMillis;
+		this.hedging = builder.hedging;
+		this.hedgeFilter = builder.hedgeFilter;
+		this.hedgePercentile = builder.hedgePercentile;
+		this.hedgeMinDelayMillis = builder.hedgeMinDelayMillis;
+		this.hedgeInitialDelayMillis = builder.hedgeInitialDelayMillis;
+		this.hedgeExecutor = builder.hedgeExecutor;
+		this.circuitBreakerFailureThreshold = builder.circuitBreakerFailureThreshold;
+		this.circuitBreakerOpenMillis = builder.circuitBreakerOpenMillis;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public long getRetryBaseDelayMillis() {
+		return retryBaseDelayMillis;
+	}
+
+	public long getRetryMaxDelayMillis() {
+		return retryMaxDelayMillis;
+	}
+
+	public boolean isHedging() {
+		return hedging;
+	}
+
+	public Predicate<HttpRequest> getHedgeFilter() {
+		return hedgeFilter;
+	}
+
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public long getHedgeMinDelayMillis() {
+		return hedgeMinDelayMillis;
+	}
+
+	public long getHedgeInitialDelayMillis() {
+		return hedgeInitialDelayMillis;
+	}
+
+	/**
+	 * @return executor for hedged requests of the blocking transport, {@code null} for the shared default
+	 */
+	public Executor getHedgeExecutor() {
+		return hedgeExecutor;
+	}
+
+	public int getCircuitBreakerFailureThreshold() {
+		return circuitBreakerFailureThreshold;
+	}
+
+	public long getCircuitBreakerOpenMillis() {
+		return circuitBreakerOpenMillis;
+	}
+}
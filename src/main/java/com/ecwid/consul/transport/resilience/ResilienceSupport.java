@@ -0,0 +1,229 @@
+package com.ecwid.consul.transport.resilience;
+
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.TransportException;
+import com.ecwid.consul.transport.metrics.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * State shared by the blocking and the non-blocking resilient transport: circuit breakers, the latencies the hedge
+ * delay is derived from and the counters.
+ */
+final class ResilienceSupport {
+
+	private static final Logger log = Logger.getLogger(ResilienceSupport.class.getName());
+
+	// latencies of hedged requests are kept for the last 1000..2000 requests, so the delay follows the agent's load
+	private static final int HEDGE_WINDOW = 1000;
+	private static final int HEDGE_MIN_SAMPLES = 20;
+	// the percentile walks the whole histogram, so the delay is recalculated only every so many requests
+	private static final int HEDGE_DELAY_REFRESH = 32;
+
+	private final ResiliencePolicy policy;
+	private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+	private final Map<String, CircuitBreaker> circuitBreakersView = Collections.unmodifiableMap(circuitBreakers);
+
+	private volatile LatencyHistogram currentLatencies = new LatencyHistogram();
+	private volatile LatencyHistogram previousLatencies;
+	private final AtomicInteger latenciesSinceRefresh = new AtomicInteger();
+	private volatile long hedgeDelayNanos;
+
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong hedgeCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	ResilienceSupport(ResiliencePolicy policy) {
+		this.policy = policy;
+		this.hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(policy.getHedgeInitialDelayMillis());
+	}
+
+	ResiliencePolicy getPolicy() {
+		return policy;
+	}
+
+	// ---------------------------------------
+	// Circuit breakers
+
+	/**
+	 * @return breaker of the request's agent, {@code null} if breakers are disabled
+	 * @throws CircuitBreakerOpenException if the request must not be sent
+	 */
+	CircuitBreaker acquire(HttpRequest request) {
+		if (policy.getCircuitBreakerFailureThreshold() == 0) {
+			return null;
+		}
+		String agent = agentOf(request.getUrl());
+		CircuitBreaker breaker = circuitBreakers.computeIfAbsent(agent, key -> new CircuitBreaker(key,
+			policy.getCircuitBreakerFailureThreshold(), TimeUnit.MILLISECONDS.toNanos(policy.getCircuitBreakerOpenMillis())));
+		if (!breaker.tryAcquire(System.nanoTime())) {
+			rejectedCount.incrementAndGet();
+			throw new CircuitBreakerOpenException(agent);
+		}
+		return breaker;
+	}
+
+	/**
+	 * Records the outcome of a sent request; only transport failures count against the agent, any response proves
+	 * it is alive. A cancelled request, e.g. the loser of a hedge, has no outcome.
+	 */
+	void completed(CircuitBreaker breaker, Throwable error, long startNanos, boolean hedged) {
+		if (error instanceof CancellationException) {
+			return;
+		}
+		if (error instanceof TransportException) {
+			if (breaker != null && breaker.recordFailure(System.nanoTime())) {
+				log.log(Level.WARNING, "Circuit breaker for Consul agent " + breaker.getAgent() + " is open after "
+					+ breaker.getConsecutiveFailures() + " consecutive failures", error);
+			}
+			return;
+		}
+
+		if (breaker != null && breaker.recordSuccess()) {
+			log.info("Circuit breaker for Consul agent " + breaker.getAgent() + " is closed");
+		}
+		if (hedged && error == null) {
+			recordLatency(System.nanoTime() - startNanos);
+		}
+	}
+
+	Map<String, CircuitBreaker> getCircuitBreakers() {
+		return circuitBreakersView;
+	}
+
+	// scheme://host:port of the agent
+	static String agentOf(String url) {
+		int scheme = url.indexOf("://");
+		int path = url.indexOf('/', scheme == -1 ? 0 : scheme + 3);
+		return path == -1 ? url : url.substring(0, path);
+	}
+
+	// ---------------------------------------
+	// Retries
+
+	boolean isRetryable(Throwable error, int retries) {
+		return retries < policy.getMaxRetries()
+			&& error instanceof TransportException && !(error instanceof CircuitBreakerOpenException);
+	}
+
+	long retryDelayMillis(int retries) {
+		retryCount.incrementAndGet();
+		long bound = Math.min(policy.getRetryMaxDelayMillis(), policy.getRetryBaseDelayMillis() << Math.min(retries, 20));
+		return ThreadLocalRandom.current().nextLong(bound + 1);
+	}
+
+	// ---------------------------------------
+	// Hedging
+
+	boolean isHedged(HttpRequest request) {
+		return policy.isHedging() && policy.getHedgeFilter().test(request);
+	}
+
+	long getHedgeDelayNanos() {
+		return hedgeDelayNanos;
+	}
+
+	/**
+	 * Sends the request and, if it hasn't completed after the hedge delay, sends it once more. The first success
+	 * completes the returned future; it fails only when every sent request failed. Once it's complete, or cancelled,
+	 * the request still in flight is cancelled.
+	 */
+	<R> CompletableFuture<R> hedge(Supplier<CompletableFuture<R>> call) {
+		CompletableFuture<R> result = new CompletableFuture<>();
+		Queue<CompletableFuture<R>> attempts = new ConcurrentLinkedQueue<>();
+		result.whenComplete((value, error) -> attempts.forEach(attempt -> attempt.cancel(true)));
+		AtomicInteger outstanding = new AtomicInteger(1);
+		BiConsumer<R, Throwable> completion = (value, error) -> {
+			if (error == null) {
+				result.complete(value);
+			} else if (outstanding.decrementAndGet() == 0) {
+				result.completeExceptionally(unwrap(error));
+			}
+		};
+
+		attempt(call, attempts, result).whenComplete(completion);
+		CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+			if (!result.isDone()) {
+				outstanding.incrementAndGet();
+				hedgeCount.incrementAndGet();
+				attempt(call, attempts, result).whenComplete(completion);
+			}
+		});
+		return result;
+	}
+
+	private static <R> CompletableFuture<R> attempt(Supplier<CompletableFuture<R>> call, Queue<CompletableFuture<R>> attempts,
+													CompletableFuture<R> result) {
+		CompletableFuture<R> attempt = call.get();
+		attempts.add(attempt);
+		// the result may have completed before the attempt was published
+		if (result.isDone()) {
+			attempt.cancel(true);
+		}
+		return attempt;
+	}
+
+	private void recordLatency(long latencyNanos) {
+		LatencyHistogram latencies = currentLatencies;
+		latencies.recordNanos(latencyNanos);
+		if (latenciesSinceRefresh.incrementAndGet() < HEDGE_DELAY_REFRESH) {
+			return;
+		}
+
+		synchronized (this) {
+			if (latenciesSinceRefresh.get() < HEDGE_DELAY_REFRESH) {
+				return;
+			}
+			latenciesSinceRefresh.set(0);
+			if (latencies.getCount() >= HEDGE_WINDOW) {
+				previousLatencies = latencies;
+				currentLatencies = new LatencyHistogram();
+			}
+
+			LatencyHistogram source = previousLatencies != null ? previousLatencies : latencies;
+			if (source.getCount() >= HEDGE_MIN_SAMPLES) {
+				long percentile = source.getValueAtPercentile(policy.getHedgePercentile());
+				hedgeDelayNanos = Math.max(percentile, TimeUnit.MILLISECONDS.toNanos(policy.getHedgeMinDelayMillis()));
+			}
+		}
+	}
+
+	// ---------------------------------------
+	// Counters
+
+	long getRetryCount() {
+		return retryCount.get();
+	}
+
+	long getHedgeCount() {
+		return hedgeCount.get();
+	}
+
+	long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	static Throwable unwrap(Throwable error) {
+		while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+			error = error.getCause();
+		}
+		return error;
+	}
+}
@@ -0,0 +1,135 @@
+package com.ecwid.consul.transport.resilience;
+
+import com.ecwid.consul.transport.AsyncHttpTransport;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.Futures;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link ResilientHttpTransport}. Retries and hedged requests are scheduled without
+ * blocking a thread. Cancelling a returned future cancels the request in flight, and the loser of a hedge is
+ * cancelled as soon as the other request succeeded.
+ */
+public final class ResilientAsyncHttpTransport implements AsyncHttpTransport {
+
+	private final AsyncHttpTransport delegate;
+	private final ResilienceSupport support;
+
+	public ResilientAsyncHttpTransport(AsyncHttpTransport delegate, ResiliencePolicy policy) {
+		this.delegate = delegate;
+		this.support = new ResilienceSupport(policy);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+		return read(request, () -> delegate.makeGetRequest(request));
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+		return send(request, () -> delegate.makePutRequest(request), false);
+	}
+
+	@Override
+	public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+		return send(request, () -> delegate.makeDeleteRequest(request), false);
+	}
+
+	@Override
+	public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return read(request, () -> delegate.makeGetRequest(request, decoder));
+	}
+
+	/**
+	 * @return circuit breakers by agent address ({@code scheme://host:port}), for monitoring
+	 */
+	public Map<String, CircuitBreaker> getCircuitBreakers() {
+		return support.getCircuitBreakers();
+	}
+
+	public long getRetryCount() {
+		return support.getRetryCount();
+	}
+
+	public long getHedgeCount() {
+		return support.getHedgeCount();
+	}
+
+	/**
+	 * @return number of requests failed fast by an open circuit breaker
+	 */
+	public long getRejectedCount() {
+		return support.getRejectedCount();
+	}
+
+	private <R> CompletableFuture<R> read(HttpRequest request, Supplier<CompletableFuture<R>> call) {
+		CompletableFuture<R> result = new CompletableFuture<>();
+		AtomicReference<CompletableFuture<R>> currentAttempt = new AtomicReference<>();
+		result.whenComplete((response, error) -> {
+			CompletableFuture<R> attempt = currentAttempt.get();
+			if (result.isCancelled() && attempt != null) {
+				attempt.cancel(true);
+			}
+		});
+		read(request, call, support.isHedged(request), 0, result, currentAttempt);
+		return result;
+	}
+
+	private <R> void read(HttpRequest request, Supplier<CompletableFuture<R>> call, boolean hedged, int retries,
+						  CompletableFuture<R> result, AtomicReference<CompletableFuture<R>> currentAttempt) {
+		CompletableFuture<R> attempt = hedged ? support.hedge(() -> send(request, call, true)) : send(request, call, false);
+		currentAttempt.set(attempt);
+		// the caller may have cancelled before the attempt was published
+		if (result.isCancelled()) {
+			attempt.cancel(true);
+		}
+		attempt.whenComplete((response, error) -> {
+			if (result.isDone()) {
+				return;
+			}
+			if (error == null) {
+				result.complete(response);
+				return;
+			}
+
+			Throwable cause = ResilienceSupport.unwrap(error);
+			if (support.isRetryable(cause, retries)) {
+				CompletableFuture.delayedExecutor(support.retryDelayMillis(retries), TimeUnit.MILLISECONDS)
+					.execute(() -> {
+						if (!result.isDone()) {
+							read(request, call, hedged, retries + 1, result, currentAttempt);
+						}
+					});
+			} else {
+				result.completeExceptionally(cause);
+			}
+		});
+	}
+
+	private <R> CompletableFuture<R> send(HttpRequest request, Supplier<CompletableFuture<R>> call, boolean hedged) {
+		CircuitBreaker breaker;
+		CompletableFuture<R> future;
+		try {
+			breaker = support.acquire(request);
+		} catch (CircuitBreakerOpenException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		long start = System.nanoTime();
+		try {
+			future = call.get();
+		} catch (RuntimeException e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		return Futures.whenComplete(future, (response, error) ->
+			support.completed(breaker, error == null ? null : ResilienceSupport.unwrap(error), start, hedged));
+	}
+}
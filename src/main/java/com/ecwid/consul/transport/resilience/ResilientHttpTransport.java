@@ -0,0 +1,142 @@
+package com.ecwid.consul.transport.resilience;
+
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+import com.ecwid.consul.transport.TransportException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Decorates a transport with the retries, hedging and circuit breakers of a {@link ResiliencePolicy}.
+ * <p>
+ * Hedged requests are sent from the policy's hedge executor while the calling thread waits for the first success;
+ * all other requests are sent from the calling thread. A blocking request can't be aborted, so the loser of a hedge
+ * runs to completion on its executor thread and only its outcome is ignored; use {@link ResilientAsyncHttpTransport}
+ * to have it cancelled.
+ */
+public final class ResilientHttpTransport implements HttpTransport {
+
+	// created on first use, idle threads die after a minute
+	private static final class DefaultHedgeExecutor {
+		private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "consul-hedged-request");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private final HttpTransport delegate;
+	private final ResilienceSupport support;
+	private final Executor hedgeExecutor;
+
+	public ResilientHttpTransport(HttpTransport delegate, ResiliencePolicy policy) {
+		this.delegate = delegate;
+		this.support = new ResilienceSupport(policy);
+		this.hedgeExecutor = policy.getHedgeExecutor();
+	}
+
+	@Override
+	public HttpResponse makeGetRequest(HttpRequest request) {
+		return read(request, () -> delegate.makeGetRequest(request));
+	}
+
+	@Override
+	public HttpResponse makePutRequest(HttpRequest request) {
+		return send(request, () -> delegate.makePutRequest(request), false);
+	}
+
+	@Override
+	public HttpResponse makeDeleteRequest(HttpRequest request) {
+		return send(request, () -> delegate.makeDeleteRequest(request), false);
+	}
+
+	@Override
+	public <T> DecodedHttpResponse<T> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+		return read(request, () -> delegate.makeGetRequest(request, decoder));
+	}
+
+	/**
+	 * @return circuit breakers by agent address ({@code scheme://host:port}), for monitoring
+	 */
+	public Map<String, CircuitBreaker> getCircuitBreakers() {
+		return support.getCircuitBreakers();
+	}
+
+	public long getRetryCount() {
+		return support.getRetryCount();
+	}
+
+	public long getHedgeCount() {
+		return support.getHedgeCount();
+	}
+
+	/**
+	 * @return number of requests failed fast by an open circuit breaker
+	 */
+	public long getRejectedCount() {
+		return support.getRejectedCount();
+	}
+
+	private <R> R read(HttpRequest request, Supplier<R> call) {
+		boolean hedged = support.isHedged(request);
+		for (int retries = 0; ; retries++) {
+			try {
+				return hedged ? hedge(request, call) : send(request, call, false);
+			} catch (RuntimeException e) {
+				if (!support.isRetryable(e, retries)) {
+					throw e;
+				}
+				sleep(support.retryDelayMillis(retries), e);
+			}
+		}
+	}
+
+	private <R> R hedge(HttpRequest request, Supplier<R> call) {
+		Executor executor = hedgeExecutor != null ? hedgeExecutor : DefaultHedgeExecutor.INSTANCE;
+		CompletableFuture<R> result = support.hedge(() -> CompletableFuture.supplyAsync(() -> send(request, call, true), executor));
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			Throwable cause = ResilienceSupport.unwrap(e);
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new TransportException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TransportException(e);
+		}
+	}
+
+	private <R> R send(HttpRequest request, Supplier<R> call, boolean hedged) {
+		CircuitBreaker breaker = support.acquire(request);
+		long start = System.nanoTime();
+		R response;
+		try {
+			response = call.get();
+		} catch (RuntimeException e) {
+			support.completed(breaker, e, start, hedged);
+			throw e;
+		}
+		support.completed(breaker, null, start, hedged);
+		return response;
+	}
+
+	private static void sleep(long millis, RuntimeException failure) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw failure;
+		}
+	}
+}
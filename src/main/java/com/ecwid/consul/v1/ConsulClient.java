@@ -19,11 +19,13 @@ import com.ecwid.consul.v1.event.EventConsulClient;
 import com.ecwid.consul.v1.event.EventListRequest;
 import com.ecwid.consul.v1.event.model.Event;
 import com.ecwid.consul.v1.event.model.EventParams;
+import com.ecwid.consul.v1.health.HealthAsyncClient;
 import com.ecwid.consul.v1.health.HealthChecksForServiceRequest;
 import com.ecwid.consul.v1.health.HealthClient;
 import com.ecwid.consul.v1.health.HealthConsulClient;
 import com.ecwid.consul.v1.health.HealthServicesRequest;
 import com.ecwid.consul.v1.health.model.HealthService;
+import com.ecwid.consul.v1.kv.KeyValueAsyncClient;
 import com.ecwid.consul.v1.kv.KeyValueClient;
 import com.ecwid.consul.v1.kv.KeyValueConsulClient;
 import com.ecwid.consul.v1.kv.model.GetBinaryValue;
@@ -38,9 +40,14 @@ import com.ecwid.consul.v1.session.model.NewSession;
 import com.ecwid.consul.v1.session.model.Session;
 import com.ecwid.consul.v1.status.StatusClient;
 import com.ecwid.consul.v1.status.StatusConsulClient;
+import com.ecwid.consul.v1.txn.TxnClient;
+import com.ecwid.consul.v1.txn.TxnConsulClient;
+import com.ecwid.consul.v1.txn.TxnRequest;
+import com.ecwid.consul.v1.txn.model.TxnResult;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Full consul-api client with all supported methods.
@@ -56,36 +63,51 @@ public class ConsulClient implements
 		AclClient,
 		AgentClient,
 		CatalogClient,
+		CatalogAsyncClient,
 		CoordinateClient,
 		EventClient,
 		HealthClient,
+		HealthAsyncClient,
 		KeyValueClient,
+		KeyValueAsyncClient,
 		QueryClient,
 		SessionClient,
-		StatusClient {
+		StatusClient,
+		TxnClient {
 
 	private final AclClient aclClient;
 	private final AgentClient agentClient;
 	private final CatalogClient catalogClient;
+	private final CatalogAsyncClient catalogAsyncClient;
 	private final CoordinateClient coordinateClient;
 	private final EventClient eventClient;
 	private final HealthClient healthClient;
+	private final HealthAsyncClient healthAsyncClient;
 	private final KeyValueClient keyValueClient;
+	private final KeyValueAsyncClient keyValueAsyncClient;
 	private final QueryClient queryClient;
 	private final SessionClient sessionClient;
 	private final StatusClient statusClient;
+	private final TxnClient txnClient;
 
 	public ConsulClient(ConsulRawClient rawClient) {
 		aclClient = new AclConsulClient(rawClient);
 		agentClient = new AgentConsulClient(rawClient);
-		catalogClient = new CatalogConsulClient(rawClient);
+		CatalogConsulClient catalogConsulClient = new CatalogConsulClient(rawClient);
+		catalogClient = catalogConsulClient;
+		catalogAsyncClient = catalogConsulClient;
 		coordinateClient = new CoordinateConsulClient(rawClient);
 		eventClient = new EventConsulClient(rawClient);
-		healthClient = new HealthConsulClient(rawClient);
-		keyValueClient = new KeyValueConsulClient(rawClient);
+		HealthConsulClient healthConsulClient = new HealthConsulClient(rawClient);
+		healthClient = healthConsulClient;
+		healthAsyncClient = healthConsulClient;
+		KeyValueConsulClient keyValueConsulClient = new KeyValueConsulClient(rawClient);
+		keyValueClient = keyValueConsulClient;
+		keyValueAsyncClient = keyValueConsulClient;
 		queryClient = new QueryConsulClient(rawClient);
 		sessionClient = new SessionConsulClient(rawClient);
 		statusClient = new StatusConsulClient(rawClient);
+		txnClient = new TxnConsulClient(rawClient);
 	}
 
 	/**
@@ -455,6 +477,41 @@ public class ConsulClient implements
 		return catalogClient.getCatalogNode(nodeName, queryParams);
 	}
 
+	@Override
+	public CompletableFuture<Response<Void>> catalogRegisterAsync(CatalogRegistration catalogRegistration, String token) {
+		return catalogAsyncClient.catalogRegisterAsync(catalogRegistration, token);
+	}
+
+	@Override
+	public CompletableFuture<Response<Void>> catalogDeregisterAsync(CatalogDeregistration catalogDeregistration, String token) {
+		return catalogAsyncClient.catalogDeregisterAsync(catalogDeregistration, token);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<String>>> getCatalogDatacentersAsync() {
+		return catalogAsyncClient.getCatalogDatacentersAsync();
+	}
+
+	@Override
+	public CompletableFuture<Response<List<Node>>> getCatalogNodesAsync(CatalogNodesRequest catalogNodesRequest) {
+		return catalogAsyncClient.getCatalogNodesAsync(catalogNodesRequest);
+	}
+
+	@Override
+	public CompletableFuture<Response<Map<String, List<String>>>> getCatalogServicesAsync(CatalogServicesRequest catalogServicesRequest) {
+		return catalogAsyncClient.getCatalogServicesAsync(catalogServicesRequest);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<CatalogService>>> getCatalogServiceAsync(String serviceName, CatalogServiceRequest catalogServiceRequest) {
+		return catalogAsyncClient.getCatalogServiceAsync(serviceName, catalogServiceRequest);
+	}
+
+	@Override
+	public CompletableFuture<Response<CatalogNode>> getCatalogNodeAsync(String nodeName, QueryParams queryParams) {
+		return catalogAsyncClient.getCatalogNodeAsync(nodeName, queryParams);
+	}
+
 	// -------------------------------------------------------------------------------------------
 	// Coordinates
 
@@ -581,6 +638,26 @@ public class ConsulClient implements
 		return healthClient.getHealthChecksState(checkStatus, queryParams);
 	}
 
+	@Override
+	public CompletableFuture<Response<List<com.ecwid.consul.v1.health.model.Check>>> getHealthChecksForNodeAsync(String nodeName, QueryParams queryParams) {
+		return healthAsyncClient.getHealthChecksForNodeAsync(nodeName, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<com.ecwid.consul.v1.health.model.Check>>> getHealthChecksForServiceAsync(String serviceName, HealthChecksForServiceRequest healthChecksForServiceRequest) {
+		return healthAsyncClient.getHealthChecksForServiceAsync(serviceName, healthChecksForServiceRequest);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<HealthService>>> getHealthServicesAsync(String serviceName, HealthServicesRequest healthServicesRequest) {
+		return healthAsyncClient.getHealthServicesAsync(serviceName, healthServicesRequest);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<com.ecwid.consul.v1.health.model.Check>>> getHealthChecksStateAsync(com.ecwid.consul.v1.health.model.Check.CheckStatus checkStatus, QueryParams queryParams) {
+		return healthAsyncClient.getHealthChecksStateAsync(checkStatus, queryParams);
+	}
+
 	// -------------------------------------------------------------------------------------------
 	// KV
 
@@ -784,6 +861,51 @@ public class ConsulClient implements
 		return keyValueClient.deleteKVValues(key, token, queryParams);
 	}
 
+	@Override
+	public CompletableFuture<Response<GetValue>> getKVValueAsync(String key, String token, QueryParams queryParams) {
+		return keyValueAsyncClient.getKVValueAsync(key, token, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<GetBinaryValue>> getKVBinaryValueAsync(String key, String token, QueryParams queryParams) {
+		return keyValueAsyncClient.getKVBinaryValueAsync(key, token, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<GetValue>>> getKVValuesAsync(String keyPrefix, String token, QueryParams queryParams) {
+		return keyValueAsyncClient.getKVValuesAsync(keyPrefix, token, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<GetBinaryValue>>> getKVBinaryValuesAsync(String keyPrefix, String token, QueryParams queryParams) {
+		return keyValueAsyncClient.getKVBinaryValuesAsync(keyPrefix, token, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<String>>> getKVKeysOnlyAsync(String keyPrefix, String separator, String token, QueryParams queryParams) {
+		return keyValueAsyncClient.getKVKeysOnlyAsync(keyPrefix, separator, token, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<Boolean>> setKVValueAsync(String key, String value, String token, PutParams putParams, QueryParams queryParams) {
+		return keyValueAsyncClient.setKVValueAsync(key, value, token, putParams, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<Boolean>> setKVBinaryValueAsync(String key, byte[] value, String token, PutParams putParams, QueryParams queryParams) {
+		return keyValueAsyncClient.setKVBinaryValueAsync(key, value, token, putParams, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<Void>> deleteKVValueAsync(String key, String token, QueryParams queryParams) {
+		return keyValueAsyncClient.deleteKVValueAsync(key, token, queryParams);
+	}
+
+	@Override
+	public CompletableFuture<Response<Void>> deleteKVValuesAsync(String key, String token, QueryParams queryParams) {
+		return keyValueAsyncClient.deleteKVValuesAsync(key, token, queryParams);
+	}
+
 	// -------------------------------------------------------------------------------------------
 	// Prepared Query
 
@@ -868,4 +990,22 @@ public class ConsulClient implements
 	public Response<List<String>> getStatusPeers() {
 		return statusClient.getStatusPeers();
 	}
+
+	// -------------------------------------------------------------------------------------------
+	// Txn
+
+	@Override
+	public Response<TxnResult> txn(TxnRequest txnRequest) {
+		return txnClient.txn(txnRequest);
+	}
+
+	@Override
+	public Response<TxnResult> txnChunked(TxnRequest txnRequest) {
+		return txnClient.txnChunked(txnRequest);
+	}
+
+	@Override
+	public Response<TxnResult> txnChunked(TxnRequest txnRequest, int maxOperations) {
+		return txnClient.txnChunked(txnRequest, maxOperations);
+	}
 }
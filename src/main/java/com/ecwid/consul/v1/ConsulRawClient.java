@@ -3,15 +3,25 @@ package com.ecwid.consul.v1;
 import com.ecwid.consul.SingleUrlParameters;
 import com.ecwid.consul.UrlParameters;
 import com.ecwid.consul.Utils;
+import com.ecwid.consul.json.StringInterner;
 import com.ecwid.consul.transport.*;
+import com.ecwid.consul.transport.coalescing.CoalescingAsyncHttpTransport;
+import com.ecwid.consul.transport.coalescing.CoalescingHttpTransport;
+import com.ecwid.consul.transport.metrics.MetricsAsyncHttpTransport;
+import com.ecwid.consul.transport.metrics.MetricsHttpTransport;
+import com.ecwid.consul.transport.metrics.RequestMetricsListener;
+import com.ecwid.consul.transport.resilience.ResiliencePolicy;
+import com.ecwid.consul.transport.resilience.ResilientAsyncHttpTransport;
+import com.ecwid.consul.transport.resilience.ResilientHttpTransport;
+import com.ecwid.consul.v1.endpoint.EndpointPool;
+import com.ecwid.consul.v1.endpoint.SelectionStrategy;
 import org.apache.http.client.HttpClient;
 
-import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Vasily Vasilkov (vgv@ecwid.com)
@@ -25,14 +35,33 @@ public class ConsulRawClient {
 	// one real HTTP client for all instances
 	private static final HttpTransport DEFAULT_HTTP_TRANSPORT = new DefaultHttpTransport();
 
+	// one real non-blocking HTTP client for all instances, started on first use
+	private static final AsyncHttpTransport DEFAULT_ASYNC_HTTP_TRANSPORT = new DefaultAsyncHttpTransport();
+
+	// one Unix domain socket transport per socket for all instances with a unix:// host, with the default settings
+	private static final ConcurrentMap<String, UnixSocketHttpTransport> UNIX_SOCKET_TRANSPORTS = new ConcurrentHashMap<>();
+
 	private final HttpTransport httpTransport;
-	private final String agentAddress;
+	private final AsyncHttpTransport asyncHttpTransport;
+	private final EndpointPool endpointPool;
+	private final StringInterner stringInterner;
 
 	public static final class Builder {
 		private String agentHost;
 		private int agentPort;
 		private String agentPath;
+		private List<String> agentAddresses;
+		private SelectionStrategy selectionStrategy = SelectionStrategy.ROUND_ROBIN;
+		private EndpointPool endpointPool;
 		private HttpTransport httpTransport;
+		private AsyncHttpTransport asyncHttpTransport;
+		private RequestMetricsListener requestMetricsListener;
+		private boolean coalesceGetRequests;
+		private ResiliencePolicy resiliencePolicy;
+		private UnixSocketHttpTransport unixSocketTransport;
+		private StringInterner stringInterner;
+		// whether a transport, HTTP client or TLS config was set, which can't be combined with a Unix domain socket
+		private boolean httpTransportSet;
 
 		public static ConsulRawClient.Builder builder() {
 			return new ConsulRawClient.Builder();
@@ -43,8 +72,16 @@ public class ConsulRawClient {
 			this.agentPort = DEFAULT_PORT;
 			this.agentPath = DEFAULT_PATH;
 			this.httpTransport = DEFAULT_HTTP_TRANSPORT;
+			this.asyncHttpTransport = DEFAULT_ASYNC_HTTP_TRANSPORT;
 		}
 
+		/**
+		 * @param host agent host, optionally with a scheme; {@code unix:///path/to/consul.sock} talks to the agent over
+		 *             its Unix domain socket with a shared {@link UnixSocketHttpTransport} with the default settings,
+		 *             unless one is {@link #setUnixSocketTransport(UnixSocketHttpTransport) set}. It can't be combined
+		 *             with a transport, HTTP client or TLS config.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
 		public Builder setHost(String host) {
 			this.agentHost = host;
 			return this;
@@ -60,18 +97,169 @@ public class ConsulRawClient {
 			return this;
 		}
 
+		/**
+		 * Balances requests over several agents or servers instead of the single {@link #setHost(String) host}.
+		 * Addresses are {@code host}, {@code host:port} or either of them with a scheme; the {@link #setPort(int) port}
+		 * and {@link #setPath(String) path} of the builder are used as defaults.
+		 *
+		 * @param agentAddresses addresses to balance requests over
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setAgentAddresses(List<String> agentAddresses) {
+			this.agentAddresses = agentAddresses;
+			return this;
+		}
+
+		public Builder setSelectionStrategy(SelectionStrategy selectionStrategy) {
+			this.selectionStrategy = selectionStrategy;
+			return this;
+		}
+
+		/**
+		 * Sets a fully configured pool, it takes precedence over the host, port, path and agent addresses.
+		 *
+		 * @param endpointPool pool to balance requests over
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setEndpointPool(EndpointPool endpointPool) {
+			this.endpointPool = endpointPool;
+			return this;
+		}
+
 		public Builder setTlsConfig(TLSConfig tlsConfig) {
 			this.httpTransport = new DefaultHttpsTransport(tlsConfig);
+			this.asyncHttpTransport = new DefaultAsyncHttpTransport(tlsConfig);
+			this.httpTransportSet = true;
 			return this;
 		}
 
 		public Builder setHttpClient(HttpClient httpClient) {
 			this.httpTransport = new DefaultHttpTransport(httpClient);
+			this.httpTransportSet = true;
+			return this;
+		}
+
+		public Builder setHttpTransport(HttpTransport httpTransport) {
+			this.httpTransport = httpTransport;
+			this.httpTransportSet = true;
+			return this;
+		}
+
+		public Builder setAsyncHttpTransport(AsyncHttpTransport asyncHttpTransport) {
+			this.asyncHttpTransport = asyncHttpTransport;
+			this.httpTransportSet = true;
+			return this;
+		}
+
+		/**
+		 * Sends every request, blocking and non-blocking, over the Unix domain socket of the given transport, e.g. one
+		 * with its own {@link ConnectionLanesConfig} or executor. The caller owns the transport and closes it.
+		 *
+		 * @param unixSocketTransport transport to the agent's socket; if the host is a {@code unix://} address too,
+		 *                            it must be the transport's socket
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setUnixSocketTransport(UnixSocketHttpTransport unixSocketTransport) {
+			this.unixSocketTransport = unixSocketTransport;
+			return this;
+		}
+
+		/**
+		 * Reports the latency, status code and size of every request sent to an agent, see
+		 * {@link com.ecwid.consul.transport.metrics.EndpointMetricsRecorder} for a ready to use listener.
+		 *
+		 * @param requestMetricsListener listener called once per request and endpoint attempt
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setRequestMetricsListener(RequestMetricsListener requestMetricsListener) {
+			this.requestMetricsListener = requestMetricsListener;
+			return this;
+		}
+
+		/**
+		 * Lets identical concurrent GET requests (same URL and token) share one in-flight request and its decoded
+		 * result, so a herd of callers asking for the same data at once reaches the agent only once.
+		 * Callers of a shared request get the same decoded value, which must not be modified.
+		 *
+		 * @param coalesceGetRequests whether identical concurrent GET requests share one request, {@code false} by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setCoalesceGetRequests(boolean coalesceGetRequests) {
+			this.coalesceGetRequests = coalesceGetRequests;
+			return this;
+		}
+
+		/**
+		 * Retries failed reads, hedges slow ones and fails fast on dead agents, see {@link ResiliencePolicy}.
+		 *
+		 * @param resiliencePolicy policy for requests to every agent, {@code null} (the default) disables it
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setResiliencePolicy(ResiliencePolicy resiliencePolicy) {
+			this.resiliencePolicy = resiliencePolicy;
+			return this;
+		}
+
+		/**
+		 * Deduplicates the node, service and check strings of the health and catalog responses this client decodes,
+		 * see {@link StringInterner}. Worth it for applications which keep many results, e.g. in a discovery cache;
+		 * clients which hold results of the same agents may share a pool.
+		 *
+		 * @param stringInterner pool to intern decoded strings in, {@code null} (the default) turns interning off
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setStringInterner(StringInterner stringInterner) {
+			this.stringInterner = stringInterner;
 			return this;
 		}
 
 		public ConsulRawClient build() {
-			return new ConsulRawClient(httpTransport, agentHost, agentPort, agentPath);
+			HttpTransport httpTransport = this.httpTransport;
+			AsyncHttpTransport asyncHttpTransport = this.asyncHttpTransport;
+			String socketPath = endpointPool == null && agentAddresses == null ? UnixSocketHttpTransport.socketPathOf(agentHost) : null;
+			boolean unixSocket = socketPath != null;
+			UnixSocketHttpTransport unixSocketTransport = this.unixSocketTransport;
+			if ((unixSocket || unixSocketTransport != null) && httpTransportSet) {
+				throw new IllegalArgumentException("A Unix domain socket can't be combined with a transport, HTTP client or TLS config");
+			}
+			if (unixSocket && unixSocketTransport != null && !socketPath.equals(unixSocketTransport.getSocketPath())) {
+				throw new IllegalArgumentException("Host " + agentHost + " is not the socket of the Unix domain socket transport, "
+					+ unixSocketTransport.getSocketPath());
+			}
+			if (unixSocket && unixSocketTransport == null) {
+				unixSocketTransport = unixSocketTransport(agentHost);
+			}
+			if (unixSocketTransport != null) {
+				httpTransport = unixSocketTransport;
+				asyncHttpTransport = unixSocketTransport.getAsyncHttpTransport();
+			}
+			if (requestMetricsListener != null) {
+				httpTransport = new MetricsHttpTransport(httpTransport, requestMetricsListener);
+				asyncHttpTransport = new MetricsAsyncHttpTransport(asyncHttpTransport, requestMetricsListener);
+			}
+			// outside of the metrics, so every retried or hedged request is measured
+			if (resiliencePolicy != null) {
+				httpTransport = new ResilientHttpTransport(httpTransport, resiliencePolicy);
+				asyncHttpTransport = new ResilientAsyncHttpTransport(asyncHttpTransport, resiliencePolicy);
+			}
+			// outermost, so a shared request is sent, retried and measured once
+			if (coalesceGetRequests) {
+				httpTransport = new CoalescingHttpTransport(httpTransport);
+				asyncHttpTransport = new CoalescingAsyncHttpTransport(asyncHttpTransport);
+			}
+
+			if (endpointPool != null) {
+				return new ConsulRawClient(httpTransport, asyncHttpTransport, endpointPool, stringInterner);
+			}
+			if (agentAddresses != null) {
+				EndpointPool.Builder poolBuilder = EndpointPool.newBuilder().setSelectionStrategy(selectionStrategy);
+				for (String agentAddress : agentAddresses) {
+					poolBuilder.addAddress(toAgentAddress(agentAddress, agentPort, agentPath));
+				}
+				return new ConsulRawClient(httpTransport, asyncHttpTransport, poolBuilder.build(), stringInterner);
+			}
+			// a unix:// host was replaced by its transport above
+			return new ConsulRawClient(httpTransport, asyncHttpTransport, EndpointPool.singleton(agentAddress(agentHost, agentPort, agentPath)), stringInterner);
 		}
 	}
 
@@ -108,7 +296,7 @@ public class ConsulRawClient {
 	}
 
 	public ConsulRawClient(String agentHost, int agentPort, TLSConfig tlsConfig) {
-		this(new DefaultHttpsTransport(tlsConfig), agentHost, agentPort, DEFAULT_PATH);
+		this(new DefaultHttpsTransport(tlsConfig), new DefaultAsyncHttpTransport(tlsConfig), agentHost, agentPort, DEFAULT_PATH);
 	}
 
 	public ConsulRawClient(HttpClient httpClient, String host, int port, String path) {
@@ -117,16 +305,82 @@ public class ConsulRawClient {
 
 	// hidden constructor, for tests
 	ConsulRawClient(HttpTransport httpTransport, String agentHost, int agentPort, String path) {
+		this(httpTransport, DEFAULT_ASYNC_HTTP_TRANSPORT, agentHost, agentPort, path);
+	}
+
+	// hidden constructor, for tests
+	ConsulRawClient(HttpTransport httpTransport, AsyncHttpTransport asyncHttpTransport, String agentHost, int agentPort, String path) {
+		this(unixSocket(agentHost, httpTransport, asyncHttpTransport) ? unixSocketTransport(agentHost) : httpTransport,
+			unixSocket(agentHost, httpTransport, asyncHttpTransport) ? unixSocketTransport(agentHost).getAsyncHttpTransport() : asyncHttpTransport,
+			EndpointPool.singleton(agentAddress(agentHost, agentPort, path)));
+	}
+
+	private ConsulRawClient(HttpTransport httpTransport, AsyncHttpTransport asyncHttpTransport, EndpointPool endpointPool) {
+		this(httpTransport, asyncHttpTransport, endpointPool, null);
+	}
+
+	private ConsulRawClient(HttpTransport httpTransport, AsyncHttpTransport asyncHttpTransport, EndpointPool endpointPool, StringInterner stringInterner) {
 		this.httpTransport = httpTransport;
+		this.asyncHttpTransport = asyncHttpTransport;
+		this.endpointPool = endpointPool;
+		this.stringInterner = stringInterner;
+	}
+
+	// a Unix domain socket transport sends every request to its socket, the address only carries the path
+	private static String agentAddress(String agentHost, int agentPort, String path) {
+		if (UnixSocketHttpTransport.socketPathOf(agentHost) != null) {
+			return Utils.assembleAgentAddress("http://" + UnixSocketHttpTransport.HOST, agentPort, path);
+		}
+		return Utils.assembleAgentAddress(withScheme(agentHost), agentPort, path);
+	}
 
+	// a unix:// host replaces the default transports only, a configured one must not be ignored silently
+	private static boolean unixSocket(String agentHost, HttpTransport httpTransport, AsyncHttpTransport asyncHttpTransport) {
+		if (UnixSocketHttpTransport.socketPathOf(agentHost) == null) {
+			return false;
+		}
+		if (httpTransport != DEFAULT_HTTP_TRANSPORT || asyncHttpTransport != DEFAULT_ASYNC_HTTP_TRANSPORT) {
+			throw new IllegalArgumentException("A Unix domain socket can't be combined with a transport, HTTP client or TLS config");
+		}
+		return true;
+	}
+
+	private static UnixSocketHttpTransport unixSocketTransport(String agentHost) {
+		return UNIX_SOCKET_TRANSPORTS.computeIfAbsent(UnixSocketHttpTransport.socketPathOf(agentHost),
+			socketPath -> UnixSocketHttpTransport.newBuilder(socketPath).build());
+	}
+
+	private static String withScheme(String agentHost) {
 		// check that agentHost has scheme or not
 		String agentHostLowercase = agentHost.toLowerCase();
 		if (!agentHostLowercase.startsWith("https://") && !agentHostLowercase.startsWith("http://")) {
 			// no scheme in host, use default 'http'
-			agentHost = "http://" + agentHost;
+			return "http://" + agentHost;
+		}
+		return agentHost;
+	}
+
+	// host[:port], optionally with a scheme; IPv6 hosts have to be in brackets
+	static String toAgentAddress(String address, int defaultPort, String path) {
+		String agentHost = withScheme(address);
+		int hostStart = agentHost.indexOf("://") + 3;
+		int colon = agentHost.lastIndexOf(':');
+		if (colon < hostStart || colon < agentHost.lastIndexOf(']')) {
+			return Utils.assembleAgentAddress(agentHost, defaultPort, path);
 		}
+		int port = Integer.parseInt(agentHost.substring(colon + 1));
+		return Utils.assembleAgentAddress(agentHost.substring(0, colon), port, path);
+	}
 
-		this.agentAddress = Utils.assembleAgentAddress(agentHost, agentPort, path);
+	public EndpointPool getEndpointPool() {
+		return endpointPool;
+	}
+
+	/**
+	 * @return pool decoded health and catalog strings are interned in, or null if interning is off
+	 */
+	public StringInterner getStringInterner() {
+		return stringInterner;
 	}
 
 	public HttpResponse makeGetRequest(String endpoint, UrlParameters... urlParams) {
@@ -134,37 +388,124 @@ public class ConsulRawClient {
 	}
 
 	public HttpResponse makeGetRequest(String endpoint, List<UrlParameters> urlParams) {
-		HttpRequest httpRequest = httpRequestBuilder(endpoint, urlParams).build();
-
-		return httpTransport.makeGetRequest(httpRequest);
+		return endpointPool.execute(true, isBlockingQuery(urlParams), agentAddress ->
+			httpTransport.makeGetRequest(httpRequestBuilder(agentAddress, endpoint, urlParams).build()));
 	}
 
 	public HttpResponse makeGetRequest(Request request) {
-		HttpRequest httpRequest = httpRequestBuilder(request).build();
+		return endpointPool.execute(true, isBlockingQuery(request.getUrlParameters()), agentAddress ->
+			httpTransport.makeGetRequest(httpRequestBuilder(agentAddress, request).build()));
+	}
 
-		return httpTransport.makeGetRequest(httpRequest);
+	public <T> DecodedHttpResponse<T> makeGetRequest(String endpoint, ContentDecoder<T> decoder, UrlParameters... urlParams) {
+		return makeGetRequest(endpoint, Arrays.asList(urlParams), decoder);
 	}
 
-	public HttpResponse makePutRequest(String endpoint, String content, UrlParameters... urlParams) {
-		HttpRequest httpRequest = httpRequestBuilder(endpoint, Arrays.asList(urlParams))
-			.setContent(content)
-			.build();
+	public <T> DecodedHttpResponse<T> makeGetRequest(String endpoint, List<UrlParameters> urlParams, ContentDecoder<T> decoder) {
+		return endpointPool.execute(true, isBlockingQuery(urlParams), agentAddress ->
+			httpTransport.makeGetRequest(httpRequestBuilder(agentAddress, endpoint, urlParams).build(), decoder));
+	}
 
-		return httpTransport.makePutRequest(httpRequest);
+	public <T> DecodedHttpResponse<T> makeGetRequest(Request request, ContentDecoder<T> decoder) {
+		return endpointPool.execute(true, isBlockingQuery(request.getUrlParameters()), agentAddress ->
+			httpTransport.makeGetRequest(httpRequestBuilder(agentAddress, request).build(), decoder));
 	}
 
-	public HttpResponse makePutRequest(Request request) {
-		HttpRequest httpRequest = httpRequestBuilder(request)
-			.setBinaryContent(request.getBinaryContent())
-			.build();
+	public HttpResponse makePutRequest(String endpoint, String content, UrlParameters... urlParams) {
+		List<UrlParameters> urlParamsList = Arrays.asList(urlParams);
+		return endpointPool.execute(false, agentAddress -> {
+			HttpRequest httpRequest = httpRequestBuilder(agentAddress, endpoint, urlParamsList)
+				.setContent(content)
+				.build();
+
+			return httpTransport.makePutRequest(httpRequest);
+		});
+	}
 
-		return httpTransport.makePutRequest(httpRequest);
+	public HttpResponse makePutRequest(Request request) {
+		return endpointPool.execute(false, agentAddress -> {
+			HttpRequest httpRequest = httpRequestBuilder(agentAddress, request)
+				.setContent(request.getContent())
+				.setBinaryContent(request.getBinaryContent())
+				.build();
+
+			return httpTransport.makePutRequest(httpRequest);
+		});
 	}
 
 	public HttpResponse makeDeleteRequest(Request request) {
-		HttpRequest httpRequest = httpRequestBuilder(request).build();
+		return endpointPool.execute(false, agentAddress ->
+			httpTransport.makeDeleteRequest(httpRequestBuilder(agentAddress, request).build()));
+	}
+
+	public CompletableFuture<HttpResponse> makeGetRequestAsync(String endpoint, UrlParameters... urlParams) {
+		return makeGetRequestAsync(endpoint, Arrays.asList(urlParams));
+	}
+
+	public CompletableFuture<HttpResponse> makeGetRequestAsync(String endpoint, List<UrlParameters> urlParams) {
+		return endpointPool.executeAsync(true, isBlockingQuery(urlParams), agentAddress ->
+			asyncHttpTransport.makeGetRequest(httpRequestBuilder(agentAddress, endpoint, urlParams).build()));
+	}
+
+	public CompletableFuture<HttpResponse> makeGetRequestAsync(Request request) {
+		return endpointPool.executeAsync(true, isBlockingQuery(request.getUrlParameters()), agentAddress ->
+			asyncHttpTransport.makeGetRequest(httpRequestBuilder(agentAddress, request).build()));
+	}
 
-		return httpTransport.makeDeleteRequest(httpRequest);
+	public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequestAsync(String endpoint, ContentDecoder<T> decoder, UrlParameters... urlParams) {
+		return makeGetRequestAsync(endpoint, Arrays.asList(urlParams), decoder);
+	}
+
+	public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequestAsync(String endpoint, List<UrlParameters> urlParams, ContentDecoder<T> decoder) {
+		return endpointPool.executeAsync(true, isBlockingQuery(urlParams), agentAddress ->
+			asyncHttpTransport.makeGetRequest(httpRequestBuilder(agentAddress, endpoint, urlParams).build(), decoder));
+	}
+
+	public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequestAsync(Request request, ContentDecoder<T> decoder) {
+		return endpointPool.executeAsync(true, isBlockingQuery(request.getUrlParameters()), agentAddress ->
+			asyncHttpTransport.makeGetRequest(httpRequestBuilder(agentAddress, request).build(), decoder));
+	}
+
+	public CompletableFuture<HttpResponse> makePutRequestAsync(String endpoint, String content, UrlParameters... urlParams) {
+		List<UrlParameters> urlParamsList = Arrays.asList(urlParams);
+		return endpointPool.executeAsync(false, agentAddress -> {
+			HttpRequest httpRequest = httpRequestBuilder(agentAddress, endpoint, urlParamsList)
+				.setContent(content)
+				.build();
+
+			return asyncHttpTransport.makePutRequest(httpRequest);
+		});
+	}
+
+	public CompletableFuture<HttpResponse> makePutRequestAsync(Request request) {
+		return endpointPool.executeAsync(false, agentAddress -> {
+			HttpRequest httpRequest = httpRequestBuilder(agentAddress, request)
+				.setContent(request.getContent())
+				.setBinaryContent(request.getBinaryContent())
+				.build();
+
+			return asyncHttpTransport.makePutRequest(httpRequest);
+		});
+	}
+
+	public CompletableFuture<HttpResponse> makeDeleteRequestAsync(Request request) {
+		return endpointPool.executeAsync(false, agentAddress ->
+			asyncHttpTransport.makeDeleteRequest(httpRequestBuilder(agentAddress, request).build()));
+	}
+
+	// the same test as BlockingQueries applies to the URL: an index other than 0
+	private static boolean isBlockingQuery(List<UrlParameters> urlParams) {
+		if (urlParams != null) {
+			for (UrlParameters urlParam : urlParams) {
+				if (urlParam instanceof QueryParams) {
+					long index = ((QueryParams) urlParam).getIndex();
+					if (index != -1 && index != 0) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
 	}
 
 	private String prepareUrl(String url) {
@@ -180,62 +521,47 @@ public class ConsulRawClient {
 	// This method creates an `HttpRequest.Builder` from the input `Request`, ensuring that any Consul ACL token
 	// provided as `token` in the urlParams is instead applied as an `X-Consul-Token` header, and removed from the URL
 	// params, and overriding this header with the `token` property of the input `Request`, if it is set.
-	private HttpRequest.Builder httpRequestBuilder(Request request) {
-		HttpRequest.Builder requestBuilder = httpRequestBuilder(request.getEndpoint(), request.getUrlParameters());
+	private HttpRequest.Builder httpRequestBuilder(String agentAddress, Request request) {
+		HttpRequest.Builder requestBuilder = httpRequestBuilder(agentAddress, request.getEndpoint(), request.getUrlParameters());
 
 		// If a token is provided in both places, then the one in URL parameters will be overridden by the one in the
 		// `token` field.
-		Optional.ofNullable(request.getToken())
-			.ifPresent(token -> requestBuilder.addHeader("X-Consul-Token", token));
+		if (request.getToken() != null) {
+			requestBuilder.addHeader("X-Consul-Token", request.getToken());
+		}
 
 		return requestBuilder;
 	}
 
 	// This method creates an `HttpRequest.Builder` from the input params, ensuring that any Consul ACL token provided
 	// as `token` in the urlParams is instead applied as an `X-Consul-Token` header, and removed from the URL params.
-	private HttpRequest.Builder httpRequestBuilder(String endpoint, List<UrlParameters> urlParams) {
+	// Agent cache directives of `QueryParams` are applied as a `Cache-Control` header.
+	private HttpRequest.Builder httpRequestBuilder(String agentAddress, String endpoint, List<UrlParameters> urlParams) {
 		String baseUrl = prepareUrl(agentAddress + endpoint);
-		List<UrlParameters> finalUrlParams = new ArrayList<>(urlParams);
 
 		HttpRequest.Builder requestBuilder = HttpRequest.Builder.newBuilder();
 
-		for (UrlParameters urlParam : Optional.ofNullable(urlParams).orElse(new ArrayList<>())) {
-			if (urlParam instanceof SingleUrlParameters) {
-				SingleUrlParameters singleUrlParameters = (SingleUrlParameters) urlParam;
-				String token = extractTokenParam(singleUrlParameters);
-
-				if (token != null) {
-					requestBuilder.addHeader("X-Consul-Token", token);
-					finalUrlParams = urlParams.stream()
-						.filter(p -> !singleUrlParameters.equals(p))
-						.collect(Collectors.toList());
-
-					break;
+		SingleUrlParameters tokenParam = null;
+		if (urlParams != null) {
+			for (UrlParameters urlParam : urlParams) {
+				if (tokenParam == null && urlParam instanceof SingleUrlParameters && extractTokenParam((SingleUrlParameters) urlParam) != null) {
+					tokenParam = (SingleUrlParameters) urlParam;
+					requestBuilder.addHeader("X-Consul-Token", tokenParam.getValue());
+				} else if (urlParam instanceof QueryParams) {
+					// agent cache directives travel as a header
+					String cacheControl = ((QueryParams) urlParam).getCacheControl();
+					if (cacheControl != null) {
+						requestBuilder.addHeader("Cache-Control", cacheControl);
+					}
 				}
 			}
 		}
 
-		return requestBuilder.setUrl(Utils.generateUrl(baseUrl, finalUrlParams));
+		return requestBuilder.setUrl(Utils.generateUrl(baseUrl, urlParams, tokenParam));
 	}
 
 	public static String extractTokenParam(SingleUrlParameters singleUrlParameters) {
-		try {
-			Field keyField = SingleUrlParameters.class.getDeclaredField("key");
-			keyField.setAccessible(true);
-			String key = (String) keyField.get(singleUrlParameters);
-
-			if ("token".equals(key)) {
-				Field valueField = SingleUrlParameters.class.getDeclaredField("value");
-				valueField.setAccessible(true);
-
-				return (String) valueField.get(singleUrlParameters);
-			}
-		}
-		catch (NoSuchFieldException | IllegalAccessException e) {
-			throw new RuntimeException("Failed to extract token parameter", e);
-		}
-
-		return null;
+		return singleUrlParameters.isToken() ? singleUrlParameters.getValue() : null;
 	}
 
 }
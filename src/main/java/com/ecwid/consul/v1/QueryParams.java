@@ -21,6 +21,9 @@ public final class QueryParams implements UrlParameters {
 		private long waitTime;
 		private long index;
 		private String near;
+		private boolean cached;
+		private long maxAge;
+		private long staleIfError;
 
 		private Builder() {
 			this.datacenter = null;
@@ -28,6 +31,9 @@ public final class QueryParams implements UrlParameters {
 			this.waitTime = -1;
 			this.index = -1;
 			this.near = null;
+			this.cached = false;
+			this.maxAge = -1;
+			this.staleIfError = -1;
 		}
 
 		public Builder setConsistencyMode(ConsistencyMode consistencyMode) {
@@ -55,8 +61,46 @@ public final class QueryParams implements UrlParameters {
 			return this;
 		}
 
+		/**
+		 * Lets the local agent serve the request from its cache. Only some endpoints (e.g. health and catalog service
+		 * lookups) support it, and it can't be combined with {@link ConsistencyMode#CONSISTENT}.
+		 *
+		 * @param cached whether the agent cache may be used
+		 * @return This {@link Builder} instance for method chaining.
+		 * @see <a href="https://developer.hashicorp.com/consul/api-docs/features/caching">Agent Caching</a>
+		 */
+		public Builder setCached(boolean cached) {
+			this.cached = cached;
+			return this;
+		}
+
+		/**
+		 * @param maxAge maximum age of a cached result in seconds, older results are refreshed before returning
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setMaxAge(long maxAge) {
+			this.maxAge = maxAge;
+			return this;
+		}
+
+		/**
+		 * @param staleIfError how long in seconds a cached result may still be served if refreshing it fails
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setStaleIfError(long staleIfError) {
+			this.staleIfError = staleIfError;
+			return this;
+		}
+
 		public QueryParams build() {
-			return new QueryParams(datacenter, consistencyMode, waitTime, index, near);
+			if (cached && consistencyMode == ConsistencyMode.CONSISTENT) {
+				throw new IllegalArgumentException("Cached queries can't use the consistent mode");
+			}
+			if (!cached && (maxAge != -1 || staleIfError != -1)) {
+				throw new IllegalArgumentException("maxAge and staleIfError apply to cached queries only");
+			}
+
+			return new QueryParams(datacenter, consistencyMode, waitTime, index, near, cached, maxAge, staleIfError);
 		}
 	}
 
@@ -67,13 +111,24 @@ public final class QueryParams implements UrlParameters {
 	private final long waitTime;
 	private final long index;
 	private final String near;
+	private final boolean cached;
+	private final long maxAge;
+	private final long staleIfError;
 
-	private QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index, String near) {
+	private QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index, String near,
+						boolean cached, long maxAge, long staleIfError) {
 		this.datacenter = datacenter;
 		this.consistencyMode = consistencyMode;
 		this.waitTime = waitTime;
 		this.index = index;
 		this.near = near;
+		this.cached = cached;
+		this.maxAge = maxAge;
+		this.staleIfError = staleIfError;
+	}
+
+	private QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index, String near) {
+		this(datacenter, consistencyMode, waitTime, index, near, false, -1, -1);
 	}
 
 	private QueryParams(String datacenter, ConsistencyMode consistencyMode, long waitTime, long index) {
@@ -120,6 +175,54 @@ public final class QueryParams implements UrlParameters {
 		return near;
 	}
 
+	public boolean isCached() {
+		return cached;
+	}
+
+	public long getMaxAge() {
+		return maxAge;
+	}
+
+	public long getStaleIfError() {
+		return staleIfError;
+	}
+
+	/**
+	 * @return value of the {@code Cache-Control} request header, or null if there are no cache directives
+	 */
+	public String getCacheControl() {
+		if (maxAge == -1 && staleIfError == -1) {
+			return null;
+		}
+
+		StringBuilder result = new StringBuilder();
+		if (maxAge != -1) {
+			result.append("max-age=").append(maxAge);
+		}
+		if (staleIfError != -1) {
+			if (result.length() > 0) {
+				result.append(", ");
+			}
+			result.append("stale-if-error=").append(staleIfError);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return a new {@link Builder} pre-populated with the values of this instance
+	 */
+	public Builder toBuilder() {
+		return Builder.builder()
+			.setDatacenter(datacenter)
+			.setConsistencyMode(consistencyMode)
+			.setWaitTime(waitTime)
+			.setIndex(index)
+			.setNear(near)
+			.setCached(cached)
+			.setMaxAge(maxAge)
+			.setStaleIfError(staleIfError);
+	}
+
 	@Override
 	public List<String> toUrlParameters() {
 		List<String> params = new ArrayList<String>();
@@ -145,6 +248,10 @@ public final class QueryParams implements UrlParameters {
 			params.add("near=" + Utils.encodeValue(near));
 		}
 
+		if (cached) {
+			params.add("cached");
+		}
+
 		return params;
 	}
 
@@ -159,6 +266,9 @@ public final class QueryParams implements UrlParameters {
 		QueryParams that = (QueryParams) o;
 		return waitTime == that.waitTime &&
 			index == that.index &&
+			cached == that.cached &&
+			maxAge == that.maxAge &&
+			staleIfError == that.staleIfError &&
 			Objects.equals(datacenter, that.datacenter) &&
 			consistencyMode == that.consistencyMode &&
 			Objects.equals(near, that.near);
@@ -166,6 +276,6 @@ public final class QueryParams implements UrlParameters {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(datacenter, consistencyMode, waitTime, index, near);
+		return Objects.hash(datacenter, consistencyMode, waitTime, index, near, cached, maxAge, staleIfError);
 	}
 }
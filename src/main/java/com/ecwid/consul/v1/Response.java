@@ -13,15 +13,25 @@ public final class Response<T> {
 	private final Boolean consulKnownLeader;
 	private final Long consulLastContact;
 
+	private final Boolean cacheHit;
+	private final Long cacheAge;
+
 	public Response(T value, Long consulIndex, Boolean consulKnownLeader, Long consulLastContact) {
+		this(value, consulIndex, consulKnownLeader, consulLastContact, null, null);
+	}
+
+	public Response(T value, Long consulIndex, Boolean consulKnownLeader, Long consulLastContact, Boolean cacheHit, Long cacheAge) {
 		this.value = value;
 		this.consulIndex = consulIndex;
 		this.consulKnownLeader = consulKnownLeader;
 		this.consulLastContact = consulLastContact;
+		this.cacheHit = cacheHit;
+		this.cacheAge = cacheAge;
 	}
 
 	public Response(T value, HttpResponse httpResponse) {
-		this(value, httpResponse.getConsulIndex(), httpResponse.isConsulKnownLeader(), httpResponse.getConsulLastContact());
+		this(value, httpResponse.getConsulIndex(), httpResponse.isConsulKnownLeader(), httpResponse.getConsulLastContact(),
+			httpResponse.isCacheHit(), httpResponse.getCacheAge());
 	}
 
 	public T getValue() {
@@ -40,6 +50,21 @@ public final class Response<T> {
 		return consulLastContact;
 	}
 
+	/**
+	 * @return true if the agent served the result from its cache, false on a cache miss, null if the request was not
+	 * {@link QueryParams.Builder#setCached(boolean) cached}
+	 */
+	public Boolean isCacheHit() {
+		return cacheHit;
+	}
+
+	/**
+	 * @return age of the cached result in seconds, null if the request was not cached
+	 */
+	public Long getCacheAge() {
+		return cacheAge;
+	}
+
 	@Override
 	public String toString() {
 		return "Response{" +
@@ -47,6 +72,8 @@ public final class Response<T> {
 				", consulIndex=" + consulIndex +
 				", consulKnownLeader=" + consulKnownLeader +
 				", consulLastContact=" + consulLastContact +
+				", cacheHit=" + cacheHit +
+				", cacheAge=" + cacheAge +
 				'}';
 	}
 }
@@ -0,0 +1,167 @@
+package com.ecwid.consul.v1.agent;
+
+import com.ecwid.consul.v1.health.model.Check;
+
+import java.util.Objects;
+
+/**
+ * Status of one TTL check, kept alive by a {@link TtlHeartbeatManager}.
+ * <p>
+ * Setting the status is a cheap local operation: the manager sends changes to the agent right away and repeats the
+ * current status before the TTL runs out, so calling {@link #pass()} as often as convenient costs no extra requests.
+ */
+public final class TtlHeartbeat implements AutoCloseable {
+
+	// status and note are replaced together, so the sender always sees a consistent pair
+	static final class Update {
+		final Check.CheckStatus status;
+		final String note;
+
+		Update(Check.CheckStatus status, String note) {
+			this.status = status;
+			this.note = note;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Update)) {
+				return false;
+			}
+			Update update = (Update) o;
+			return status == update.status && Objects.equals(note, update.note);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(status, note);
+		}
+	}
+
+	private final TtlHeartbeatManager manager;
+	private final String checkId;
+	private final long refreshNanos;
+	private final long phaseNanos;
+
+	private volatile Update update;
+	private volatile boolean closed;
+
+	// owned by the manager: handed between its timer and sender threads through concurrent queues
+	volatile Update sent;
+	volatile long nextRefreshNanos;
+	volatile long retryAtNanos;
+	volatile int failures;
+	volatile boolean inFlight;
+	boolean scheduled;
+	long dueTick;
+
+	TtlHeartbeat(TtlHeartbeatManager manager, String checkId, long refreshNanos, long phaseNanos, Update update) {
+		this.manager = manager;
+		this.checkId = checkId;
+		this.refreshNanos = refreshNanos;
+		this.phaseNanos = phaseNanos;
+		this.update = update;
+	}
+
+	public String getCheckId() {
+		return checkId;
+	}
+
+	public Check.CheckStatus getStatus() {
+		return update.status;
+	}
+
+	public String getNote() {
+		return update.note;
+	}
+
+	public void pass() {
+		pass(null);
+	}
+
+	public void pass(String note) {
+		setStatus(Check.CheckStatus.PASSING, note);
+	}
+
+	public void warn(String note) {
+		setStatus(Check.CheckStatus.WARNING, note);
+	}
+
+	public void fail(String note) {
+		setStatus(Check.CheckStatus.CRITICAL, note);
+	}
+
+	/**
+	 * @param status {@link Check.CheckStatus#PASSING}, {@link Check.CheckStatus#WARNING} or
+	 *               {@link Check.CheckStatus#CRITICAL}
+	 */
+	public void setStatus(Check.CheckStatus status, String note) {
+		if (status == null || status == Check.CheckStatus.UNKNOWN) {
+			throw new IllegalArgumentException("Can't set status " + status + " of a TTL check");
+		}
+
+		Update newUpdate = new Update(status, note);
+		if (newUpdate.equals(update)) {
+			manager.onRedundantUpdate();
+			return;
+		}
+		update = newUpdate;
+		manager.onChange(this);
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Stops sending heartbeats; the check goes critical once its TTL passes.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			manager.unregister(this);
+		}
+	}
+
+	Update getUpdate() {
+		return update;
+	}
+
+	/**
+	 * @return when the current status has to be sent next
+	 */
+	long nextDueNanos(long nowNanos) {
+		long due = update.equals(sent) ? nextRefreshNanos : nowNanos;
+		// nanoTime values may be negative and wrap, so they're only ever compared by their difference; 0 is no retry
+		return retryAtNanos != 0 && retryAtNanos - due > 0 ? retryAtNanos : due;
+	}
+
+	/**
+	 * Records a successful update sent at the given time.
+	 */
+	void onSent(Update sentUpdate, long sentAtNanos) {
+		// the first refresh comes after a random phase, which spreads the refreshes of all checks evenly over the
+		// refresh interval even if they were registered at once
+		nextRefreshNanos = sentAtNanos + (sent == null ? phaseNanos : refreshNanos);
+		sent = sentUpdate;
+		failures = 0;
+		retryAtNanos = 0;
+	}
+
+	long getRefreshNanos() {
+		return refreshNanos;
+	}
+
+	@Override
+	public String toString() {
+		Update current = update;
+		return "TtlHeartbeat{" +
+				"checkId='" + checkId + '\'' +
+				", status=" + current.status +
+				", note='" + current.note + '\'' +
+				'}';
+	}
+}
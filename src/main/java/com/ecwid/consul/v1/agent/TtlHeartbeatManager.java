@@ -0,0 +1,404 @@
+package com.ecwid.consul.v1.agent;
+
+import com.ecwid.consul.BoundedDrainQueue;
+import com.ecwid.consul.v1.OperationException;
+import com.ecwid.consul.v1.health.model.Check;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps any number of TTL checks alive with a single timer.
+ * <p>
+ * All checks are scheduled on one hashed timer wheel which ticks every {@code tickMillis}. Every check repeats its
+ * current status at {@code refreshRatio} of its TTL, and the first refresh of a check is delayed by a random phase, so
+ * the refreshes of checks registered at once spread evenly over the refresh interval instead of arriving in bursts.
+ * Status changes are sent on the next tick; setting the status which was already set is free.
+ * <p>
+ * Updates are sent to the agent by at most {@code maxConcurrentUpdates} senders at a time; due updates wait in a queue
+ * for a free sender. A failed update is retried with exponential backoff, bounded by the refresh interval.
+ */
+public final class TtlHeartbeatManager implements AutoCloseable {
+
+	private static final Logger log = Logger.getLogger(TtlHeartbeatManager.class.getName());
+
+	public static final long DEFAULT_TICK = 100; // milliseconds
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+	public static final double DEFAULT_REFRESH_RATIO = 0.5;
+	public static final int DEFAULT_MAX_CONCURRENT_UPDATES = 4;
+	public static final long DEFAULT_MIN_RETRY_DELAY = 500; // milliseconds
+
+	public static final class Builder {
+		private final AgentClient agentClient;
+		private String token;
+		private long tickMillis = DEFAULT_TICK;
+		private int wheelSize = DEFAULT_WHEEL_SIZE;
+		private double refreshRatio = DEFAULT_REFRESH_RATIO;
+		private int maxConcurrentUpdates = DEFAULT_MAX_CONCURRENT_UPDATES;
+		private long minRetryDelayMillis = DEFAULT_MIN_RETRY_DELAY;
+		private ScheduledExecutorService scheduler;
+		private ExecutorService executor;
+
+		private Builder(AgentClient agentClient) {
+			this.agentClient = agentClient;
+		}
+
+		public Builder setToken(String token) {
+			this.token = token;
+			return this;
+		}
+
+		/**
+		 * @param tickMillis resolution of the timer wheel
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setTickMillis(long tickMillis) {
+			this.tickMillis = tickMillis;
+			return this;
+		}
+
+		/**
+		 * @param wheelSize number of slots of the timer wheel; longer delays take several turns of the wheel
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setWheelSize(int wheelSize) {
+			this.wheelSize = wheelSize;
+			return this;
+		}
+
+		/**
+		 * @param refreshRatio share of the TTL after which the status is sent again, in (0, 1)
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setRefreshRatio(double refreshRatio) {
+			this.refreshRatio = refreshRatio;
+			return this;
+		}
+
+		/**
+		 * @param maxConcurrentUpdates maximum number of updates in flight to the agent
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setMaxConcurrentUpdates(int maxConcurrentUpdates) {
+			this.maxConcurrentUpdates = maxConcurrentUpdates;
+			return this;
+		}
+
+		public Builder setMinRetryDelayMillis(long minRetryDelayMillis) {
+			this.minRetryDelayMillis = minRetryDelayMillis;
+			return this;
+		}
+
+		/**
+		 * @param scheduler executor to run the timer wheel on. It is not shut down by {@link TtlHeartbeatManager#close()}.
+		 *                  By default the manager creates its own single daemon thread.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setScheduler(ScheduledExecutorService scheduler) {
+			this.scheduler = scheduler;
+			return this;
+		}
+
+		/**
+		 * @param executor executor to send the updates on. It is not shut down by {@link TtlHeartbeatManager#close()}.
+		 *                 By default the manager creates daemon threads as needed, up to the maximum of concurrent
+		 *                 updates.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setExecutor(ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		public TtlHeartbeatManager build() {
+			Objects.requireNonNull(agentClient, "agentClient");
+			if (tickMillis <= 0 || wheelSize <= 0) {
+				throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+			}
+			if (!(refreshRatio > 0 && refreshRatio < 1)) {
+				throw new IllegalArgumentException("refreshRatio must be in (0, 1), got " + refreshRatio);
+			}
+			if (maxConcurrentUpdates <= 0) {
+				throw new IllegalArgumentException("maxConcurrentUpdates must be positive");
+			}
+			if (minRetryDelayMillis <= 0) {
+				throw new IllegalArgumentException("minRetryDelayMillis must be positive");
+			}
+
+			boolean ownScheduler = scheduler == null;
+			boolean ownExecutor = executor == null;
+			return new TtlHeartbeatManager(agentClient, token, tickMillis, wheelSize, refreshRatio, maxConcurrentUpdates,
+					minRetryDelayMillis, ownScheduler ? BoundedDrainQueue.newDaemonScheduler("consul-heartbeat-timer") : scheduler, ownScheduler,
+					ownExecutor ? BoundedDrainQueue.newDaemonExecutor("consul-heartbeat") : executor, ownExecutor);
+		}
+	}
+
+	public static Builder newBuilder(AgentClient agentClient) {
+		return new Builder(agentClient);
+	}
+
+	// a slot entry stays valid while the heartbeat is still scheduled for the tick it was added with
+	private static final class WheelEntry {
+		final TtlHeartbeat heartbeat;
+		final long dueTick;
+
+		WheelEntry(TtlHeartbeat heartbeat, long dueTick) {
+			this.heartbeat = heartbeat;
+			this.dueTick = dueTick;
+		}
+	}
+
+	private final AgentClient agentClient;
+	private final String token;
+	private final long tickNanos;
+	private final double refreshRatio;
+	private final long minRetryDelayNanos;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownScheduler;
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+
+	private final ConcurrentMap<String, TtlHeartbeat> heartbeats = new ConcurrentHashMap<>();
+	// heartbeats to look at on the next tick: new registrations, status changes and completed updates
+	private final Queue<TtlHeartbeat> pending = new ConcurrentLinkedQueue<>();
+	private final BoundedDrainQueue<TtlHeartbeat> ready;
+
+	// owned by the timer thread
+	private final List<WheelEntry>[] wheel;
+	private final long startNanos;
+	private long processedTick;
+
+	private final AtomicLong updateCount = new AtomicLong();
+	private final AtomicLong skippedCount = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+
+	private final ScheduledFuture<?> timer;
+	private volatile boolean closed;
+
+	@SuppressWarnings("unchecked")
+	private TtlHeartbeatManager(AgentClient agentClient, String token, long tickMillis, int wheelSize, double refreshRatio,
+			int maxConcurrentUpdates, long minRetryDelayMillis, ScheduledExecutorService scheduler, boolean ownScheduler,
+			ExecutorService executor, boolean ownExecutor) {
+		this.agentClient = agentClient;
+		this.token = token;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.refreshRatio = refreshRatio;
+		this.minRetryDelayNanos = TimeUnit.MILLISECONDS.toNanos(minRetryDelayMillis);
+		this.scheduler = scheduler;
+		this.ownScheduler = ownScheduler;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+		this.ready = new BoundedDrainQueue<>(executor, maxConcurrentUpdates, this::send);
+
+		this.wheel = new List[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			wheel[i] = new ArrayList<>();
+		}
+		this.startNanos = System.nanoTime();
+		this.timer = scheduler.scheduleAtFixedRate(this::onTimer, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Starts sending heartbeats for a TTL check registered with the agent. The check is reported as passing until its
+	 * status is changed.
+	 *
+	 * @param checkId id of the check, e.g. {@code service:<service id>} for the check of a service
+	 * @param ttl     TTL the check was registered with
+	 */
+	public TtlHeartbeat register(String checkId, long ttl, TimeUnit unit) {
+		Objects.requireNonNull(checkId, "checkId");
+		if (closed) {
+			throw new IllegalStateException("TtlHeartbeatManager is closed");
+		}
+		long refreshNanos = Math.max(tickNanos, (long) (unit.toNanos(ttl) * refreshRatio));
+		long phaseNanos = 1 + ThreadLocalRandom.current().nextLong(refreshNanos);
+
+		TtlHeartbeat heartbeat = new TtlHeartbeat(this, checkId, refreshNanos, phaseNanos,
+				new TtlHeartbeat.Update(Check.CheckStatus.PASSING, null));
+		if (heartbeats.putIfAbsent(checkId, heartbeat) != null) {
+			throw new IllegalArgumentException("Check " + checkId + " is already registered");
+		}
+		pending.add(heartbeat);
+		return heartbeat;
+	}
+
+	/**
+	 * @return the heartbeat of the check, or {@code null} if it is not registered
+	 */
+	public TtlHeartbeat getHeartbeat(String checkId) {
+		return heartbeats.get(checkId);
+	}
+
+	public int getHeartbeatCount() {
+		return heartbeats.size();
+	}
+
+	/**
+	 * @return number of updates successfully sent to the agent
+	 */
+	public long getUpdateCount() {
+		return updateCount.get();
+	}
+
+	/**
+	 * @return number of status updates which didn't need a request because the status was already set
+	 */
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * Stops all heartbeats. The checks go critical once their TTL passes.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		timer.cancel(false);
+		heartbeats.clear();
+
+		if (ownScheduler) {
+			scheduler.shutdownNow();
+		}
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	// -------------------------------------------------------------------------------
+
+	void onChange(TtlHeartbeat heartbeat) {
+		pending.add(heartbeat);
+	}
+
+	void onRedundantUpdate() {
+		skippedCount.incrementAndGet();
+	}
+
+	void unregister(TtlHeartbeat heartbeat) {
+		heartbeats.remove(heartbeat.getCheckId(), heartbeat);
+	}
+
+	private void onTimer() {
+		try {
+			long now = System.nanoTime();
+			long currentTick = (now - startNanos) / tickNanos;
+
+			for (TtlHeartbeat heartbeat; (heartbeat = pending.poll()) != null; ) {
+				fire(heartbeat, now);
+			}
+			while (processedTick < currentTick) {
+				processedTick++;
+				processSlot(processedTick, now);
+			}
+			ready.startWorkers();
+		} catch (RuntimeException e) {
+			log.log(Level.WARNING, "TTL heartbeat timer failed", e);
+		}
+	}
+
+	private void processSlot(long tick, long now) {
+		List<WheelEntry> slot = wheel[(int) (tick % wheel.length)];
+		int size = slot.size();
+		int i = 0;
+		while (i < size) {
+			WheelEntry entry = slot.get(i);
+			TtlHeartbeat heartbeat = entry.heartbeat;
+			boolean valid = heartbeat.scheduled && heartbeat.dueTick == entry.dueTick && !heartbeat.isClosed();
+			if (valid && entry.dueTick > tick) {
+				// due in a later turn of the wheel
+				i++;
+				continue;
+			}
+
+			// swap-remove, the order within a slot doesn't matter
+			size--;
+			slot.set(i, slot.get(size));
+			slot.remove(size);
+			if (valid) {
+				heartbeat.scheduled = false;
+				fire(heartbeat, now);
+			}
+		}
+	}
+
+	private void fire(TtlHeartbeat heartbeat, long now) {
+		if (heartbeat.isClosed() || heartbeat.inFlight) {
+			// a completed update brings the heartbeat back through the pending queue
+			return;
+		}
+
+		long due = heartbeat.nextDueNanos(now);
+		if (due - now > 0) {
+			schedule(heartbeat, Math.max(processedTick + 1, (due - startNanos + tickNanos - 1) / tickNanos));
+			return;
+		}
+
+		heartbeat.scheduled = false;
+		heartbeat.inFlight = true;
+		ready.add(heartbeat);
+	}
+
+	private void schedule(TtlHeartbeat heartbeat, long dueTick) {
+		if (heartbeat.scheduled && heartbeat.dueTick <= dueTick) {
+			// it is looked at earlier anyway
+			return;
+		}
+		heartbeat.scheduled = true;
+		heartbeat.dueTick = dueTick;
+		wheel[(int) (dueTick % wheel.length)].add(new WheelEntry(heartbeat, dueTick));
+	}
+
+	private void send(TtlHeartbeat heartbeat) {
+		TtlHeartbeat.Update update = heartbeat.getUpdate();
+		long start = System.nanoTime();
+		try {
+			if (!closed && !heartbeat.isClosed()) {
+				switch (update.status) {
+					case PASSING:
+						agentClient.agentCheckPass(heartbeat.getCheckId(), update.note, token);
+						break;
+					case WARNING:
+						agentClient.agentCheckWarn(heartbeat.getCheckId(), update.note, token);
+						break;
+					default:
+						agentClient.agentCheckFail(heartbeat.getCheckId(), update.note, token);
+						break;
+				}
+				heartbeat.onSent(update, start);
+				updateCount.incrementAndGet();
+			}
+		} catch (RuntimeException e) {
+			failureCount.incrementAndGet();
+			int failures = ++heartbeat.failures;
+			long backoff = Math.min(heartbeat.getRefreshNanos(), minRetryDelayNanos << Math.min(failures - 1, 20));
+			heartbeat.retryAtNanos = System.nanoTime() + backoff;
+
+			if (e instanceof OperationException && ((OperationException) e).getStatusCode() == 404) {
+				// e.g. the agent was restarted and lost the check
+				log.log(Level.WARNING, "Check " + heartbeat.getCheckId() + " is not registered with the agent", e);
+			} else {
+				log.log(Level.FINE, e, () -> "Failed to update check " + heartbeat.getCheckId() + " (" + failures + " in a row)");
+			}
+		} finally {
+			heartbeat.inFlight = false;
+			pending.add(heartbeat);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.ecwid.consul.v1.catalog;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.catalog.model.CatalogDeregistration;
+import com.ecwid.consul.v1.catalog.model.CatalogNode;
+import com.ecwid.consul.v1.catalog.model.CatalogRegistration;
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.ecwid.consul.v1.catalog.model.Node;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link CatalogClient}. Failures are reported by completing the returned future
+ * exceptionally.
+ */
+public interface CatalogAsyncClient {
+
+	public CompletableFuture<Response<Void>> catalogRegisterAsync(CatalogRegistration catalogRegistration, String token);
+
+	public CompletableFuture<Response<Void>> catalogDeregisterAsync(CatalogDeregistration catalogDeregistration, String token);
+
+	public CompletableFuture<Response<List<String>>> getCatalogDatacentersAsync();
+
+	public CompletableFuture<Response<List<Node>>> getCatalogNodesAsync(CatalogNodesRequest catalogNodesRequest);
+
+	public CompletableFuture<Response<Map<String, List<String>>>> getCatalogServicesAsync(CatalogServicesRequest catalogServicesRequest);
+
+	public CompletableFuture<Response<List<CatalogService>>> getCatalogServiceAsync(String serviceName, CatalogServiceRequest catalogServiceRequest);
+
+	public CompletableFuture<Response<CatalogNode>> getCatalogNodeAsync(String nodeName, QueryParams queryParams);
+
+}
@@ -3,24 +3,38 @@ package com.ecwid.consul.v1.catalog;
 import com.ecwid.consul.SingleUrlParameters;
 import com.ecwid.consul.UrlParameters;
 import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.Futures;
 import com.ecwid.consul.transport.HttpResponse;
 import com.ecwid.consul.transport.TLSConfig;
 import com.ecwid.consul.v1.*;
 import com.ecwid.consul.v1.catalog.model.*;
 import com.google.gson.reflect.TypeToken;
 
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Vasily Vasilkov (vgv@ecwid.com)
  */
-public final class CatalogConsulClient implements CatalogClient {
+public final class CatalogConsulClient implements CatalogClient, CatalogAsyncClient {
+
+	private static final ContentDecoder<List<String>> DATACENTERS_DECODER = GsonFactory.getDecoder(new TypeToken<List<String>>() {}.getType());
+	private static final ContentDecoder<List<Node>> NODES_DECODER = GsonFactory.getDecoder(new TypeToken<List<Node>>() {}.getType());
+	private static final ContentDecoder<Map<String, List<String>>> SERVICES_DECODER = GsonFactory.getDecoder(new TypeToken<Map<String, List<String>>>() {}.getType());
+	private static final Type SERVICE_TYPE = new TypeToken<List<CatalogService>>() {}.getType();
+	private static final ContentDecoder<CatalogNode> NODE_DECODER = GsonFactory.getDecoder(CatalogNode.class);
 
 	private final ConsulRawClient rawClient;
+	// interns in the raw client's pool, if it has one
+	private final ContentDecoder<List<CatalogService>> serviceDecoder;
 
 	public CatalogConsulClient(ConsulRawClient rawClient) {
 		this.rawClient = rawClient;
+		this.serviceDecoder = GsonFactory.getDecoder(GsonFactory.getGson(rawClient.getStringInterner()), SERVICE_TYPE);
 	}
 
 	public CatalogConsulClient() {
@@ -58,11 +72,16 @@ public final class CatalogConsulClient implements CatalogClient {
 		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
 
 		HttpResponse httpResponse = rawClient.makePutRequest("/v1/catalog/register", json, tokenParam);
-		if (httpResponse.getStatusCode() == 200) {
-			return new Response<Void>(null, httpResponse);
-		} else {
-			throw new OperationException(httpResponse);
-		}
+		return toVoidResponse(httpResponse);
+	}
+
+	@Override
+	public CompletableFuture<Response<Void>> catalogRegisterAsync(CatalogRegistration catalogRegistration, String token) {
+		String json = GsonFactory.getGson().toJson(catalogRegistration);
+		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
+
+		return Futures.thenApply(rawClient.makePutRequestAsync("/v1/catalog/register", json, tokenParam),
+				CatalogConsulClient::toVoidResponse);
 	}
 
 	@Override
@@ -76,6 +95,19 @@ public final class CatalogConsulClient implements CatalogClient {
 		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
 
 		HttpResponse httpResponse = rawClient.makePutRequest("/v1/catalog/deregister", json, tokenParam);
+		return toVoidResponse(httpResponse);
+	}
+
+	@Override
+	public CompletableFuture<Response<Void>> catalogDeregisterAsync(CatalogDeregistration catalogDeregistration, String token) {
+		String json = GsonFactory.getGson().toJson(catalogDeregistration);
+		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
+
+		return Futures.thenApply(rawClient.makePutRequestAsync("/v1/catalog/deregister", json, tokenParam),
+				CatalogConsulClient::toVoidResponse);
+	}
+
+	private static Response<Void> toVoidResponse(HttpResponse httpResponse) {
 		if (httpResponse.getStatusCode() == 200) {
 			return new Response<Void>(null, httpResponse);
 		} else {
@@ -85,11 +117,21 @@ public final class CatalogConsulClient implements CatalogClient {
 
 	@Override
 	public Response<List<String>> getCatalogDatacenters() {
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/catalog/datacenters");
+		DecodedHttpResponse<List<String>> response = rawClient.makeGetRequest("/v1/catalog/datacenters", DATACENTERS_DECODER);
+
+		return toDatacentersResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<String>>> getCatalogDatacentersAsync() {
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/catalog/datacenters", DATACENTERS_DECODER),
+				CatalogConsulClient::toDatacentersResponse);
+	}
 
+	private static Response<List<String>> toDatacentersResponse(DecodedHttpResponse<List<String>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<String> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<String>>() {
-			}.getType());
+			List<String> value = response.getValue();
 			return new Response<List<String>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -112,11 +154,26 @@ public final class CatalogConsulClient implements CatalogClient {
 			.addUrlParameters(catalogNodesRequest.asUrlParameters())
 			.build();
 
-		HttpResponse httpResponse = rawClient.makeGetRequest(request);
+		DecodedHttpResponse<List<Node>> response = rawClient.makeGetRequest(request, NODES_DECODER);
 
+		return toNodesResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<Node>>> getCatalogNodesAsync(CatalogNodesRequest catalogNodesRequest) {
+		Request request = Request.Builder.newBuilder()
+			.setEndpoint("/v1/catalog/nodes")
+			.addUrlParameters(catalogNodesRequest.asUrlParameters())
+			.build();
+
+		return Futures.thenApply(rawClient.makeGetRequestAsync(request, NODES_DECODER),
+			CatalogConsulClient::toNodesResponse);
+	}
+
+	private static Response<List<Node>> toNodesResponse(DecodedHttpResponse<List<Node>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<Node> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Node>>() {
-			}.getType());
+			List<Node> value = response.getValue();
 			return new Response<>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -140,12 +197,21 @@ public final class CatalogConsulClient implements CatalogClient {
 
 	@Override
 	public Response<Map<String, List<String>>> getCatalogServices(CatalogServicesRequest catalogServicesRequest) {
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/catalog/services", catalogServicesRequest.asUrlParameters());
+		DecodedHttpResponse<Map<String, List<String>>> response = rawClient.makeGetRequest("/v1/catalog/services", catalogServicesRequest.asUrlParameters(), SERVICES_DECODER);
 
+		return toServicesResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<Map<String, List<String>>>> getCatalogServicesAsync(CatalogServicesRequest catalogServicesRequest) {
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/catalog/services", catalogServicesRequest.asUrlParameters(), SERVICES_DECODER),
+				CatalogConsulClient::toServicesResponse);
+	}
+
+	private static Response<Map<String, List<String>>> toServicesResponse(DecodedHttpResponse<Map<String, List<String>>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			Map<String, List<String>> value = GsonFactory.getGson().fromJson(httpResponse.getContent(),
-					new TypeToken<Map<String, List<String>>>() {
-					}.getType());
+			Map<String, List<String>> value = response.getValue();
 			return new Response<Map<String, List<String>>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -188,12 +254,21 @@ public final class CatalogConsulClient implements CatalogClient {
 
 	@Override
 	public Response<List<CatalogService>> getCatalogService(String serviceName, CatalogServiceRequest catalogServiceRequest) {
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/catalog/service/" + serviceName, catalogServiceRequest.asUrlParameters());
+		DecodedHttpResponse<List<CatalogService>> response = rawClient.makeGetRequest("/v1/catalog/service/" + serviceName, catalogServiceRequest.asUrlParameters(), serviceDecoder);
+
+		return toServiceResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<CatalogService>>> getCatalogServiceAsync(String serviceName, CatalogServiceRequest catalogServiceRequest) {
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/catalog/service/" + serviceName, catalogServiceRequest.asUrlParameters(), serviceDecoder),
+				CatalogConsulClient::toServiceResponse);
+	}
 
+	private static Response<List<CatalogService>> toServiceResponse(DecodedHttpResponse<List<CatalogService>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<com.ecwid.consul.v1.catalog.model.CatalogService> value = GsonFactory.getGson().fromJson(httpResponse.getContent(),
-					new TypeToken<List<com.ecwid.consul.v1.catalog.model.CatalogService>>() {
-					}.getType());
+			List<CatalogService> value = response.getValue();
 			return new Response<List<com.ecwid.consul.v1.catalog.model.CatalogService>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -202,10 +277,21 @@ public final class CatalogConsulClient implements CatalogClient {
 
 	@Override
 	public Response<CatalogNode> getCatalogNode(String nodeName, QueryParams queryParams) {
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/catalog/node/" + nodeName, queryParams);
+		DecodedHttpResponse<CatalogNode> response = rawClient.makeGetRequest("/v1/catalog/node/" + nodeName, NODE_DECODER, queryParams);
+
+		return toNodeResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<CatalogNode>> getCatalogNodeAsync(String nodeName, QueryParams queryParams) {
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/catalog/node/" + nodeName, NODE_DECODER, queryParams),
+				CatalogConsulClient::toNodeResponse);
+	}
 
+	private static Response<CatalogNode> toNodeResponse(DecodedHttpResponse<CatalogNode> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			CatalogNode catalogNode = GsonFactory.getGson().fromJson(httpResponse.getContent(), CatalogNode.class);
+			CatalogNode catalogNode = response.getValue();
 			return new Response<CatalogNode>(catalogNode, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
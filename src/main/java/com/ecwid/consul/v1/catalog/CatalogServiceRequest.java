@@ -120,6 +120,20 @@ public final class CatalogServiceRequest implements ConsulRequest {
 		return new Builder();
 	}
 
+	/**
+	 * @return a new {@link Builder} pre-populated with the values of this request
+	 */
+	public Builder toBuilder() {
+		Builder builder = new Builder();
+		builder.datacenter = datacenter;
+		builder.tags = tags;
+		builder.near = near;
+		builder.nodeMeta = nodeMeta;
+		builder.queryParams = queryParams;
+		builder.token = token;
+		return builder;
+	}
+
 	@Override
 	public List<UrlParameters> asUrlParameters() {
 		List<UrlParameters> params = new ArrayList<>();
@@ -85,6 +85,18 @@ public final class CatalogServicesRequest implements ConsulRequest {
 		return new CatalogServicesRequest.Builder();
 	}
 
+	/**
+	 * @return a new {@link Builder} pre-populated with the values of this request
+	 */
+	public Builder toBuilder() {
+		Builder builder = new Builder();
+		builder.datacenter = datacenter;
+		builder.nodeMeta = nodeMeta;
+		builder.queryParams = queryParams;
+		builder.token = token;
+		return builder;
+	}
+
 	@Override
 	public List<UrlParameters> asUrlParameters() {
 		List<UrlParameters> params = new ArrayList<>();
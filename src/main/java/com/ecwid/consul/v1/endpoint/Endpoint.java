@@ -0,0 +1,140 @@
+package com.ecwid.consul.v1.endpoint;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One agent or server address of an {@link EndpointPool} together with its live statistics.
+ */
+public final class Endpoint {
+
+	// weight of the latest sample in the latency average
+	private static final double LATENCY_DECAY = 0.2;
+
+	private final String address;
+	private final int index;
+
+	private final AtomicInteger outstandingRequests = new AtomicInteger();
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicInteger ejections = new AtomicInteger();
+	private final AtomicBoolean ejected = new AtomicBoolean();
+	private final AtomicBoolean probing = new AtomicBoolean();
+	private final AtomicLong retryAtNanos = new AtomicLong();
+
+	private volatile double averageLatencyNanos;
+
+	Endpoint(String address, int index) {
+		this.address = address;
+		this.index = index;
+	}
+
+	/**
+	 * @return base address of the endpoint, e.g. {@code http://10.0.0.1:8500}
+	 */
+	public String getAddress() {
+		return address;
+	}
+
+	public int getOutstandingRequests() {
+		return outstandingRequests.get();
+	}
+
+	/**
+	 * @return exponentially weighted average latency of successful requests, 0 if nothing was measured yet
+	 */
+	public double getAverageLatencyNanos() {
+		return averageLatencyNanos;
+	}
+
+	public int getConsecutiveFailures() {
+		return consecutiveFailures.get();
+	}
+
+	/**
+	 * @return true if the endpoint is taken out of rotation after failures
+	 */
+	public boolean isEjected() {
+		return ejected.get();
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	long getRetryAtNanos() {
+		return retryAtNanos.get();
+	}
+
+	void requestStarted() {
+		outstandingRequests.incrementAndGet();
+	}
+
+	void requestFinished() {
+		outstandingRequests.decrementAndGet();
+	}
+
+	/**
+	 * Lets exactly one caller send a trial request once the ejection time has passed. Until that request completes,
+	 * other callers see the endpoint as ejected for another {@code probeWindowNanos}.
+	 */
+	boolean tryProbe(long now, long probeWindowNanos) {
+		long retryAt = retryAtNanos.get();
+		if (now - retryAt < 0 || !retryAtNanos.compareAndSet(retryAt, now + probeWindowNanos)) {
+			return false;
+		}
+		probing.set(true);
+		return true;
+	}
+
+	/**
+	 * @return true if the endpoint was ejected by this call
+	 */
+	boolean recordFailure(long now, int failureThreshold, long baseEjectionNanos, long maxEjectionNanos) {
+		int failures = consecutiveFailures.incrementAndGet();
+		if (failures < failureThreshold) {
+			return false;
+		}
+
+		// escalate only on the first ejection and on a failed probe, not on every request which was in flight
+		if (ejected.compareAndSet(false, true) || probing.compareAndSet(true, false)) {
+			int count = Math.min(ejections.incrementAndGet() - 1, 30);
+			long ejectionNanos = baseEjectionNanos << count;
+			if (ejectionNanos <= 0 || ejectionNanos > maxEjectionNanos) {
+				ejectionNanos = maxEjectionNanos;
+			}
+			retryAtNanos.set(now + ejectionNanos);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param latencyNanos latency of the request, or -1 if it must not affect the average, e.g. of a blocking query
+	 * @return true if the endpoint was ejected before and is back in rotation now
+	 */
+	boolean recordSuccess(long latencyNanos) {
+		if (latencyNanos >= 0) {
+			double average = averageLatencyNanos;
+			averageLatencyNanos = average == 0 ? latencyNanos : average + LATENCY_DECAY * (latencyNanos - average);
+		}
+
+		consecutiveFailures.set(0);
+		if (ejected.get()) {
+			ejections.set(0);
+			probing.set(false);
+			return ejected.compareAndSet(true, false);
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "Endpoint{" +
+			"address='" + address + '\'' +
+			", outstandingRequests=" + outstandingRequests +
+			", consecutiveFailures=" + consecutiveFailures +
+			", ejected=" + ejected +
+			'}';
+	}
+}
@@ -0,0 +1,356 @@
+package com.ecwid.consul.v1.endpoint;
+
+import com.ecwid.consul.transport.TransportException;
+import com.ecwid.consul.transport.resilience.CircuitBreakerOpenException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A set of Consul agent or server addresses which requests are balanced over.
+ * <p>
+ * Endpoints are ejected passively: after {@code failureThreshold} consecutive transport failures an endpoint is taken
+ * out of rotation for the ejection time, which doubles with every failed probe up to the maximum. Once the time has
+ * passed a single live request probes the endpoint, and a success puts it back into rotation. If every endpoint is
+ * ejected, the one which is due first is used anyway.
+ * <p>
+ * A request which fails with a {@link TransportException} is retried on another endpoint, up to
+ * {@code maxAttempts} endpoints. Non-idempotent requests are retried only if the connection could not be established,
+ * so they can never be applied twice.
+ * <p>
+ * Blocking queries are held by the agent until the result changes or the wait time is over, so their latency is not
+ * fed into {@link SelectionStrategy#LATENCY_WEIGHTED}.
+ */
+public final class EndpointPool {
+
+	private static final Logger log = Logger.getLogger(EndpointPool.class.getName());
+
+	// one bit per endpoint in the set of already tried endpoints
+	public static final int MAX_ENDPOINTS = 64;
+
+	public static final int DEFAULT_FAILURE_THRESHOLD = 2;
+	public static final long DEFAULT_BASE_EJECTION_TIME = 5 * 1000; // milliseconds
+	public static final long DEFAULT_MAX_EJECTION_TIME = 60 * 1000; // milliseconds
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	public static final class Builder {
+		private final List<String> addresses = new ArrayList<>();
+		private SelectionStrategy selectionStrategy = SelectionStrategy.ROUND_ROBIN;
+		private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+		private long baseEjectionTimeMillis = DEFAULT_BASE_EJECTION_TIME;
+		private long maxEjectionTimeMillis = DEFAULT_MAX_EJECTION_TIME;
+		private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param address base address including the scheme, e.g. {@code http://10.0.0.1:8500}
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder addAddress(String address) {
+			this.addresses.add(address);
+			return this;
+		}
+
+		public Builder addAddresses(List<String> addresses) {
+			this.addresses.addAll(addresses);
+			return this;
+		}
+
+		public Builder setSelectionStrategy(SelectionStrategy selectionStrategy) {
+			this.selectionStrategy = selectionStrategy;
+			return this;
+		}
+
+		/**
+		 * @param failureThreshold number of consecutive transport failures which ejects an endpoint
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setFailureThreshold(int failureThreshold) {
+			this.failureThreshold = failureThreshold;
+			return this;
+		}
+
+		public Builder setBaseEjectionTimeMillis(long baseEjectionTimeMillis) {
+			this.baseEjectionTimeMillis = baseEjectionTimeMillis;
+			return this;
+		}
+
+		public Builder setMaxEjectionTimeMillis(long maxEjectionTimeMillis) {
+			this.maxEjectionTimeMillis = maxEjectionTimeMillis;
+			return this;
+		}
+
+		/**
+		 * @param maxAttempts maximum number of endpoints a single request is sent to
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setMaxAttempts(int maxAttempts) {
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		public EndpointPool build() {
+			if (addresses.isEmpty() || addresses.size() > MAX_ENDPOINTS) {
+				throw new IllegalArgumentException("Expected 1.." + MAX_ENDPOINTS + " addresses, got " + addresses.size());
+			}
+			if (selectionStrategy == null) {
+				throw new IllegalArgumentException("selectionStrategy must not be null");
+			}
+			if (failureThreshold <= 0 || maxAttempts <= 0) {
+				throw new IllegalArgumentException("failureThreshold and maxAttempts must be positive");
+			}
+			if (baseEjectionTimeMillis <= 0 || maxEjectionTimeMillis < baseEjectionTimeMillis) {
+				throw new IllegalArgumentException("Invalid ejection time range [" + baseEjectionTimeMillis + ", " + maxEjectionTimeMillis + "]");
+			}
+
+			Endpoint[] endpoints = new Endpoint[addresses.size()];
+			for (int i = 0; i < endpoints.length; i++) {
+				endpoints[i] = new Endpoint(addresses.get(i), i);
+			}
+			return new EndpointPool(endpoints, selectionStrategy, failureThreshold, baseEjectionTimeMillis, maxEjectionTimeMillis, maxAttempts);
+		}
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return pool with a single endpoint, requests are never retried
+	 */
+	public static EndpointPool singleton(String address) {
+		return newBuilder().addAddress(address).build();
+	}
+
+	private final Endpoint[] endpoints;
+	private final List<Endpoint> endpointList;
+	private final SelectionStrategy selectionStrategy;
+	private final int failureThreshold;
+	private final long baseEjectionNanos;
+	private final long maxEjectionNanos;
+	private final int maxAttempts;
+	private final long allEndpointsMask;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private EndpointPool(Endpoint[] endpoints, SelectionStrategy selectionStrategy, int failureThreshold,
+						 long baseEjectionTimeMillis, long maxEjectionTimeMillis, int maxAttempts) {
+		this.endpoints = endpoints;
+		this.endpointList = Collections.unmodifiableList(Arrays.asList(endpoints));
+		this.selectionStrategy = selectionStrategy;
+		this.failureThreshold = failureThreshold;
+		this.baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionTimeMillis);
+		this.maxEjectionNanos = TimeUnit.MILLISECONDS.toNanos(maxEjectionTimeMillis);
+		this.maxAttempts = maxAttempts;
+		this.allEndpointsMask = endpoints.length == MAX_ENDPOINTS ? -1L : (1L << endpoints.length) - 1;
+	}
+
+	public List<Endpoint> getEndpoints() {
+		return endpointList;
+	}
+
+	public SelectionStrategy getSelectionStrategy() {
+		return selectionStrategy;
+	}
+
+	/**
+	 * Runs {@code call} against the selected endpoint's address, failing over to other endpoints on transport failures.
+	 *
+	 * @param idempotent whether the request may be sent again after it possibly reached an endpoint
+	 * @param call       sends the request to the given base address
+	 */
+	public <T> T execute(boolean idempotent, Function<String, T> call) {
+		return execute(idempotent, false, call);
+	}
+
+	/**
+	 * @param blockingQuery whether the request is a blocking query, whose latency is not recorded
+	 * @see #execute(boolean, Function)
+	 */
+	public <T> T execute(boolean idempotent, boolean blockingQuery, Function<String, T> call) {
+		long tried = 0;
+		int attempts = 0;
+		while (true) {
+			Endpoint endpoint = select(tried);
+			tried |= 1L << endpoint.getIndex();
+			attempts++;
+
+			endpoint.requestStarted();
+			long start = System.nanoTime();
+			try {
+				T result = call.apply(endpoint.getAddress());
+				onSuccess(endpoint, blockingQuery ? -1 : System.nanoTime() - start);
+				return result;
+			} catch (TransportException e) {
+				onFailure(endpoint, e);
+				if (!canRetry(idempotent, e, attempts, tried)) {
+					throw e;
+				}
+			} finally {
+				endpoint.requestFinished();
+			}
+		}
+	}
+
+	/**
+	 * Non-blocking counterpart of {@link #execute(boolean, Function)}. Cancelling the returned future cancels the
+	 * attempt in flight.
+	 */
+	public <T> CompletableFuture<T> executeAsync(boolean idempotent, Function<String, CompletableFuture<T>> call) {
+		return executeAsync(idempotent, false, call);
+	}
+
+	/**
+	 * @param blockingQuery whether the request is a blocking query, whose latency is not recorded
+	 * @see #executeAsync(boolean, Function)
+	 */
+	public <T> CompletableFuture<T> executeAsync(boolean idempotent, boolean blockingQuery, Function<String, CompletableFuture<T>> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicReference<CompletableFuture<T>> currentAttempt = new AtomicReference<>();
+		result.whenComplete((value, error) -> {
+			CompletableFuture<T> attempt = currentAttempt.get();
+			if (result.isCancelled() && attempt != null) {
+				attempt.cancel(true);
+			}
+		});
+		executeAsync(idempotent, blockingQuery, call, result, currentAttempt, 0, 0);
+		return result;
+	}
+
+	private <T> void executeAsync(boolean idempotent, boolean blockingQuery, Function<String, CompletableFuture<T>> call,
+								  CompletableFuture<T> result, AtomicReference<CompletableFuture<T>> currentAttempt,
+								  long previouslyTried, int previousAttempts) {
+		Endpoint endpoint = select(previouslyTried);
+		long tried = previouslyTried | 1L << endpoint.getIndex();
+		int attempts = previousAttempts + 1;
+
+		endpoint.requestStarted();
+		long start = System.nanoTime();
+		CompletableFuture<T> future;
+		try {
+			future = call.apply(endpoint.getAddress());
+		} catch (RuntimeException e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		currentAttempt.set(future);
+		// the caller may have cancelled before the attempt was published
+		if (result.isCancelled()) {
+			future.cancel(true);
+		}
+
+		future.whenComplete((value, error) -> {
+			endpoint.requestFinished();
+			if (result.isDone()) {
+				// cancelled by the caller, which says nothing about the endpoint
+				return;
+			}
+			if (error == null) {
+				onSuccess(endpoint, blockingQuery ? -1 : System.nanoTime() - start);
+				result.complete(value);
+				return;
+			}
+
+			Throwable cause = unwrap(error);
+			if (cause instanceof TransportException) {
+				onFailure(endpoint, cause);
+				if (canRetry(idempotent, cause, attempts, tried)) {
+					executeAsync(idempotent, blockingQuery, call, result, currentAttempt, tried, attempts);
+					return;
+				}
+			}
+			result.completeExceptionally(cause);
+		});
+	}
+
+	// package-private for tests
+	Endpoint select(long excluded) {
+		long now = System.nanoTime();
+		int size = endpoints.length;
+		int start = size == 1 ? 0 : Math.floorMod(next.getAndIncrement(), size);
+
+		Endpoint best = null;
+		double bestScore = 0;
+		Endpoint dueFirst = null;
+		for (int i = 0; i < size; i++) {
+			Endpoint endpoint = endpoints[(start + i) % size];
+			if ((excluded & 1L << endpoint.getIndex()) != 0) {
+				continue;
+			}
+
+			if (endpoint.isEjected()) {
+				if (endpoint.tryProbe(now, baseEjectionNanos)) {
+					return endpoint;
+				}
+				if (dueFirst == null || endpoint.getRetryAtNanos() - dueFirst.getRetryAtNanos() < 0) {
+					dueFirst = endpoint;
+				}
+				continue;
+			}
+
+			double score = selectionStrategy.score(endpoint);
+			if (best == null || score < bestScore) {
+				best = endpoint;
+				bestScore = score;
+			}
+		}
+
+		return best != null ? best : dueFirst;
+	}
+
+	private void onSuccess(Endpoint endpoint, long latencyNanos) {
+		if (endpoint.recordSuccess(latencyNanos)) {
+			log.info("Consul endpoint " + endpoint.getAddress() + " is back in rotation");
+		}
+	}
+
+	private void onFailure(Endpoint endpoint, Throwable error) {
+		if (endpoint.recordFailure(System.nanoTime(), failureThreshold, baseEjectionNanos, maxEjectionNanos)) {
+			log.log(Level.WARNING, "Consul endpoint " + endpoint.getAddress() + " is ejected after "
+				+ endpoint.getConsecutiveFailures() + " consecutive failures", error);
+		}
+	}
+
+	private boolean canRetry(boolean idempotent, Throwable error, int attempts, long tried) {
+		return attempts < maxAttempts && tried != allEndpointsMask && (idempotent || isConnectFailure(error));
+	}
+
+	// the request has not been sent if the connection could not be established or a circuit breaker rejected it
+	private static boolean isConnectFailure(Throwable error) {
+		if (error instanceof CircuitBreakerOpenException) {
+			return true;
+		}
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+				|| cause instanceof UnknownHostException || cause instanceof ConnectTimeoutException
+				|| cause instanceof HttpConnectTimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Throwable unwrap(Throwable throwable) {
+		while ((throwable instanceof CompletionException || throwable instanceof ExecutionException) && throwable.getCause() != null) {
+			throwable = throwable.getCause();
+		}
+		return throwable;
+	}
+}
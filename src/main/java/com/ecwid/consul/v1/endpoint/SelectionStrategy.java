@@ -0,0 +1,43 @@
+package com.ecwid.consul.v1.endpoint;
+
+/**
+ * How an {@link EndpointPool} picks one of its healthy endpoints for the next request.
+ */
+public enum SelectionStrategy {
+
+	/**
+	 * Endpoints take turns.
+	 */
+	ROUND_ROBIN {
+		@Override
+		double score(Endpoint endpoint) {
+			return 0;
+		}
+	},
+
+	/**
+	 * The endpoint with the fewest requests in flight wins; ties are broken round-robin.
+	 */
+	LEAST_OUTSTANDING {
+		@Override
+		double score(Endpoint endpoint) {
+			return endpoint.getOutstandingRequests();
+		}
+	},
+
+	/**
+	 * The endpoint with the lowest average latency, scaled by the requests in flight, wins. Endpoints without
+	 * measurements yet are preferred, so every endpoint gets measured.
+	 */
+	LATENCY_WEIGHTED {
+		@Override
+		double score(Endpoint endpoint) {
+			return endpoint.getAverageLatencyNanos() * (endpoint.getOutstandingRequests() + 1);
+		}
+	};
+
+	/**
+	 * @return the cost of sending the next request to the endpoint, the lowest one is selected
+	 */
+	abstract double score(Endpoint endpoint);
+}
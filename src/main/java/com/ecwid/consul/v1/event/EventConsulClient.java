@@ -11,6 +11,7 @@ import com.ecwid.consul.v1.event.model.Event;
 import com.ecwid.consul.v1.event.model.EventParams;
 import com.google.gson.reflect.TypeToken;
 
+import java.lang.reflect.Type;
 import java.util.List;
 
 /**
@@ -18,6 +19,8 @@ import java.util.List;
  */
 public final class EventConsulClient implements EventClient {
 
+	private static final Type EVENT_LIST_TYPE = new TypeToken<List<Event>>() {}.getType();
+
 	private final ConsulRawClient rawClient;
 
 	public EventConsulClient(ConsulRawClient rawClient) {
@@ -76,8 +79,7 @@ public final class EventConsulClient implements EventClient {
 		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/event/list", eventListRequest.asUrlParameters());
 
 		if (httpResponse.getStatusCode() == 200) {
-			List<Event> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Event>>() {
-			}.getType());
+			List<Event> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), EVENT_LIST_TYPE);
 			return new Response<List<Event>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
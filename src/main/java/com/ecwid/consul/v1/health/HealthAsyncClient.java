@@ -0,0 +1,25 @@
+package com.ecwid.consul.v1.health;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.health.model.Check;
+import com.ecwid.consul.v1.health.model.HealthService;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link HealthClient}. Failures are reported by completing the returned future
+ * exceptionally.
+ */
+public interface HealthAsyncClient {
+
+	public CompletableFuture<Response<List<Check>>> getHealthChecksForNodeAsync(String nodeName, QueryParams queryParams);
+
+	public CompletableFuture<Response<List<Check>>> getHealthChecksForServiceAsync(String serviceName, HealthChecksForServiceRequest healthChecksForServiceRequest);
+
+	public CompletableFuture<Response<List<HealthService>>> getHealthServicesAsync(String serviceName, HealthServicesRequest healthServicesRequest);
+
+	public CompletableFuture<Response<List<Check>>> getHealthChecksStateAsync(Check.CheckStatus checkStatus, QueryParams queryParams);
+
+}
@@ -1,8 +1,13 @@
 package com.ecwid.consul.v1.health;
 
+import java.lang.reflect.Type;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.Futures;
 import com.ecwid.consul.transport.HttpResponse;
 import com.ecwid.consul.transport.TLSConfig;
 import com.ecwid.consul.v1.ConsulRawClient;
@@ -11,17 +16,27 @@ import com.ecwid.consul.v1.QueryParams;
 import com.ecwid.consul.v1.Response;
 import com.ecwid.consul.v1.health.model.Check;
 import com.ecwid.consul.v1.health.model.HealthService;
+import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 /**
  * @author Vasily Vasilkov (vgv@ecwid.com)
  */
-public final class HealthConsulClient implements HealthClient {
+public final class HealthConsulClient implements HealthClient, HealthAsyncClient {
+
+	private static final Type HEALTH_SERVICES_TYPE = new TypeToken<List<HealthService>>() {}.getType();
+	private static final Type CHECKS_TYPE = new TypeToken<List<Check>>() {}.getType();
 
 	private final ConsulRawClient rawClient;
+	// intern in the raw client's pool, if it has one
+	private final ContentDecoder<List<HealthService>> healthServicesDecoder;
+	private final ContentDecoder<List<Check>> checksDecoder;
 
 	public HealthConsulClient(ConsulRawClient rawClient) {
 		this.rawClient = rawClient;
+		Gson gson = GsonFactory.getGson(rawClient.getStringInterner());
+		this.healthServicesDecoder = GsonFactory.getDecoder(gson, HEALTH_SERVICES_TYPE);
+		this.checksDecoder = GsonFactory.getDecoder(gson, CHECKS_TYPE);
 	}
 
 	public HealthConsulClient() {
@@ -50,15 +65,15 @@ public final class HealthConsulClient implements HealthClient {
 
 	@Override
 	public Response<List<Check>> getHealthChecksForNode(String nodeName, QueryParams queryParams) {
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/health/node/" + nodeName, queryParams);
+		DecodedHttpResponse<List<Check>> response = rawClient.makeGetRequest("/v1/health/node/" + nodeName, checksDecoder, queryParams);
 
-		if (httpResponse.getStatusCode() == 200) {
-			List<Check> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Check>>() {
-			}.getType());
-			return new Response<List<Check>>(value, httpResponse);
-		} else {
-			throw new OperationException(httpResponse);
-		}
+		return toChecksResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<Check>>> getHealthChecksForNodeAsync(String nodeName, QueryParams queryParams) {
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/health/node/" + nodeName, checksDecoder, queryParams),
+				HealthConsulClient::toChecksResponse);
 	}
 
 	@Override
@@ -72,15 +87,15 @@ public final class HealthConsulClient implements HealthClient {
 
 	@Override
 	public Response<List<Check>> getHealthChecksForService(String serviceName, HealthChecksForServiceRequest healthChecksForServiceRequest) {
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/health/checks/" + serviceName, healthChecksForServiceRequest.asUrlParameters());
+		DecodedHttpResponse<List<Check>> response = rawClient.makeGetRequest("/v1/health/checks/" + serviceName, healthChecksForServiceRequest.asUrlParameters(), checksDecoder);
 
-		if (httpResponse.getStatusCode() == 200) {
-			List<Check> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Check>>() {
-			}.getType());
-			return new Response<List<Check>>(value, httpResponse);
-		} else {
-			throw new OperationException(httpResponse);
-		}
+		return toChecksResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<Check>>> getHealthChecksForServiceAsync(String serviceName, HealthChecksForServiceRequest healthChecksForServiceRequest) {
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/health/checks/" + serviceName, healthChecksForServiceRequest.asUrlParameters(), checksDecoder),
+				HealthConsulClient::toChecksResponse);
 	}
 
 	@Override
@@ -117,12 +132,21 @@ public final class HealthConsulClient implements HealthClient {
 
 	@Override
 	public Response<List<HealthService>> getHealthServices(String serviceName, HealthServicesRequest healthServicesRequest) {
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/health/service/" + serviceName, healthServicesRequest.asUrlParameters());
+		DecodedHttpResponse<List<HealthService>> response = rawClient.makeGetRequest("/v1/health/service/" + serviceName, healthServicesRequest.asUrlParameters(), healthServicesDecoder);
+
+		return toHealthServicesResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<HealthService>>> getHealthServicesAsync(String serviceName, HealthServicesRequest healthServicesRequest) {
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/health/service/" + serviceName, healthServicesRequest.asUrlParameters(), healthServicesDecoder),
+				HealthConsulClient::toHealthServicesResponse);
+	}
 
+	private static Response<List<HealthService>> toHealthServicesResponse(DecodedHttpResponse<List<HealthService>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<com.ecwid.consul.v1.health.model.HealthService> value = GsonFactory.getGson().fromJson(httpResponse.getContent(),
-					new TypeToken<List<com.ecwid.consul.v1.health.model.HealthService>>() {
-					}.getType());
+			List<HealthService> value = response.getValue();
 			return new Response<List<com.ecwid.consul.v1.health.model.HealthService>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -137,11 +161,22 @@ public final class HealthConsulClient implements HealthClient {
 	@Override
 	public Response<List<Check>> getHealthChecksState(Check.CheckStatus checkStatus, QueryParams queryParams) {
 		String status = checkStatus == null ? "any" : checkStatus.name().toLowerCase();
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/health/state/" + status, queryParams);
+		DecodedHttpResponse<List<Check>> response = rawClient.makeGetRequest("/v1/health/state/" + status, checksDecoder, queryParams);
+
+		return toChecksResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<Check>>> getHealthChecksStateAsync(Check.CheckStatus checkStatus, QueryParams queryParams) {
+		String status = checkStatus == null ? "any" : checkStatus.name().toLowerCase();
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/health/state/" + status, checksDecoder, queryParams),
+				HealthConsulClient::toChecksResponse);
+	}
 
+	private static Response<List<Check>> toChecksResponse(DecodedHttpResponse<List<Check>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<Check> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Check>>() {
-			}.getType());
+			List<Check> value = response.getValue();
 			return new Response<List<Check>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -174,6 +174,22 @@ public final class HealthServicesRequest implements ConsulRequest {
 		return new Builder();
 	}
 
+	/**
+	 * @return a new {@link Builder} pre-populated with the values of this request
+	 */
+	public Builder toBuilder() {
+		Builder builder = new Builder();
+		builder.datacenter = datacenter;
+		builder.near = near;
+		builder.tags = tags;
+		builder.nodeMeta = nodeMeta;
+		builder.filter = filter;
+		builder.passing = passing;
+		builder.queryParams = queryParams;
+		builder.token = token;
+		return builder;
+	}
+
 	@Override
 	public List<UrlParameters> asUrlParameters() {
 		List<UrlParameters> params = new ArrayList<>();
@@ -0,0 +1,37 @@
+package com.ecwid.consul.v1.kv;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.model.GetBinaryValue;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.kv.model.PutParams;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link KeyValueClient}. Each method mirrors the most complete overload of its blocking
+ * counterpart; {@code token}, {@code putParams} and {@code queryParams} may be {@code null}.
+ * Failures are reported by completing the returned future exceptionally.
+ */
+public interface KeyValueAsyncClient {
+
+	public CompletableFuture<Response<GetValue>> getKVValueAsync(String key, String token, QueryParams queryParams);
+
+	public CompletableFuture<Response<GetBinaryValue>> getKVBinaryValueAsync(String key, String token, QueryParams queryParams);
+
+	public CompletableFuture<Response<List<GetValue>>> getKVValuesAsync(String keyPrefix, String token, QueryParams queryParams);
+
+	public CompletableFuture<Response<List<GetBinaryValue>>> getKVBinaryValuesAsync(String keyPrefix, String token, QueryParams queryParams);
+
+	public CompletableFuture<Response<List<String>>> getKVKeysOnlyAsync(String keyPrefix, String separator, String token, QueryParams queryParams);
+
+	public CompletableFuture<Response<Boolean>> setKVValueAsync(String key, String value, String token, PutParams putParams, QueryParams queryParams);
+
+	public CompletableFuture<Response<Boolean>> setKVBinaryValueAsync(String key, byte[] value, String token, PutParams putParams, QueryParams queryParams);
+
+	public CompletableFuture<Response<Void>> deleteKVValueAsync(String key, String token, QueryParams queryParams);
+
+	public CompletableFuture<Response<Void>> deleteKVValuesAsync(String key, String token, QueryParams queryParams);
+
+}
@@ -1,11 +1,15 @@
 package com.ecwid.consul.v1.kv;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.ecwid.consul.ConsulException;
 import com.ecwid.consul.SingleUrlParameters;
 import com.ecwid.consul.UrlParameters;
 import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.Futures;
 import com.ecwid.consul.transport.HttpResponse;
 import com.ecwid.consul.transport.TLSConfig;
 import com.ecwid.consul.v1.*;
@@ -17,7 +21,11 @@ import com.google.gson.reflect.TypeToken;
 /**
  * @author Vasily Vasilkov (vgv@ecwid.com)
  */
-public final class KeyValueConsulClient implements KeyValueClient {
+public final class KeyValueConsulClient implements KeyValueClient, KeyValueAsyncClient {
+
+	private static final ContentDecoder<List<GetValue>> GET_VALUES_DECODER = GsonFactory.getDecoder(new TypeToken<List<GetValue>>() {}.getType());
+	private static final ContentDecoder<List<GetBinaryValue>> GET_BINARY_VALUES_DECODER = GsonFactory.getDecoder(new TypeToken<List<GetBinaryValue>>() {}.getType());
+	private static final ContentDecoder<List<String>> KEYS_DECODER = GsonFactory.getDecoder(new TypeToken<List<String>>() {}.getType());
 
 	private final ConsulRawClient rawClient;
 
@@ -67,11 +75,22 @@ public final class KeyValueConsulClient implements KeyValueClient {
 	@Override
 	public Response<GetValue> getKVValue(String key, String token, QueryParams queryParams) {
 		UrlParameters tokenParams = token != null ? new SingleUrlParameters("token", token) : null;
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/kv/" + key, tokenParams, queryParams);
+		DecodedHttpResponse<List<GetValue>> response = rawClient.makeGetRequest("/v1/kv/" + key, GET_VALUES_DECODER, tokenParams, queryParams);
+
+		return toGetValueResponse(response);
+	}
 
+	@Override
+	public CompletableFuture<Response<GetValue>> getKVValueAsync(String key, String token, QueryParams queryParams) {
+		UrlParameters tokenParams = token != null ? new SingleUrlParameters("token", token) : null;
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/kv/" + key, GET_VALUES_DECODER, tokenParams, queryParams),
+			KeyValueConsulClient::toGetValueResponse);
+	}
+
+	private static Response<GetValue> toGetValueResponse(DecodedHttpResponse<List<GetValue>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<GetValue> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<GetValue>>() {
-			}.getType());
+			List<GetValue> value = response.getValue();
 
 			if (value.size() == 0) {
 				return new Response<GetValue>(null, httpResponse);
@@ -105,11 +124,22 @@ public final class KeyValueConsulClient implements KeyValueClient {
 	@Override
 	public Response<GetBinaryValue> getKVBinaryValue(String key, String token, QueryParams queryParams) {
 		UrlParameters tokenParams = token != null ? new SingleUrlParameters("token", token) : null;
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/kv/" + key, tokenParams, queryParams);
+		DecodedHttpResponse<List<GetBinaryValue>> response = rawClient.makeGetRequest("/v1/kv/" + key, GET_BINARY_VALUES_DECODER, tokenParams, queryParams);
+
+		return toGetBinaryValueResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<GetBinaryValue>> getKVBinaryValueAsync(String key, String token, QueryParams queryParams) {
+		UrlParameters tokenParams = token != null ? new SingleUrlParameters("token", token) : null;
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/kv/" + key, GET_BINARY_VALUES_DECODER, tokenParams, queryParams),
+			KeyValueConsulClient::toGetBinaryValueResponse);
+	}
 
+	private static Response<GetBinaryValue> toGetBinaryValueResponse(DecodedHttpResponse<List<GetBinaryValue>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<GetBinaryValue> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<GetBinaryValue>>() {
-			}.getType());
+			List<GetBinaryValue> value = response.getValue();
 
 			if (value.size() == 0) {
 				return new Response<GetBinaryValue>(null, httpResponse);
@@ -144,11 +174,23 @@ public final class KeyValueConsulClient implements KeyValueClient {
 	public Response<List<GetValue>> getKVValues(String keyPrefix, String token, QueryParams queryParams) {
 		UrlParameters recurseParam = new SingleUrlParameters("recurse");
 		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/kv/" + keyPrefix, recurseParam, tokenParam, queryParams);
+		DecodedHttpResponse<List<GetValue>> response = rawClient.makeGetRequest("/v1/kv/" + keyPrefix, GET_VALUES_DECODER, recurseParam, tokenParam, queryParams);
+
+		return toGetValuesResponse(response);
+	}
 
+	@Override
+	public CompletableFuture<Response<List<GetValue>>> getKVValuesAsync(String keyPrefix, String token, QueryParams queryParams) {
+		UrlParameters recurseParam = new SingleUrlParameters("recurse");
+		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/kv/" + keyPrefix, GET_VALUES_DECODER, recurseParam, tokenParam, queryParams),
+			KeyValueConsulClient::toGetValuesResponse);
+	}
+
+	private static Response<List<GetValue>> toGetValuesResponse(DecodedHttpResponse<List<GetValue>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<GetValue> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<GetValue>>() {
-			}.getType());
+			List<GetValue> value = response.getValue();
 			return new Response<List<GetValue>>(value, httpResponse);
 		} else if (httpResponse.getStatusCode() == 404) {
 			return new Response<List<GetValue>>(null, httpResponse);
@@ -176,11 +218,23 @@ public final class KeyValueConsulClient implements KeyValueClient {
 	public Response<List<GetBinaryValue>> getKVBinaryValues(String keyPrefix, String token, QueryParams queryParams) {
 		UrlParameters recurseParam = new SingleUrlParameters("recurse");
 		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/kv/" + keyPrefix, recurseParam, tokenParam, queryParams);
+		DecodedHttpResponse<List<GetBinaryValue>> response = rawClient.makeGetRequest("/v1/kv/" + keyPrefix, GET_BINARY_VALUES_DECODER, recurseParam, tokenParam, queryParams);
+
+		return toGetBinaryValuesResponse(response);
+	}
 
+	@Override
+	public CompletableFuture<Response<List<GetBinaryValue>>> getKVBinaryValuesAsync(String keyPrefix, String token, QueryParams queryParams) {
+		UrlParameters recurseParam = new SingleUrlParameters("recurse");
+		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/kv/" + keyPrefix, GET_BINARY_VALUES_DECODER, recurseParam, tokenParam, queryParams),
+			KeyValueConsulClient::toGetBinaryValuesResponse);
+	}
+
+	private static Response<List<GetBinaryValue>> toGetBinaryValuesResponse(DecodedHttpResponse<List<GetBinaryValue>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<GetBinaryValue> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<GetBinaryValue>>() {
-			}.getType());
+			List<GetBinaryValue> value = response.getValue();
 			return new Response<List<GetBinaryValue>>(value, httpResponse);
 		} else if (httpResponse.getStatusCode() == 404) {
 			return new Response<List<GetBinaryValue>>(null, httpResponse);
@@ -209,11 +263,24 @@ public final class KeyValueConsulClient implements KeyValueClient {
 		UrlParameters keysParam = new SingleUrlParameters("keys");
 		UrlParameters separatorParam = separator != null ? new SingleUrlParameters("separator", separator) : null;
 		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
-		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/kv/" + keyPrefix, keysParam, separatorParam, tokenParam, queryParams);
+		DecodedHttpResponse<List<String>> response = rawClient.makeGetRequest("/v1/kv/" + keyPrefix, KEYS_DECODER, keysParam, separatorParam, tokenParam, queryParams);
 
+		return toKeysResponse(response);
+	}
+
+	@Override
+	public CompletableFuture<Response<List<String>>> getKVKeysOnlyAsync(String keyPrefix, String separator, String token, QueryParams queryParams) {
+		UrlParameters keysParam = new SingleUrlParameters("keys");
+		UrlParameters separatorParam = separator != null ? new SingleUrlParameters("separator", separator) : null;
+		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
+		return Futures.thenApply(rawClient.makeGetRequestAsync("/v1/kv/" + keyPrefix, KEYS_DECODER, keysParam, separatorParam, tokenParam, queryParams),
+			KeyValueConsulClient::toKeysResponse);
+	}
+
+	private static Response<List<String>> toKeysResponse(DecodedHttpResponse<List<String>> response) {
+		HttpResponse httpResponse = response.getHttpResponse();
 		if (httpResponse.getStatusCode() == 200) {
-			List<String> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<String>>() {
-			}.getType());
+			List<String> value = response.getValue();
 			return new Response<List<String>>(value, httpResponse);
 		} else if (httpResponse.getStatusCode() == 404) {
 			return new Response<List<String>>(null, httpResponse);
@@ -252,12 +319,14 @@ public final class KeyValueConsulClient implements KeyValueClient {
 		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
 		HttpResponse httpResponse = rawClient.makePutRequest("/v1/kv/" + key, value, putParams, tokenParam, queryParams);
 
-		if (httpResponse.getStatusCode() == 200) {
-			boolean result = GsonFactory.getGson().fromJson(httpResponse.getContent(), boolean.class);
-			return new Response<Boolean>(result, httpResponse);
-		} else {
-			throw new OperationException(httpResponse);
-		}
+		return toBooleanResponse(httpResponse);
+	}
+
+	@Override
+	public CompletableFuture<Response<Boolean>> setKVValueAsync(String key, String value, String token, PutParams putParams, QueryParams queryParams) {
+		UrlParameters tokenParam = token != null ? new SingleUrlParameters("token", token) : null;
+		return Futures.thenApply(rawClient.makePutRequestAsync("/v1/kv/" + key, value, putParams, tokenParam, queryParams),
+			KeyValueConsulClient::toBooleanResponse);
 	}
 
 	@Override
@@ -297,6 +366,24 @@ public final class KeyValueConsulClient implements KeyValueClient {
 
 		HttpResponse httpResponse = rawClient.makePutRequest(request);
 
+		return toBooleanResponse(httpResponse);
+	}
+
+	@Override
+	public CompletableFuture<Response<Boolean>> setKVBinaryValueAsync(String key, byte[] value, String token, PutParams putParams, QueryParams queryParams) {
+		Request request = Request.Builder.newBuilder()
+			.setEndpoint("/v1/kv/" + key)
+			.setToken(token)
+			.addUrlParameter(queryParams)
+			.addUrlParameter(putParams)
+			.setBinaryContent(value)
+			.build();
+
+		return Futures.thenApply(rawClient.makePutRequestAsync(request),
+			KeyValueConsulClient::toBooleanResponse);
+	}
+
+	private static Response<Boolean> toBooleanResponse(HttpResponse httpResponse) {
 		if (httpResponse.getStatusCode() == 200) {
 			boolean result = GsonFactory.getGson().fromJson(httpResponse.getContent(), boolean.class);
 			return new Response<Boolean>(result, httpResponse);
@@ -330,11 +417,19 @@ public final class KeyValueConsulClient implements KeyValueClient {
 
 		HttpResponse httpResponse = rawClient.makeDeleteRequest(request);
 
-		if (httpResponse.getStatusCode() == 200) {
-			return new Response<>(null, httpResponse);
-		} else {
-			throw new OperationException(httpResponse);
-		}
+		return toVoidResponse(httpResponse);
+	}
+
+	@Override
+	public CompletableFuture<Response<Void>> deleteKVValueAsync(String key, String token, QueryParams queryParams) {
+		Request request = Request.Builder.newBuilder()
+			.setEndpoint("/v1/kv/" + key)
+			.setToken(token)
+			.addUrlParameter(queryParams)
+			.build();
+
+		return Futures.thenApply(rawClient.makeDeleteRequestAsync(request),
+			KeyValueConsulClient::toVoidResponse);
 	}
 
 	@Override
@@ -365,6 +460,25 @@ public final class KeyValueConsulClient implements KeyValueClient {
 
 		HttpResponse httpResponse = rawClient.makeDeleteRequest(request);
 
+		return toVoidResponse(httpResponse);
+	}
+
+	@Override
+	public CompletableFuture<Response<Void>> deleteKVValuesAsync(String key, String token, QueryParams queryParams) {
+		UrlParameters recurseParam = new SingleUrlParameters("recurse");
+
+		Request request = Request.Builder.newBuilder()
+			.setEndpoint("/v1/kv/" + key)
+			.setToken(token)
+			.addUrlParameter(recurseParam)
+			.addUrlParameter(queryParams)
+			.build();
+
+		return Futures.thenApply(rawClient.makeDeleteRequestAsync(request),
+			KeyValueConsulClient::toVoidResponse);
+	}
+
+	private static Response<Void> toVoidResponse(HttpResponse httpResponse) {
 		if (httpResponse.getStatusCode() == 200) {
 			return new Response<>(null, httpResponse);
 		} else {
@@ -0,0 +1,114 @@
+package com.ecwid.consul.v1.kv.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A KV value as Consul sends it, base64 encoded. It's decoded on first access only, so listing a prefix just to look at
+ * keys and indexes doesn't pay for decoding the values.
+ * <p>
+ * Only one representation is kept: once decoded, the base64 string is dropped, so {@link #getEncoded()} allocates a new
+ * string on every call. Equality is defined by the decoded bytes and doesn't depend on the representation.
+ */
+public final class Base64Value {
+
+	// exactly one of them is set; decoded is written before encoded is cleared, so a reader always finds one
+	private volatile String encoded;
+	private volatile byte[] decoded;
+
+	private Base64Value(String encoded, byte[] decoded) {
+		this.encoded = encoded;
+		this.decoded = decoded;
+	}
+
+	/**
+	 * @return value for the given base64 string, or {@code null} if it's {@code null}
+	 */
+	public static Base64Value fromEncoded(String encoded) {
+		return encoded == null ? null : new Base64Value(encoded, null);
+	}
+
+	/**
+	 * @return value for the given bytes, or {@code null} if they're {@code null}. The array is not copied.
+	 */
+	public static Base64Value fromBytes(byte[] bytes) {
+		return bytes == null ? null : new Base64Value(null, bytes);
+	}
+
+	/**
+	 * @return the base64 string, encoded on every call once the value is decoded
+	 */
+	public String getEncoded() {
+		String encoded = this.encoded;
+		return encoded != null ? encoded : Base64.getEncoder().encodeToString(decoded);
+	}
+
+	/**
+	 * @return the decoded bytes. The array is decoded once and shared by all callers, so it must not be modified.
+	 */
+	public byte[] getBytes() {
+		byte[] decoded = this.decoded;
+		if (decoded == null) {
+			String encoded = this.encoded;
+			// another thread may have decoded it in the meantime
+			decoded = encoded != null ? Base64.getDecoder().decode(encoded) : this.decoded;
+			this.decoded = decoded;
+			this.encoded = null;
+		}
+		return decoded;
+	}
+
+	/**
+	 * @return read-only view of the decoded bytes
+	 */
+	public ByteBuffer asByteBuffer() {
+		return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+	}
+
+	public String toString(Charset charset) {
+		return new String(getBytes(), charset);
+	}
+
+	/**
+	 * @return length of the decoded value, without decoding it
+	 */
+	public int length() {
+		String encoded = this.encoded;
+		if (encoded == null) {
+			return decoded.length;
+		}
+
+		int length = encoded.length();
+		int padding = 0;
+		while (padding < 2 && length - padding > 0 && encoded.charAt(length - padding - 1) == '=') {
+			padding++;
+		}
+		return (length / 4) * 3 + Math.max(0, (length % 4) - 1) - padding;
+	}
+
+	public boolean isDecoded() {
+		return decoded != null;
+	}
+
+	/**
+	 * Compares the decoded bytes, decoding both values if needed.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		return Arrays.equals(getBytes(), ((Base64Value) o).getBytes());
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(getBytes());
+	}
+
+	@Override
+	public String toString() {
+		return getEncoded();
+	}
+}
@@ -1,9 +1,10 @@
 package com.ecwid.consul.v1.kv.model;
 
-import com.ecwid.consul.json.Base64TypeAdapter;
+import com.ecwid.consul.json.Base64ValueTypeAdapter;
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -30,8 +31,8 @@ public class GetBinaryValue {
 	private String key;
 
 	@SerializedName("Value")
-	@JsonAdapter(Base64TypeAdapter.class)
-	private byte[] value;
+	@JsonAdapter(Base64ValueTypeAdapter.class)
+	private Base64Value value;
 
 	public long getCreateIndex() {
 		return createIndex;
@@ -81,11 +82,29 @@ public class GetBinaryValue {
 		this.key = key;
 	}
 
+	/**
+	 * @return the decoded value, it's decoded on the first call
+	 */
 	public byte[] getValue() {
-		return value;
+		return value == null ? null : value.getBytes();
 	}
 
 	public void setValue(byte[] value) {
+		this.value = Base64Value.fromBytes(value);
+	}
+
+	/**
+	 * @return read-only view of the decoded value
+	 */
+	public ByteBuffer getValueAsByteBuffer() {
+		return value == null ? null : value.asByteBuffer();
+	}
+
+	public Base64Value getBase64Value() {
+		return value;
+	}
+
+	public void setBase64Value(Base64Value value) {
 		this.value = value;
 	}
 
@@ -98,7 +117,7 @@ public class GetBinaryValue {
 				", flags=" + flags +
 				", session='" + session + '\'' +
 				", key='" + key + '\'' +
-				", value=" + Arrays.toString(value) +
+				", value=" + Arrays.toString(getValue()) +
 				'}';
 	}
 }
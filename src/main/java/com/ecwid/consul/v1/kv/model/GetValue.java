@@ -1,9 +1,11 @@
 package com.ecwid.consul.v1.kv.model;
 
+import com.ecwid.consul.json.Base64ValueTypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.util.Base64;
 
 /**
  * @author Vasily Vasilkov (vgv@ecwid.com)
@@ -30,8 +32,10 @@ public class GetValue {
 	@SerializedName("Key")
 	private String key;
 
+	// decoded once, on first access
 	@SerializedName("Value")
-	private String value;
+	@JsonAdapter(Base64ValueTypeAdapter.class)
+	private Base64Value value;
 
 	public long getCreateIndex() {
 		return createIndex;
@@ -81,12 +85,20 @@ public class GetValue {
 		this.key = key;
 	}
 
+	/**
+	 * @return the base64 encoded value. Once the value is decoded, every call encodes it again and allocates a new
+	 * string, see {@link Base64Value#getEncoded()}
+	 */
 	public String getValue() {
-		return value;
+		return value == null ? null : value.getEncoded();
 	}
 
 	public void setValue(String value) {
-		this.value = value;
+		this.value = Base64Value.fromEncoded(value);
+	}
+
+	public Base64Value getBase64Value() {
+		return value;
 	}
 
 	public String getDecodedValue(Charset charset) {
@@ -96,7 +108,14 @@ public class GetValue {
 		if (charset == null) {
 			charset = UTF_8;
 		}
-		return new String(Base64.getDecoder().decode(value), charset);
+		return value.toString(charset);
+	}
+
+	/**
+	 * @return read-only view of the decoded value
+	 */
+	public ByteBuffer getDecodedValueAsByteBuffer() {
+		return value == null ? null : value.asByteBuffer();
 	}
 
 	public String getDecodedValue() {
@@ -112,7 +131,7 @@ public class GetValue {
 				", flags=" + flags +
 				", session='" + session + '\'' +
 				", key='" + key + '\'' +
-				", value='" + value + '\'' +
+				", value='" + getValue() + '\'' +
 				'}';
 	}
 }
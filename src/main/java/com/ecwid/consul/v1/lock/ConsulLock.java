@@ -0,0 +1,227 @@
+package com.ecwid.consul.v1.lock;
+
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.KeyValueClient;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.kv.model.PutParams;
+import com.ecwid.consul.v1.session.ManagedSession;
+import com.ecwid.consul.v1.session.SessionManager;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mutual exclusion across processes on a single KV key, acquired with a session.
+ * <p>
+ * While the lock is held by somebody else, {@link #acquire(long, TimeUnit)} waits with a blocking query on the key
+ * instead of polling, so a release is noticed within one round trip. After the holder's session was invalidated Consul
+ * refuses the lock for the session's lock delay; the waiter then sleeps for the lock delay instead of retrying in a loop.
+ * <p>
+ * The lock owns a session of the {@link SessionManager}, which is renewed on the manager's shared scheduler. The lock is
+ * lost when the session is invalidated, check {@link #isHeld()} before acting on it. A lock instance is meant to be
+ * used by one thread at a time.
+ */
+public final class ConsulLock implements AutoCloseable {
+
+	public static final long DEFAULT_WAIT_TIME = 300; // seconds
+
+	public static final class Builder {
+		private final KeyValueClient keyValueClient;
+		private final SessionManager sessionManager;
+		private final String key;
+		private String value = "";
+		private long waitTime = DEFAULT_WAIT_TIME;
+		private ManagedSession session;
+
+		private Builder(KeyValueClient keyValueClient, SessionManager sessionManager, String key) {
+			this.keyValueClient = keyValueClient;
+			this.sessionManager = sessionManager;
+			this.key = key;
+		}
+
+		/**
+		 * @param value value stored in the key while the lock is held, e.g. the holder's address; empty by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setValue(String value) {
+			this.value = value;
+			return this;
+		}
+
+		/**
+		 * @param waitTime maximum duration of a single blocking query, in seconds
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setWaitTime(long waitTime) {
+			this.waitTime = waitTime;
+			return this;
+		}
+
+		/**
+		 * Acquires the lock with an existing session instead of creating one. The session is not destroyed by
+		 * {@link ConsulLock#close()}.
+		 *
+		 * @param session session of the holder
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setSession(ManagedSession session) {
+			this.session = session;
+			return this;
+		}
+
+		public ConsulLock build() {
+			Objects.requireNonNull(keyValueClient, "keyValueClient");
+			Objects.requireNonNull(sessionManager, "sessionManager");
+			Objects.requireNonNull(key, "key");
+			if (waitTime <= 0) {
+				throw new IllegalArgumentException("waitTime must be positive");
+			}
+			return new ConsulLock(keyValueClient, sessionManager, key, value, waitTime, session);
+		}
+	}
+
+	public static Builder newBuilder(KeyValueClient keyValueClient, SessionManager sessionManager, String key) {
+		return new Builder(keyValueClient, sessionManager, key);
+	}
+
+	private final KeyValueClient keyValueClient;
+	private final SessionManager sessionManager;
+	private final String key;
+	private final String value;
+	private final long waitTime;
+	private final boolean ownSession;
+
+	private volatile ManagedSession session;
+	private volatile boolean held;
+	// a managed session gets a new id when it is recreated, the lock stays bound to the one it was acquired with
+	private volatile String heldSessionId;
+
+	private ConsulLock(KeyValueClient keyValueClient, SessionManager sessionManager, String key, String value,
+			long waitTime, ManagedSession session) {
+		this.keyValueClient = keyValueClient;
+		this.sessionManager = sessionManager;
+		this.key = key;
+		this.value = value;
+		this.waitTime = waitTime;
+		this.session = session;
+		this.ownSession = session == null;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return true while the lock is acquired and its session is valid
+	 */
+	public boolean isHeld() {
+		ManagedSession current = session;
+		return held && current != null && current.isValid() && current.getId().equals(heldSessionId);
+	}
+
+	/**
+	 * Tries to acquire the lock once, without waiting.
+	 */
+	public synchronized boolean tryAcquire() {
+		if (isHeld()) {
+			return true;
+		}
+
+		String sessionId = session().getId();
+		PutParams putParams = new PutParams();
+		putParams.setAcquireSession(sessionId);
+		heldSessionId = sessionId;
+		held = Boolean.TRUE.equals(keyValueClient.setKVValue(key, value, sessionManager.getToken(), putParams).getValue());
+		return held;
+	}
+
+	/**
+	 * Waits until the lock is acquired.
+	 */
+	public void acquire() throws InterruptedException {
+		acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Waits until the lock is acquired or the timeout passes. The timeout has a resolution of a second.
+	 *
+	 * @return true if the lock was acquired
+	 */
+	public synchronized boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+		Deadline deadline = Deadline.after(timeout, unit);
+		long index = 0;
+		while (true) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (tryAcquire()) {
+				return true;
+			}
+			if (deadline.isExpired()) {
+				return false;
+			}
+
+			Response<GetValue> state = keyValueClient.getKVValue(key, sessionManager.getToken(), deadline.queryParams(index, waitTime));
+			GetValue current = state.getValue();
+			if (current != null && current.getSession() != null) {
+				// held by somebody else: the next read blocks until the key changes
+				Long consulIndex = state.getConsulIndex();
+				index = consulIndex != null ? consulIndex : 0;
+			} else if (index > 0) {
+				// released while blocking, try again right away
+				index = 0;
+			} else {
+				// free, but the acquisition failed: the previous holder was invalidated and the lock delay is running
+				deadline.sleep(TimeUnit.SECONDS.toMillis(Math.max(1, sessionManager.getLockDelay())));
+			}
+		}
+	}
+
+	/**
+	 * Releases the lock, the session is kept for the next acquisition.
+	 *
+	 * @return false if the lock was not held
+	 */
+	public synchronized boolean release() {
+		if (!isHeld()) {
+			held = false;
+			return false;
+		}
+		held = false;
+
+		PutParams putParams = new PutParams();
+		putParams.setReleaseSession(heldSessionId);
+		return Boolean.TRUE.equals(keyValueClient.setKVValue(key, value, sessionManager.getToken(), putParams).getValue());
+	}
+
+	/**
+	 * Releases the lock and destroys the session, unless it was given to the builder.
+	 */
+	@Override
+	public synchronized void close() {
+		try {
+			release();
+		} finally {
+			if (ownSession && session != null) {
+				session.close();
+				session = null;
+			}
+		}
+	}
+
+	private ManagedSession session() {
+		ManagedSession current = session;
+		if (current == null || !current.isValid()) {
+			if (!ownSession) {
+				throw new IllegalStateException("Session " + current.getId() + " of lock " + key + " is no longer valid");
+			}
+			if (current != null) {
+				// don't wait for the manager to replace it
+				current.close();
+			}
+			current = sessionManager.createSession("lock " + key);
+			session = current;
+		}
+		return current;
+	}
+}
@@ -0,0 +1,331 @@
+package com.ecwid.consul.v1.lock;
+
+import com.ecwid.consul.ConsulException;
+import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.KeyValueClient;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.kv.model.PutParams;
+import com.ecwid.consul.v1.session.ManagedSession;
+import com.ecwid.consul.v1.session.SessionManager;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets up to {@code limit} holders across processes in, following Consul's semaphore recipe.
+ * <p>
+ * Every contender registers the key {@code <prefix>/<session>} acquired with its session. The holders are stored in
+ * {@code <prefix>/.lock} and changed with check-and-set only; holders whose contender key lost its session are pruned by
+ * the next contender, so a crashed holder frees its slot once its session is invalidated. While the semaphore is full
+ * {@link #acquire(long, TimeUnit)} waits with a blocking query on the prefix instead of polling.
+ * <p>
+ * A semaphore instance is meant to be used by one thread at a time.
+ */
+public final class ConsulSemaphore implements AutoCloseable {
+
+	public static final long DEFAULT_WAIT_TIME = 300; // seconds
+
+	static final String LOCK_KEY = ".lock";
+
+	public static final class Builder {
+		private final KeyValueClient keyValueClient;
+		private final SessionManager sessionManager;
+		private final String prefix;
+		private final int limit;
+		private String value = "";
+		private long waitTime = DEFAULT_WAIT_TIME;
+		private ManagedSession session;
+
+		private Builder(KeyValueClient keyValueClient, SessionManager sessionManager, String prefix, int limit) {
+			this.keyValueClient = keyValueClient;
+			this.sessionManager = sessionManager;
+			this.prefix = prefix;
+			this.limit = limit;
+		}
+
+		/**
+		 * @param value value of the contender key, e.g. the holder's address; empty by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setValue(String value) {
+			this.value = value;
+			return this;
+		}
+
+		/**
+		 * @param waitTime maximum duration of a single blocking query, in seconds
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setWaitTime(long waitTime) {
+			this.waitTime = waitTime;
+			return this;
+		}
+
+		/**
+		 * Contends with an existing session instead of creating one. The session is not destroyed by
+		 * {@link ConsulSemaphore#close()}.
+		 *
+		 * @param session session of the holder
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setSession(ManagedSession session) {
+			this.session = session;
+			return this;
+		}
+
+		public ConsulSemaphore build() {
+			Objects.requireNonNull(keyValueClient, "keyValueClient");
+			Objects.requireNonNull(sessionManager, "sessionManager");
+			Objects.requireNonNull(prefix, "prefix");
+			if (limit <= 0) {
+				throw new IllegalArgumentException("limit must be positive");
+			}
+			if (waitTime <= 0) {
+				throw new IllegalArgumentException("waitTime must be positive");
+			}
+			String normalizedPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+			return new ConsulSemaphore(keyValueClient, sessionManager, normalizedPrefix, limit, value, waitTime, session);
+		}
+	}
+
+	/**
+	 * @param prefix KV prefix of the semaphore, shared by all its contenders
+	 * @param limit  maximum number of holders, must be the same for all contenders
+	 */
+	public static Builder newBuilder(KeyValueClient keyValueClient, SessionManager sessionManager, String prefix, int limit) {
+		return new Builder(keyValueClient, sessionManager, prefix, limit);
+	}
+
+	// content of the .lock key, the same as written by the Consul CLI and the Go API
+	private static final class SemaphoreLock {
+		@SerializedName("Limit")
+		private int limit;
+
+		@SerializedName("Holders")
+		private Map<String, Boolean> holders;
+	}
+
+	private static final long ACQUIRED = -1;
+
+	private final KeyValueClient keyValueClient;
+	private final SessionManager sessionManager;
+	private final String prefix;
+	private final int limit;
+	private final String value;
+	private final long waitTime;
+	private final boolean ownSession;
+
+	private volatile ManagedSession session;
+	private volatile boolean held;
+	// a managed session gets a new id when it is recreated, the slot stays bound to the one it was taken with
+	private volatile String heldSessionId;
+	private String contenderSessionId;
+
+	private ConsulSemaphore(KeyValueClient keyValueClient, SessionManager sessionManager, String prefix, int limit,
+			String value, long waitTime, ManagedSession session) {
+		this.keyValueClient = keyValueClient;
+		this.sessionManager = sessionManager;
+		this.prefix = prefix;
+		this.limit = limit;
+		this.value = value;
+		this.waitTime = waitTime;
+		this.session = session;
+		this.ownSession = session == null;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return true while a slot is held and the session is valid
+	 */
+	public boolean isHeld() {
+		ManagedSession current = session;
+		return held && current != null && current.isValid() && current.getId().equals(heldSessionId);
+	}
+
+	/**
+	 * Tries to take a slot once, without waiting for a free one.
+	 */
+	public synchronized boolean tryAcquire() {
+		return attempt() == ACQUIRED;
+	}
+
+	/**
+	 * Waits until a slot is taken.
+	 */
+	public void acquire() throws InterruptedException {
+		acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Waits until a slot is taken or the timeout passes. The timeout has a resolution of a second.
+	 *
+	 * @return true if a slot was taken
+	 */
+	public synchronized boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+		Deadline deadline = Deadline.after(timeout, unit);
+		while (true) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			long index = attempt();
+			if (index == ACQUIRED) {
+				return true;
+			}
+			if (deadline.isExpired()) {
+				return false;
+			}
+
+			// block until a holder or contender changes
+			keyValueClient.getKVKeysOnly(prefix, null, sessionManager.getToken(), deadline.queryParams(index, waitTime));
+		}
+	}
+
+	/**
+	 * Gives the slot back, the session is kept for the next acquisition.
+	 *
+	 * @return false if no slot was held
+	 */
+	public synchronized boolean release() {
+		boolean wasHeld = isHeld();
+		held = false;
+
+		if (wasHeld) {
+			while (true) {
+				GetValue lockEntry = keyValueClient.getKVValue(prefix + LOCK_KEY, sessionManager.getToken()).getValue();
+				SemaphoreLock lock = decode(lockEntry);
+				if (lock.holders.remove(heldSessionId) == null || casLock(lock, lockEntry)) {
+					break;
+				}
+			}
+		}
+
+		if (contenderSessionId != null) {
+			keyValueClient.deleteKVValue(prefix + contenderSessionId, sessionManager.getToken());
+			contenderSessionId = null;
+		}
+		return wasHeld;
+	}
+
+	/**
+	 * Gives the slot back and destroys the session, unless it was given to the builder.
+	 */
+	@Override
+	public synchronized void close() {
+		try {
+			release();
+		} finally {
+			if (ownSession && session != null) {
+				session.close();
+				session = null;
+			}
+		}
+	}
+
+	/**
+	 * @return {@link #ACQUIRED}, or the index of the state which left no free slot
+	 */
+	private long attempt() {
+		if (isHeld()) {
+			return ACQUIRED;
+		}
+		held = false;
+
+		String sessionId = session().getId();
+		if (!sessionId.equals(contenderSessionId)) {
+			PutParams putParams = new PutParams();
+			putParams.setAcquireSession(sessionId);
+			if (!Boolean.TRUE.equals(keyValueClient.setKVValue(prefix + sessionId, value, sessionManager.getToken(), putParams).getValue())) {
+				throw new ConsulException("Failed to register contender " + prefix + sessionId);
+			}
+			contenderSessionId = sessionId;
+		}
+
+		while (true) {
+			Response<List<GetValue>> state = keyValueClient.getKVValues(prefix, sessionManager.getToken(), QueryParams.DEFAULT);
+			Set<String> liveSessions = new HashSet<>();
+			GetValue lockEntry = null;
+			if (state.getValue() != null) {
+				for (GetValue entry : state.getValue()) {
+					if (entry.getKey().equals(prefix + LOCK_KEY)) {
+						lockEntry = entry;
+					} else if (entry.getSession() != null) {
+						liveSessions.add(entry.getSession());
+					}
+				}
+			}
+
+			SemaphoreLock lock = decode(lockEntry);
+			lock.holders.keySet().retainAll(liveSessions);
+			heldSessionId = sessionId;
+			if (lock.holders.containsKey(sessionId)) {
+				held = true;
+				return ACQUIRED;
+			}
+			if (lock.holders.size() >= limit) {
+				Long consulIndex = state.getConsulIndex();
+				return consulIndex != null ? consulIndex : 0;
+			}
+
+			lock.holders.put(sessionId, Boolean.TRUE);
+			if (casLock(lock, lockEntry)) {
+				held = true;
+				return ACQUIRED;
+			}
+			// somebody else changed the holders in between, start over from the new state
+		}
+	}
+
+	private SemaphoreLock decode(GetValue lockEntry) {
+		SemaphoreLock lock = null;
+		if (lockEntry != null && lockEntry.getDecodedValue() != null) {
+			lock = GsonFactory.getGson().fromJson(lockEntry.getDecodedValue(), SemaphoreLock.class);
+		}
+		if (lock == null) {
+			lock = new SemaphoreLock();
+			lock.limit = limit;
+		}
+		if (lock.limit != limit) {
+			throw new ConsulException("Semaphore " + prefix + " has limit " + lock.limit + ", expected " + limit);
+		}
+		lock.holders = lock.holders != null ? new LinkedHashMap<>(lock.holders) : new LinkedHashMap<>();
+		return lock;
+	}
+
+	private boolean casLock(SemaphoreLock lock, GetValue lockEntry) {
+		PutParams putParams = new PutParams();
+		putParams.setCas(lockEntry != null ? lockEntry.getModifyIndex() : 0L);
+		String json = GsonFactory.getGson().toJson(lock);
+		return Boolean.TRUE.equals(keyValueClient.setKVValue(prefix + LOCK_KEY, json, sessionManager.getToken(), putParams).getValue());
+	}
+
+	private ManagedSession session() {
+		ManagedSession current = session;
+		if (current == null || !current.isValid()) {
+			if (!ownSession) {
+				throw new IllegalStateException("Session " + current.getId() + " of semaphore " + prefix + " is no longer valid");
+			}
+			if (current != null) {
+				// don't wait for the manager to replace it
+				current.close();
+			}
+			current = sessionManager.createSession("semaphore " + prefix);
+			session = current;
+		}
+		return current;
+	}
+}
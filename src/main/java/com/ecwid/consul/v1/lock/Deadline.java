@@ -0,0 +1,64 @@
+package com.ecwid.consul.v1.lock;
+
+import com.ecwid.consul.v1.QueryParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time left for an acquisition, and the blocking queries which fit into it.
+ */
+final class Deadline {
+
+	private final long deadlineNanos;
+	private final boolean unbounded;
+
+	private Deadline(long deadlineNanos, boolean unbounded) {
+		this.deadlineNanos = deadlineNanos;
+		this.unbounded = unbounded;
+	}
+
+	static Deadline after(long timeout, TimeUnit unit) {
+		long timeoutNanos = unit.toNanos(timeout);
+		return new Deadline(System.nanoTime() + timeoutNanos, timeoutNanos == Long.MAX_VALUE);
+	}
+
+	long remainingNanos() {
+		return unbounded ? Long.MAX_VALUE : deadlineNanos - System.nanoTime();
+	}
+
+	boolean isExpired() {
+		return remainingNanos() <= 0;
+	}
+
+	/**
+	 * @param index    index to block on, 0 to read the current state right away
+	 * @param waitTime maximum wait time of a single query, in seconds
+	 */
+	QueryParams queryParams(long index, long waitTime) {
+		if (index <= 0) {
+			return QueryParams.DEFAULT;
+		}
+		if (unbounded) {
+			return QueryParams.Builder.builder()
+					.setIndex(index)
+					.setWaitTime(waitTime)
+					.build();
+		}
+		// the wait time has a resolution of seconds, round up so short timeouts still block; no adding before the
+		// division, which overflows for deadlines far away
+		long remainingNanos = remainingNanos();
+		long secondNanos = TimeUnit.SECONDS.toNanos(1);
+		long remainingSeconds = remainingNanos / secondNanos + (remainingNanos % secondNanos > 0 ? 1 : 0);
+		return QueryParams.Builder.builder()
+				.setIndex(index)
+				.setWaitTime(Math.max(1, Math.min(waitTime, remainingSeconds)))
+				.build();
+	}
+
+	void sleep(long millis) throws InterruptedException {
+		long sleepNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(millis), remainingNanos());
+		if (sleepNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(sleepNanos);
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package com.ecwid.consul.v1.lock;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.KeyValueAsyncClient;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.kv.model.PutParams;
+import com.ecwid.consul.v1.session.ManagedSession;
+import com.ecwid.consul.v1.session.SessionManager;
+import com.ecwid.consul.v1.watch.Watch;
+import com.ecwid.consul.v1.watch.WatchListener;
+import com.ecwid.consul.v1.watch.WatchManager;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Elects one leader among all candidates of a KV key.
+ * <p>
+ * Every candidate watches the key with a blocking query of the {@link WatchManager} and tries to acquire it with its
+ * session as soon as it is free. When the leader's session is invalidated Consul releases the key, so the candidates
+ * learn about it from the very next watch result and the failover takes one blocking query round trip (plus the lock
+ * delay of the leader's session, set it to 0 for the fastest failover).
+ * <p>
+ * Leadership is confirmed by the watch: a candidate is leader once the key shows its session. The {@code ModifyIndex}
+ * of the key at that moment is the fencing token of the term; it comes from the Raft index of the acquisition, so it
+ * is greater than the token of every earlier term. Pass it along with the writes of the leader, so stale leaders can
+ * be rejected downstream.
+ */
+public final class LeaderElection implements AutoCloseable {
+
+	private static final Logger log = Logger.getLogger(LeaderElection.class.getName());
+
+	private static final long RETRY_DELAY = 1000; // milliseconds
+
+	public static final class Builder {
+		private final KeyValueAsyncClient keyValueClient;
+		private final SessionManager sessionManager;
+		private final WatchManager watchManager;
+		private final String key;
+		private String value = "";
+		private LeadershipListener listener;
+
+		private Builder(KeyValueAsyncClient keyValueClient, SessionManager sessionManager, WatchManager watchManager, String key) {
+			this.keyValueClient = keyValueClient;
+			this.sessionManager = sessionManager;
+			this.watchManager = watchManager;
+			this.key = key;
+		}
+
+		/**
+		 * @param value value stored in the key while this candidate leads, e.g. its address; empty by default
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setValue(String value) {
+			this.value = value;
+			return this;
+		}
+
+		public Builder setListener(LeadershipListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		public LeaderElection build() {
+			Objects.requireNonNull(keyValueClient, "keyValueClient");
+			Objects.requireNonNull(sessionManager, "sessionManager");
+			Objects.requireNonNull(watchManager, "watchManager");
+			Objects.requireNonNull(key, "key");
+			Objects.requireNonNull(value, "value");
+			return new LeaderElection(keyValueClient, sessionManager, watchManager, key, value, listener);
+		}
+	}
+
+	public static Builder newBuilder(KeyValueAsyncClient keyValueClient, SessionManager sessionManager, WatchManager watchManager, String key) {
+		return new Builder(keyValueClient, sessionManager, watchManager, key);
+	}
+
+	private final KeyValueAsyncClient keyValueClient;
+	private final SessionManager sessionManager;
+	private final WatchManager watchManager;
+	private final String key;
+	private final String value;
+	private final LeadershipListener listener;
+
+	private volatile ManagedSession session;
+	private volatile boolean leader;
+	// a managed session gets a new id when it is recreated, the leadership stays bound to the one it was won with
+	private volatile String leaderSessionId;
+	private volatile long fencingToken;
+	private volatile String leaderValue;
+	private volatile boolean closed;
+
+	// guarded by this
+	private Watch<GetValue> watch;
+	private boolean acquiring;
+	private boolean free;
+
+	private LeaderElection(KeyValueAsyncClient keyValueClient, SessionManager sessionManager, WatchManager watchManager,
+			String key, String value, LeadershipListener listener) {
+		this.keyValueClient = keyValueClient;
+		this.sessionManager = sessionManager;
+		this.watchManager = watchManager;
+		this.key = key;
+		this.value = value;
+		this.listener = listener;
+	}
+
+	/**
+	 * Joins the election: creates the session of this candidate and starts watching the key.
+	 */
+	public synchronized void start() {
+		if (closed) {
+			throw new IllegalStateException("LeaderElection is closed");
+		}
+		if (watch != null) {
+			return;
+		}
+
+		session = sessionManager.createSession("leader " + key);
+		watch = watchManager.watchKVValue(key, sessionManager.getToken(), QueryParams.DEFAULT, new WatchListener<GetValue>() {
+			@Override
+			public void onUpdate(Response<GetValue> response) {
+				update(response.getValue());
+			}
+		});
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return true while this candidate is the leader and its session is valid; a volatile read, cheap enough to be
+	 * checked before every leader-only action
+	 */
+	public boolean isLeader() {
+		ManagedSession current = session;
+		return leader && current != null && current.isValid() && current.getId().equals(leaderSessionId);
+	}
+
+	/**
+	 * @return fencing token of the current term, or 0 if this candidate is not the leader
+	 */
+	public long getFencingToken() {
+		return isLeader() ? fencingToken : 0;
+	}
+
+	/**
+	 * @return value of the current leader, or {@code null} if there is none
+	 */
+	public String getLeaderValue() {
+		return leaderValue;
+	}
+
+	/**
+	 * Leaves the election, releasing the key if this candidate leads.
+	 */
+	@Override
+	public void close() {
+		Watch<GetValue> currentWatch;
+		ManagedSession currentSession;
+		boolean wasLeader;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			currentWatch = watch;
+			currentSession = session;
+			wasLeader = leader;
+			leader = false;
+		}
+
+		if (currentWatch != null) {
+			currentWatch.close();
+		}
+		if (currentSession != null) {
+			// destroying the session releases the key
+			currentSession.close();
+		}
+		if (wasLeader) {
+			notifyRevoked();
+		}
+	}
+
+	// -------------------------------------------------------------------------------
+
+	private void update(GetValue entry) {
+		String holder = entry != null ? entry.getSession() : null;
+		leaderValue = holder != null ? entry.getDecodedValue() : null;
+
+		boolean elected = false;
+		boolean revoked = false;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+
+			ManagedSession current = session;
+			boolean ours = holder != null && current != null && current.isValid() && holder.equals(current.getId());
+			if (leader && !(ours && holder.equals(leaderSessionId))) {
+				leader = false;
+				revoked = true;
+			}
+			if (ours && !leader) {
+				leaderSessionId = holder;
+				fencingToken = entry.getModifyIndex();
+				leader = true;
+				elected = true;
+			}
+
+			free = holder == null;
+			if (free) {
+				tryAcquire();
+			}
+		}
+
+		if (revoked) {
+			notifyRevoked();
+		}
+		if (elected) {
+			log.fine(() -> "Elected as leader of " + key + " with fencing token " + fencingToken);
+			notifyElected();
+		}
+	}
+
+	// guarded by this
+	private void tryAcquire() {
+		if (closed || acquiring) {
+			return;
+		}
+		acquiring = true;
+
+		ManagedSession current = session;
+		CompletableFuture<ManagedSession> sessionFuture = current != null && current.isValid()
+				? CompletableFuture.completedFuture(current)
+				// the previous session was invalidated, creating a new one is a blocking call
+				: CompletableFuture.supplyAsync(() -> sessionManager.createSession("leader " + key));
+
+		sessionFuture.thenCompose(acquiringSession -> {
+			if (closed) {
+				if (acquiringSession != current) {
+					acquiringSession.close();
+				}
+				throw new IllegalStateException("LeaderElection is closed");
+			}
+			if (current != null && acquiringSession != current) {
+				// don't wait for the manager to replace it
+				current.close();
+			}
+			session = acquiringSession;
+			PutParams putParams = new PutParams();
+			putParams.setAcquireSession(acquiringSession.getId());
+			return keyValueClient.setKVValueAsync(key, value, sessionManager.getToken(), putParams, QueryParams.DEFAULT);
+		}).whenComplete((response, throwable) -> {
+			synchronized (this) {
+				acquiring = false;
+				if (closed) {
+					return;
+				}
+				if (throwable == null && Boolean.TRUE.equals(response.getValue())) {
+					// the watch confirms the leadership with the next result
+					return;
+				}
+			}
+
+			long delay = RETRY_DELAY;
+			if (throwable != null) {
+				log.log(Level.FINE, throwable, () -> "Failed to acquire " + key + ", retrying in " + RETRY_DELAY + " ms");
+			} else {
+				// the key is free but refused: the lock delay of the previous leader's session is running
+				delay = Math.max(RETRY_DELAY, TimeUnit.SECONDS.toMillis(sessionManager.getLockDelay()));
+			}
+			CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(this::retry);
+		});
+	}
+
+	private synchronized void retry() {
+		if (free) {
+			tryAcquire();
+		}
+	}
+
+	private void notifyElected() {
+		if (listener == null) {
+			return;
+		}
+		try {
+			listener.onElected(fencingToken);
+		} catch (RuntimeException e) {
+			log.log(Level.WARNING, "Leadership listener failed", e);
+		}
+	}
+
+	private void notifyRevoked() {
+		if (listener == null) {
+			return;
+		}
+		try {
+			listener.onRevoked();
+		} catch (RuntimeException e) {
+			log.log(Level.WARNING, "Leadership listener failed", e);
+		}
+	}
+}
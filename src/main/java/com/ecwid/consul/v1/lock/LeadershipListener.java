@@ -0,0 +1,21 @@
+package com.ecwid.consul.v1.lock;
+
+/**
+ * Receives leadership changes of a {@link LeaderElection}.
+ * <p>
+ * Callbacks are invoked on the {@link com.ecwid.consul.v1.watch.WatchManager} scheduler threads and should return
+ * quickly.
+ */
+public interface LeadershipListener {
+
+	/**
+	 * @param fencingToken token of this term, greater than the token of any earlier leader of the key
+	 */
+	public void onElected(long fencingToken);
+
+	/**
+	 * Called when the leadership is lost or given up.
+	 */
+	public void onRevoked();
+
+}
@@ -0,0 +1,121 @@
+package com.ecwid.consul.v1.session;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A session created by a {@link SessionManager}, which keeps renewing it until it is closed.
+ * <p>
+ * If Consul invalidates the session, the manager may replace it with a new one of the same name, so the
+ * {@link #getId() id} can change over the lifetime of the object. Locks are bound to the id they were acquired with.
+ */
+public final class ManagedSession implements AutoCloseable {
+
+	private static final Logger log = Logger.getLogger(ManagedSession.class.getName());
+
+	private final SessionManager manager;
+	private final String name;
+	private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile String id;
+	private volatile boolean valid = true;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	// owned by the manager, guarded by its renewal queue
+	long nextRenewalNanos;
+	int failures;
+
+	ManagedSession(SessionManager manager, String id, String name) {
+		this.manager = manager;
+		this.id = id;
+		this.name = name;
+	}
+
+	/**
+	 * @return id of the current session
+	 */
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return false once the session was closed, or while an invalidated session is not replaced yet; locks acquired
+	 * with an invalid session are no longer held
+	 */
+	public boolean isValid() {
+		return valid && !closed.get();
+	}
+
+	public boolean isClosed() {
+		return closed.get();
+	}
+
+	public void addListener(SessionListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(SessionListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Stops the renewals and destroys the session, releasing all locks acquired with it.
+	 */
+	@Override
+	public void close() {
+		manager.destroy(this);
+	}
+
+	// -------------------------------------------------------------------------------
+
+	/**
+	 * @return false if the session was already closed
+	 */
+	boolean markClosed() {
+		return closed.compareAndSet(false, true);
+	}
+
+	void invalidate() {
+		if (!valid) {
+			return;
+		}
+		valid = false;
+		String invalidatedId = id;
+		for (SessionListener listener : listeners) {
+			try {
+				listener.onInvalidated(invalidatedId);
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "Session listener failed", e);
+			}
+		}
+	}
+
+	void recreated(String newId) {
+		id = newId;
+		valid = true;
+		for (SessionListener listener : listeners) {
+			try {
+				listener.onRecreated(newId);
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "Session listener failed", e);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ManagedSession{" +
+				"id='" + id + '\'' +
+				", name='" + name + '\'' +
+				", valid=" + valid +
+				", closed=" + closed.get() +
+				'}';
+	}
+}
@@ -13,6 +13,7 @@ import com.ecwid.consul.v1.session.model.NewSession;
 import com.ecwid.consul.v1.session.model.Session;
 import com.google.gson.reflect.TypeToken;
 
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +22,8 @@ import java.util.Map;
  */
 public final class SessionConsulClient implements SessionClient {
 
+	private static final Type SESSION_LIST_TYPE = new TypeToken<List<Session>>() {}.getType();
+
 	private final ConsulRawClient rawClient;
 
 	public SessionConsulClient(ConsulRawClient rawClient) {
@@ -88,8 +91,7 @@ public final class SessionConsulClient implements SessionClient {
 		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/session/info/" + session, queryParams, tokenParam);
 
 		if (httpResponse.getStatusCode() == 200) {
-			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Session>>() {
-			}.getType());
+			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), SESSION_LIST_TYPE);
 
 			if (value == null || value.isEmpty()) {
 				return new Response<Session>(null, httpResponse);
@@ -114,8 +116,7 @@ public final class SessionConsulClient implements SessionClient {
 		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/session/node/" + node, queryParams, tokenParam);
 
 		if (httpResponse.getStatusCode() == 200) {
-			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Session>>() {
-			}.getType());
+			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), SESSION_LIST_TYPE);
 			return new Response<List<Session>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -133,8 +134,7 @@ public final class SessionConsulClient implements SessionClient {
 		HttpResponse httpResponse = rawClient.makeGetRequest("/v1/session/list", queryParams, tokenParam);
 
 		if (httpResponse.getStatusCode() == 200) {
-			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Session>>() {
-			}.getType());
+			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), SESSION_LIST_TYPE);
 			return new Response<List<Session>>(value, httpResponse);
 		} else {
 			throw new OperationException(httpResponse);
@@ -151,8 +151,7 @@ public final class SessionConsulClient implements SessionClient {
 		HttpResponse httpResponse = rawClient.makePutRequest("/v1/session/renew/" + session, "", queryParams, tokenParam);
 
 		if (httpResponse.getStatusCode() == 200) {
-			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), new TypeToken<List<Session>>() {
-			}.getType());
+			List<Session> value = GsonFactory.getGson().fromJson(httpResponse.getContent(), SESSION_LIST_TYPE);
 
 			if (value.size() == 1) {
 				return new Response<Session>(value.get(0), httpResponse);
@@ -0,0 +1,26 @@
+package com.ecwid.consul.v1.session;
+
+/**
+ * Receives lifecycle events of a {@link ManagedSession}.
+ * <p>
+ * Callbacks are invoked on the renewal threads of the {@link SessionManager} and should return quickly.
+ */
+public interface SessionListener {
+
+	/**
+	 * Called when Consul invalidated the session, e.g. because renewals didn't make it within the TTL. All locks
+	 * acquired with it are lost.
+	 *
+	 * @param sessionId id of the invalidated session
+	 */
+	public void onInvalidated(String sessionId);
+
+	/**
+	 * Called when the manager replaced an invalidated session with a new one. Locks have to be acquired again.
+	 *
+	 * @param sessionId id of the new session
+	 */
+	public default void onRecreated(String sessionId) {
+	}
+
+}
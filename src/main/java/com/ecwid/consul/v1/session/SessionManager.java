@@ -0,0 +1,440 @@
+package com.ecwid.consul.v1.session;
+
+import com.ecwid.consul.BoundedDrainQueue;
+import com.ecwid.consul.ConsulException;
+import com.ecwid.consul.v1.OperationException;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.session.model.NewSession;
+import com.ecwid.consul.v1.session.model.Session;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates TTL sessions and keeps them alive.
+ * <p>
+ * All sessions of a manager share one renewal timer: a single task ticks every {@code tickMillis} and hands the due
+ * sessions to at most {@code maxConcurrentRenewals} renewal threads, so ten thousand sessions cost neither ten thousand
+ * scheduled tasks nor a burst of ten thousand concurrent requests. Every session is renewed after
+ * {@code renewRatio} of its TTL minus a random jitter, which keeps sessions created at once from being renewed in
+ * lockstep. A failed renewal is retried with exponential backoff, bounded by the renewal interval.
+ * <p>
+ * A session which Consul no longer knows (it expired or was destroyed elsewhere) is marked
+ * {@link ManagedSession#isValid() invalid} and, unless disabled, replaced with a new session of the same name.
+ */
+public final class SessionManager implements AutoCloseable {
+
+	private static final Logger log = Logger.getLogger(SessionManager.class.getName());
+
+	public static final long DEFAULT_TTL = 15; // seconds
+	public static final long DEFAULT_LOCK_DELAY = 15; // seconds
+	public static final double DEFAULT_RENEW_RATIO = 0.5;
+	public static final double DEFAULT_JITTER = 0.2;
+	public static final int DEFAULT_MAX_CONCURRENT_RENEWALS = 4;
+	public static final long DEFAULT_TICK = 100; // milliseconds
+	public static final long DEFAULT_MIN_RETRY_DELAY = 500; // milliseconds
+
+	public static final class Builder {
+		private final SessionClient sessionClient;
+		private long ttl = DEFAULT_TTL;
+		private long lockDelay = DEFAULT_LOCK_DELAY;
+		private Session.Behavior behavior = Session.Behavior.RELEASE;
+		private String token;
+		private double renewRatio = DEFAULT_RENEW_RATIO;
+		private double jitter = DEFAULT_JITTER;
+		private boolean recreateInvalidated = true;
+		private int maxConcurrentRenewals = DEFAULT_MAX_CONCURRENT_RENEWALS;
+		private long tickMillis = DEFAULT_TICK;
+		private long minRetryDelayMillis = DEFAULT_MIN_RETRY_DELAY;
+		private ScheduledExecutorService scheduler;
+		private ExecutorService executor;
+
+		private Builder(SessionClient sessionClient) {
+			this.sessionClient = sessionClient;
+		}
+
+		/**
+		 * @param ttl session TTL in seconds; Consul invalidates a session which is not renewed within twice the TTL
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setTtl(long ttl) {
+			this.ttl = ttl;
+			return this;
+		}
+
+		/**
+		 * @param lockDelay time in seconds for which locks of an invalidated session can't be acquired again
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setLockDelay(long lockDelay) {
+			this.lockDelay = lockDelay;
+			return this;
+		}
+
+		public Builder setBehavior(Session.Behavior behavior) {
+			this.behavior = behavior;
+			return this;
+		}
+
+		public Builder setToken(String token) {
+			this.token = token;
+			return this;
+		}
+
+		/**
+		 * @param renewRatio share of the TTL after which a session is renewed, in (0, 1)
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setRenewRatio(double renewRatio) {
+			this.renewRatio = renewRatio;
+			return this;
+		}
+
+		/**
+		 * @param jitter share of the renewal interval by which a renewal comes early at random, in [0, 1)
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setJitter(double jitter) {
+			this.jitter = jitter;
+			return this;
+		}
+
+		/**
+		 * @param recreateInvalidated whether to replace sessions which Consul invalidated with new ones
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setRecreateInvalidated(boolean recreateInvalidated) {
+			this.recreateInvalidated = recreateInvalidated;
+			return this;
+		}
+
+		/**
+		 * @param maxConcurrentRenewals maximum number of renewals in flight to Consul
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setMaxConcurrentRenewals(int maxConcurrentRenewals) {
+			this.maxConcurrentRenewals = maxConcurrentRenewals;
+			return this;
+		}
+
+		/**
+		 * @param tickMillis resolution of the renewal timer
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setTickMillis(long tickMillis) {
+			this.tickMillis = tickMillis;
+			return this;
+		}
+
+		public Builder setMinRetryDelayMillis(long minRetryDelayMillis) {
+			this.minRetryDelayMillis = minRetryDelayMillis;
+			return this;
+		}
+
+		/**
+		 * @param scheduler executor to run the renewal timer on. It is not shut down by {@link SessionManager#close()}.
+		 *                  By default the manager creates its own single daemon thread.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setScheduler(ScheduledExecutorService scheduler) {
+			this.scheduler = scheduler;
+			return this;
+		}
+
+		/**
+		 * @param executor executor to renew the sessions on. It is not shut down by {@link SessionManager#close()}.
+		 *                 By default the manager creates daemon threads as needed, up to the maximum of concurrent
+		 *                 renewals.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setExecutor(ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		public SessionManager build() {
+			Objects.requireNonNull(sessionClient, "sessionClient");
+			if (ttl <= 0) {
+				throw new IllegalArgumentException("ttl must be positive");
+			}
+			if (lockDelay < 0) {
+				throw new IllegalArgumentException("lockDelay must not be negative");
+			}
+			if (!(renewRatio > 0 && renewRatio < 1)) {
+				throw new IllegalArgumentException("renewRatio must be in (0, 1), got " + renewRatio);
+			}
+			if (!(jitter >= 0 && jitter < 1)) {
+				throw new IllegalArgumentException("jitter must be in [0, 1), got " + jitter);
+			}
+			if (maxConcurrentRenewals <= 0 || tickMillis <= 0 || minRetryDelayMillis <= 0) {
+				throw new IllegalArgumentException("maxConcurrentRenewals, tickMillis and minRetryDelayMillis must be positive");
+			}
+
+			boolean ownScheduler = scheduler == null;
+			boolean ownExecutor = executor == null;
+			return new SessionManager(this, ownScheduler ? BoundedDrainQueue.newDaemonScheduler("consul-session-timer") : scheduler, ownScheduler,
+					ownExecutor ? BoundedDrainQueue.newDaemonExecutor("consul-session") : executor, ownExecutor);
+		}
+	}
+
+	public static Builder newBuilder(SessionClient sessionClient) {
+		return new Builder(sessionClient);
+	}
+
+	private final SessionClient sessionClient;
+	private final long ttl;
+	private final long lockDelay;
+	private final Session.Behavior behavior;
+	private final String token;
+	private final long renewIntervalNanos;
+	private final double jitter;
+	private final boolean recreateInvalidated;
+	private final long minRetryDelayNanos;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownScheduler;
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+
+	private final Set<ManagedSession> sessions = ConcurrentHashMap.newKeySet();
+	// sessions waiting for their next renewal, a session is either here or in flight
+	private final PriorityQueue<ManagedSession> renewals = new PriorityQueue<>(Comparator.comparingLong(session -> session.nextRenewalNanos));
+	private final BoundedDrainQueue<ManagedSession> ready;
+
+	private final AtomicLong renewalCount = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+	private final AtomicLong recreationCount = new AtomicLong();
+
+	private final ScheduledFuture<?> timer;
+	private volatile boolean closed;
+
+	private SessionManager(Builder builder, ScheduledExecutorService scheduler, boolean ownScheduler,
+			ExecutorService executor, boolean ownExecutor) {
+		this.sessionClient = builder.sessionClient;
+		this.ttl = builder.ttl;
+		this.lockDelay = builder.lockDelay;
+		this.behavior = builder.behavior;
+		this.token = builder.token;
+		this.renewIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(builder.ttl) * builder.renewRatio);
+		this.jitter = builder.jitter;
+		this.recreateInvalidated = builder.recreateInvalidated;
+		this.minRetryDelayNanos = TimeUnit.MILLISECONDS.toNanos(builder.minRetryDelayMillis);
+		this.scheduler = scheduler;
+		this.ownScheduler = ownScheduler;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+		this.ready = new BoundedDrainQueue<>(executor, builder.maxConcurrentRenewals, this::renewOrRecreate);
+
+		this.timer = scheduler.scheduleAtFixedRate(this::onTimer, builder.tickMillis, builder.tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates a session and starts renewing it.
+	 *
+	 * @param name human-readable name of the session, e.g. the lock it is used for
+	 */
+	public ManagedSession createSession(String name) {
+		if (closed) {
+			throw new IllegalStateException("SessionManager is closed");
+		}
+
+		ManagedSession session = new ManagedSession(this, create(name), name);
+		sessions.add(session);
+		scheduleRenewal(session, System.nanoTime());
+		if (closed) {
+			destroy(session);
+			throw new IllegalStateException("SessionManager is closed");
+		}
+		return session;
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	public long getLockDelay() {
+		return lockDelay;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * @return number of sessions being renewed
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * @return number of successful renewals
+	 */
+	public long getRenewalCount() {
+		return renewalCount.get();
+	}
+
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * @return number of invalidated sessions which were replaced with new ones
+	 */
+	public long getRecreationCount() {
+		return recreationCount.get();
+	}
+
+	/**
+	 * Destroys all sessions of the manager.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		timer.cancel(false);
+		synchronized (renewals) {
+			renewals.clear();
+		}
+		for (ManagedSession session : new ArrayList<>(sessions)) {
+			destroy(session);
+		}
+
+		if (ownScheduler) {
+			scheduler.shutdownNow();
+		}
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	// -------------------------------------------------------------------------------
+
+	void destroy(ManagedSession session) {
+		if (!session.markClosed()) {
+			return;
+		}
+		sessions.remove(session);
+		synchronized (renewals) {
+			renewals.remove(session);
+		}
+
+		try {
+			sessionClient.sessionDestroy(session.getId(), QueryParams.DEFAULT, token);
+		} catch (ConsulException e) {
+			// it expires after the TTL anyway
+			log.log(Level.FINE, e, () -> "Failed to destroy " + session);
+		}
+	}
+
+	private String create(String name) {
+		NewSession newSession = new NewSession();
+		newSession.setName(name);
+		newSession.setTtl(ttl + "s");
+		newSession.setLockDelay(lockDelay);
+		newSession.setBehavior(behavior);
+		return sessionClient.sessionCreate(newSession, QueryParams.DEFAULT, token).getValue();
+	}
+
+	private void scheduleRenewal(ManagedSession session, long nowNanos) {
+		long jitterNanos = jitter == 0 ? 0 : ThreadLocalRandom.current().nextLong((long) (renewIntervalNanos * jitter) + 1);
+		schedule(session, nowNanos + renewIntervalNanos - jitterNanos);
+	}
+
+	private void schedule(ManagedSession session, long dueNanos) {
+		synchronized (renewals) {
+			if (session.isClosed()) {
+				return;
+			}
+			session.nextRenewalNanos = dueNanos;
+			renewals.add(session);
+		}
+	}
+
+	private void onTimer() {
+		try {
+			long now = System.nanoTime();
+			synchronized (renewals) {
+				for (ManagedSession session = renewals.peek(); session != null && session.nextRenewalNanos - now <= 0; session = renewals.peek()) {
+					ready.add(renewals.poll());
+				}
+			}
+			ready.startWorkers();
+		} catch (RuntimeException e) {
+			log.log(Level.WARNING, "Session renewal timer failed", e);
+		}
+	}
+
+	private void renewOrRecreate(ManagedSession session) {
+		if (session.isValid()) {
+			renew(session);
+		} else if (!session.isClosed()) {
+			recreate(session);
+		}
+	}
+
+	private void renew(ManagedSession session) {
+		long start = System.nanoTime();
+		try {
+			sessionClient.renewSession(session.getId(), QueryParams.DEFAULT, token);
+			renewalCount.incrementAndGet();
+			session.failures = 0;
+			scheduleRenewal(session, start);
+		} catch (OperationException e) {
+			if (e.getStatusCode() == 404) {
+				onInvalidated(session);
+			} else {
+				retry(session, e);
+			}
+		} catch (RuntimeException e) {
+			retry(session, e);
+		}
+	}
+
+	private void onInvalidated(ManagedSession session) {
+		log.warning(() -> "Consul invalidated " + session);
+		session.invalidate();
+		if (recreateInvalidated) {
+			schedule(session, System.nanoTime());
+		} else {
+			sessions.remove(session);
+			session.markClosed();
+		}
+	}
+
+	private void recreate(ManagedSession session) {
+		try {
+			String id = create(session.getName());
+			if (session.isClosed()) {
+				sessionClient.sessionDestroy(id, QueryParams.DEFAULT, token);
+				return;
+			}
+			session.failures = 0;
+			recreationCount.incrementAndGet();
+			session.recreated(id);
+			log.info(() -> "Replaced invalidated session " + session.getName() + " with " + id);
+			scheduleRenewal(session, System.nanoTime());
+		} catch (RuntimeException e) {
+			retry(session, e);
+		}
+	}
+
+	private void retry(ManagedSession session, RuntimeException e) {
+		failureCount.incrementAndGet();
+		int failures = ++session.failures;
+		long backoff = Math.min(renewIntervalNanos / 2, minRetryDelayNanos << Math.min(failures - 1, 20));
+		log.log(Level.FINE, e, () -> "Failed to renew " + session + " (" + failures + " in a row), retrying in "
+				+ TimeUnit.NANOSECONDS.toMillis(backoff) + " ms");
+		schedule(session, System.nanoTime() + backoff);
+	}
+}
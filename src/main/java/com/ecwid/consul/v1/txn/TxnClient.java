@@ -0,0 +1,29 @@
+package com.ecwid.consul.v1.txn;
+
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.txn.model.TxnResult;
+
+/**
+ * Transactions ({@code /v1/txn}): several KV, node, service and check operations applied atomically in one request.
+ */
+public interface TxnClient {
+
+	/**
+	 * Executes all operations of the request as one transaction. A rolled back transaction is not an exception:
+	 * check {@link TxnResult#isCommitted()} and {@link TxnResult#getErrors()}.
+	 */
+	public Response<TxnResult> txn(TxnRequest txnRequest);
+
+	/**
+	 * Same as {@link #txnChunked(TxnRequest, int)} with {@link TxnRequest#MAX_OPERATIONS}.
+	 */
+	public Response<TxnResult> txnChunked(TxnRequest txnRequest);
+
+	/**
+	 * Executes the operations as a sequence of transactions with at most {@code maxOperations} operations each, so
+	 * requests of any size can be sent. The request as a whole is NOT atomic: every chunk is committed separately and
+	 * the execution stops at the first rolled back chunk. Results are concatenated and {@link com.ecwid.consul.v1.txn.model.TxnError#getOpIndex()}
+	 * is relative to the whole request, so all operations before the failed chunk are committed.
+	 */
+	public Response<TxnResult> txnChunked(TxnRequest txnRequest, int maxOperations);
+}
@@ -0,0 +1,105 @@
+package com.ecwid.consul.v1.txn;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.TLSConfig;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.OperationException;
+import com.ecwid.consul.v1.Request;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.txn.model.TxnError;
+import com.ecwid.consul.v1.txn.model.TxnOperationResult;
+import com.ecwid.consul.v1.txn.model.TxnResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class TxnConsulClient implements TxnClient {
+
+	private final ConsulRawClient rawClient;
+
+	public TxnConsulClient(ConsulRawClient rawClient) {
+		this.rawClient = rawClient;
+	}
+
+	public TxnConsulClient() {
+		this(new ConsulRawClient());
+	}
+
+	public TxnConsulClient(TLSConfig tlsConfig) {
+		this(new ConsulRawClient(tlsConfig));
+	}
+
+	public TxnConsulClient(String agentHost) {
+		this(new ConsulRawClient(agentHost));
+	}
+
+	public TxnConsulClient(String agentHost, TLSConfig tlsConfig) {
+		this(new ConsulRawClient(agentHost, tlsConfig));
+	}
+
+	public TxnConsulClient(String agentHost, int agentPort) {
+		this(new ConsulRawClient(agentHost, agentPort));
+	}
+
+	public TxnConsulClient(String agentHost, int agentPort, TLSConfig tlsConfig) {
+		this(new ConsulRawClient(agentHost, agentPort, tlsConfig));
+	}
+
+	@Override
+	public Response<TxnResult> txn(TxnRequest txnRequest) {
+		Request request = Request.Builder.newBuilder()
+			.setEndpoint("/v1/txn")
+			.setToken(txnRequest.getToken())
+			.addUrlParameters(txnRequest.asUrlParameters())
+			.setContent(GsonFactory.getGson().toJson(txnRequest.getOperations()))
+			.build();
+
+		HttpResponse httpResponse = rawClient.makePutRequest(request);
+
+		// 409 means the transaction was rolled back, the body contains the errors
+		if (httpResponse.getStatusCode() == 200 || httpResponse.getStatusCode() == 409) {
+			TxnResult value = GsonFactory.getGson().fromJson(httpResponse.getContent(), TxnResult.class);
+			return new Response<TxnResult>(value, httpResponse);
+		} else {
+			throw new OperationException(httpResponse);
+		}
+	}
+
+	@Override
+	public Response<TxnResult> txnChunked(TxnRequest txnRequest) {
+		return txnChunked(txnRequest, TxnRequest.MAX_OPERATIONS);
+	}
+
+	@Override
+	public Response<TxnResult> txnChunked(TxnRequest txnRequest, int maxOperations) {
+		List<TxnRequest> chunks = txnRequest.split(maxOperations);
+		if (chunks.size() == 1) {
+			return txn(chunks.get(0));
+		}
+
+		List<TxnOperationResult> results = new ArrayList<>(txnRequest.getOperations().size());
+		Response<TxnResult> last = null;
+		int offset = 0;
+		for (TxnRequest chunk : chunks) {
+			last = txn(chunk);
+
+			TxnResult chunkResult = last.getValue();
+			if (!chunkResult.isCommitted()) {
+				List<TxnError> errors = new ArrayList<>(chunkResult.getErrors().size());
+				for (TxnError error : chunkResult.getErrors()) {
+					errors.add(new TxnError(error.getOpIndex() + offset, error.getWhat()));
+				}
+				return new Response<TxnResult>(new TxnResult(results, errors), last.getConsulIndex(),
+					last.isConsulKnownLeader(), last.getConsulLastContact());
+			}
+
+			results.addAll(chunkResult.getResults());
+			offset += chunk.getOperations().size();
+		}
+
+		return new Response<TxnResult>(new TxnResult(results, Collections.<TxnError>emptyList()), last.getConsulIndex(),
+			last.isConsulKnownLeader(), last.getConsulLastContact());
+	}
+}
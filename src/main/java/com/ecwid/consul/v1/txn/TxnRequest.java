@@ -0,0 +1,233 @@
+package com.ecwid.consul.v1.txn;
+
+import com.ecwid.consul.ConsulRequest;
+import com.ecwid.consul.SingleUrlParameters;
+import com.ecwid.consul.UrlParameters;
+import com.ecwid.consul.v1.ConsistencyMode;
+import com.ecwid.consul.v1.txn.model.TxnKVOperation;
+import com.ecwid.consul.v1.txn.model.TxnOperation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+public final class TxnRequest implements ConsulRequest {
+
+	/**
+	 * Default maximum number of operations in a single transaction accepted by Consul
+	 */
+	public static final int MAX_OPERATIONS = 64;
+
+	private final List<TxnOperation> operations;
+	private final String datacenter;
+	private final ConsistencyMode consistencyMode;
+	private final String token;
+
+	private TxnRequest(List<TxnOperation> operations, String datacenter, ConsistencyMode consistencyMode, String token) {
+		this.operations = operations;
+		this.datacenter = datacenter;
+		this.consistencyMode = consistencyMode;
+		this.token = token;
+	}
+
+	public List<TxnOperation> getOperations() {
+		return operations;
+	}
+
+	public String getDatacenter() {
+		return datacenter;
+	}
+
+	public ConsistencyMode getConsistencyMode() {
+		return consistencyMode;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public static class Builder {
+		private final List<TxnOperation> operations = new ArrayList<>();
+		private String datacenter;
+		private ConsistencyMode consistencyMode = ConsistencyMode.DEFAULT;
+		private String token;
+
+		private Builder() {
+		}
+
+		public Builder setDatacenter(String datacenter) {
+			this.datacenter = datacenter;
+			return this;
+		}
+
+		/**
+		 * Sets the consistency mode, only used for read-only transactions.
+		 *
+		 * @param consistencyMode The consistency mode.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setConsistencyMode(ConsistencyMode consistencyMode) {
+			this.consistencyMode = consistencyMode;
+			return this;
+		}
+
+		public Builder setToken(String token) {
+			this.token = token;
+			return this;
+		}
+
+		public Builder addOperation(TxnOperation operation) {
+			this.operations.add(Objects.requireNonNull(operation, "operation"));
+			return this;
+		}
+
+		public Builder addOperations(List<TxnOperation> operations) {
+			for (TxnOperation operation : operations) {
+				addOperation(operation);
+			}
+			return this;
+		}
+
+		public Builder addKVSet(String key, String value) {
+			return addKVSet(key, encode(value));
+		}
+
+		public Builder addKVSet(String key, byte[] value) {
+			return addKV(TxnKVOperation.Verb.SET, key, value, null);
+		}
+
+		/**
+		 * Sets the key only if its current {@code ModifyIndex} equals to {@code index} (0 means "only if absent").
+		 *
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder addKVCas(String key, String value, long index) {
+			return addKVCas(key, encode(value), index);
+		}
+
+		public Builder addKVCas(String key, byte[] value, long index) {
+			return addKV(TxnKVOperation.Verb.CAS, key, value, index);
+		}
+
+		public Builder addKVGet(String key) {
+			return addKV(TxnKVOperation.Verb.GET, key, null, null);
+		}
+
+		public Builder addKVGetTree(String keyPrefix) {
+			return addKV(TxnKVOperation.Verb.GET_TREE, keyPrefix, null, null);
+		}
+
+		/**
+		 * Fails the transaction if the {@code ModifyIndex} of the key is not {@code index}.
+		 *
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder addKVCheckIndex(String key, long index) {
+			return addKV(TxnKVOperation.Verb.CHECK_INDEX, key, null, index);
+		}
+
+		public Builder addKVDelete(String key) {
+			return addKV(TxnKVOperation.Verb.DELETE, key, null, null);
+		}
+
+		public Builder addKVDeleteTree(String keyPrefix) {
+			return addKV(TxnKVOperation.Verb.DELETE_TREE, keyPrefix, null, null);
+		}
+
+		public Builder addKVDeleteCas(String key, long index) {
+			return addKV(TxnKVOperation.Verb.DELETE_CAS, key, null, index);
+		}
+
+		private Builder addKV(TxnKVOperation.Verb verb, String key, byte[] value, Long index) {
+			TxnKVOperation kv = new TxnKVOperation();
+			kv.setVerb(verb);
+			kv.setKey(key);
+			if (value != null) {
+				kv.setValue(Base64.getEncoder().encodeToString(value));
+			}
+			kv.setIndex(index);
+			return addOperation(new TxnOperation(kv));
+		}
+
+		private static byte[] encode(String value) {
+			return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+		}
+
+		public TxnRequest build() {
+			return new TxnRequest(Collections.unmodifiableList(new ArrayList<>(operations)), datacenter, consistencyMode, token);
+		}
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return a new {@link Builder} pre-populated with the values of this request
+	 */
+	public Builder toBuilder() {
+		return new Builder()
+			.addOperations(operations)
+			.setDatacenter(datacenter)
+			.setConsistencyMode(consistencyMode)
+			.setToken(token);
+	}
+
+	/**
+	 * Splits the request into requests with at most {@code maxOperations} operations each.
+	 */
+	List<TxnRequest> split(int maxOperations) {
+		if (maxOperations <= 0) {
+			throw new IllegalArgumentException("maxOperations must be positive");
+		}
+
+		if (operations.size() <= maxOperations) {
+			return Collections.singletonList(this);
+		}
+
+		List<TxnRequest> chunks = new ArrayList<>((operations.size() + maxOperations - 1) / maxOperations);
+		for (int from = 0; from < operations.size(); from += maxOperations) {
+			int to = Math.min(from + maxOperations, operations.size());
+			chunks.add(new TxnRequest(operations.subList(from, to), datacenter, consistencyMode, token));
+		}
+		return chunks;
+	}
+
+	@Override
+	public List<UrlParameters> asUrlParameters() {
+		List<UrlParameters> params = new ArrayList<>();
+
+		if (datacenter != null) {
+			params.add(new SingleUrlParameters("dc", datacenter));
+		}
+
+		if (consistencyMode != null && consistencyMode != ConsistencyMode.DEFAULT) {
+			params.add(new SingleUrlParameters(consistencyMode.name().toLowerCase()));
+		}
+
+		return params;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof TxnRequest)) {
+			return false;
+		}
+		TxnRequest that = (TxnRequest) o;
+		return Objects.equals(operations, that.operations) &&
+			Objects.equals(datacenter, that.datacenter) &&
+			consistencyMode == that.consistencyMode &&
+			Objects.equals(token, that.token);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(operations, datacenter, consistencyMode, token);
+	}
+}
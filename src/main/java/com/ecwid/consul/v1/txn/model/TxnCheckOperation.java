@@ -0,0 +1,57 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.ecwid.consul.v1.health.model.Check;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Health check operation of a transaction.
+ */
+public class TxnCheckOperation {
+
+	public static enum Verb {
+		@SerializedName("set")
+		SET,
+
+		@SerializedName("cas")
+		CAS,
+
+		@SerializedName("get")
+		GET,
+
+		@SerializedName("delete")
+		DELETE,
+
+		@SerializedName("delete-cas")
+		DELETE_CAS
+	}
+
+	@SerializedName("Verb")
+	private Verb verb;
+
+	@SerializedName("Check")
+	private Check check;
+
+	public Verb getVerb() {
+		return verb;
+	}
+
+	public void setVerb(Verb verb) {
+		this.verb = verb;
+	}
+
+	public Check getCheck() {
+		return check;
+	}
+
+	public void setCheck(Check check) {
+		this.check = check;
+	}
+
+	@Override
+	public String toString() {
+		return "TxnCheckOperation{" +
+				"verb=" + verb +
+				", check=" + check +
+				'}';
+	}
+}
@@ -0,0 +1,50 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Reason of a transaction rollback.
+ */
+public class TxnError {
+
+	@SerializedName("OpIndex")
+	private int opIndex;
+
+	@SerializedName("What")
+	private String what;
+
+	public TxnError() {
+	}
+
+	public TxnError(int opIndex, String what) {
+		this.opIndex = opIndex;
+		this.what = what;
+	}
+
+	/**
+	 * @return index of the failed operation in the request
+	 */
+	public int getOpIndex() {
+		return opIndex;
+	}
+
+	public void setOpIndex(int opIndex) {
+		this.opIndex = opIndex;
+	}
+
+	public String getWhat() {
+		return what;
+	}
+
+	public void setWhat(String what) {
+		this.what = what;
+	}
+
+	@Override
+	public String toString() {
+		return "TxnError{" +
+				"opIndex=" + opIndex +
+				", what='" + what + '\'' +
+				'}';
+	}
+}
@@ -0,0 +1,124 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * KV operation of a transaction. {@code Value} must be base64-encoded.
+ */
+public class TxnKVOperation {
+
+	public static enum Verb {
+		@SerializedName("set")
+		SET,
+
+		@SerializedName("cas")
+		CAS,
+
+		@SerializedName("lock")
+		LOCK,
+
+		@SerializedName("unlock")
+		UNLOCK,
+
+		@SerializedName("get")
+		GET,
+
+		@SerializedName("get-tree")
+		GET_TREE,
+
+		@SerializedName("check-index")
+		CHECK_INDEX,
+
+		@SerializedName("check-session")
+		CHECK_SESSION,
+
+		@SerializedName("check-not-exists")
+		CHECK_NOT_EXISTS,
+
+		@SerializedName("delete")
+		DELETE,
+
+		@SerializedName("delete-tree")
+		DELETE_TREE,
+
+		@SerializedName("delete-cas")
+		DELETE_CAS
+	}
+
+	@SerializedName("Verb")
+	private Verb verb;
+
+	@SerializedName("Key")
+	private String key;
+
+	@SerializedName("Value")
+	private String value;
+
+	@SerializedName("Flags")
+	private Long flags;
+
+	@SerializedName("Index")
+	private Long index;
+
+	@SerializedName("Session")
+	private String session;
+
+	public Verb getVerb() {
+		return verb;
+	}
+
+	public void setVerb(Verb verb) {
+		this.verb = verb;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public void setValue(String value) {
+		this.value = value;
+	}
+
+	public Long getFlags() {
+		return flags;
+	}
+
+	public void setFlags(Long flags) {
+		this.flags = flags;
+	}
+
+	public Long getIndex() {
+		return index;
+	}
+
+	public void setIndex(Long index) {
+		this.index = index;
+	}
+
+	public String getSession() {
+		return session;
+	}
+
+	public void setSession(String session) {
+		this.session = session;
+	}
+
+	@Override
+	public String toString() {
+		return "TxnKVOperation{" +
+				"verb=" + verb +
+				", key='" + key + '\'' +
+				", flags=" + flags +
+				", index=" + index +
+				", session='" + session + '\'' +
+				'}';
+	}
+}
@@ -0,0 +1,57 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.ecwid.consul.v1.catalog.model.Node;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Catalog node operation of a transaction.
+ */
+public class TxnNodeOperation {
+
+	public static enum Verb {
+		@SerializedName("set")
+		SET,
+
+		@SerializedName("cas")
+		CAS,
+
+		@SerializedName("get")
+		GET,
+
+		@SerializedName("delete")
+		DELETE,
+
+		@SerializedName("delete-cas")
+		DELETE_CAS
+	}
+
+	@SerializedName("Verb")
+	private Verb verb;
+
+	@SerializedName("Node")
+	private Node node;
+
+	public Verb getVerb() {
+		return verb;
+	}
+
+	public void setVerb(Verb verb) {
+		this.verb = verb;
+	}
+
+	public Node getNode() {
+		return node;
+	}
+
+	public void setNode(Node node) {
+		this.node = node;
+	}
+
+	@Override
+	public String toString() {
+		return "TxnNodeOperation{" +
+				"verb=" + verb +
+				", node=" + node +
+				'}';
+	}
+}
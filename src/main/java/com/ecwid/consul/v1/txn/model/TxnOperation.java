@@ -0,0 +1,82 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Single operation of a transaction. Exactly one of the fields must be set.
+ */
+public class TxnOperation {
+
+	@SerializedName("KV")
+	private TxnKVOperation kv;
+
+	@SerializedName("Node")
+	private TxnNodeOperation node;
+
+	@SerializedName("Service")
+	private TxnServiceOperation service;
+
+	@SerializedName("Check")
+	private TxnCheckOperation check;
+
+	public TxnOperation() {
+	}
+
+	public TxnOperation(TxnKVOperation kv) {
+		this.kv = kv;
+	}
+
+	public TxnOperation(TxnNodeOperation node) {
+		this.node = node;
+	}
+
+	public TxnOperation(TxnServiceOperation service) {
+		this.service = service;
+	}
+
+	public TxnOperation(TxnCheckOperation check) {
+		this.check = check;
+	}
+
+	public TxnKVOperation getKv() {
+		return kv;
+	}
+
+	public void setKv(TxnKVOperation kv) {
+		this.kv = kv;
+	}
+
+	public TxnNodeOperation getNode() {
+		return node;
+	}
+
+	public void setNode(TxnNodeOperation node) {
+		this.node = node;
+	}
+
+	public TxnServiceOperation getService() {
+		return service;
+	}
+
+	public void setService(TxnServiceOperation service) {
+		this.service = service;
+	}
+
+	public TxnCheckOperation getCheck() {
+		return check;
+	}
+
+	public void setCheck(TxnCheckOperation check) {
+		this.check = check;
+	}
+
+	@Override
+	public String toString() {
+		return "TxnOperation{" +
+				"kv=" + kv +
+				", node=" + node +
+				", service=" + service +
+				", check=" + check +
+				'}';
+	}
+}
@@ -0,0 +1,67 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.ecwid.consul.v1.agent.model.Service;
+import com.ecwid.consul.v1.catalog.model.Node;
+import com.ecwid.consul.v1.health.model.Check;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Result of a single operation of a committed transaction. Exactly one of the fields is set.
+ */
+public class TxnOperationResult {
+
+	@SerializedName("KV")
+	private GetValue kv;
+
+	@SerializedName("Node")
+	private Node node;
+
+	@SerializedName("Service")
+	private Service service;
+
+	@SerializedName("Check")
+	private Check check;
+
+	public GetValue getKv() {
+		return kv;
+	}
+
+	public void setKv(GetValue kv) {
+		this.kv = kv;
+	}
+
+	public Node getNode() {
+		return node;
+	}
+
+	public void setNode(Node node) {
+		this.node = node;
+	}
+
+	public Service getService() {
+		return service;
+	}
+
+	public void setService(Service service) {
+		this.service = service;
+	}
+
+	public Check getCheck() {
+		return check;
+	}
+
+	public void setCheck(Check check) {
+		this.check = check;
+	}
+
+	@Override
+	public String toString() {
+		return "TxnOperationResult{" +
+				"kv=" + kv +
+				", node=" + node +
+				", service=" + service +
+				", check=" + check +
+				'}';
+	}
+}
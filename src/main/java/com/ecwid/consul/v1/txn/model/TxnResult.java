@@ -0,0 +1,57 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a transaction: either the results of all operations (committed) or the errors (rolled back).
+ */
+public class TxnResult {
+
+	@SerializedName("Results")
+	private List<TxnOperationResult> results;
+
+	@SerializedName("Errors")
+	private List<TxnError> errors;
+
+	public TxnResult() {
+	}
+
+	public TxnResult(List<TxnOperationResult> results, List<TxnError> errors) {
+		this.results = results;
+		this.errors = errors;
+	}
+
+	/**
+	 * @return results of the committed operations, in the order of the operations
+	 */
+	public List<TxnOperationResult> getResults() {
+		return results != null ? results : Collections.emptyList();
+	}
+
+	public void setResults(List<TxnOperationResult> results) {
+		this.results = results;
+	}
+
+	public List<TxnError> getErrors() {
+		return errors != null ? errors : Collections.emptyList();
+	}
+
+	public void setErrors(List<TxnError> errors) {
+		this.errors = errors;
+	}
+
+	public boolean isCommitted() {
+		return errors == null || errors.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "TxnResult{" +
+				"results=" + results +
+				", errors=" + errors +
+				'}';
+	}
+}
@@ -0,0 +1,69 @@
+package com.ecwid.consul.v1.txn.model;
+
+import com.ecwid.consul.v1.agent.model.Service;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Catalog service operation of a transaction.
+ */
+public class TxnServiceOperation {
+
+	public static enum Verb {
+		@SerializedName("set")
+		SET,
+
+		@SerializedName("cas")
+		CAS,
+
+		@SerializedName("get")
+		GET,
+
+		@SerializedName("delete")
+		DELETE,
+
+		@SerializedName("delete-cas")
+		DELETE_CAS
+	}
+
+	@SerializedName("Verb")
+	private Verb verb;
+
+	@SerializedName("Node")
+	private String node;
+
+	@SerializedName("Service")
+	private Service service;
+
+	public Verb getVerb() {
+		return verb;
+	}
+
+	public void setVerb(Verb verb) {
+		this.verb = verb;
+	}
+
+	public String getNode() {
+		return node;
+	}
+
+	public void setNode(String node) {
+		this.node = node;
+	}
+
+	public Service getService() {
+		return service;
+	}
+
+	public void setService(Service service) {
+		this.service = service;
+	}
+
+	@Override
+	public String toString() {
+		return "TxnServiceOperation{" +
+				"verb=" + verb +
+				", node='" + node + '\'' +
+				", service=" + service +
+				'}';
+	}
+}
@@ -0,0 +1,19 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One round of a blocking query. The {@link WatchManager} supplies the {@link QueryParams} to use, with the index and
+ * wait time already set.
+ *
+ * @param <T> type of the watched value
+ */
+@FunctionalInterface
+public interface BlockingQuery<T> {
+
+	public CompletableFuture<Response<T>> execute(QueryParams queryParams);
+
+}
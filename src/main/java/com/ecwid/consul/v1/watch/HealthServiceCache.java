@@ -0,0 +1,209 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.ConsulException;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.health.HealthServicesRequest;
+import com.ecwid.consul.v1.health.model.HealthService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * In-process cache of {@code /v1/health/service/<name>} results kept fresh by blocking queries.
+ * <p>
+ * The first lookup of a service starts a watch in the {@link WatchManager} and waits for its first result; every
+ * following lookup is a lock-free read of an immutable snapshot. If Consul becomes unavailable, the last known
+ * snapshot keeps being served while the watch retries in the background.
+ */
+public final class HealthServiceCache implements AutoCloseable {
+
+	public static final long DEFAULT_INITIAL_LOAD_TIMEOUT = 10 * 1000; // milliseconds
+
+	private final WatchManager watchManager;
+	private final HealthServicesRequest defaultRequest;
+	private final long initialLoadTimeoutMillis;
+
+	private final ConcurrentMap<CacheKey, Entry> entries = new ConcurrentHashMap<>();
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a cache of passing service instances.
+	 */
+	public HealthServiceCache(WatchManager watchManager) {
+		this(watchManager, HealthServicesRequest.newBuilder().setPassing(true).setQueryParams(QueryParams.DEFAULT).build(),
+				DEFAULT_INITIAL_LOAD_TIMEOUT);
+	}
+
+	/**
+	 * @param watchManager             manager to run the blocking queries in
+	 * @param defaultRequest           request used by {@link #getHealthServices(String)}
+	 * @param initialLoadTimeoutMillis how long the first lookup of a service waits for Consul
+	 */
+	public HealthServiceCache(WatchManager watchManager, HealthServicesRequest defaultRequest, long initialLoadTimeoutMillis) {
+		this.watchManager = Objects.requireNonNull(watchManager, "watchManager");
+		this.defaultRequest = Objects.requireNonNull(defaultRequest, "defaultRequest");
+		this.initialLoadTimeoutMillis = initialLoadTimeoutMillis;
+	}
+
+	public List<HealthService> getHealthServices(String serviceName) {
+		return getHealthServices(serviceName, defaultRequest);
+	}
+
+	/**
+	 * @return immutable list of the service instances matching the request
+	 * @throws ConsulException if the first result for the service could not be loaded
+	 */
+	public List<HealthService> getHealthServices(String serviceName, HealthServicesRequest healthServicesRequest) {
+		return getSnapshot(serviceName, healthServicesRequest).getValue();
+	}
+
+	/**
+	 * @return the cached response, with the value being an immutable list
+	 * @throws ConsulException if the first result for the service could not be loaded
+	 */
+	public Response<List<HealthService>> getSnapshot(String serviceName, HealthServicesRequest healthServicesRequest) {
+		CacheKey key = new CacheKey(serviceName, healthServicesRequest);
+
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			entry = entries.computeIfAbsent(key, this::createEntry);
+		}
+
+		Response<List<HealthService>> snapshot = entry.snapshot;
+		if (snapshot != null) {
+			return snapshot;
+		}
+
+		return entry.awaitInitialLoad(initialLoadTimeoutMillis);
+	}
+
+	/**
+	 * Stops watching the service; the next lookup will load it again.
+	 */
+	public void evict(String serviceName, HealthServicesRequest healthServicesRequest) {
+		Entry entry = entries.remove(new CacheKey(serviceName, healthServicesRequest));
+		if (entry != null) {
+			entry.watch.close();
+		}
+	}
+
+	/**
+	 * @return number of cached (and watched) services
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		for (CacheKey key : new ArrayList<>(entries.keySet())) {
+			Entry entry = entries.remove(key);
+			if (entry != null) {
+				entry.watch.close();
+			}
+		}
+	}
+
+	private Entry createEntry(CacheKey key) {
+		if (closed) {
+			throw new IllegalStateException("HealthServiceCache is closed");
+		}
+
+		Entry entry = new Entry(key.serviceName);
+		entry.watch = watchManager.watchHealthServices(key.serviceName, key.request, entry);
+		return entry;
+	}
+
+	private static final class Entry implements WatchListener<List<HealthService>> {
+		private final String serviceName;
+
+		private volatile Watch<List<HealthService>> watch;
+		private volatile Response<List<HealthService>> snapshot;
+		private volatile CompletableFuture<Response<List<HealthService>>> initialLoad = new CompletableFuture<>();
+
+		private Entry(String serviceName) {
+			this.serviceName = serviceName;
+		}
+
+		@Override
+		public void onUpdate(Response<List<HealthService>> response) {
+			List<HealthService> value = response.getValue() != null
+					? Collections.unmodifiableList(response.getValue())
+					: Collections.emptyList();
+			Response<List<HealthService>> newSnapshot = new Response<>(value, response.getConsulIndex(),
+					response.isConsulKnownLeader(), response.getConsulLastContact(), response.isCacheHit(), response.getCacheAge());
+
+			snapshot = newSnapshot;
+			initialLoad.complete(newSnapshot);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			if (snapshot == null) {
+				// fail the current waiters fast; later lookups wait for the next retry of the watch
+				CompletableFuture<Response<List<HealthService>>> failed = initialLoad;
+				initialLoad = new CompletableFuture<>();
+				failed.completeExceptionally(throwable);
+			}
+		}
+
+		private Response<List<HealthService>> awaitInitialLoad(long timeoutMillis) {
+			try {
+				return initialLoad.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof ConsulException) {
+					throw (ConsulException) cause;
+				}
+				throw new ConsulException(cause);
+			} catch (TimeoutException e) {
+				throw new ConsulException("Timed out waiting for health services of '" + serviceName + "'");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ConsulException(e);
+			}
+		}
+	}
+
+	private static final class CacheKey {
+		private final String serviceName;
+		private final HealthServicesRequest request;
+		private final int hashCode;
+
+		private CacheKey(String serviceName, HealthServicesRequest request) {
+			this.serviceName = Objects.requireNonNull(serviceName, "serviceName");
+			this.request = Objects.requireNonNull(request, "request");
+			this.hashCode = 31 * serviceName.hashCode() + request.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey that = (CacheKey) o;
+			return hashCode == that.hashCode &&
+				serviceName.equals(that.serviceName) &&
+				request.equals(that.request);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
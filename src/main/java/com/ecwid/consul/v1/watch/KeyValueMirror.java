@@ -0,0 +1,191 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.model.GetValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local mirror of all KV entries under a prefix, kept up to date by a recursive blocking query.
+ * <p>
+ * Every new result is compared with the previous state by {@code ModifyIndex}: unchanged entries keep their existing
+ * {@link GetValue} instances (so the freshly decoded duplicates become short-lived garbage) and listeners receive only
+ * the added, modified and removed keys. Results are applied one at a time, and a result with a lower
+ * {@code X-Consul-Index} than the current state is ignored as stale.
+ */
+public final class KeyValueMirror implements AutoCloseable {
+
+	private static final Logger log = Logger.getLogger(KeyValueMirror.class.getName());
+
+	private final String keyPrefix;
+	private final List<KeyValueMirrorListener> listeners = new CopyOnWriteArrayList<>();
+	private final CountDownLatch initialLoad = new CountDownLatch(1);
+	private final Watch<List<GetValue>> watch;
+
+	private volatile Map<String, GetValue> entries = Collections.emptyMap();
+	private volatile long consulIndex;
+
+	public KeyValueMirror(WatchManager watchManager, String keyPrefix, String token) {
+		this(watchManager, keyPrefix, token, QueryParams.DEFAULT);
+	}
+
+	public KeyValueMirror(WatchManager watchManager, String keyPrefix, String token, QueryParams queryParams) {
+		this(watchManager, keyPrefix, token, queryParams, null);
+	}
+
+	/**
+	 * @param listener listener registered before the watch starts, so it receives the initial state; may be {@code null}
+	 */
+	public KeyValueMirror(WatchManager watchManager, String keyPrefix, String token, QueryParams queryParams, KeyValueMirrorListener listener) {
+		this.keyPrefix = Objects.requireNonNull(keyPrefix, "keyPrefix");
+		if (listener != null) {
+			listeners.add(listener);
+		}
+		this.watch = watchManager.watchKVValues(keyPrefix, token, queryParams, new WatchListener<List<GetValue>>() {
+			@Override
+			public void onUpdate(Response<List<GetValue>> response) {
+				update(response);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				notifyError(throwable);
+			}
+		});
+	}
+
+	public String getKeyPrefix() {
+		return keyPrefix;
+	}
+
+	/**
+	 * @return the entry with the given full key, or {@code null} if it is absent (or the mirror is not loaded yet)
+	 */
+	public GetValue get(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * @return immutable snapshot of all entries, keyed by the full KV key
+	 */
+	public Map<String, GetValue> getAll() {
+		return entries;
+	}
+
+	/**
+	 * @return {@code X-Consul-Index} of the current state, or 0 if the mirror is not loaded yet
+	 */
+	public long getConsulIndex() {
+		return consulIndex;
+	}
+
+	public boolean isLoaded() {
+		return initialLoad.getCount() == 0;
+	}
+
+	/**
+	 * Waits for the first result of the blocking query.
+	 *
+	 * @return {@code true} if the mirror is loaded, {@code false} if the timeout elapsed
+	 */
+	public boolean awaitLoaded(long timeout, TimeUnit unit) throws InterruptedException {
+		return initialLoad.await(timeout, unit);
+	}
+
+	/**
+	 * Listeners are notified on the watch thread and must not block. Listeners registered before the first result
+	 * receive the initial state as additions.
+	 */
+	public void addListener(KeyValueMirrorListener listener) {
+		listeners.add(Objects.requireNonNull(listener, "listener"));
+	}
+
+	public void removeListener(KeyValueMirrorListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void close() {
+		watch.close();
+	}
+
+	// synchronized: results of a shared watch may be delivered from different scheduler threads
+	synchronized void update(Response<List<GetValue>> response) {
+		Long index = response.getConsulIndex();
+		long newIndex = index != null ? index : 0;
+		if (newIndex != 0 && Long.compareUnsigned(newIndex, consulIndex) < 0) {
+			log.fine(() -> "Ignoring stale KV result for " + keyPrefix + " (" + Long.toUnsignedString(newIndex) + " < " + Long.toUnsignedString(consulIndex) + ")");
+			return;
+		}
+
+		Map<String, GetValue> previous = entries;
+		List<GetValue> values = response.getValue() != null ? response.getValue() : Collections.emptyList();
+
+		Map<String, GetValue> current = new HashMap<>(values.size() * 4 / 3 + 1);
+		Map<String, GetValue> added = new HashMap<>();
+		Map<String, GetValue> modified = new HashMap<>();
+
+		for (GetValue value : values) {
+			String key = value.getKey();
+			GetValue old = previous.get(key);
+
+			if (old == null) {
+				added.put(key, value);
+				current.put(key, value);
+			} else if (old.getModifyIndex() == value.getModifyIndex() && old.getCreateIndex() == value.getCreateIndex()) {
+				current.put(key, old);
+			} else {
+				modified.put(key, value);
+				current.put(key, value);
+			}
+		}
+
+		Map<String, GetValue> removed = new HashMap<>();
+		if (previous.size() + added.size() != current.size()) {
+			for (Map.Entry<String, GetValue> entry : previous.entrySet()) {
+				if (!current.containsKey(entry.getKey())) {
+					removed.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+		entries = Collections.unmodifiableMap(current);
+		consulIndex = newIndex;
+		initialLoad.countDown();
+
+		if (added.isEmpty() && modified.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+
+		Map<String, GetValue> addedView = Collections.unmodifiableMap(added);
+		Map<String, GetValue> modifiedView = Collections.unmodifiableMap(modified);
+		Map<String, GetValue> removedView = Collections.unmodifiableMap(removed);
+		for (KeyValueMirrorListener listener : listeners) {
+			try {
+				listener.onChanges(addedView, modifiedView, removedView);
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "KV mirror listener failed", e);
+			}
+		}
+	}
+
+	private void notifyError(Throwable throwable) {
+		for (KeyValueMirrorListener listener : listeners) {
+			try {
+				listener.onError(throwable);
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "KV mirror listener failed", e);
+			}
+		}
+	}
+}
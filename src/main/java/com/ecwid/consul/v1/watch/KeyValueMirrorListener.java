@@ -0,0 +1,21 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.v1.kv.model.GetValue;
+
+import java.util.Map;
+
+/**
+ * Receives incremental changes of a {@link KeyValueMirror}. All maps are immutable and keyed by the full KV key.
+ */
+public interface KeyValueMirrorListener {
+
+	/**
+	 * @param added    entries which were not present in the previous state
+	 * @param modified new versions of entries whose {@code ModifyIndex} changed
+	 * @param removed  last known versions of entries which are gone
+	 */
+	public void onChanges(Map<String, GetValue> added, Map<String, GetValue> modified, Map<String, GetValue> removed);
+
+	public default void onError(Throwable throwable) {
+	}
+}
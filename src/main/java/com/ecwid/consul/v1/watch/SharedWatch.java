@@ -0,0 +1,267 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single long-poll loop shared by all {@link Watch}es with the same {@link WatchKey}.
+ * <p>
+ * Rounds of the loop never overlap: the next query is scheduled only after the previous one completed, so the loop
+ * state ({@code index}, {@code failures}) is only touched by one thread at a time. Listeners are notified under
+ * {@code deliveryLock}, so round notifications and the snapshots sent to late subscribers never reach a listener out
+ * of order.
+ */
+final class SharedWatch<T> {
+
+	private static final Logger log = Logger.getLogger(SharedWatch.class.getName());
+
+	private final WatchManager manager;
+	private final WatchKey key;
+	private final QueryParams baseParams;
+	private final BlockingQuery<T> query;
+
+	private final List<Watch<T>> watches = new CopyOnWriteArrayList<>();
+	private final Object deliveryLock = new Object();
+
+	private volatile Response<T> lastResponse;
+	private volatile boolean stopped;
+	private volatile CompletableFuture<Response<T>> inFlight;
+
+	private long index;
+	private int failures;
+	private long lastRequestNanos;
+
+	SharedWatch(WatchManager manager, WatchKey key, QueryParams baseParams, BlockingQuery<T> query) {
+		this.manager = manager;
+		this.key = key;
+		this.baseParams = baseParams;
+		this.query = query;
+	}
+
+	Response<T> getLastResponse() {
+		return lastResponse;
+	}
+
+	List<Watch<T>> getWatches() {
+		return watches;
+	}
+
+	boolean isStopped() {
+		return stopped;
+	}
+
+	void start() {
+		schedule(0);
+	}
+
+	void stop() {
+		CompletableFuture<Response<T>> current;
+		synchronized (this) {
+			stopped = true;
+			current = inFlight;
+		}
+
+		if (current != null) {
+			current.cancel(true);
+		}
+	}
+
+	void addWatch(Watch<T> watch) {
+		watches.add(watch);
+
+		// late subscribers get the current state right away instead of waiting for the next change
+		Response<T> current = lastResponse;
+		if (current != null) {
+			execute(() -> notifySnapshot(watch, current));
+		}
+	}
+
+	boolean removeWatch(Watch<?> watch) {
+		watches.remove(watch);
+		return watches.isEmpty();
+	}
+
+	private void poll() {
+		if (stopped) {
+			return;
+		}
+
+		QueryParams.Builder params = baseParams.toBuilder();
+		if (index > 0) {
+			params.setIndex(index).setWaitTime(manager.getWaitTime());
+		}
+
+		lastRequestNanos = System.nanoTime();
+
+		CompletableFuture<Response<T>> future;
+		// issuing and publishing the query is atomic with respect to stop(), so a query is never left running
+		synchronized (this) {
+			if (stopped) {
+				return;
+			}
+
+			try {
+				future = query.execute(params.build());
+			} catch (RuntimeException e) {
+				future = new CompletableFuture<>();
+				future.completeExceptionally(e);
+			}
+			inFlight = future;
+		}
+
+		try {
+			future.whenCompleteAsync(this::onComplete, manager.getScheduler());
+		} catch (RejectedExecutionException e) {
+			// the manager is shutting down
+			stopped = true;
+		}
+	}
+
+	private void onComplete(Response<T> response, Throwable throwable) {
+		inFlight = null;
+		if (stopped) {
+			return;
+		}
+
+		if (throwable != null) {
+			onFailure(unwrap(throwable));
+			return;
+		}
+
+		failures = 0;
+
+		Long consulIndex = response.getConsulIndex();
+		if (consulIndex == null) {
+			// the endpoint does not support blocking queries, fall back to plain polling
+			index = 0;
+			notifyUpdate(response);
+			schedule(manager.getMaxBackoffMillis());
+			return;
+		}
+
+		long previousIndex = index;
+		long newIndex = consulIndex;
+		if (newIndex == 0) {
+			// Consul should never return 0, but it has happened; blocking on index 0 would return immediately and
+			// turn the watch into a busy loop
+			newIndex = 1;
+		}
+
+		if (Long.compareUnsigned(newIndex, previousIndex) < 0) {
+			// the index went backwards (e.g. a snapshot restore or a different server); start from scratch
+			log.fine(() -> "Consul index went backwards for " + key + " (" + Long.toUnsignedString(previousIndex) + " -> " + Long.toUnsignedString(consulIndex) + "), resetting");
+			index = 0;
+			notifyUpdate(response);
+		} else {
+			index = newIndex;
+			if (newIndex != previousIndex || lastResponse == null) {
+				notifyUpdate(response);
+			}
+		}
+
+		// rate limit: even when the index changes constantly, don't issue queries more often than the minimal interval
+		long sinceLastRequestMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastRequestNanos);
+		schedule(Math.max(0, manager.getMinIntervalMillis() - sinceLastRequestMillis));
+	}
+
+	private void onFailure(Throwable throwable) {
+		failures++;
+		long delay = backoff(failures);
+		log.log(Level.FINE, throwable, () -> "Watch " + key + " failed (" + failures + " in a row), retrying in " + delay + " ms");
+
+		for (Watch<T> watch : watches) {
+			try {
+				watch.getListener().onError(throwable);
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "Watch listener failed", e);
+			}
+		}
+
+		schedule(delay);
+	}
+
+	// exponential backoff with "equal jitter": half of the delay is fixed, the other half random
+	private long backoff(int failures) {
+		long min = manager.getMinBackoffMillis();
+		long max = manager.getMaxBackoffMillis();
+
+		long exponential = min << Math.min(failures - 1, 30);
+		long delay = exponential <= 0 || exponential > max ? max : exponential;
+		long half = delay / 2;
+		return half + ThreadLocalRandom.current().nextLong(half + 1);
+	}
+
+	private void notifyUpdate(Response<T> response) {
+		synchronized (deliveryLock) {
+			lastResponse = response;
+			for (Watch<T> watch : watches) {
+				notifyUpdate(watch, response);
+			}
+		}
+	}
+
+	private void notifySnapshot(Watch<T> watch, Response<T> snapshot) {
+		synchronized (deliveryLock) {
+			// a newer round was delivered since the snapshot was taken, the watch already has it
+			if (lastResponse == snapshot) {
+				notifyUpdate(watch, snapshot);
+			}
+		}
+	}
+
+	// always called under deliveryLock
+	private void notifyUpdate(Watch<T> watch, Response<T> response) {
+		if (watch.isClosed() || watch.getLastDelivered() == response) {
+			return;
+		}
+		watch.setLastDelivered(response);
+
+		try {
+			watch.getListener().onUpdate(response);
+		} catch (RuntimeException e) {
+			log.log(Level.WARNING, "Watch listener failed", e);
+		}
+	}
+
+	private void schedule(long delayMillis) {
+		if (stopped) {
+			return;
+		}
+
+		try {
+			if (delayMillis <= 0) {
+				manager.getScheduler().execute(this::poll);
+			} else {
+				manager.getScheduler().schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+			}
+		} catch (RejectedExecutionException e) {
+			stopped = true;
+		}
+	}
+
+	private void execute(Runnable task) {
+		try {
+			manager.getScheduler().execute(task);
+		} catch (RejectedExecutionException e) {
+			// the manager is shutting down
+		}
+	}
+
+	private static Throwable unwrap(Throwable throwable) {
+		while ((throwable instanceof CompletionException || throwable instanceof ExecutionException) && throwable.getCause() != null) {
+			throwable = throwable.getCause();
+		}
+		return throwable;
+	}
+}
@@ -0,0 +1,71 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.v1.Response;
+
+/**
+ * Handle of a single listener registration in a {@link WatchManager}. Closing the handle unregisters the listener;
+ * the underlying long-poll stops once its last listener is gone.
+ *
+ * @param <T> type of the watched value
+ */
+public final class Watch<T> implements AutoCloseable {
+
+	private final WatchManager manager;
+	private final WatchKey key;
+	private final WatchListener<T> listener;
+
+	private volatile SharedWatch<T> sharedWatch;
+	private volatile boolean closed;
+	// guarded by the shared watch's delivery lock
+	private Response<T> lastDelivered;
+
+	Watch(WatchManager manager, WatchKey key, WatchListener<T> listener) {
+		this.manager = manager;
+		this.key = key;
+		this.listener = listener;
+	}
+
+	public WatchKey getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the most recent successful result of the shared long-poll, or {@code null} if none arrived yet
+	 */
+	public Response<T> getLastResponse() {
+		SharedWatch<T> current = sharedWatch;
+		return current != null ? current.getLastResponse() : null;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			manager.unregister(this);
+		}
+	}
+
+	WatchListener<T> getListener() {
+		return listener;
+	}
+
+	SharedWatch<T> getSharedWatch() {
+		return sharedWatch;
+	}
+
+	void setSharedWatch(SharedWatch<T> sharedWatch) {
+		this.sharedWatch = sharedWatch;
+	}
+
+	Response<T> getLastDelivered() {
+		return lastDelivered;
+	}
+
+	void setLastDelivered(Response<T> lastDelivered) {
+		this.lastDelivered = lastDelivered;
+	}
+}
@@ -0,0 +1,66 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.UrlParameters;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Identity of a shared long-poll: watches with equal keys are served by a single blocking query.
+ * <p>
+ * The parameters must not contain the index and wait time of the query (they are managed by the {@link WatchManager})
+ * and must determine the type of the result, i.e. two watches with equal keys must expect the same result type.
+ */
+public final class WatchKey {
+
+	private final String endpoint;
+	private final List<UrlParameters> urlParameters;
+	private final String token;
+
+	public WatchKey(String endpoint, List<UrlParameters> urlParameters, String token) {
+		this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+		this.urlParameters = urlParameters != null ? Collections.unmodifiableList(urlParameters) : Collections.emptyList();
+		this.token = token;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public List<UrlParameters> getUrlParameters() {
+		return urlParameters;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof WatchKey)) {
+			return false;
+		}
+		WatchKey watchKey = (WatchKey) o;
+		return Objects.equals(endpoint, watchKey.endpoint) &&
+			Objects.equals(urlParameters, watchKey.urlParameters) &&
+			Objects.equals(token, watchKey.token);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(endpoint, urlParameters, token);
+	}
+
+	@Override
+	public String toString() {
+		// never print the token
+		return "WatchKey{" +
+			"endpoint='" + endpoint + '\'' +
+			", urlParameters=" + urlParameters +
+			'}';
+	}
+}
@@ -0,0 +1,27 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.v1.Response;
+
+/**
+ * Receives the results of a {@link Watch}.
+ * <p>
+ * Callbacks are invoked on the {@link WatchManager} scheduler threads and should return quickly, because all watches
+ * sharing the scheduler are notified from the same threads.
+ *
+ * @param <T> type of the watched value
+ */
+public interface WatchListener<T> {
+
+	/**
+	 * Called with the first result of the watch, and then every time the Consul index of the watched endpoint
+	 * changes.
+	 */
+	public void onUpdate(Response<T> response);
+
+	/**
+	 * Called when a long-poll fails. The watch keeps running and retries with backoff.
+	 */
+	public default void onError(Throwable throwable) {
+	}
+
+}
@@ -0,0 +1,347 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.SingleUrlParameters;
+import com.ecwid.consul.UrlParameters;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.catalog.CatalogConsulClient;
+import com.ecwid.consul.v1.catalog.CatalogServiceRequest;
+import com.ecwid.consul.v1.catalog.CatalogServicesRequest;
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.ecwid.consul.v1.health.HealthConsulClient;
+import com.ecwid.consul.v1.health.HealthServicesRequest;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.ecwid.consul.v1.kv.KeyValueConsulClient;
+import com.ecwid.consul.v1.kv.model.GetValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Runs Consul blocking queries on behalf of any number of listeners.
+ * <p>
+ * All watches with an equal {@link WatchKey} share a single long-poll, so N components watching the same endpoint cost
+ * one HTTP connection instead of N. For every long-poll the manager tracks the {@code X-Consul-Index}, resets it when
+ * it goes backwards, never blocks on index 0, backs off (with jitter) on errors and rate limits the queries.
+ * <p>
+ * Listeners are notified on the scheduler thread and must not block.
+ */
+public final class WatchManager implements AutoCloseable {
+
+	public static final long DEFAULT_WAIT_TIME = 300; // seconds
+	public static final long DEFAULT_MIN_BACKOFF = 1000; // milliseconds
+	public static final long DEFAULT_MAX_BACKOFF = 60 * 1000; // milliseconds
+	public static final long DEFAULT_MIN_INTERVAL = 100; // milliseconds
+
+	public static final class Builder {
+		private final ConsulRawClient rawClient;
+		private long waitTime = DEFAULT_WAIT_TIME;
+		private long minBackoffMillis = DEFAULT_MIN_BACKOFF;
+		private long maxBackoffMillis = DEFAULT_MAX_BACKOFF;
+		private long minIntervalMillis = DEFAULT_MIN_INTERVAL;
+		private ScheduledExecutorService scheduler;
+
+		private Builder(ConsulRawClient rawClient) {
+			this.rawClient = rawClient;
+		}
+
+		/**
+		 * @param waitTime maximum duration of a single blocking query, in seconds
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setWaitTime(long waitTime) {
+			this.waitTime = waitTime;
+			return this;
+		}
+
+		public Builder setMinBackoffMillis(long minBackoffMillis) {
+			this.minBackoffMillis = minBackoffMillis;
+			return this;
+		}
+
+		public Builder setMaxBackoffMillis(long maxBackoffMillis) {
+			this.maxBackoffMillis = maxBackoffMillis;
+			return this;
+		}
+
+		/**
+		 * @param minIntervalMillis minimal interval between two consecutive queries of the same watch
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setMinIntervalMillis(long minIntervalMillis) {
+			this.minIntervalMillis = minIntervalMillis;
+			return this;
+		}
+
+		/**
+		 * @param scheduler executor to run the watches and notify listeners on. It is not shut down by
+		 *                  {@link WatchManager#close()}. By default the manager creates its own single daemon thread.
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setScheduler(ScheduledExecutorService scheduler) {
+			this.scheduler = scheduler;
+			return this;
+		}
+
+		public WatchManager build() {
+			if (waitTime <= 0) {
+				throw new IllegalArgumentException("waitTime must be positive");
+			}
+			if (minBackoffMillis <= 0 || maxBackoffMillis < minBackoffMillis) {
+				throw new IllegalArgumentException("Invalid backoff range [" + minBackoffMillis + ", " + maxBackoffMillis + "]");
+			}
+			if (minIntervalMillis < 0) {
+				throw new IllegalArgumentException("minIntervalMillis must not be negative");
+			}
+
+			boolean ownScheduler = scheduler == null;
+			ScheduledExecutorService executor = ownScheduler ? createDefaultScheduler() : scheduler;
+			return new WatchManager(rawClient, waitTime, minBackoffMillis, maxBackoffMillis, minIntervalMillis, executor, ownScheduler);
+		}
+	}
+
+	public static Builder newBuilder(ConsulRawClient rawClient) {
+		return new Builder(rawClient);
+	}
+
+	private final HealthConsulClient healthClient;
+	private final KeyValueConsulClient keyValueClient;
+	private final CatalogConsulClient catalogClient;
+
+	private final long waitTime;
+	private final long minBackoffMillis;
+	private final long maxBackoffMillis;
+	private final long minIntervalMillis;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownScheduler;
+
+	private final ConcurrentMap<WatchKey, SharedWatch<?>> sharedWatches = new ConcurrentHashMap<>();
+
+	private volatile boolean closed;
+
+	private WatchManager(ConsulRawClient rawClient, long waitTime, long minBackoffMillis, long maxBackoffMillis,
+			long minIntervalMillis, ScheduledExecutorService scheduler, boolean ownScheduler) {
+		this.healthClient = rawClient != null ? new HealthConsulClient(rawClient) : null;
+		this.keyValueClient = rawClient != null ? new KeyValueConsulClient(rawClient) : null;
+		this.catalogClient = rawClient != null ? new CatalogConsulClient(rawClient) : null;
+		this.waitTime = waitTime;
+		this.minBackoffMillis = minBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+		this.minIntervalMillis = minIntervalMillis;
+		this.scheduler = scheduler;
+		this.ownScheduler = ownScheduler;
+	}
+
+	// -------------------------------------------------------------------------------
+
+	/**
+	 * Watches {@code /v1/health/service/<serviceName>}. Index and wait time of the request query params are ignored.
+	 */
+	public Watch<List<HealthService>> watchHealthServices(String serviceName, HealthServicesRequest healthServicesRequest, WatchListener<List<HealthService>> listener) {
+		HealthServicesRequest normalized = healthServicesRequest.toBuilder()
+				.setQueryParams(normalize(healthServicesRequest.getQueryParams()))
+				.setToken(null)
+				.build();
+		WatchKey key = new WatchKey("/v1/health/service/" + serviceName, normalized.asUrlParameters(), healthServicesRequest.getToken());
+
+		return watch(key, normalized.getQueryParams(), queryParams -> healthClient().getHealthServicesAsync(serviceName,
+				healthServicesRequest.toBuilder().setQueryParams(queryParams).build()), listener);
+	}
+
+	/**
+	 * Watches a single KV entry. The listener receives a response with a {@code null} value while the key does not exist.
+	 */
+	public Watch<GetValue> watchKVValue(String key, String token, QueryParams queryParams, WatchListener<GetValue> listener) {
+		QueryParams normalized = normalize(queryParams);
+		WatchKey watchKey = new WatchKey("/v1/kv/" + key, urlParameters(normalized), token);
+
+		return watch(watchKey, normalized, params -> keyValueClient().getKVValueAsync(key, token, params), listener);
+	}
+
+	/**
+	 * Watches all KV entries under the prefix. The listener receives a response with a {@code null} value while there are no
+	 * such entries.
+	 */
+	public Watch<List<GetValue>> watchKVValues(String keyPrefix, String token, QueryParams queryParams, WatchListener<List<GetValue>> listener) {
+		QueryParams normalized = normalize(queryParams);
+		List<UrlParameters> urlParameters = urlParameters(normalized);
+		urlParameters.add(new SingleUrlParameters("recurse"));
+		WatchKey watchKey = new WatchKey("/v1/kv/" + keyPrefix, urlParameters, token);
+
+		return watch(watchKey, normalized, params -> keyValueClient().getKVValuesAsync(keyPrefix, token, params), listener);
+	}
+
+	public Watch<Map<String, List<String>>> watchCatalogServices(CatalogServicesRequest catalogServicesRequest, WatchListener<Map<String, List<String>>> listener) {
+		CatalogServicesRequest normalized = catalogServicesRequest.toBuilder()
+				.setQueryParams(normalize(catalogServicesRequest.getQueryParams()))
+				.setToken(null)
+				.build();
+		WatchKey key = new WatchKey("/v1/catalog/services", normalized.asUrlParameters(), catalogServicesRequest.getToken());
+
+		return watch(key, normalized.getQueryParams(), queryParams -> catalogClient().getCatalogServicesAsync(
+				catalogServicesRequest.toBuilder().setQueryParams(queryParams).build()), listener);
+	}
+
+	public Watch<List<CatalogService>> watchCatalogService(String serviceName, CatalogServiceRequest catalogServiceRequest, WatchListener<List<CatalogService>> listener) {
+		CatalogServiceRequest normalized = catalogServiceRequest.toBuilder()
+				.setQueryParams(normalize(catalogServiceRequest.getQueryParams()))
+				.setToken(null)
+				.build();
+		WatchKey key = new WatchKey("/v1/catalog/service/" + serviceName, normalized.asUrlParameters(), catalogServiceRequest.getToken());
+
+		return watch(key, normalized.getQueryParams(), queryParams -> catalogClient().getCatalogServiceAsync(serviceName,
+				catalogServiceRequest.toBuilder().setQueryParams(queryParams).build()), listener);
+	}
+
+	/**
+	 * Registers a listener for an arbitrary blocking query. If a watch with an equal key is already running, the listener
+	 * joins it (and immediately receives its last result) and the given {@code query} is not used.
+	 *
+	 * @param key         identity of the long-poll
+	 * @param queryParams base query params; index and wait time are set by the manager on every round
+	 * @param query       the blocking query
+	 * @param listener    the listener to notify
+	 * @return handle to close when the listener is no longer interested
+	 */
+	public <T> Watch<T> watch(WatchKey key, QueryParams queryParams, BlockingQuery<T> query, WatchListener<T> listener) {
+		Objects.requireNonNull(key, "key");
+		Objects.requireNonNull(query, "query");
+		Objects.requireNonNull(listener, "listener");
+		if (closed) {
+			throw new IllegalStateException("WatchManager is closed");
+		}
+
+		QueryParams baseParams = queryParams != null ? normalize(queryParams) : QueryParams.DEFAULT;
+		Watch<T> watch = new Watch<>(this, key, listener);
+
+		sharedWatches.compute(key, (k, existing) -> {
+			@SuppressWarnings("unchecked")
+			SharedWatch<T> shared = (SharedWatch<T>) existing;
+			boolean created = false;
+			if (shared == null || shared.isStopped()) {
+				shared = new SharedWatch<>(this, key, baseParams, query);
+				created = true;
+			}
+
+			watch.setSharedWatch(shared);
+			shared.addWatch(watch);
+			if (created) {
+				shared.start();
+			}
+			return shared;
+		});
+
+		return watch;
+	}
+
+	/**
+	 * @return number of running long-polls
+	 */
+	public int getActiveWatchCount() {
+		return sharedWatches.size();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Stops all watches. Pending listener notifications may still be delivered.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+
+		for (WatchKey key : new ArrayList<>(sharedWatches.keySet())) {
+			SharedWatch<?> shared = sharedWatches.remove(key);
+			if (shared != null) {
+				shared.stop();
+			}
+		}
+
+		if (ownScheduler) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	// -------------------------------------------------------------------------------
+
+	void unregister(Watch<?> watch) {
+		SharedWatch<?> target = watch.getSharedWatch();
+		sharedWatches.computeIfPresent(watch.getKey(), (k, shared) -> {
+			if (shared != target) {
+				return shared;
+			}
+
+			if (shared.removeWatch(watch)) {
+				shared.stop();
+				return null;
+			}
+			return shared;
+		});
+	}
+
+	long getWaitTime() {
+		return waitTime;
+	}
+
+	long getMinBackoffMillis() {
+		return minBackoffMillis;
+	}
+
+	long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	long getMinIntervalMillis() {
+		return minIntervalMillis;
+	}
+
+	ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	private HealthConsulClient healthClient() {
+		return Objects.requireNonNull(healthClient, "WatchManager was built without a ConsulRawClient");
+	}
+
+	private KeyValueConsulClient keyValueClient() {
+		return Objects.requireNonNull(keyValueClient, "WatchManager was built without a ConsulRawClient");
+	}
+
+	private CatalogConsulClient catalogClient() {
+		return Objects.requireNonNull(catalogClient, "WatchManager was built without a ConsulRawClient");
+	}
+
+	private static QueryParams normalize(QueryParams queryParams) {
+		if (queryParams == null) {
+			return null;
+		}
+		return queryParams.toBuilder()
+				.setIndex(-1)
+				.setWaitTime(-1)
+				.build();
+	}
+
+	private static List<UrlParameters> urlParameters(QueryParams queryParams) {
+		List<UrlParameters> urlParameters = new ArrayList<>();
+		if (queryParams != null) {
+			urlParameters.add(queryParams);
+		}
+		return urlParameters;
+	}
+
+	private static ScheduledExecutorService createDefaultScheduler() {
+		return Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "consul-watch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
@@ -0,0 +1,71 @@
+package com.ecwid.consul;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedDrainQueueTest {
+
+	@Test
+	void processesAllItemsWithBoundedConcurrency() throws Exception {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			AtomicInteger running = new AtomicInteger();
+			AtomicInteger maxRunning = new AtomicInteger();
+			Set<Integer> processed = ConcurrentHashMap.newKeySet();
+			CountDownLatch done = new CountDownLatch(50);
+			BoundedDrainQueue<Integer> queue = new BoundedDrainQueue<>(executor, 3, item -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				processed.add(item);
+				done.countDown();
+			});
+
+			for (int i = 0; i < 50; i++) {
+				queue.add(i);
+				queue.startWorkers();
+			}
+
+			assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(processed).hasSize(50);
+			assertThat(maxRunning.get()).isBetween(1, 3);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void failingItemDoesNotStopTheWorker() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			CountDownLatch done = new CountDownLatch(1);
+			BoundedDrainQueue<String> queue = new BoundedDrainQueue<>(executor, 1, item -> {
+				if (item.equals("bad")) {
+					throw new IllegalStateException("boom");
+				}
+				done.countDown();
+			});
+
+			queue.add("bad");
+			queue.add("good");
+			queue.startWorkers();
+
+			assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -1,8 +1,14 @@
 package com.ecwid.consul;
 
+import com.ecwid.consul.json.StringInterner;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+import com.ecwid.consul.transport.TransportException;
 import com.ecwid.consul.v1.ConsulRawClient;
 import com.ecwid.consul.v1.QueryParams;
 import com.ecwid.consul.v1.Request;
+import com.ecwid.consul.v1.health.HealthConsulClient;
 import com.ecwid.consul.v1.health.HealthServicesRequest;
 import org.apache.http.Header;
 import org.apache.http.client.HttpClient;
@@ -13,7 +19,9 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.net.ConnectException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -190,6 +198,70 @@ public class ConsulRawClientTest {
         assertThat(targetUri).isEqualTo("http://host:8888/path/v1/health/service/the-service?dc=dc1&filter=%22GPU%22+in+Service.Tags+and+%22CPU%22+in+Service.Tags&passing=true");
     }
 
+    @Test
+    void stringInternerIsUsedByClientsOfThisRawClientOnly() {
+        String body = "[{\"Node\":{\"Node\":\"node-1\"},\"Service\":{\"Service\":\"web\"},\"Checks\":[]}]";
+        HttpTransport transport = mock(HttpTransport.class, Mockito.CALLS_REAL_METHODS);
+        Mockito.doAnswer(invocation -> new HttpResponse(200, "OK", body, 1L, true, 0L)).when(transport).makeGetRequest(any(HttpRequest.class));
+
+        HealthConsulClient interning = new HealthConsulClient(ConsulRawClient.Builder.builder()
+            .setHttpTransport(transport)
+            .setStringInterner(new StringInterner())
+            .build());
+        HealthConsulClient plain = new HealthConsulClient(ConsulRawClient.Builder.builder()
+            .setHttpTransport(transport)
+            .build());
+
+        assertThat(interning.getHealthServices("web", HealthServicesRequest.newBuilder().build()).getValue().get(0).getNode().getNode())
+            .isSameAs(interning.getHealthServices("web", HealthServicesRequest.newBuilder().build()).getValue().get(0).getNode().getNode());
+        assertThat(plain.getHealthServices("web", HealthServicesRequest.newBuilder().build()).getValue().get(0).getNode().getNode())
+            .isNotSameAs(plain.getHealthServices("web", HealthServicesRequest.newBuilder().build()).getValue().get(0).getNode().getNode());
+    }
+
+    @Test
+    void verifyFailoverBetweenAgentAddresses() {
+        List<String> urls = new ArrayList<>();
+        HttpTransport transport = mock(HttpTransport.class);
+        Mockito.when(transport.makeGetRequest(any(HttpRequest.class))).thenAnswer(invocation -> {
+            String url = invocation.<HttpRequest>getArgument(0).getUrl();
+            urls.add(url);
+            if (url.startsWith("http://agent1:8500/")) {
+                throw new TransportException(new ConnectException("Connection refused"));
+            }
+            return new HttpResponse(200, "OK", "[]", null, null, null);
+        });
+
+        client = ConsulRawClient.Builder.builder()
+            .setHttpTransport(transport)
+            .setAgentAddresses(List.of("agent1", "https://agent2:8501"))
+            .build();
+
+        String agent1 = "http://agent1:8500" + ENDPOINT;
+        String agent2 = "https://agent2:8501" + ENDPOINT;
+        for (int i = 0; i < 3; i++) {
+            client.makeGetRequest(ENDPOINT, EMPTY_QUERY_PARAMS);
+        }
+
+        // agent1 is ejected after two consecutive failures, the failed requests are sent to agent2
+        assertThat(urls).containsExactly(agent1, agent2, agent1, agent2, agent2);
+    }
+
+    @Test
+    void verifyCacheControlHeader() throws Exception {
+        QueryParams queryParams = QueryParams.Builder.builder()
+            .setCached(true)
+            .setMaxAge(30)
+            .setStaleIfError(600)
+            .build();
+
+        client.makeGetRequest(ENDPOINT, queryParams, TOKEN_PARAM);
+        verify(httpClient).execute(captor.capture(), any(ResponseHandler.class));
+
+        assertThat(captor.getValue().getURI().toString()).isEqualTo(EXPECTED_AGENT_ADDRESS + "?cached");
+        assertThat(captor.getValue().getFirstHeader("Cache-Control").getValue()).isEqualTo("max-age=30, stale-if-error=600");
+        assertThat(captor.getValue().getFirstHeader("X-Consul-Token").getValue()).isEqualTo("CONFIDENTIAL");
+    }
+
     private void checkTokenExtraction() {
         String targetUri = captor.getValue().getURI().toString();
 
@@ -8,6 +8,8 @@ import org.junit.jupiter.api.Test;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class SingleUrlParametersTest {
@@ -24,6 +26,15 @@ public class SingleUrlParametersTest {
 		assertEquals(Collections.singletonList("key=value+value"), parameters.toUrlParameters());
 	}
 
+	@Test
+	public void testTokenAccessors() {
+		SingleUrlParameters token = new SingleUrlParameters("token", "secret");
+		assertEquals("token", token.getKey());
+		assertEquals("secret", token.getValue());
+		assertTrue(token.isToken());
+		assertFalse(new SingleUrlParameters("dc", "dc1").isToken());
+	}
+
 	@Nested
 	class EqualsAndHashCode {
 		@Test
@@ -45,6 +45,15 @@ public class UtilsTest {
 		assertEquals("/some-url?key=value+value&key2&key3=value%21value", Utils.generateUrl("/some-url", List.of(first, second, third)));
 	}
 
+	@Test
+	public void testGenerateUrl_Excluded() throws Exception {
+		UrlParameters first = new SingleUrlParameters("key", "value");
+		UrlParameters token = new SingleUrlParameters("token", "secret");
+		UrlParameters third = new SingleUrlParameters("key3");
+		assertEquals("/some-url?key=value&key3", Utils.generateUrl("/some-url", List.of(first, token, third), token));
+		assertEquals("/some-url?key3", Utils.generateUrl("/some-url", List.of(token, third), token));
+	}
+
 	@Test
 	public void testToSecondsString() throws Exception {
 		assertEquals("1000s", Utils.toSecondsString(1000L));
@@ -0,0 +1,126 @@
+package com.ecwid.consul.json;
+
+import com.ecwid.consul.v1.catalog.model.CatalogService;
+import com.ecwid.consul.v1.event.model.Event;
+import com.ecwid.consul.v1.health.model.Check;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.ecwid.consul.v1.kv.model.GetBinaryValue;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.session.model.Session;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GsonFactoryTest {
+
+	// what the reflective adapters produce is the reference
+	private static final Gson REFLECTIVE = new Gson();
+
+	@Test
+	void healthServicesMatchReflectiveDecoding() {
+		String json = "[{\"Node\":{\"ID\":\"40e4a748\",\"Node\":\"node-1\",\"Address\":\"10.0.0.1\",\"Datacenter\":\"dc1\","
+			+ "\"TaggedAddresses\":{\"lan\":\"10.0.0.1\",\"wan\":null},\"Meta\":{},\"CreateIndex\":\"5\",\"ModifyIndex\":6,\"Unknown\":[1,{}]},"
+			+ "\"Service\":{\"ID\":\"web-1\",\"Service\":\"web\",\"Tags\":[\"primary\",null],\"Address\":\"\",\"Meta\":null,"
+			+ "\"Port\":8080,\"EnableTagOverride\":\"true\",\"CreateIndex\":7,\"ModifyIndex\":8,\"Weights\":{\"Passing\":1}},"
+			+ "\"Checks\":[{\"Node\":\"node-1\",\"CheckID\":\"serfHealth\",\"Name\":\"Serf Health Status\",\"Status\":\"passing\","
+			+ "\"Notes\":\"\",\"Output\":\"Agent alive\",\"ServiceID\":\"\",\"ServiceName\":\"\",\"ServiceTags\":[],"
+			+ "\"CreateIndex\":1,\"ModifyIndex\":2},{\"CheckID\":\"other\",\"Status\":\"maintenance\"}]},"
+			+ "{\"Node\":null,\"Checks\":null}]";
+
+		assertSameAsReflective(json, new TypeToken<List<HealthService>>() {}.getType());
+	}
+
+	@Test
+	void catalogServicesMatchReflectiveDecoding() {
+		String json = "[{\"ID\":\"40e4a748\",\"Node\":\"node-1\",\"Address\":\"10.0.0.1\",\"Datacenter\":\"dc1\","
+			+ "\"TaggedAddresses\":{\"lan\":\"10.0.0.1\"},\"NodeMeta\":{\"rack\":\"r1\"},\"ServiceID\":\"web-1\",\"ServiceName\":\"web\","
+			+ "\"ServiceTags\":[\"v2\"],\"ServiceAddress\":\"10.0.0.1\",\"ServiceMeta\":{\"version\":\"2\"},\"ServicePort\":8080,"
+			+ "\"ServiceEnableTagOverride\":false,\"ServiceProxy\":{},\"CreateIndex\":3,\"ModifyIndex\":4}]";
+
+		assertSameAsReflective(json, new TypeToken<List<CatalogService>>() {}.getType());
+	}
+
+	@Test
+	void keyValuesMatchReflectiveDecoding() {
+		String json = "[{\"LockIndex\":1,\"Key\":\"config/a\",\"Flags\":42,\"Value\":\"aGVsbG8=\",\"Session\":\"adf4238a\","
+			+ "\"CreateIndex\":100,\"ModifyIndex\":200},{\"LockIndex\":null,\"Key\":\"config/\",\"Flags\":null,\"Value\":null,"
+			+ "\"CreateIndex\":101,\"ModifyIndex\":201}]";
+
+		assertSameAsReflective(json, new TypeToken<List<GetValue>>() {}.getType());
+		assertSameAsReflective(json, new TypeToken<List<GetBinaryValue>>() {}.getType());
+
+		List<GetBinaryValue> values = GsonFactory.getGson().fromJson(json, new TypeToken<List<GetBinaryValue>>() {}.getType());
+		assertThat(values.get(0).getValue()).isEqualTo("hello".getBytes());
+		assertThat(values.get(1).getValue()).isNull();
+	}
+
+	@Test
+	void sessionsAndEventsMatchReflectiveDecoding() {
+		String sessions = "[{\"LockDelay\":1.5e10,\"Checks\":[\"serfHealth\"],\"Node\":\"node-1\",\"ID\":\"adf4238a\","
+			+ "\"Name\":\"lock\",\"CreateIndex\":5,\"ModifyIndex\":5,\"TTL\":\"30s\",\"Behavior\":\"delete\",\"NodeChecks\":[]}]";
+		String events = "[{\"ID\":\"b54fe110-7af5-cafc-d1fb-afc8ba432b1c\",\"Name\":\"deploy\",\"Payload\":\"MQ==\","
+			+ "\"NodeFilter\":\"\",\"ServiceFilter\":\"\",\"TagFilter\":\"\",\"Version\":1,\"LTime\":null}]";
+
+		assertSameAsReflective(sessions, new TypeToken<List<Session>>() {}.getType());
+		assertSameAsReflective(events, new TypeToken<List<Event>>() {}.getType());
+	}
+
+	@Test
+	void healthAndCatalogStringsAreInternedAcrossResponses() throws IOException {
+		String health = "[{\"Node\":{\"Node\":\"node-1\",\"Meta\":{\"rack\":\"r1\"}},"
+			+ "\"Service\":{\"Service\":\"web\",\"Tags\":[\"primary\"]},"
+			+ "\"Checks\":[{\"Node\":\"node-1\",\"ServiceName\":\"web\",\"Output\":\"HTTP GET http://10.0.0.1: 200 OK\"}]}]";
+		String catalog = "[{\"Node\":\"node-1\",\"NodeMeta\":{\"rack\":\"r1\"},\"ServiceName\":\"web\",\"ServiceTags\":[\"primary\"]}]";
+		Type healthType = new TypeToken<List<HealthService>>() {}.getType();
+		Type catalogType = new TypeToken<List<CatalogService>>() {}.getType();
+
+		Gson interning = GsonFactory.getGson(new StringInterner());
+		HealthService first = GsonFactory.<List<HealthService>>getDecoder(interning, healthType).decode(new StringReader(health)).get(0);
+		HealthService second = GsonFactory.<List<HealthService>>getDecoder(interning, healthType).decode(new StringReader(health)).get(0);
+		CatalogService service = GsonFactory.<List<CatalogService>>getDecoder(interning, catalogType).decode(new StringReader(catalog)).get(0);
+
+		assertThat(second.getNode().getNode()).isSameAs(first.getNode().getNode()).isSameAs(service.getNode());
+		assertThat(second.getService().getService()).isSameAs(first.getService().getService()).isSameAs(service.getServiceName());
+		assertThat(second.getService().getTags().get(0)).isSameAs(service.getServiceTags().get(0));
+		assertThat(second.getNode().getMeta().keySet().iterator().next()).isSameAs(service.getNodeMeta().keySet().iterator().next());
+		assertThat(second.getChecks().get(0).getNode()).isSameAs(first.getNode().getNode());
+		assertThat(second.getChecks().get(0).getOutput()).isNotSameAs(first.getChecks().get(0).getOutput());
+
+		// the shared instance doesn't intern, whatever other clients do
+		HealthService notInterned = GsonFactory.getGson().<List<HealthService>>fromJson(health, healthType).get(0);
+		assertThat(notInterned.getNode().getNode()).isNotSameAs(notInterned.getChecks().get(0).getNode());
+	}
+
+	@Test
+	void encodingMatchesReflectiveEncoding() {
+		Check check = new Check();
+		check.setCheckId("serfHealth");
+		check.setStatus(Check.CheckStatus.CRITICAL);
+		check.setServiceTags(Arrays.asList("a", null));
+		Session session = new Session();
+		session.setBehavior(Session.Behavior.RELEASE);
+		GetBinaryValue value = new GetBinaryValue();
+		value.setValue(new byte[]{1, 2, 3});
+
+		for (Object model : new Object[]{check, session, value, new HealthService(), new CatalogService(), new GetValue(), new Event()}) {
+			assertThat(GsonFactory.getGson().toJson(model)).isEqualTo(REFLECTIVE.toJson(model));
+		}
+	}
+
+	private static void assertSameAsReflective(String json, Type type) {
+		Object expected = REFLECTIVE.fromJson(json, type);
+		Object actual = GsonFactory.getGson().fromJson(json, type);
+
+		// the reflective encoding covers every field, including those of models without equals()
+		assertThat(REFLECTIVE.toJson(actual)).isEqualTo(REFLECTIVE.toJson(expected));
+		assertThat(GsonFactory.getGson().toJson(actual)).isEqualTo(REFLECTIVE.toJson(expected));
+	}
+}
@@ -0,0 +1,45 @@
+package com.ecwid.consul.json;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StringInternerTest {
+
+	@Test
+	void equalStringsAreDeduplicated() {
+		StringInterner interner = new StringInterner();
+		String first = new String("web-frontend");
+		String second = new String("web-frontend");
+
+		assertThat(interner.intern(first)).isSameAs(first);
+		assertThat(interner.intern(second)).isSameAs(first);
+		assertThat(interner.intern(null)).isNull();
+	}
+
+	@Test
+	void longStringsAreNotPooled() {
+		StringInterner interner = new StringInterner(16, 4);
+		String first = new String("check output");
+		String second = new String("check output");
+
+		interner.intern(first);
+
+		assertThat(interner.intern(second)).isSameAs(second);
+	}
+
+	@Test
+	void poolIsBounded() {
+		StringInterner interner = new StringInterner(100, StringInterner.DEFAULT_MAX_LENGTH);
+		assertThat(interner.getCapacity()).isEqualTo(128);
+
+		// colliding strings replace each other, the result is always an equal string
+		for (int i = 0; i < 10_000; i++) {
+			String value = "node-" + i;
+			assertThat(interner.intern(new String(value))).isEqualTo(value);
+		}
+
+		assertThatThrownBy(() -> new StringInterner(0, 10)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,839 @@
+package com.ecwid.consul.stub;
+
+import com.ecwid.consul.stub.StubStore.KvEntry;
+import com.ecwid.consul.stub.StubStore.NodeEntry;
+import com.ecwid.consul.stub.StubStore.SessionEntry;
+import com.ecwid.consul.stub.StubStore.StubException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-process fake Consul agent for tests which must not depend on a Consul binary or a network.
+ * <p>
+ * It implements the {@code /v1/kv}, {@code /v1/health}, {@code /v1/catalog}, {@code /v1/session} and {@code /v1/txn}
+ * endpoints in a single datacenter, including blocking queries ({@code index} and {@code wait}), CAS, locks, session
+ * TTLs, lock delays and transactions. Latency and faults can be injected, also while the server is running, to test
+ * the client under load and failures. ACL tokens and consistency modes are accepted and ignored, and session TTLs are
+ * not limited to Consul's 10s minimum so tests can run fast.
+ */
+public final class ConsulStubServer implements AutoCloseable {
+
+	public static final String AGENT_NODE = "consul-stub";
+
+	// Consul's upper limit of the wait time of a blocking query
+	private static final long MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	private static final long DEFAULT_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final long SESSION_REAPER_PERIOD_MILLIS = 20;
+
+	private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ns|us|µs|ms|s|m|h)");
+
+	public static final class Builder {
+		private int port;
+		private long latencyMillis;
+		private long latencyJitterMillis;
+		private double errorRate;
+		private int errorStatusCode = 500;
+		private double disconnectRate;
+		private boolean compression;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param port port to listen on, 0 (the default) picks a free one
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setPort(int port) {
+			this.port = port;
+			return this;
+		}
+
+		public Builder setLatencyMillis(long latencyMillis) {
+			this.latencyMillis = latencyMillis;
+			return this;
+		}
+
+		/**
+		 * @param latencyJitterMillis a random delay up to this value is added to the latency of each request
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setLatencyJitterMillis(long latencyJitterMillis) {
+			this.latencyJitterMillis = latencyJitterMillis;
+			return this;
+		}
+
+		/**
+		 * @param errorRate share of requests, 0..1, which fail with the error status code
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setErrorRate(double errorRate) {
+			this.errorRate = errorRate;
+			return this;
+		}
+
+		public Builder setErrorStatusCode(int errorStatusCode) {
+			this.errorStatusCode = errorStatusCode;
+			return this;
+		}
+
+		/**
+		 * @param disconnectRate share of requests, 0..1, whose connection is closed without a response
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setDisconnectRate(double disconnectRate) {
+			this.disconnectRate = disconnectRate;
+			return this;
+		}
+
+		/**
+		 * @param compression whether to gzip the responses to clients which accept it, like Consul does
+		 * @return This {@link Builder} instance for method chaining.
+		 */
+		public Builder setCompression(boolean compression) {
+			this.compression = compression;
+			return this;
+		}
+
+		/**
+		 * @return a started server
+		 */
+		public ConsulStubServer build() {
+			try {
+				return new ConsulStubServer(this);
+			} catch (IOException e) {
+				throw new IllegalStateException("Can't start the Consul stub server", e);
+			}
+		}
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	private final StubStore store = new StubStore(AGENT_NODE);
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final ScheduledExecutorService sessionReaper;
+
+	private volatile long latencyMillis;
+	private volatile long latencyJitterMillis;
+	private volatile double errorRate;
+	private volatile int errorStatusCode;
+	private volatile double disconnectRate;
+	private final boolean compression;
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong faultCount = new AtomicLong();
+
+	private ConsulStubServer(Builder builder) throws IOException {
+		this.latencyMillis = builder.latencyMillis;
+		this.latencyJitterMillis = builder.latencyJitterMillis;
+		this.errorRate = builder.errorRate;
+		this.errorStatusCode = builder.errorStatusCode;
+		this.disconnectRate = builder.disconnectRate;
+		this.compression = builder.compression;
+
+		// the agent's own node, with the health check every node has
+		JsonObject agent = new JsonObject();
+		agent.addProperty("Node", AGENT_NODE);
+		agent.addProperty("Address", "127.0.0.1");
+		JsonObject serfHealth = new JsonObject();
+		serfHealth.addProperty("CheckID", "serfHealth");
+		serfHealth.addProperty("Name", "Serf Health Status");
+		serfHealth.addProperty("Status", "passing");
+		agent.add("Check", serfHealth);
+		synchronized (store) {
+			store.register(agent);
+		}
+
+		// blocking queries hold their thread, so the pool must not be bounded
+		this.executor = Executors.newCachedThreadPool(daemonThreads("consul-stub-http"));
+		this.server = HttpServer.create(new InetSocketAddress("localhost", builder.port), 0);
+		this.server.createContext("/", this::handle);
+		this.server.setExecutor(executor);
+		this.server.start();
+
+		this.sessionReaper = Executors.newSingleThreadScheduledExecutor(daemonThreads("consul-stub-sessions"));
+		this.sessionReaper.scheduleWithFixedDelay(() -> {
+			synchronized (store) {
+				store.expireSessions(System.nanoTime());
+			}
+		}, SESSION_REAPER_PERIOD_MILLIS, SESSION_REAPER_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	public String getHost() {
+		return "localhost";
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return base address including the scheme, e.g. {@code http://localhost:12345}
+	 */
+	public String getAddress() {
+		return "http://" + getHost() + ":" + getPort();
+	}
+
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	public void setLatencyJitterMillis(long latencyJitterMillis) {
+		this.latencyJitterMillis = latencyJitterMillis;
+	}
+
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	public void setErrorStatusCode(int errorStatusCode) {
+		this.errorStatusCode = errorStatusCode;
+	}
+
+	public void setDisconnectRate(double disconnectRate) {
+		this.disconnectRate = disconnectRate;
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return number of requests which failed because of an injected error or disconnect
+	 */
+	public long getFaultCount() {
+		return faultCount.get();
+	}
+
+	/**
+	 * @return the index of the last write
+	 */
+	public long getIndex() {
+		synchronized (store) {
+			return store.index();
+		}
+	}
+
+	/**
+	 * Registers a service instance on the given node, with a passing service check {@code service:<serviceId>}.
+	 */
+	public void registerService(String node, String address, String serviceId, String serviceName, int port, String... tags) {
+		JsonObject service = new JsonObject();
+		service.addProperty("ID", serviceId);
+		service.addProperty("Service", serviceName);
+		service.addProperty("Port", port);
+		JsonArray tagsJson = new JsonArray();
+		Arrays.stream(tags).forEach(tagsJson::add);
+		service.add("Tags", tagsJson);
+
+		JsonObject check = new JsonObject();
+		check.addProperty("CheckID", "service:" + serviceId);
+		check.addProperty("Name", "Service '" + serviceName + "' check");
+		check.addProperty("Status", "passing");
+		check.addProperty("ServiceID", serviceId);
+
+		JsonObject registration = new JsonObject();
+		registration.addProperty("Node", node);
+		registration.addProperty("Address", address);
+		registration.add("Service", service);
+		registration.add("Check", check);
+		synchronized (store) {
+			store.register(registration);
+		}
+	}
+
+	/**
+	 * @param status {@code passing}, {@code warning} or {@code critical}
+	 */
+	public void setCheckStatus(String node, String checkId, String status) {
+		synchronized (store) {
+			store.updateCheck(node, checkId, status);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		sessionReaper.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	// HTTP
+
+	private static final class Reply {
+		final int statusCode;
+		final byte[] body;
+		final long index;
+
+		Reply(int statusCode, byte[] body, long index) {
+			this.statusCode = statusCode;
+			this.body = body;
+			this.index = index;
+		}
+
+		static Reply json(JsonElement json, long index) {
+			return new Reply(200, json.toString().getBytes(StandardCharsets.UTF_8), index);
+		}
+
+		static Reply json(int statusCode, JsonElement json, long index) {
+			return new Reply(statusCode, json.toString().getBytes(StandardCharsets.UTF_8), index);
+		}
+
+		static Reply text(int statusCode, String text) {
+			return new Reply(statusCode, text.getBytes(StandardCharsets.UTF_8), 0);
+		}
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		try {
+			injectLatency();
+
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			if (random.nextDouble() < disconnectRate) {
+				faultCount.incrementAndGet();
+				// the server closes the connection if a handler fails
+				throw new IOException("Injected disconnect");
+			}
+			if (random.nextDouble() < errorRate) {
+				faultCount.incrementAndGet();
+				send(exchange, Reply.text(errorStatusCode, "Injected fault"));
+				return;
+			}
+
+			Reply reply;
+			try {
+				reply = route(exchange);
+			} catch (StubException e) {
+				reply = Reply.text(e.statusCode, e.getMessage());
+			} catch (RuntimeException e) {
+				reply = Reply.text(400, "Bad request: " + e);
+			}
+			send(exchange, reply);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void injectLatency() {
+		long delay = latencyMillis;
+		long jitter = latencyJitterMillis;
+		if (jitter > 0) {
+			delay += ThreadLocalRandom.current().nextLong(jitter + 1);
+		}
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void send(HttpExchange exchange, Reply reply) throws IOException {
+		if (reply.index > 0) {
+			exchange.getResponseHeaders().add("X-Consul-Index", String.valueOf(reply.index));
+		}
+		exchange.getResponseHeaders().add("X-Consul-Knownleader", "true");
+		exchange.getResponseHeaders().add("X-Consul-Lastcontact", "0");
+		exchange.getResponseHeaders().add("Content-Type", reply.statusCode == 200 ? "application/json" : "text/plain; charset=utf-8");
+		if (reply.body.length > 0 && compression && acceptsGzip(exchange)) {
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(reply.statusCode, 0);
+			try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody())) {
+				os.write(reply.body);
+			}
+			return;
+		}
+		exchange.sendResponseHeaders(reply.statusCode, reply.body.length == 0 ? -1 : reply.body.length);
+		if (reply.body.length > 0) {
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(reply.body);
+			}
+		}
+	}
+
+	private static boolean acceptsGzip(HttpExchange exchange) {
+		String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		return acceptEncoding != null && acceptEncoding.contains("gzip");
+	}
+
+	private Reply route(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		Map<String, List<String>> params = parseQuery(exchange.getRequestURI().getRawQuery());
+		byte[] body = exchange.getRequestBody().readAllBytes();
+
+		if (path.startsWith("/v1/kv/")) {
+			return kv(method, path.substring("/v1/kv/".length()), params, body);
+		}
+		if (path.equals("/v1/txn")) {
+			requireMethod(method, "PUT");
+			return txn(body);
+		}
+		if (path.startsWith("/v1/catalog/")) {
+			return catalog(method, path.substring("/v1/catalog/".length()), params, body);
+		}
+		if (path.startsWith("/v1/health/")) {
+			requireMethod(method, "GET");
+			return health(path.substring("/v1/health/".length()), params);
+		}
+		if (path.startsWith("/v1/session/")) {
+			return session(method, path.substring("/v1/session/".length()), params, body);
+		}
+		return Reply.text(404, "Not found: " + path);
+	}
+
+	/**
+	 * Runs the query, and while the result's index isn't past the requested one, again after every write until the
+	 * wait time is over, like Consul's blocking queries do.
+	 */
+	private Reply blockingQuery(Map<String, List<String>> params, Supplier<Reply> query) {
+		long minIndex = params.containsKey("index") ? Long.parseLong(first(params, "index")) : 0;
+		synchronized (store) {
+			Reply reply = query.get();
+			if (minIndex <= 0) {
+				return reply;
+			}
+
+			long waitMillis = params.containsKey("wait")
+				? TimeUnit.NANOSECONDS.toMillis(parseDuration(first(params, "wait"))) : DEFAULT_WAIT_MILLIS;
+			waitMillis = Math.min(waitMillis, MAX_WAIT_MILLIS);
+			// Consul adds up to wait / 16 to spread the responses of many watchers
+			waitMillis += ThreadLocalRandom.current().nextLong(waitMillis / 16 + 1);
+
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+			while (reply.index <= minIndex) {
+				long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0) {
+					break;
+				}
+				try {
+					store.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				reply = query.get();
+			}
+			return reply;
+		}
+	}
+
+	// KV
+
+	private Reply kv(String method, String key, Map<String, List<String>> params, byte[] body) {
+		switch (method) {
+			case "GET":
+				boolean recurse = params.containsKey("recurse");
+				if (params.containsKey("keys")) {
+					String separator = first(params, "separator");
+					return blockingQuery(params, () -> {
+						long index = store.kvIndex(key, true);
+						List<String> keys = store.kvKeys(key, separator);
+						if (keys.isEmpty()) {
+							return new Reply(404, new byte[0], index);
+						}
+						JsonArray json = new JsonArray();
+						keys.forEach(json::add);
+						return Reply.json(json, index);
+					});
+				}
+				return blockingQuery(params, () -> {
+					long index = store.kvIndex(key, recurse);
+					List<KvEntry> entries = store.kvGet(key, recurse);
+					if (entries.isEmpty()) {
+						return new Reply(404, new byte[0], index);
+					}
+					if (params.containsKey("raw")) {
+						byte[] value = entries.get(0).value;
+						return new Reply(200, value != null ? value : new byte[0], index);
+					}
+					JsonArray json = new JsonArray();
+					entries.forEach(entry -> json.add(entry.toJson(true)));
+					return Reply.json(json, index);
+				});
+			case "PUT":
+				synchronized (store) {
+					boolean written = store.kvPut(key, body, longParam(params, "flags"), longParam(params, "cas"),
+						first(params, "acquire"), first(params, "release"));
+					return Reply.json(new JsonPrimitive(written), store.kvIndex(key, false));
+				}
+			case "DELETE":
+				synchronized (store) {
+					boolean deleted = store.kvDelete(key, params.containsKey("recurse"), longParam(params, "cas"));
+					return Reply.json(new JsonPrimitive(deleted), store.kvIndex(key, false));
+				}
+			default:
+				throw new StubException(405, "Method " + method + " not allowed");
+		}
+	}
+
+	private Reply txn(byte[] body) {
+		JsonArray operations = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonArray();
+		synchronized (store) {
+			JsonObject result = store.txn(operations);
+			boolean failed = !result.get("Errors").isJsonNull();
+			return Reply.json(failed ? 409 : 200, result, store.kvIndex("", true));
+		}
+	}
+
+	// Catalog and health
+
+	private Reply catalog(String method, String endpoint, Map<String, List<String>> params, byte[] body) {
+		if (endpoint.equals("register") || endpoint.equals("deregister")) {
+			requireMethod(method, "PUT");
+			JsonObject request = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+			synchronized (store) {
+				if (endpoint.equals("register")) {
+					store.register(request);
+				} else {
+					store.deregister(request);
+				}
+				return Reply.json(new JsonPrimitive(true), store.catalogIndex());
+			}
+		}
+
+		requireMethod(method, "GET");
+		if (endpoint.equals("datacenters")) {
+			JsonArray json = new JsonArray();
+			json.add(StubStore.DATACENTER);
+			return Reply.json(json, 0);
+		}
+		if (endpoint.equals("nodes")) {
+			return blockingQuery(params, () -> {
+				JsonArray json = new JsonArray();
+				store.nodes().values().forEach(node -> json.add(node.toJson()));
+				return Reply.json(json, store.catalogIndex());
+			});
+		}
+		if (endpoint.equals("services")) {
+			return blockingQuery(params, () -> {
+				Map<String, List<String>> services = new LinkedHashMap<>();
+				for (NodeEntry node : store.nodes().values()) {
+					for (JsonObject service : node.services.values()) {
+						List<String> tags = services.computeIfAbsent(service.get("Service").getAsString(), name -> new ArrayList<>());
+						for (JsonElement tag : service.getAsJsonArray("Tags")) {
+							if (!tags.contains(tag.getAsString())) {
+								tags.add(tag.getAsString());
+							}
+						}
+					}
+				}
+				JsonObject json = new JsonObject();
+				services.forEach((name, tags) -> {
+					JsonArray tagsJson = new JsonArray();
+					tags.forEach(tagsJson::add);
+					json.add(name, tagsJson);
+				});
+				return Reply.json(json, store.catalogIndex());
+			});
+		}
+		if (endpoint.startsWith("service/")) {
+			String serviceName = endpoint.substring("service/".length());
+			return blockingQuery(params, () -> {
+				JsonArray json = new JsonArray();
+				for (NodeEntry node : store.nodes().values()) {
+					for (JsonObject service : node.services.values()) {
+						if (matches(service, serviceName, params) && matchesNodeMeta(node, params)) {
+							json.add(catalogService(node, service));
+						}
+					}
+				}
+				return Reply.json(json, store.catalogIndex());
+			});
+		}
+		if (endpoint.startsWith("node/")) {
+			String nodeName = endpoint.substring("node/".length());
+			return blockingQuery(params, () -> {
+				NodeEntry node = store.nodes().get(nodeName);
+				if (node == null) {
+					return Reply.json(JsonNull.INSTANCE, store.catalogIndex());
+				}
+				JsonObject services = new JsonObject();
+				node.services.forEach(services::add);
+				JsonObject json = new JsonObject();
+				json.add("Node", node.toJson());
+				json.add("Services", services);
+				return Reply.json(json, store.catalogIndex());
+			});
+		}
+		return Reply.text(404, "Not found: /v1/catalog/" + endpoint);
+	}
+
+	private Reply health(String endpoint, Map<String, List<String>> params) {
+		if (endpoint.startsWith("service/")) {
+			String serviceName = endpoint.substring("service/".length());
+			boolean passingOnly = params.containsKey("passing") && !"false".equals(first(params, "passing"));
+			return blockingQuery(params, () -> {
+				JsonArray json = new JsonArray();
+				for (NodeEntry node : store.nodes().values()) {
+					for (JsonObject service : node.services.values()) {
+						if (!matches(service, serviceName, params) || !matchesNodeMeta(node, params)) {
+							continue;
+						}
+						JsonArray checks = new JsonArray();
+						boolean passing = true;
+						for (JsonObject check : node.checks.values()) {
+							String checkServiceId = check.get("ServiceID").getAsString();
+							if (checkServiceId.isEmpty() || checkServiceId.equals(service.get("ID").getAsString())) {
+								checks.add(check);
+								passing &= "passing".equals(check.get("Status").getAsString());
+							}
+						}
+						if (passingOnly && !passing) {
+							continue;
+						}
+						JsonObject entry = new JsonObject();
+						entry.add("Node", node.toJson());
+						entry.add("Service", service);
+						entry.add("Checks", checks);
+						json.add(entry);
+					}
+				}
+				return Reply.json(json, store.catalogIndex());
+			});
+		}
+		if (endpoint.startsWith("checks/")) {
+			String serviceName = endpoint.substring("checks/".length());
+			return checks(params, check -> serviceName.equals(check.get("ServiceName").getAsString()));
+		}
+		if (endpoint.startsWith("node/")) {
+			String nodeName = endpoint.substring("node/".length());
+			return checks(params, check -> nodeName.equals(check.get("Node").getAsString()));
+		}
+		if (endpoint.startsWith("state/")) {
+			String state = endpoint.substring("state/".length());
+			return checks(params, check -> state.equals("any") || state.equals(check.get("Status").getAsString()));
+		}
+		return Reply.text(404, "Not found: /v1/health/" + endpoint);
+	}
+
+	private Reply checks(Map<String, List<String>> params, Predicate<JsonObject> filter) {
+		return blockingQuery(params, () -> {
+			JsonArray json = new JsonArray();
+			for (NodeEntry node : store.nodes().values()) {
+				for (JsonObject check : node.checks.values()) {
+					if (filter.test(check)) {
+						json.add(check);
+					}
+				}
+			}
+			return Reply.json(json, store.catalogIndex());
+		});
+	}
+
+	private static boolean matches(JsonObject service, String serviceName, Map<String, List<String>> params) {
+		if (!serviceName.equals(service.get("Service").getAsString())) {
+			return false;
+		}
+		List<String> tags = new ArrayList<>();
+		service.getAsJsonArray("Tags").forEach(tag -> tags.add(tag.getAsString()));
+		return tags.containsAll(params.getOrDefault("tag", List.of()));
+	}
+
+	private static boolean matchesNodeMeta(NodeEntry node, Map<String, List<String>> params) {
+		for (String nodeMeta : params.getOrDefault("node-meta", List.of())) {
+			int colon = nodeMeta.indexOf(':');
+			JsonElement value = node.meta.get(nodeMeta.substring(0, colon));
+			if (value == null || !value.getAsString().equals(nodeMeta.substring(colon + 1))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static JsonObject catalogService(NodeEntry node, JsonObject service) {
+		JsonObject json = new JsonObject();
+		json.addProperty("ID", node.id);
+		json.addProperty("Node", node.name);
+		json.addProperty("Address", node.address);
+		json.addProperty("Datacenter", StubStore.DATACENTER);
+		json.add("TaggedAddresses", node.taggedAddresses);
+		json.add("NodeMeta", node.meta);
+		json.add("ServiceID", service.get("ID"));
+		json.add("ServiceName", service.get("Service"));
+		json.add("ServiceTags", service.get("Tags"));
+		json.add("ServiceAddress", service.get("Address"));
+		json.add("ServiceMeta", service.get("Meta"));
+		json.add("ServicePort", service.get("Port"));
+		json.add("ServiceEnableTagOverride", service.get("EnableTagOverride"));
+		json.add("CreateIndex", service.get("CreateIndex"));
+		json.add("ModifyIndex", service.get("ModifyIndex"));
+		return json;
+	}
+
+	// Sessions
+
+	private Reply session(String method, String endpoint, Map<String, List<String>> params, byte[] body) {
+		if (endpoint.equals("create")) {
+			requireMethod(method, "PUT");
+			JsonObject request = body.length == 0
+				? new JsonObject()
+				: JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+			synchronized (store) {
+				SessionEntry session = store.createSession(request);
+				JsonObject json = new JsonObject();
+				json.addProperty("ID", session.id);
+				return Reply.json(json, store.sessionIndex());
+			}
+		}
+		if (endpoint.startsWith("destroy/")) {
+			requireMethod(method, "PUT");
+			synchronized (store) {
+				store.destroySession(endpoint.substring("destroy/".length()));
+				return Reply.json(new JsonPrimitive(true), store.sessionIndex());
+			}
+		}
+		if (endpoint.startsWith("renew/")) {
+			requireMethod(method, "PUT");
+			String id = endpoint.substring("renew/".length());
+			synchronized (store) {
+				SessionEntry session = store.renewSession(id);
+				if (session == null) {
+					return Reply.text(404, "Session id '" + id + "' not found");
+				}
+				JsonArray json = new JsonArray();
+				json.add(session.toJson());
+				return Reply.json(json, store.sessionIndex());
+			}
+		}
+
+		requireMethod(method, "GET");
+		if (endpoint.startsWith("info/")) {
+			String id = endpoint.substring("info/".length());
+			return sessions(params, session -> session.id.equals(id));
+		}
+		if (endpoint.startsWith("node/")) {
+			String node = endpoint.substring("node/".length());
+			return sessions(params, session -> session.node.equals(node));
+		}
+		if (endpoint.equals("list")) {
+			return sessions(params, session -> true);
+		}
+		return Reply.text(404, "Not found: /v1/session/" + endpoint);
+	}
+
+	private Reply sessions(Map<String, List<String>> params, Predicate<SessionEntry> filter) {
+		return blockingQuery(params, () -> {
+			JsonArray json = new JsonArray();
+			store.sessions().values().stream().filter(filter).forEach(session -> json.add(session.toJson()));
+			return Reply.json(json, store.sessionIndex());
+		});
+	}
+
+	// Utilities
+
+	private static void requireMethod(String method, String expected) {
+		if (!expected.equals(method)) {
+			throw new StubException(405, "Method " + method + " not allowed");
+		}
+	}
+
+	private static Map<String, List<String>> parseQuery(String rawQuery) {
+		Map<String, List<String>> params = new LinkedHashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return params;
+		}
+		for (String param : rawQuery.split("&")) {
+			int eq = param.indexOf('=');
+			String name = URLDecoder.decode(eq == -1 ? param : param.substring(0, eq), StandardCharsets.UTF_8);
+			String value = eq == -1 ? "" : URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8);
+			params.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+		}
+		return params;
+	}
+
+	private static String first(Map<String, List<String>> params, String name) {
+		List<String> values = params.get(name);
+		return values == null || values.isEmpty() ? null : values.get(0);
+	}
+
+	private static Long longParam(Map<String, List<String>> params, String name) {
+		String value = first(params, name);
+		return value == null || value.isEmpty() ? null : Long.parseLong(value);
+	}
+
+	/**
+	 * Parses a Go duration such as {@code 10s}, {@code 1m30s} or {@code 500ms}; a plain number means seconds.
+	 *
+	 * @return the duration in nanoseconds
+	 */
+	static long parseDuration(String duration) {
+		if (duration.matches("\\d+")) {
+			return TimeUnit.SECONDS.toNanos(Long.parseLong(duration));
+		}
+
+		Matcher matcher = DURATION.matcher(duration);
+		double nanos = 0;
+		int end = 0;
+		while (matcher.find() && matcher.start() == end) {
+			double value = Double.parseDouble(matcher.group(1));
+			switch (matcher.group(2)) {
+				case "ns":
+					nanos += value;
+					break;
+				case "us":
+				case "µs":
+					nanos += value * 1e3;
+					break;
+				case "ms":
+					nanos += value * 1e6;
+					break;
+				case "s":
+					nanos += value * 1e9;
+					break;
+				case "m":
+					nanos += value * 60e9;
+					break;
+				default:
+					nanos += value * 3600e9;
+			}
+			end = matcher.end();
+		}
+		if (end == 0 || end != duration.length()) {
+			throw new StubException(400, "Invalid duration \"" + duration + "\"");
+		}
+		return (long) nanos;
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		AtomicLong counter = new AtomicLong();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,190 @@
+package com.ecwid.consul.stub;
+
+import com.ecwid.consul.transport.TransportException;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.OperationException;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.health.HealthServicesRequest;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.kv.model.PutParams;
+import com.ecwid.consul.v1.session.model.NewSession;
+import com.ecwid.consul.v1.txn.TxnConsulClient;
+import com.ecwid.consul.v1.txn.TxnRequest;
+import com.ecwid.consul.v1.txn.model.TxnResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsulStubServerTest {
+
+	private ConsulStubServer server;
+	private ConsulRawClient rawClient;
+	private ConsulClient client;
+
+	@BeforeEach
+	void setUp() {
+		server = ConsulStubServer.newBuilder().build();
+		rawClient = ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.build();
+		client = new ConsulClient(rawClient);
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.close();
+	}
+
+	@Test
+	void keyValueReadsWritesAndCas() {
+		assertThat(client.getKVValue("config/a").getValue()).isNull();
+
+		assertThat(client.setKVValue("config/a", "1").getValue()).isTrue();
+		assertThat(client.setKVValue("config/b/c", "2").getValue()).isTrue();
+		GetValue a = client.getKVValue("config/a").getValue();
+		assertThat(a.getDecodedValue()).isEqualTo("1");
+		assertThat(a.getCreateIndex()).isEqualTo(a.getModifyIndex());
+
+		PutParams stale = new PutParams();
+		stale.setCas(a.getModifyIndex() - 1);
+		assertThat(client.setKVValue("config/a", "3", stale).getValue()).isFalse();
+		PutParams current = new PutParams();
+		current.setCas(a.getModifyIndex());
+		assertThat(client.setKVValue("config/a", "3", current).getValue()).isTrue();
+
+		assertThat(client.getKVValues("config/").getValue()).extracting(GetValue::getKey).containsExactly("config/a", "config/b/c");
+		assertThat(client.getKVKeysOnly("config/", "/", null).getValue()).containsExactly("config/a", "config/b/");
+
+		client.deleteKVValues("config/b");
+		assertThat(client.getKVKeysOnly("config/").getValue()).containsExactly("config/a");
+	}
+
+	@Test
+	void blockingQueryReturnsOnChangeOrAfterWaitTime() throws Exception {
+		client.setKVValue("config/a", "1");
+		Response<List<GetValue>> initial = client.getKVValues("config/");
+		long index = initial.getConsulIndex();
+
+		// nothing changes under the prefix: the query blocks for the wait time
+		client.setKVValue("other", "x");
+		long start = System.nanoTime();
+		Response<List<GetValue>> unchanged = client.getKVValues("config/", new QueryParams(1, index));
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(900);
+		assertThat(unchanged.getConsulIndex()).isEqualTo(index);
+
+		CompletableFuture<Response<List<GetValue>>> changed = CompletableFuture.supplyAsync(() -> client.getKVValues("config/", new QueryParams(10, index)));
+		Thread.sleep(100);
+		assertThat(changed).isNotDone();
+		client.setKVValue("config/b", "2");
+
+		assertThat(changed.get(5, TimeUnit.SECONDS).getValue()).hasSize(2);
+		assertThat(changed.get().getConsulIndex()).isGreaterThan(index);
+	}
+
+	@Test
+	void sessionLocksAreReleasedWhenTheSessionEnds() throws Exception {
+		NewSession newSession = new NewSession();
+		newSession.setTtl("100ms");
+		String session = client.sessionCreate(newSession, QueryParams.DEFAULT).getValue();
+		String other = client.sessionCreate(new NewSession(), QueryParams.DEFAULT).getValue();
+
+		assertThat(client.setKVValue("lock", "owner", acquire(session)).getValue()).isTrue();
+		assertThat(client.setKVValue("lock", "other", acquire(other)).getValue()).isFalse();
+		assertThat(client.getKVValue("lock").getValue().getSession()).isEqualTo(session);
+
+		// without renewals the session is invalidated after twice its TTL, and its lock released
+		Thread.sleep(400);
+		assertThat(client.getSessionInfo(session, QueryParams.DEFAULT).getValue()).isNull();
+		assertThat(client.getKVValue("lock").getValue().getSession()).isNull();
+		assertThat(client.setKVValue("lock", "other", acquire(other)).getValue()).isTrue();
+
+		client.sessionDestroy(other, QueryParams.DEFAULT);
+		assertThat(client.getKVValue("lock").getValue().getSession()).isNull();
+		assertThatThrownBy(() -> client.renewSession(other, QueryParams.DEFAULT))
+			.isInstanceOfSatisfying(OperationException.class, e -> assertThat(e.getStatusCode()).isEqualTo(404));
+	}
+
+	@Test
+	void healthFiltersByTagAndStatus() {
+		server.registerService("node-1", "10.0.0.1", "web-1", "web", 8080, "primary");
+		server.registerService("node-2", "10.0.0.2", "web-2", "web", 8080, "secondary");
+		server.setCheckStatus("node-2", "service:web-2", "critical");
+
+		List<HealthService> all = client.getHealthServices("web", false, QueryParams.DEFAULT).getValue();
+		assertThat(all).hasSize(2);
+		assertThat(all.get(0).getChecks()).extracting(check -> check.getCheckId()).containsExactly("service:web-1");
+
+		List<String> passing = client.getHealthServices("web", true, QueryParams.DEFAULT).getValue().stream()
+			.map(service -> service.getService().getId())
+			.collect(Collectors.toList());
+		assertThat(passing).containsExactly("web-1");
+
+		HealthServicesRequest secondary = HealthServicesRequest.newBuilder().setTag("secondary").build();
+		assertThat(client.getHealthServices("web", secondary).getValue()).extracting(service -> service.getNode().getNode())
+			.containsExactly("node-2");
+		assertThat(client.getCatalogService("web", QueryParams.DEFAULT).getValue()).hasSize(2);
+		assertThat(client.getCatalogServices(QueryParams.DEFAULT).getValue()).containsKey("web");
+	}
+
+	@Test
+	void transactionIsAppliedAtomically() {
+		TxnConsulClient txnClient = new TxnConsulClient(rawClient);
+		client.setKVValue("a", "1");
+		long index = client.getKVValue("a").getValue().getModifyIndex();
+
+		TxnResult failed = txnClient.txn(TxnRequest.newBuilder()
+			.addKVSet("b", "2")
+			.addKVCas("a", "3", index - 1)
+			.build()).getValue();
+		assertThat(failed.isCommitted()).isFalse();
+		assertThat(failed.getErrors()).extracting(error -> error.getOpIndex()).containsExactly(1);
+		assertThat(client.getKVValue("b").getValue()).isNull();
+
+		TxnResult committed = txnClient.txn(TxnRequest.newBuilder()
+			.addKVSet("b", "2")
+			.addKVCas("a", "3", index)
+			.build()).getValue();
+		assertThat(committed.isCommitted()).isTrue();
+		assertThat(committed.getResults()).extracting(result -> result.getKv().getModifyIndex()).containsOnly(index + 1);
+		assertThat(client.getKVValue("a").getValue().getDecodedValue()).isEqualTo("3");
+	}
+
+	@Test
+	void injectsLatencyAndFaults() {
+		server.setLatencyMillis(200);
+		long start = System.nanoTime();
+		client.getKVValues("any");
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+		server.setLatencyMillis(0);
+
+		server.setErrorRate(1);
+		assertThatThrownBy(() -> client.getKVValues("any"))
+			.isInstanceOfSatisfying(OperationException.class, e -> assertThat(e.getStatusCode()).isEqualTo(500));
+		server.setErrorRate(0);
+
+		server.setDisconnectRate(1);
+		assertThatThrownBy(() -> client.getKVValues("any")).isInstanceOf(TransportException.class);
+		server.setDisconnectRate(0);
+
+		assertThat(client.getKVValues("any").getValue()).isNull();
+		assertThat(server.getFaultCount()).isGreaterThanOrEqualTo(2);
+	}
+
+	private static PutParams acquire(String session) {
+		PutParams putParams = new PutParams();
+		putParams.setAcquireSession(session);
+		return putParams;
+	}
+}
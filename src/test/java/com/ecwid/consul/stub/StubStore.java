@@ -0,0 +1,678 @@
+package com.ecwid.consul.stub;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State of the stub agent: the KV store, the catalog and the sessions. Every write gets its own index, like a Raft log
+ * entry, and wakes up the blocking queries. All methods must be called holding the monitor of this object.
+ */
+final class StubStore {
+
+	static final String DATACENTER = "dc1";
+
+	// Consul invalidates a session only after twice its TTL
+	private static final int SESSION_TTL_MULTIPLIER = 2;
+	private static final long DEFAULT_LOCK_DELAY_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+	static final class KvEntry {
+		final String key;
+		byte[] value;
+		long flags;
+		long createIndex;
+		long modifyIndex;
+		long lockIndex;
+		String session;
+
+		KvEntry(String key) {
+			this.key = key;
+		}
+
+		KvEntry copy() {
+			KvEntry copy = new KvEntry(key);
+			copy.value = value;
+			copy.flags = flags;
+			copy.createIndex = createIndex;
+			copy.modifyIndex = modifyIndex;
+			copy.lockIndex = lockIndex;
+			copy.session = session;
+			return copy;
+		}
+
+		JsonObject toJson(boolean withValue) {
+			JsonObject json = new JsonObject();
+			json.addProperty("LockIndex", lockIndex);
+			json.addProperty("Key", key);
+			json.addProperty("Flags", flags);
+			json.addProperty("Value", withValue && value != null && value.length > 0 ? Base64.getEncoder().encodeToString(value) : null);
+			if (session != null) {
+				json.addProperty("Session", session);
+			}
+			json.addProperty("CreateIndex", createIndex);
+			json.addProperty("ModifyIndex", modifyIndex);
+			return json;
+		}
+	}
+
+	static final class NodeEntry {
+		String id = UUID.randomUUID().toString();
+		String name;
+		String address;
+		JsonObject taggedAddresses = new JsonObject();
+		JsonObject meta = new JsonObject();
+		long createIndex;
+		long modifyIndex;
+		final Map<String, JsonObject> services = new LinkedHashMap<>();
+		final Map<String, JsonObject> checks = new LinkedHashMap<>();
+
+		JsonObject toJson() {
+			JsonObject json = new JsonObject();
+			json.addProperty("ID", id);
+			json.addProperty("Node", name);
+			json.addProperty("Address", address);
+			json.addProperty("Datacenter", DATACENTER);
+			json.add("TaggedAddresses", taggedAddresses);
+			json.add("Meta", meta);
+			json.addProperty("CreateIndex", createIndex);
+			json.addProperty("ModifyIndex", modifyIndex);
+			return json;
+		}
+	}
+
+	static final class SessionEntry {
+		String id;
+		String name;
+		String node;
+		List<String> checks;
+		long lockDelayNanos;
+		String behavior;
+		String ttl;
+		long ttlNanos;
+		long expiresAtNanos;
+		long createIndex;
+		long modifyIndex;
+
+		JsonObject toJson() {
+			JsonObject json = new JsonObject();
+			json.addProperty("ID", id);
+			json.addProperty("Name", name);
+			json.addProperty("Node", node);
+			JsonArray checksJson = new JsonArray();
+			checks.forEach(checksJson::add);
+			json.add("Checks", checksJson);
+			json.addProperty("LockDelay", lockDelayNanos);
+			json.addProperty("Behavior", behavior);
+			json.addProperty("TTL", ttl);
+			json.addProperty("CreateIndex", createIndex);
+			json.addProperty("ModifyIndex", modifyIndex);
+			return json;
+		}
+	}
+
+	/**
+	 * A failed write, reported to the client as an error response.
+	 */
+	static final class StubException extends RuntimeException {
+		final int statusCode;
+
+		StubException(int statusCode, String message) {
+			super(message);
+			this.statusCode = statusCode;
+		}
+	}
+
+	private final String agentNode;
+
+	private long index = 1;
+
+	private NavigableMap<String, KvEntry> kv = new TreeMap<>();
+	// deleted keys keep their index, so the index of a prefix never goes backwards
+	private NavigableMap<String, Long> tombstones = new TreeMap<>();
+	private final Map<String, Long> lockDelays = new LinkedHashMap<>();
+	private long kvIndex = 1;
+
+	private final Map<String, NodeEntry> nodes = new TreeMap<>();
+	private long catalogIndex = 1;
+
+	private final Map<String, SessionEntry> sessions = new LinkedHashMap<>();
+	private long sessionIndex = 1;
+
+	StubStore(String agentNode) {
+		this.agentNode = agentNode;
+	}
+
+	long index() {
+		return index;
+	}
+
+	private long nextIndex() {
+		notifyAll();
+		return ++index;
+	}
+
+	// KV
+
+	long kvIndex(String prefix, boolean recurse) {
+		if (!recurse) {
+			KvEntry entry = kv.get(prefix);
+			Long deleted = tombstones.get(prefix);
+			long result = Math.max(entry != null ? entry.modifyIndex : 0, deleted != null ? deleted : 0);
+			return result > 0 ? result : kvIndex;
+		}
+
+		long result = 0;
+		for (KvEntry entry : prefixMap(kv, prefix).values()) {
+			result = Math.max(result, entry.modifyIndex);
+		}
+		for (long deleted : prefixMap(tombstones, prefix).values()) {
+			result = Math.max(result, deleted);
+		}
+		return result > 0 ? result : kvIndex;
+	}
+
+	List<KvEntry> kvGet(String key, boolean recurse) {
+		List<KvEntry> result = new ArrayList<>();
+		if (recurse) {
+			result.addAll(prefixMap(kv, key).values());
+		} else if (kv.containsKey(key)) {
+			result.add(kv.get(key));
+		}
+		return result;
+	}
+
+	List<String> kvKeys(String prefix, String separator) {
+		List<String> result = new ArrayList<>();
+		for (String key : prefixMap(kv, prefix).keySet()) {
+			if (separator != null && !separator.isEmpty()) {
+				int end = key.indexOf(separator, prefix.length());
+				if (end != -1) {
+					key = key.substring(0, end + separator.length());
+				}
+			}
+			if (result.isEmpty() || !result.get(result.size() - 1).equals(key)) {
+				result.add(key);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param cas      expected modify index, 0 if the key must not exist, or null
+	 * @param acquire  session which acquires the lock, or null
+	 * @param release  session which releases the lock, or null
+	 * @return whether the value was written
+	 */
+	boolean kvPut(String key, byte[] value, Long flags, Long cas, String acquire, String release) {
+		KvEntry existing = kv.get(key);
+		if (cas != null && (existing == null ? cas != 0 : existing.modifyIndex != cas)) {
+			return false;
+		}
+
+		KvEntry entry = existing != null ? existing.copy() : new KvEntry(key);
+		if (acquire != null) {
+			requireSession(acquire);
+			if (entry.session != null && !entry.session.equals(acquire)) {
+				return false;
+			}
+			Long lockDelayUntil = lockDelays.get(key);
+			if (entry.session == null && lockDelayUntil != null && System.nanoTime() - lockDelayUntil < 0) {
+				return false;
+			}
+			if (entry.session == null) {
+				entry.lockIndex++;
+				entry.session = acquire;
+			}
+		} else if (release != null) {
+			requireSession(release);
+			if (!release.equals(entry.session)) {
+				return false;
+			}
+			entry.session = null;
+		}
+
+		entry.value = value;
+		if (flags != null) {
+			entry.flags = flags;
+		}
+		write(entry, existing == null);
+		return true;
+	}
+
+	private void write(KvEntry entry, boolean created) {
+		long writeIndex = nextIndex();
+		if (created) {
+			entry.createIndex = writeIndex;
+		}
+		entry.modifyIndex = writeIndex;
+		kv.put(entry.key, entry);
+		tombstones.remove(entry.key);
+		kvIndex = writeIndex;
+	}
+
+	boolean kvDelete(String key, boolean recurse, Long cas) {
+		if (recurse) {
+			List<String> keys = new ArrayList<>(prefixMap(kv, key).keySet());
+			if (!keys.isEmpty()) {
+				long writeIndex = nextIndex();
+				for (String deleted : keys) {
+					kv.remove(deleted);
+					tombstones.put(deleted, writeIndex);
+				}
+				kvIndex = writeIndex;
+			}
+			return true;
+		}
+
+		KvEntry existing = kv.get(key);
+		if (cas != null && (existing == null || existing.modifyIndex != cas)) {
+			return false;
+		}
+		if (existing != null) {
+			long writeIndex = nextIndex();
+			kv.remove(key);
+			tombstones.put(key, writeIndex);
+			kvIndex = writeIndex;
+		}
+		return true;
+	}
+
+	// Transactions
+
+	/**
+	 * Applies the KV operations atomically: all of them are applied under a single index, or none is.
+	 *
+	 * @return the results, or an array of errors if the transaction was rolled back
+	 */
+	JsonObject txn(JsonArray operations) {
+		NavigableMap<String, KvEntry> kvBefore = new TreeMap<>(kv);
+		NavigableMap<String, Long> tombstonesBefore = new TreeMap<>(tombstones);
+		long indexBefore = index;
+		long kvIndexBefore = kvIndex;
+
+		JsonArray results = new JsonArray();
+		JsonArray errors = new JsonArray();
+		for (int i = 0; i < operations.size(); i++) {
+			try {
+				applyTxnOperation(operations.get(i).getAsJsonObject(), results);
+			} catch (StubException e) {
+				JsonObject error = new JsonObject();
+				error.addProperty("OpIndex", i);
+				error.addProperty("What", e.getMessage());
+				errors.add(error);
+			}
+		}
+
+		JsonObject result = new JsonObject();
+		if (errors.size() > 0) {
+			kv = kvBefore;
+			tombstones = tombstonesBefore;
+			index = indexBefore;
+			kvIndex = kvIndexBefore;
+			result.add("Results", JsonNull.INSTANCE);
+			result.add("Errors", errors);
+			return result;
+		}
+
+		// the whole transaction is a single entry in the log
+		if (index > indexBefore + 1) {
+			long txnIndex = indexBefore + 1;
+			for (KvEntry entry : kv.values()) {
+				if (entry.modifyIndex > indexBefore) {
+					entry.modifyIndex = txnIndex;
+					entry.createIndex = entry.createIndex > indexBefore ? txnIndex : entry.createIndex;
+				}
+			}
+			tombstones.replaceAll((key, deleted) -> deleted > indexBefore ? txnIndex : deleted);
+			for (JsonElement element : results) {
+				JsonObject resultKv = element.getAsJsonObject().getAsJsonObject("KV");
+				if (resultKv.get("ModifyIndex").getAsLong() > indexBefore) {
+					resultKv.addProperty("ModifyIndex", txnIndex);
+				}
+				if (resultKv.get("CreateIndex").getAsLong() > indexBefore) {
+					resultKv.addProperty("CreateIndex", txnIndex);
+				}
+			}
+			index = txnIndex;
+			kvIndex = txnIndex;
+		}
+		result.add("Results", results);
+		result.add("Errors", JsonNull.INSTANCE);
+		return result;
+	}
+
+	private void applyTxnOperation(JsonObject operation, JsonArray results) {
+		JsonObject op = operation.getAsJsonObject("KV");
+		if (op == null) {
+			throw new StubException(409, "only KV operations are supported by the stub");
+		}
+		String verb = string(op, "Verb");
+		String key = string(op, "Key");
+		String encoded = string(op, "Value");
+		byte[] value = encoded != null ? Base64.getDecoder().decode(encoded) : null;
+		Long flags = op.has("Flags") && !op.get("Flags").isJsonNull() ? op.get("Flags").getAsLong() : null;
+		long opIndex = op.has("Index") && !op.get("Index").isJsonNull() ? op.get("Index").getAsLong() : 0;
+		String session = string(op, "Session");
+		KvEntry existing = key != null ? kv.get(key) : null;
+
+		switch (verb == null ? "" : verb) {
+			case "set":
+				kvPut(key, value, flags, null, null, null);
+				results.add(txnResult(kv.get(key), false));
+				break;
+			case "cas":
+				if (!kvPut(key, value, flags, opIndex, null, null)) {
+					throw new StubException(409, "failed to set key \"" + key + "\", index is stale");
+				}
+				results.add(txnResult(kv.get(key), false));
+				break;
+			case "lock":
+				if (!kvPut(key, value, flags, null, session, null)) {
+					throw new StubException(409, "failed to lock key \"" + key + "\", lock is already held");
+				}
+				results.add(txnResult(kv.get(key), false));
+				break;
+			case "unlock":
+				if (!kvPut(key, value, flags, null, null, session)) {
+					throw new StubException(409, "failed to unlock key \"" + key + "\", lock isn't held, or is held by another session");
+				}
+				results.add(txnResult(kv.get(key), false));
+				break;
+			case "get":
+				if (existing == null) {
+					throw new StubException(409, "key \"" + key + "\" doesn't exist");
+				}
+				results.add(txnResult(existing, true));
+				break;
+			case "get-tree":
+				for (KvEntry entry : prefixMap(kv, key).values()) {
+					results.add(txnResult(entry, true));
+				}
+				break;
+			case "check-index":
+				if (existing == null || existing.modifyIndex != opIndex) {
+					throw new StubException(409, "current modify index for key \"" + key + "\" doesn't match");
+				}
+				results.add(txnResult(existing, false));
+				break;
+			case "check-session":
+				if (existing == null || !Objects.equals(existing.session, session)) {
+					throw new StubException(409, "key \"" + key + "\" is not locked by session \"" + session + "\"");
+				}
+				results.add(txnResult(existing, false));
+				break;
+			case "check-not-exists":
+				if (existing != null) {
+					throw new StubException(409, "key \"" + key + "\" exists");
+				}
+				break;
+			case "delete":
+				kvDelete(key, false, null);
+				break;
+			case "delete-tree":
+				kvDelete(key, true, null);
+				break;
+			case "delete-cas":
+				if (!kvDelete(key, false, opIndex)) {
+					throw new StubException(409, "failed to delete key \"" + key + "\", index is stale");
+				}
+				break;
+			default:
+				throw new StubException(409, "unknown KV verb \"" + verb + "\"");
+		}
+	}
+
+	private static JsonObject txnResult(KvEntry entry, boolean withValue) {
+		JsonObject result = new JsonObject();
+		result.add("KV", entry.toJson(withValue));
+		return result;
+	}
+
+	// Catalog and health
+
+	long catalogIndex() {
+		return catalogIndex;
+	}
+
+	Map<String, NodeEntry> nodes() {
+		return nodes;
+	}
+
+	void register(JsonObject registration) {
+		String nodeName = string(registration, "Node");
+		if (nodeName == null || nodeName.isEmpty()) {
+			throw new StubException(400, "Must provide node");
+		}
+
+		long writeIndex = nextIndex();
+		catalogIndex = writeIndex;
+		NodeEntry node = nodes.get(nodeName);
+		if (node == null) {
+			node = new NodeEntry();
+			node.name = nodeName;
+			node.createIndex = writeIndex;
+			nodes.put(nodeName, node);
+		}
+		node.modifyIndex = writeIndex;
+		if (string(registration, "ID") != null) {
+			node.id = string(registration, "ID");
+		}
+		if (string(registration, "Address") != null) {
+			node.address = string(registration, "Address");
+		}
+		if (registration.has("TaggedAddresses") && registration.get("TaggedAddresses").isJsonObject()) {
+			node.taggedAddresses = registration.getAsJsonObject("TaggedAddresses");
+		}
+		if (registration.has("NodeMeta") && registration.get("NodeMeta").isJsonObject()) {
+			node.meta = registration.getAsJsonObject("NodeMeta");
+		}
+
+		JsonObject service = registration.has("Service") && registration.get("Service").isJsonObject()
+			? registration.getAsJsonObject("Service") : null;
+		if (service != null) {
+			String id = string(service, "ID") != null ? string(service, "ID") : string(service, "Service");
+			JsonObject existing = node.services.get(id);
+			JsonObject entry = new JsonObject();
+			entry.addProperty("ID", id);
+			entry.addProperty("Service", string(service, "Service"));
+			entry.add("Tags", service.has("Tags") && service.get("Tags").isJsonArray() ? service.get("Tags") : new JsonArray());
+			entry.addProperty("Address", string(service, "Address") != null ? string(service, "Address") : "");
+			entry.add("Meta", service.has("Meta") && service.get("Meta").isJsonObject() ? service.get("Meta") : new JsonObject());
+			entry.addProperty("Port", service.has("Port") && !service.get("Port").isJsonNull() ? service.get("Port").getAsInt() : 0);
+			entry.addProperty("EnableTagOverride", false);
+			entry.addProperty("CreateIndex", existing != null ? existing.get("CreateIndex").getAsLong() : writeIndex);
+			entry.addProperty("ModifyIndex", writeIndex);
+			node.services.put(id, entry);
+		}
+
+		JsonObject check = registration.has("Check") && registration.get("Check").isJsonObject()
+			? registration.getAsJsonObject("Check") : null;
+		if (check != null) {
+			String serviceId = string(check, "ServiceID") != null ? string(check, "ServiceID") : "";
+			String checkId = string(check, "CheckID") != null ? string(check, "CheckID") : string(check, "Name");
+			putCheck(node, checkId, string(check, "Name"), string(check, "Status"), string(check, "Notes"), serviceId, writeIndex);
+		}
+	}
+
+	void putCheck(NodeEntry node, String checkId, String name, String status, String notes, String serviceId, long writeIndex) {
+		JsonObject service = serviceId != null ? node.services.get(serviceId) : null;
+		JsonObject existing = node.checks.get(checkId);
+
+		JsonObject entry = new JsonObject();
+		entry.addProperty("Node", node.name);
+		entry.addProperty("CheckID", checkId);
+		entry.addProperty("Name", name != null ? name : checkId);
+		entry.addProperty("Status", status != null ? status : "critical");
+		entry.addProperty("Notes", notes != null ? notes : "");
+		entry.addProperty("Output", "");
+		entry.addProperty("ServiceID", service != null ? serviceId : "");
+		entry.addProperty("ServiceName", service != null ? service.get("Service").getAsString() : "");
+		entry.add("ServiceTags", service != null ? service.get("Tags") : new JsonArray());
+		entry.addProperty("CreateIndex", existing != null ? existing.get("CreateIndex").getAsLong() : writeIndex);
+		entry.addProperty("ModifyIndex", writeIndex);
+		node.checks.put(checkId, entry);
+		catalogIndex = writeIndex;
+	}
+
+	void updateCheck(String nodeName, String checkId, String status) {
+		NodeEntry node = nodes.get(nodeName);
+		JsonObject check = node != null ? node.checks.get(checkId) : null;
+		if (check == null) {
+			throw new StubException(404, "Unknown check \"" + checkId + "\" on node \"" + nodeName + "\"");
+		}
+		long writeIndex = nextIndex();
+		check.addProperty("Status", status);
+		check.addProperty("ModifyIndex", writeIndex);
+		catalogIndex = writeIndex;
+	}
+
+	void deregister(JsonObject deregistration) {
+		String nodeName = string(deregistration, "Node");
+		NodeEntry node = nodeName != null ? nodes.get(nodeName) : null;
+		if (node == null) {
+			return;
+		}
+
+		long writeIndex = nextIndex();
+		String serviceId = string(deregistration, "ServiceID");
+		String checkId = string(deregistration, "CheckID");
+		if (serviceId != null) {
+			node.services.remove(serviceId);
+			node.checks.values().removeIf(check -> serviceId.equals(check.get("ServiceID").getAsString()));
+		} else if (checkId != null) {
+			node.checks.remove(checkId);
+		} else {
+			nodes.remove(nodeName);
+		}
+		catalogIndex = writeIndex;
+	}
+
+	// Sessions
+
+	long sessionIndex() {
+		return sessionIndex;
+	}
+
+	Map<String, SessionEntry> sessions() {
+		return sessions;
+	}
+
+	SessionEntry createSession(JsonObject request) {
+		long writeIndex = nextIndex();
+		SessionEntry session = new SessionEntry();
+		session.id = UUID.randomUUID().toString();
+		session.name = string(request, "Name") != null ? string(request, "Name") : "";
+		session.node = string(request, "Node") != null ? string(request, "Node") : agentNode;
+		session.checks = new ArrayList<>();
+		if (request.has("Checks") && request.get("Checks").isJsonArray()) {
+			request.getAsJsonArray("Checks").forEach(check -> session.checks.add(check.getAsString()));
+		}
+		session.lockDelayNanos = lockDelayNanos(request.get("LockDelay"));
+		session.behavior = string(request, "Behavior") != null ? string(request, "Behavior") : "release";
+		session.ttl = string(request, "TTL") != null ? string(request, "TTL") : "";
+		session.ttlNanos = session.ttl.isEmpty() ? 0 : ConsulStubServer.parseDuration(session.ttl);
+		session.createIndex = writeIndex;
+		session.modifyIndex = writeIndex;
+		renew(session);
+		sessions.put(session.id, session);
+		sessionIndex = writeIndex;
+		return session;
+	}
+
+	SessionEntry renewSession(String id) {
+		SessionEntry session = sessions.get(id);
+		if (session != null) {
+			renew(session);
+		}
+		return session;
+	}
+
+	private static void renew(SessionEntry session) {
+		session.expiresAtNanos = System.nanoTime() + session.ttlNanos * SESSION_TTL_MULTIPLIER;
+	}
+
+	void destroySession(String id) {
+		SessionEntry session = sessions.remove(id);
+		if (session == null) {
+			return;
+		}
+
+		long writeIndex = nextIndex();
+		sessionIndex = writeIndex;
+		boolean kvChanged = false;
+		for (KvEntry entry : new ArrayList<>(kv.values())) {
+			if (!id.equals(entry.session)) {
+				continue;
+			}
+			kvChanged = true;
+			if (session.lockDelayNanos > 0) {
+				lockDelays.put(entry.key, System.nanoTime() + session.lockDelayNanos);
+			}
+			if ("delete".equals(session.behavior)) {
+				kv.remove(entry.key);
+				tombstones.put(entry.key, writeIndex);
+			} else {
+				KvEntry released = entry.copy();
+				released.session = null;
+				released.modifyIndex = writeIndex;
+				kv.put(entry.key, released);
+			}
+		}
+		if (kvChanged) {
+			kvIndex = writeIndex;
+		}
+	}
+
+	/**
+	 * Invalidates the sessions whose TTL has passed without a renewal.
+	 */
+	void expireSessions(long nowNanos) {
+		for (SessionEntry session : new ArrayList<>(sessions.values())) {
+			if (session.ttlNanos > 0 && nowNanos - session.expiresAtNanos > 0) {
+				destroySession(session.id);
+			}
+		}
+	}
+
+	private void requireSession(String id) {
+		if (!sessions.containsKey(id)) {
+			throw new StubException(500, "invalid session \"" + id + "\"");
+		}
+	}
+
+	// numbers below 1000 are seconds and larger ones nanoseconds, like Consul's lock delay fixup
+	private static long lockDelayNanos(JsonElement lockDelay) {
+		if (lockDelay == null || lockDelay.isJsonNull()) {
+			return DEFAULT_LOCK_DELAY_NANOS;
+		}
+		if (lockDelay.getAsJsonPrimitive().isString()) {
+			return ConsulStubServer.parseDuration(lockDelay.getAsString());
+		}
+		long value = lockDelay.getAsLong();
+		return value < 1000 ? TimeUnit.SECONDS.toNanos(value) : value;
+	}
+
+	private static <V> NavigableMap<String, V> prefixMap(NavigableMap<String, V> map, String prefix) {
+		if (prefix.isEmpty()) {
+			return map;
+		}
+		return map.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+
+	private static String string(JsonObject json, String name) {
+		JsonElement element = json.get(name);
+		return element == null || element.isJsonNull() ? null : element.getAsString();
+	}
+}
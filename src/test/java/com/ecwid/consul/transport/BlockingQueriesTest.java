@@ -0,0 +1,27 @@
+package com.ecwid.consul.transport;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlockingQueriesTest {
+
+	@Test
+	void blockingQueryIsRecognizedByItsIndex() {
+		assertThat(BlockingQueries.isBlockingQuery("http://localhost:8500/v1/kv/key?index=12&wait=10s")).isTrue();
+		assertThat(BlockingQueries.isBlockingQuery("http://localhost:8500/v1/kv/key?dc=dc1&index=0")).isFalse();
+		assertThat(BlockingQueries.isBlockingQuery("http://localhost:8500/v1/kv/key?reindex=12")).isFalse();
+		assertThat(BlockingQueries.isBlockingQuery("http://localhost:8500/v1/kv/index=12")).isFalse();
+		assertThat(BlockingQueries.requestedIndex("http://localhost:8500/v1/kv/key?index=18446744073709551615")).isEqualTo(-1L);
+	}
+
+	@Test
+	void waitTimeIsParsedWithItsUnitAndCapped() {
+		assertThat(BlockingQueries.requestedWaitMillis("http://localhost:8500/v1/kv/key?index=1&wait=250ms")).isEqualTo(250);
+		assertThat(BlockingQueries.requestedWaitMillis("http://localhost:8500/v1/kv/key?wait=30s&index=1")).isEqualTo(30_000);
+		assertThat(BlockingQueries.requestedWaitMillis("http://localhost:8500/v1/kv/key?index=1&wait=2m")).isEqualTo(120_000);
+		assertThat(BlockingQueries.requestedWaitMillis("http://localhost:8500/v1/kv/key?index=1&wait=1h")).isEqualTo(BlockingQueries.MAX_WAIT_MILLIS);
+		assertThat(BlockingQueries.requestedWaitMillis("http://localhost:8500/v1/kv/key?index=1")).isEqualTo(BlockingQueries.DEFAULT_WAIT_MILLIS);
+		assertThat(BlockingQueries.requestedWaitMillis("http://localhost:8500/v1/kv/key?index=1&wait=soon")).isEqualTo(BlockingQueries.DEFAULT_WAIT_MILLIS);
+	}
+}
@@ -0,0 +1,117 @@
+package com.ecwid.consul.transport;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DefaultAsyncHttpTransportTest {
+
+	private HttpServer server;
+	private DefaultAsyncHttpTransport transport;
+	private String baseUrl;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/kv/", exchange -> {
+			byte[] body = ("[\"" + exchange.getRequestMethod() + " " + exchange.getRequestHeaders().getFirst("X-Consul-Token") + "\"]")
+				.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("X-Consul-Index", "42");
+			exchange.getResponseHeaders().add("X-Consul-Knownleader", "true");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		});
+		server.start();
+
+		baseUrl = "http://localhost:" + server.getAddress().getPort();
+		transport = new DefaultAsyncHttpTransport();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		transport.close();
+		server.stop(0);
+	}
+
+	@Test
+	void getRequestCompletesWithConsulMetadata() throws Exception {
+		HttpRequest request = HttpRequest.Builder.newBuilder()
+			.setUrl(baseUrl + "/v1/kv/key")
+			.addHeader("X-Consul-Token", "secret")
+			.build();
+
+		HttpResponse response = transport.makeGetRequest(request).get(10, TimeUnit.SECONDS);
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals("[\"GET secret\"]", response.getContent());
+		assertEquals(Long.valueOf(42), response.getConsulIndex());
+		assertEquals(Boolean.TRUE, response.isConsulKnownLeader());
+	}
+
+	@Test
+	void getRequestIsDecodedFromTheStream() throws Exception {
+		HttpRequest request = HttpRequest.Builder.newBuilder()
+			.setUrl(baseUrl + "/v1/kv/key")
+			.build();
+
+		DecodedHttpResponse<List<String>> response = transport.makeGetRequest(request,
+			GsonFactory.<List<String>>getDecoder(new TypeToken<List<String>>() {}.getType())).get(10, TimeUnit.SECONDS);
+
+		assertEquals(Collections.singletonList("GET null"), response.getValue());
+		assertEquals(Long.valueOf(42), response.getHttpResponse().getConsulIndex());
+	}
+
+	@Test
+	void responsesAreDecodedOnTheDecodeExecutor() throws Exception {
+		ExecutorService decodeExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-decoder"));
+		try (DefaultAsyncHttpTransport transport = new DefaultAsyncHttpTransport(null, false, decodeExecutor)) {
+			HttpRequest request = HttpRequest.Builder.newBuilder()
+				.setUrl(baseUrl + "/v1/kv/key")
+				.build();
+
+			DecodedHttpResponse<String> response = transport.makeGetRequest(request,
+				reader -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+
+			assertEquals("test-decoder", response.getValue());
+		} finally {
+			decodeExecutor.shutdown();
+		}
+	}
+
+	@Test
+	void manyConcurrentRequestsShareTheReactor() throws Exception {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[50];
+		for (int i = 0; i < futures.length; i++) {
+			HttpRequest request = HttpRequest.Builder.newBuilder()
+				.setUrl(baseUrl + "/v1/kv/key" + i)
+				.setContent("value")
+				.build();
+			futures[i] = transport.makePutRequest(request);
+		}
+
+		CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+		for (CompletableFuture<?> future : futures) {
+			assertFalse(future.isCompletedExceptionally());
+			assertEquals("[\"PUT null\"]", ((HttpResponse) future.get()).getContent());
+		}
+	}
+}
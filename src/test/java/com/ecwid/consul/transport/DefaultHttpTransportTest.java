@@ -0,0 +1,222 @@
+package com.ecwid.consul.transport;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultHttpTransportTest {
+
+	private static final ContentDecoder<List<String>> DECODER = GsonFactory.getDecoder(new TypeToken<List<String>>() {}.getType());
+
+	private static final List<String> LARGE_VALUE = Collections.nCopies(1000, "web-frontend");
+	private static final String LARGE_BODY = new Gson().toJson(LARGE_VALUE);
+
+	private HttpServer server;
+	private DefaultHttpTransport transport;
+	private String baseUrl;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/ok", exchange -> respond(exchange, 200, "[\"a\",\"b\",\"ü\"]"));
+		server.createContext("/v1/error", exchange -> respond(exchange, 403, "ACL not found"));
+		server.createContext("/v1/cached", exchange -> {
+			exchange.getResponseHeaders().add("X-Cache", "HIT");
+			exchange.getResponseHeaders().add("Age", "12");
+			respond(exchange, 200, "[]");
+		});
+		server.createContext("/v1/compressed", exchange -> {
+			String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+				respond(exchange, 200, LARGE_BODY);
+				return;
+			}
+			exchange.getResponseHeaders().add("X-Consul-Index", "42");
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody())) {
+				os.write(LARGE_BODY.getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		server.createContext("/v1/slow", exchange -> {
+			try {
+				Thread.sleep(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200, "[]");
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		baseUrl = "http://localhost:" + server.getAddress().getPort();
+		transport = new DefaultHttpTransport();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void successfulResponseIsDecodedFromTheStream() {
+		HttpRequest request = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/ok").build();
+
+		DecodedHttpResponse<List<String>> response = transport.makeGetRequest(request, DECODER);
+
+		assertEquals(Arrays.asList("a", "b", "ü"), response.getValue());
+		assertEquals(200, response.getHttpResponse().getStatusCode());
+		assertNull(response.getHttpResponse().getContent());
+		assertEquals(Long.valueOf(42), response.getHttpResponse().getConsulIndex());
+	}
+
+	@Test
+	void errorResponseKeepsTheRawContent() {
+		HttpRequest request = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/error").build();
+
+		DecodedHttpResponse<List<String>> response = transport.makeGetRequest(request, DECODER);
+
+		assertNull(response.getValue());
+		assertEquals(403, response.getHttpResponse().getStatusCode());
+		assertEquals("ACL not found", response.getHttpResponse().getContent());
+	}
+
+	@Test
+	void agentCacheHeadersAreParsed() {
+		HttpRequest cached = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/cached").build();
+		HttpRequest notCached = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/ok").build();
+
+		HttpResponse response = transport.makeGetRequest(cached);
+		assertEquals(Boolean.TRUE, response.isCacheHit());
+		assertEquals(Long.valueOf(12), response.getCacheAge());
+
+		response = transport.makeGetRequest(notCached, DECODER).getHttpResponse();
+		assertNull(response.isCacheHit());
+		assertNull(response.getCacheAge());
+	}
+
+	@Test
+	void bufferedResponsesCanBeDecoded() {
+		HttpResponse httpResponse = new HttpResponse(200, "OK", "[\"x\"]", 7L, true, 0L);
+
+		DecodedHttpResponse<List<String>> response = DecodedHttpResponse.decode(httpResponse, DECODER);
+
+		assertEquals(Arrays.asList("x"), response.getValue());
+		assertEquals(Long.valueOf(7), response.getHttpResponse().getConsulIndex());
+	}
+
+	@Test
+	void compressedResponseIsDecompressedWhileDecoded() {
+		HttpRequest request = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/compressed").build();
+
+		DecodedHttpResponse<List<String>> decoded = transport.makeGetRequest(request, DECODER);
+		assertEquals(LARGE_VALUE, decoded.getValue());
+		assertEquals(Long.valueOf(42), decoded.getHttpResponse().getConsulIndex());
+		long compressedBytes = decoded.getHttpResponse().getCompressedBytes();
+		assertTrue(compressedBytes > 0 && compressedBytes < LARGE_BODY.length() / 10);
+
+		HttpResponse buffered = transport.makeGetRequest(request);
+		assertEquals(LARGE_BODY, buffered.getContent());
+		assertEquals(Long.valueOf(compressedBytes), buffered.getCompressedBytes());
+	}
+
+	@Test
+	void responseCompressionCanBeDisabled() {
+		DefaultHttpTransport uncompressed = new DefaultHttpTransport(ConnectionLanesConfig.newBuilder()
+			.setResponseCompression(false)
+			.build());
+		HttpRequest request = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/compressed").build();
+
+		DecodedHttpResponse<List<String>> response = uncompressed.makeGetRequest(request, DECODER);
+
+		assertEquals(LARGE_VALUE, response.getValue());
+		assertNull(response.getHttpResponse().getCompressedBytes());
+	}
+
+	@Test
+	void readTimeoutOfShortRequestsIsTheFastLaneTimeout() {
+		DefaultHttpTransport lanes = new DefaultHttpTransport(ConnectionLanesConfig.newBuilder()
+			.setFastReadTimeoutMillis(200)
+			.build());
+		HttpRequest request = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/slow").build();
+
+		TransportException e = assertThrows(TransportException.class, () -> lanes.makeGetRequest(request));
+		assertInstanceOf(SocketTimeoutException.class, e.getCause());
+	}
+
+	@Test
+	void readTimeoutOfBlockingQueriesFollowsTheirWaitTime() {
+		DefaultHttpTransport lanes = new DefaultHttpTransport(ConnectionLanesConfig.newBuilder()
+			.setFastReadTimeoutMillis(200)
+			.setLongPollTimeoutMarginMillis(200)
+			.build());
+		HttpRequest shortWait = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/slow?index=1&wait=100ms").build();
+		HttpRequest longWait = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/slow?index=1&wait=2s").build();
+
+		// 100 ms + 6 ms jitter + 200 ms margin
+		assertThrows(TransportException.class, () -> lanes.makeGetRequest(shortWait, DECODER));
+		// 2 s + 125 ms jitter + 200 ms margin
+		assertEquals(200, lanes.makeGetRequest(longWait, DECODER).getHttpResponse().getStatusCode());
+	}
+
+	@Test
+	void longPollsDoNotTakeConnectionsOfShortRequests() throws Exception {
+		DefaultHttpTransport lanes = new DefaultHttpTransport(ConnectionLanesConfig.newBuilder()
+			.setFastMaxPerRouteConnections(1)
+			.setLongPollMaxPerRouteConnections(1)
+			.build());
+		HttpRequest longPoll = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/slow?index=1").build();
+		HttpRequest shortRequest = HttpRequest.Builder.newBuilder().setUrl(baseUrl + "/v1/ok").build();
+
+		CompletableFuture<HttpResponse> polling = CompletableFuture.supplyAsync(() -> lanes.makeGetRequest(longPoll));
+		Thread.sleep(100);
+
+		long start = System.nanoTime();
+		assertEquals(200, lanes.makeGetRequest(shortRequest).getStatusCode());
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+		assertFalse(polling.isDone());
+		assertEquals(200, polling.get(5, TimeUnit.SECONDS).getStatusCode());
+	}
+
+	@Test
+	void longPollReadTimeoutAddsJitterAndMargin() {
+		ConnectionLanesConfig config = ConnectionLanesConfig.newBuilder().setLongPollTimeoutMarginMillis(5000).build();
+
+		assertEquals(5 * 60 * 1000 + 18750 + 5000, config.getLongPollReadTimeoutMillis(5 * 60 * 1000));
+		// Consul doesn't wait longer than 10 minutes
+		assertEquals(10 * 60 * 1000 + 37500 + 5000, config.getLongPollReadTimeoutMillis(60 * 60 * 1000));
+	}
+
+	private static void respond(com.sun.net.httpserver.HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("X-Consul-Index", "42");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+}
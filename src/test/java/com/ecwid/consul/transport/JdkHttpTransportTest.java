@@ -0,0 +1,152 @@
+package com.ecwid.consul.transport;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JdkHttpTransportTest {
+
+	private static final ContentDecoder<List<String>> DECODER = GsonFactory.getDecoder(new TypeToken<List<String>>() {}.getType());
+
+	private final AtomicReference<String> lastPut = new AtomicReference<>();
+	private final AtomicReference<String> lastAcceptEncoding = new AtomicReference<>();
+
+	private HttpServer server;
+	private JdkHttpTransport transport;
+	private String baseUrl;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/ok", exchange -> respond(exchange, 200, "[\"a\",\"b\",\"ü\"]"));
+		server.createContext("/v1/error", exchange -> respond(exchange, 403, "ACL not found"));
+		server.createContext("/v1/compressed", exchange -> {
+			lastAcceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+			byte[] bytes = "[\"a\",\"b\",\"ü\"]".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody())) {
+				os.write(bytes);
+			}
+		});
+		server.createContext("/v1/kv/key", exchange -> {
+			lastPut.set(exchange.getRequestMethod() + " " + exchange.getRequestHeaders().getFirst("X-Consul-Token") + " "
+				+ new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			respond(exchange, 200, "true");
+		});
+		server.start();
+
+		baseUrl = "http://localhost:" + server.getAddress().getPort();
+		transport = JdkHttpTransport.newBuilder().setVirtualThreads(true).build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void getRequestIsDecodedFromTheStream() {
+		DecodedHttpResponse<List<String>> response = transport.makeGetRequest(request("/v1/ok"), DECODER);
+
+		assertThat(response.getValue()).isEqualTo(Arrays.asList("a", "b", "ü"));
+		assertThat(response.getHttpResponse().getStatusCode()).isEqualTo(200);
+		assertThat(response.getHttpResponse().getConsulIndex()).isEqualTo(42L);
+		assertThat(response.getHttpResponse().isConsulKnownLeader()).isTrue();
+	}
+
+	@Test
+	void errorResponseKeepsContentAndReasonPhrase() {
+		HttpResponse response = transport.makeGetRequest(request("/v1/error"));
+
+		assertThat(response.getStatusCode()).isEqualTo(403);
+		assertThat(response.getStatusMessage()).isEqualTo("Forbidden");
+		assertThat(response.getContent()).isEqualTo("ACL not found");
+	}
+
+	@Test
+	void putRequestSendsContentAndHeaders() {
+		HttpRequest request = HttpRequest.Builder.newBuilder()
+			.setUrl(baseUrl + "/v1/kv/key")
+			.addHeader("X-Consul-Token", "secret")
+			.setContent("value")
+			.build();
+
+		HttpResponse response = transport.makePutRequest(request);
+
+		assertThat(response.getContent()).isEqualTo("true");
+		assertThat(lastPut.get()).isEqualTo("PUT secret value");
+	}
+
+	@Test
+	void asyncRequestsShareTheClient() {
+		AsyncHttpTransport asyncTransport = transport.getAsyncHttpTransport();
+
+		assertThat(asyncTransport.makeGetRequest(request("/v1/ok"), DECODER).join().getValue()).containsExactly("a", "b", "ü");
+		assertThat(asyncTransport.makeGetRequest(request("/v1/error")).join().getContent()).isEqualTo("ACL not found");
+	}
+
+	@Test
+	void compressedResponsesAreNegotiatedAndDecompressed() {
+		JdkHttpTransport compressing = JdkHttpTransport.newBuilder().setResponseCompression(true).build();
+
+		DecodedHttpResponse<List<String>> response = compressing.makeGetRequest(request("/v1/compressed"), DECODER);
+		assertThat(response.getValue()).containsExactly("a", "b", "ü");
+		assertThat(response.getHttpResponse().getCompressedBytes()).isPositive();
+		assertThat(lastAcceptEncoding.get()).isEqualTo("gzip, deflate");
+
+		HttpResponse asyncResponse = compressing.getAsyncHttpTransport().makeGetRequest(request("/v1/compressed")).join();
+		assertThat(asyncResponse.getContent()).isEqualTo("[\"a\",\"b\",\"ü\"]");
+		assertThat(asyncResponse.getCompressedBytes()).isEqualTo(response.getHttpResponse().getCompressedBytes());
+
+		// not asked for by default
+		transport.makeGetRequest(request("/v1/compressed"), DECODER);
+		assertThat(lastAcceptEncoding.get()).isNull();
+	}
+
+	@Test
+	void connectionFailureIsTransportException() throws IOException {
+		int closedPort;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			closedPort = socket.getLocalPort();
+		}
+		HttpRequest request = HttpRequest.Builder.newBuilder().setUrl("http://localhost:" + closedPort + "/v1/ok").build();
+
+		assertThatThrownBy(() -> transport.makeGetRequest(request)).isInstanceOf(TransportException.class);
+		assertThatThrownBy(() -> transport.getAsyncHttpTransport().makeGetRequest(request).join())
+			.isInstanceOf(CompletionException.class)
+			.hasCauseInstanceOf(TransportException.class);
+	}
+
+	private HttpRequest request(String path) {
+		return HttpRequest.Builder.newBuilder().setUrl(baseUrl + path).build();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("X-Consul-Index", "42");
+		exchange.getResponseHeaders().add("X-Consul-Knownleader", "true");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+}
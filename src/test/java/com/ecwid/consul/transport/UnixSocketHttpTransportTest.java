@@ -0,0 +1,228 @@
+package com.ecwid.consul.transport;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class UnixSocketHttpTransportTest {
+
+	private static final ContentDecoder<List<String>> DECODER = GsonFactory.getDecoder(new TypeToken<List<String>>() {}.getType());
+
+	private final AtomicInteger connections = new AtomicInteger();
+	private final AtomicReference<String> lastPut = new AtomicReference<>();
+
+	private HttpServer server;
+	private UnixSocketHttpTransport transport;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/ok", exchange -> respond(exchange, 200, "[\"a\",\"ü\"]", false));
+		server.createContext("/v1/chunked", exchange -> respond(exchange, 200, "[\"chunked\"]", true));
+		server.createContext("/v1/error", exchange -> respond(exchange, 403, "ACL not found", false));
+		server.createContext("/v1/kv/key", exchange -> {
+			lastPut.set(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+				+ exchange.getRequestHeaders().getFirst("X-Consul-Token") + " "
+				+ new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			respond(exchange, 200, "true", false);
+		});
+		server.createContext("/v1/slow", exchange -> {
+			try {
+				Thread.sleep(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200, "[]", false);
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		// the HTTP exchange is the same on any stream socket, TCP stands in for the Unix domain socket
+		int port = server.getAddress().getPort();
+		transport = UnixSocketHttpTransport.newBuilder("/var/run/consul.sock")
+			.setConnector(socketPath -> {
+				connections.incrementAndGet();
+				return SocketChannel.open(new InetSocketAddress("localhost", port));
+			})
+			.setLanesConfig(ConnectionLanesConfig.newBuilder().setFastReadTimeoutMillis(300).build())
+			.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		transport.close();
+		server.stop(0);
+	}
+
+	@Test
+	void responsesAreReadAndConnectionsReused() {
+		DecodedHttpResponse<List<String>> decoded = transport.makeGetRequest(request("/v1/ok"), DECODER);
+		assertThat(decoded.getValue()).containsExactly("a", "ü");
+		assertThat(decoded.getHttpResponse().getConsulIndex()).isEqualTo(42L);
+
+		assertThat(transport.makeGetRequest(request("/v1/chunked"), DECODER).getValue()).containsExactly("chunked");
+		assertThat(transport.makeGetRequest(request("/v1/chunked")).getContent()).isEqualTo("[\"chunked\"]");
+
+		HttpResponse error = transport.makeGetRequest(request("/v1/error"));
+		assertThat(error.getStatusCode()).isEqualTo(403);
+		assertThat(error.getStatusMessage()).isEqualTo("Forbidden");
+		assertThat(error.getContent()).isEqualTo("ACL not found");
+
+		assertThat(connections.get()).isEqualTo(1);
+	}
+
+	@Test
+	void putSendsPathQueryHeadersAndContent() {
+		HttpRequest request = HttpRequest.Builder.newBuilder()
+			.setUrl("http://localhost:8500/v1/kv/key?cas=5")
+			.addHeader("X-Consul-Token", "secret")
+			.setContent("välue")
+			.build();
+
+		assertThat(transport.makePutRequest(request).getContent()).isEqualTo("true");
+		assertThat(lastPut.get()).isEqualTo("PUT /v1/kv/key?cas=5 secret välue");
+
+		assertThat(transport.getAsyncHttpTransport().makeDeleteRequest(request("/v1/kv/key")).join().getContent()).isEqualTo("true");
+		assertThat(lastPut.get()).startsWith("DELETE /v1/kv/key");
+	}
+
+	@Test
+	void shortRequestTimesOutButBlockingQueryWaits() {
+		assertThatThrownBy(() -> transport.makeGetRequest(request("/v1/slow")))
+			.isInstanceOf(TransportException.class)
+			.hasCauseInstanceOf(SocketTimeoutException.class);
+
+		assertThat(transport.makeGetRequest(request("/v1/slow?index=3&wait=1s")).getStatusCode()).isEqualTo(200);
+	}
+
+	@Test
+	void cancellingAnAsyncRequestClosesItsConnection() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		int port = server.getAddress().getPort();
+		try (UnixSocketHttpTransport transport = UnixSocketHttpTransport.newBuilder("/var/run/consul.sock")
+			.setConnector(socketPath -> SocketChannel.open(new InetSocketAddress("localhost", port)))
+			.setExecutor(executor)
+			.build()) {
+			CompletableFuture<HttpResponse> longPoll = transport.getAsyncHttpTransport().makeGetRequest(request("/v1/slow?index=3&wait=5s"));
+			Thread.sleep(100);
+			longPoll.cancel(true);
+
+			// the only executor thread was blocked in the long-poll's read, it's free right away
+			assertThat(transport.getAsyncHttpTransport().makeGetRequest(request("/v1/ok")).get(500, TimeUnit.MILLISECONDS).getStatusCode())
+				.isEqualTo(200);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void configuredTransportIsUsedAndNeverOverriddenByAUnixHost() {
+		ConsulRawClient rawClient = ConsulRawClient.Builder.builder().setUnixSocketTransport(transport).build();
+		assertThat(rawClient.makeGetRequest("/v1/ok").getContent()).isEqualTo("[\"a\",\"ü\"]");
+
+		assertThatThrownBy(() -> ConsulRawClient.Builder.builder()
+			.setHost("unix:///var/run/consul.sock")
+			.setHttpTransport(transport)
+			.build()).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ConsulRawClient.Builder.builder()
+			.setHost("unix:///var/run/other.sock")
+			.setUnixSocketTransport(transport)
+			.build()).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void requestTargetIsThePathAndQuery() {
+		assertThat(UnixSocketHttpTransport.requestTarget("http://localhost:8500/v1/kv/a?recurse")).isEqualTo("/v1/kv/a?recurse");
+		assertThat(UnixSocketHttpTransport.requestTarget("http://localhost?dc=dc1")).isEqualTo("/?dc=dc1");
+		assertThat(UnixSocketHttpTransport.socketPathOf("unix:///var/run/consul.sock")).isEqualTo("/var/run/consul.sock");
+		assertThat(UnixSocketHttpTransport.socketPathOf("http://localhost")).isNull();
+	}
+
+	@Test
+	void unixAddressTalksToTheAgentSocket(@TempDir Path directory) throws Exception {
+		assumeTrue(UnixSocketHttpTransport.isSupported(), "Unix domain sockets need JDK 16+");
+		Path socket = directory.resolve("consul.sock");
+
+		// the compiled code must run on Java 11, so the JDK 16+ server API is used reflectively
+		ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+		SocketAddress address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+			.getMethod("of", Path.class).invoke(null, socket);
+		try (ServerSocketChannel serverChannel = (ServerSocketChannel) ServerSocketChannel.class
+			.getMethod("open", ProtocolFamily.class).invoke(null, unix)) {
+			serverChannel.bind(address);
+
+			String body = "[{\"Key\":\"key\",\"Value\":\"dmFsdWU=\",\"CreateIndex\":1,\"ModifyIndex\":2,\"LockIndex\":0,\"Flags\":0}]";
+			CompletableFuture<String> requestLine = CompletableFuture.supplyAsync(() -> answerOnce(serverChannel, body));
+
+			ConsulClient client = new ConsulClient(ConsulRawClient.Builder.builder().setHost("unix://" + socket).build());
+			GetValue value = client.getKVValue("key").getValue();
+
+			assertThat(value.getDecodedValue()).isEqualTo("value");
+			assertThat(requestLine.join()).isEqualTo("GET /v1/kv/key HTTP/1.1");
+		}
+	}
+
+	private static String answerOnce(ServerSocketChannel serverChannel, String body) {
+		try (SocketChannel channel = serverChannel.accept()) {
+			ByteBuffer buffer = ByteBuffer.allocate(8192);
+			StringBuilder request = new StringBuilder();
+			while (request.indexOf("\r\n\r\n") == -1 && channel.read(buffer) != -1) {
+				buffer.flip();
+				request.append(StandardCharsets.ISO_8859_1.decode(buffer));
+				buffer.clear();
+			}
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			String head = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nX-Consul-Index: 2\r\nContent-Length: " + bytes.length + "\r\n\r\n";
+			channel.write(ByteBuffer.wrap(head.getBytes(StandardCharsets.ISO_8859_1)));
+			channel.write(ByteBuffer.wrap(bytes));
+			return request.substring(0, request.indexOf("\r\n"));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static HttpRequest request(String path) {
+		return HttpRequest.Builder.newBuilder().setUrl("http://localhost:8500" + path).build();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body, boolean chunked) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("X-Consul-Index", "42");
+		exchange.sendResponseHeaders(status, chunked ? 0 : bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+}
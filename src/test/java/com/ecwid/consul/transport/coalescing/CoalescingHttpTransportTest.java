@@ -0,0 +1,203 @@
+package com.ecwid.consul.transport.coalescing;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.transport.AsyncHttpTransport;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+import com.ecwid.consul.transport.TransportException;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingHttpTransportTest {
+
+	private static final ContentDecoder<List<String>> DECODER = GsonFactory.getDecoder(new TypeToken<List<String>>() {}.getType());
+
+	private final AtomicInteger sent = new AtomicInteger();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Test
+	void identicalConcurrentRequestsShareOneRequestAndValue() throws Exception {
+		CoalescingHttpTransport transport = new CoalescingHttpTransport(new BlockingTransport("[\"a\"]"));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<DecodedHttpResponse<List<String>>>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> transport.makeGetRequest(request("/v1/kv/key", "token"), DECODER)));
+			}
+			awaitCoalesced(transport::getCoalescedCount, 7);
+			release.countDown();
+
+			List<String> first = futures.get(0).get(5, TimeUnit.SECONDS).getValue();
+			for (Future<DecodedHttpResponse<List<String>>> future : futures) {
+				assertThat(future.get(5, TimeUnit.SECONDS).getValue()).containsExactly("a").isSameAs(first);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(sent.get()).isEqualTo(1);
+
+		// nothing is cached once the request completed
+		transport.makeGetRequest(request("/v1/kv/key", "token"), DECODER);
+		assertThat(sent.get()).isEqualTo(2);
+	}
+
+	@Test
+	void requestsWithDifferentTokensAreNotCoalesced() throws Exception {
+		CoalescingHttpTransport transport = new CoalescingHttpTransport(new BlockingTransport("[]"));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<HttpResponse> first = executor.submit(() -> transport.makeGetRequest(request("/v1/kv/key", "first")));
+			Future<HttpResponse> second = executor.submit(() -> transport.makeGetRequest(request("/v1/kv/key", "second")));
+			while (sent.get() < 2) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+			first.get(5, TimeUnit.SECONDS);
+			second.get(5, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(transport.getCoalescedCount()).isZero();
+	}
+
+	@Test
+	void failureIsSharedWithWaitingCallers() throws Exception {
+		CoalescingHttpTransport transport = new CoalescingHttpTransport(new BlockingTransport(null));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<HttpResponse> first = executor.submit(() -> transport.makeGetRequest(request("/v1/kv/key", null)));
+			Future<HttpResponse> second = executor.submit(() -> transport.makeGetRequest(request("/v1/kv/key", null)));
+			awaitCoalesced(transport::getCoalescedCount, 1);
+			release.countDown();
+
+			assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TransportException.class);
+			assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TransportException.class);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(sent.get()).isEqualTo(1);
+	}
+
+	@Test
+	void asyncCallersGetIndependentFutures() {
+		PendingAsyncTransport delegate = new PendingAsyncTransport();
+		CoalescingAsyncHttpTransport transport = new CoalescingAsyncHttpTransport(delegate);
+
+		CompletableFuture<DecodedHttpResponse<List<String>>> first = transport.makeGetRequest(request("/v1/kv/key", null), DECODER);
+		CompletableFuture<DecodedHttpResponse<List<String>>> second = transport.makeGetRequest(request("/v1/kv/key", null), DECODER);
+		first.cancel(false);
+		delegate.responses.get(0).complete(new HttpResponse(200, "OK", "[\"a\"]", 1L, true, 0L));
+
+		assertThat(second.join().getValue()).containsExactly("a");
+		assertThat(sent.get()).isEqualTo(1);
+		assertThat(transport.getCoalescedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void sharedRequestIsCancelledOnceAllCallersCancelled() {
+		PendingAsyncTransport delegate = new PendingAsyncTransport();
+		CoalescingAsyncHttpTransport transport = new CoalescingAsyncHttpTransport(delegate);
+
+		CompletableFuture<DecodedHttpResponse<List<String>>> first = transport.makeGetRequest(request("/v1/kv/key?index=7", null), DECODER);
+		CompletableFuture<DecodedHttpResponse<List<String>>> second = transport.makeGetRequest(request("/v1/kv/key?index=7", null), DECODER);
+		first.cancel(false);
+		assertThat(delegate.responses.get(0)).isNotCancelled();
+		second.cancel(false);
+		assertThat(delegate.responses.get(0)).isCancelled();
+
+		// a later caller sends a new request instead of joining the cancelled one
+		CompletableFuture<DecodedHttpResponse<List<String>>> third = transport.makeGetRequest(request("/v1/kv/key?index=7", null), DECODER);
+		assertThat(sent.get()).isEqualTo(2);
+		assertThat(third).isNotDone();
+	}
+
+	private static HttpRequest request(String path, String token) {
+		HttpRequest.Builder builder = HttpRequest.Builder.newBuilder().setUrl("http://localhost:8500" + path);
+		if (token != null) {
+			builder.addHeader("X-Consul-Token", token);
+		}
+		return builder.build();
+	}
+
+	private static void awaitCoalesced(LongSupplier coalesced, long expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (coalesced.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(coalesced.getAsLong()).isEqualTo(expected);
+	}
+
+	// answers every request with a new future which the test completes
+	private class PendingAsyncTransport implements AsyncHttpTransport {
+		private final List<CompletableFuture<HttpResponse>> responses = new ArrayList<>();
+
+		@Override
+		public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+			sent.incrementAndGet();
+			CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+			responses.add(response);
+			return response;
+		}
+
+		@Override
+		public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// answers with the given content, or fails if it is null, once the test releases it
+	private class BlockingTransport implements HttpTransport {
+		private final String content;
+
+		BlockingTransport(String content) {
+			this.content = content;
+		}
+
+		@Override
+		public HttpResponse makeGetRequest(HttpRequest request) {
+			sent.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (content == null) {
+				throw new TransportException(new IOException("Connection reset"));
+			}
+			return new HttpResponse(200, "OK", content, 1L, true, 0L);
+		}
+
+		@Override
+		public HttpResponse makePutRequest(HttpRequest request) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public HttpResponse makeDeleteRequest(HttpRequest request) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
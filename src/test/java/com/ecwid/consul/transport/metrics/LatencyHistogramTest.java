@@ -0,0 +1,44 @@
+package com.ecwid.consul.transport.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+	@Test
+	void bucketsCoverEveryValueWithBoundedError() {
+		long[] values = {0, 1, 63, 127, 128, 129, 1000, 123_456, 1_000_000_007L, LatencyHistogram.MAX_TRACKABLE_VALUE};
+		for (long value : values) {
+			int index = LatencyHistogram.indexOf(value);
+			long highest = LatencyHistogram.highestValueOf(index);
+			assertThat(highest).isGreaterThanOrEqualTo(value);
+			assertThat(highest - value).isLessThanOrEqualTo(value / 64);
+			if (index > 0) {
+				assertThat(LatencyHistogram.highestValueOf(index - 1)).isLessThan(value);
+			}
+		}
+	}
+
+	@Test
+	void percentilesOfUniformValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i, TimeUnit.MILLISECONDS);
+		}
+
+		assertThat(histogram.getCount()).isEqualTo(1000);
+		assertThat(histogram.getMaxNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1000));
+		assertThat(histogram.getMeanNanos()).isCloseTo(500.5e6, within(1.0));
+		assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(500e6, within(500e6 / 64));
+		assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(990e6, within(990e6 / 64));
+		assertThat(histogram.getValueAtPercentile(100)).isEqualTo(histogram.getMaxNanos());
+
+		histogram.reset();
+		assertThat(histogram.getCount()).isZero();
+		assertThat(histogram.getValueAtPercentile(99)).isZero();
+	}
+}
@@ -0,0 +1,188 @@
+package com.ecwid.consul.transport.metrics;
+
+import com.ecwid.consul.stub.ConsulStubServer;
+import com.ecwid.consul.transport.DefaultAsyncHttpTransport;
+import com.ecwid.consul.transport.DefaultHttpTransport;
+import com.ecwid.consul.transport.TransportException;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsHttpTransportTest {
+
+	private final List<RequestMetrics> requests = new CopyOnWriteArrayList<>();
+	private final EndpointMetricsRecorder recorder = new EndpointMetricsRecorder();
+
+	private ConsulStubServer server;
+	private ConsulClient client;
+
+	@BeforeEach
+	void setUp() {
+		server = ConsulStubServer.newBuilder().build();
+		client = new ConsulClient(ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.setRequestMetricsListener(metrics -> {
+				requests.add(metrics);
+				recorder.onRequest(metrics);
+			})
+			.build());
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.close();
+	}
+
+	@Test
+	void requestsAreReportedPerLogicalEndpoint() {
+		client.setKVValue("config/a", "1");
+		client.setKVValue("config/b", "2");
+		client.getKVValue("config/a");
+		client.getKVValue("config/missing");
+
+		EndpointMetrics puts = recorder.getEndpointMetrics("PUT /v1/kv/{key}");
+		assertThat(puts.getRequestCount()).isEqualTo(2);
+		assertThat(puts.getStatusCount(2)).isEqualTo(2);
+
+		EndpointMetrics gets = recorder.getEndpointMetrics("GET /v1/kv/{key}");
+		assertThat(gets.getRequestCount()).isEqualTo(2);
+		assertThat(gets.getStatusCount(2)).isEqualTo(1);
+		assertThat(gets.getStatusCount(4)).isEqualTo(1);
+		assertThat(gets.getResponseBytes()).isPositive();
+		assertThat(gets.getActiveLatency().getCount()).isEqualTo(2);
+		assertThat(gets.getBlockingQueryLatency().getCount()).isZero();
+
+		assertThat(requests).allMatch(metrics -> !metrics.isBlockingQuery() && metrics.getWaitNanos() == 0);
+	}
+
+	@Test
+	void blockingQueryWaitIsSeparatedFromActiveTime() {
+		client.setKVValue("config/a", "1");
+		Response<List<GetValue>> initial = client.getKVValues("config/");
+		requests.clear();
+
+		client.getKVValues("config/", new QueryParams(1, initial.getConsulIndex()));
+
+		RequestMetrics metrics = requests.get(0);
+		assertThat(metrics.isBlockingQuery()).isTrue();
+		assertThat(metrics.getStatusCode()).isEqualTo(200);
+		assertThat(metrics.getLatencyNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(900));
+		assertThat(metrics.getWaitNanos()).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+		assertThat(metrics.getActiveNanos()).isLessThan(metrics.getLatencyNanos() / 2);
+
+		EndpointMetrics endpoint = recorder.getEndpointMetrics("GET /v1/kv/{key}");
+		assertThat(endpoint.getBlockingQueryLatency().getCount()).isEqualTo(1);
+		assertThat(endpoint.getWaitNanos()).isEqualTo(metrics.getWaitNanos());
+	}
+
+	@Test
+	void waitOfAChangedBlockingQueryIsUnknown() {
+		client.setKVValue("config/a", "1");
+		Response<List<GetValue>> initial = client.getKVValues("config/");
+		client.setKVValue("config/b", "2");
+		requests.clear();
+
+		// the index moved on since, so the query returns the changed result right away
+		client.getKVValues("config/", new QueryParams(1, initial.getConsulIndex()));
+
+		RequestMetrics metrics = requests.get(0);
+		assertThat(metrics.isBlockingQuery()).isTrue();
+		assertThat(metrics.getStatusCode()).isEqualTo(200);
+		assertThat(metrics.getWaitNanos()).isEqualTo(-1);
+		assertThat(metrics.getActiveNanos()).isEqualTo(-1);
+
+		EndpointMetrics endpoint = recorder.getEndpointMetrics("GET /v1/kv/{key}");
+		assertThat(endpoint.getBlockingQueryLatency().getCount()).isEqualTo(1);
+		// only the initial non-blocking query
+		assertThat(endpoint.getActiveLatency().getCount()).isEqualTo(1);
+		assertThat(endpoint.getWaitNanos()).isZero();
+	}
+
+	@Test
+	void transportFailureIsReported() throws IOException {
+		int closedPort;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			closedPort = socket.getLocalPort();
+		}
+		ConsulClient unreachable = new ConsulClient(ConsulRawClient.Builder.builder()
+			.setHost("localhost")
+			.setPort(closedPort)
+			.setRequestMetricsListener(requests::add)
+			.build());
+
+		assertThatThrownBy(() -> unreachable.getKVValue("config/a")).isInstanceOf(TransportException.class);
+
+		RequestMetrics metrics = requests.get(0);
+		assertThat(metrics.getStatusCode()).isEqualTo(-1);
+		assertThat(metrics.getFailure()).isInstanceOf(TransportException.class);
+		assertThat(metrics.getEndpoint()).isEqualTo("/v1/kv/{key}");
+	}
+
+	@Test
+	void asyncRequestsAreReported() {
+		client.setKVValue("config/a", "1");
+		requests.clear();
+
+		client.getKVValueAsync("config/a", null, QueryParams.DEFAULT).join();
+
+		assertThat(requests).hasSize(1);
+		assertThat(requests.get(0).getMethod()).isEqualTo("GET");
+		assertThat(requests.get(0).getResponseBytes()).isPositive();
+	}
+
+	@Test
+	void compressedResponsesReportTheirCompressionRatio() throws IOException {
+		try (ConsulStubServer compressing = ConsulStubServer.newBuilder().setCompression(true).build();
+			 DefaultAsyncHttpTransport asyncTransport = new DefaultAsyncHttpTransport(null, true)) {
+			ConsulClient compressingClient = new ConsulClient(ConsulRawClient.Builder.builder()
+				.setHost(compressing.getHost())
+				.setPort(compressing.getPort())
+				.setHttpTransport(new DefaultHttpTransport())
+				.setAsyncHttpTransport(asyncTransport)
+				.setRequestMetricsListener(recorder)
+				.build());
+			for (int i = 0; i < 100; i++) {
+				compressingClient.setKVValue("services/web-" + i, "{\"port\": 8080, \"tags\": [\"primary\", \"eu-west\"]}");
+			}
+
+			List<GetValue> values = compressingClient.getKVValues("services/").getValue();
+			List<GetValue> asyncValues = compressingClient.getKVValuesAsync("services/", null, QueryParams.DEFAULT).join().getValue();
+
+			assertThat(values).hasSize(100);
+			assertThat(asyncValues).hasSize(100);
+			EndpointMetrics gets = recorder.getEndpointMetrics("GET /v1/kv/{key}");
+			assertThat(gets.getCompressedResponseCount()).isEqualTo(2);
+			assertThat(gets.getDecompressedBytes()).isEqualTo(gets.getResponseBytes());
+			assertThat(gets.getCompressedBytes()).isPositive();
+			assertThat(gets.getCompressionRatio()).isLessThan(0.5);
+		}
+	}
+
+	@Test
+	void failingListenerDoesNotFailRequests() {
+		ConsulClient withFailingListener = new ConsulClient(ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.setRequestMetricsListener(metrics -> {
+				throw new IllegalStateException("boom");
+			})
+			.build());
+
+		assertThat(withFailingListener.setKVValue("config/a", "1").getValue()).isTrue();
+	}
+}
@@ -0,0 +1,241 @@
+package com.ecwid.consul.transport.resilience;
+
+import com.ecwid.consul.transport.AsyncHttpTransport;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+import com.ecwid.consul.transport.TransportException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientHttpTransportTest {
+
+	private static final HttpResponse OK = new HttpResponse(200, "OK", "[]", 1L, true, 0L);
+	private static final String AGENT = "http://localhost:8500";
+
+	private final ScriptedTransport delegate = new ScriptedTransport();
+
+	@Test
+	void failedGetIsRetriedButPutIsNot() {
+		ResilientHttpTransport transport = new ResilientHttpTransport(delegate, ResiliencePolicy.newBuilder()
+			.setMaxRetries(2)
+			.setRetryBaseDelayMillis(1)
+			.build());
+
+		delegate.then(ScriptedTransport::fail).then(ScriptedTransport::fail).then(() -> OK);
+		assertThat(transport.makeGetRequest(request("/v1/kv/key"))).isSameAs(OK);
+		assertThat(delegate.calls.get()).isEqualTo(3);
+		assertThat(transport.getRetryCount()).isEqualTo(2);
+
+		delegate.then(ScriptedTransport::fail).then(() -> OK);
+		assertThatThrownBy(() -> transport.makePutRequest(request("/v1/kv/key"))).isInstanceOf(TransportException.class);
+		assertThat(delegate.calls.get()).isEqualTo(4);
+	}
+
+	@Test
+	void openCircuitBreakerFailsFastUntilProbeSucceeds() throws Exception {
+		ResilientHttpTransport transport = new ResilientHttpTransport(delegate, ResiliencePolicy.newBuilder()
+			.setMaxRetries(0)
+			.setCircuitBreakerFailureThreshold(2)
+			.setCircuitBreakerOpenMillis(200)
+			.build());
+
+		for (int i = 0; i < 2; i++) {
+			delegate.then(ScriptedTransport::fail);
+			assertThatThrownBy(() -> transport.makeGetRequest(request("/v1/kv/key"))).isInstanceOf(TransportException.class);
+		}
+		CircuitBreaker breaker = transport.getCircuitBreakers().get(AGENT);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+		assertThatThrownBy(() -> transport.makeGetRequest(request("/v1/kv/key"))).isInstanceOf(CircuitBreakerOpenException.class);
+		assertThat(delegate.calls.get()).isEqualTo(2);
+		assertThat(transport.getRejectedCount()).isEqualTo(1);
+
+		Thread.sleep(250);
+
+		delegate.then(() -> OK);
+		assertThat(transport.makeGetRequest(request("/v1/kv/key"))).isSameAs(OK);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void probeWithoutOutcomeHoldsCircuitBreakerHalfOpenOnlyForTheOpenTime() {
+		long openNanos = TimeUnit.SECONDS.toNanos(5);
+		CircuitBreaker breaker = new CircuitBreaker(AGENT, 1, openNanos);
+		breaker.recordFailure(0);
+		assertThat(breaker.tryAcquire(openNanos - 1)).isFalse();
+
+		// e.g. a blocking query which waits for minutes, or a probe which was cancelled
+		assertThat(breaker.tryAcquire(openNanos)).isTrue();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquire(2 * openNanos - 1)).isFalse();
+
+		assertThat(breaker.tryAcquire(2 * openNanos)).isTrue();
+		assertThat(breaker.tryAcquire(2 * openNanos + 1)).isFalse();
+		breaker.recordSuccess();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.tryAcquire(2 * openNanos + 1)).isTrue();
+	}
+
+	@Test
+	void slowLookupIsHedgedButBlockingQueryIsNot() {
+		ResilientHttpTransport transport = new ResilientHttpTransport(delegate, ResiliencePolicy.newBuilder()
+			.setHedging(true)
+			.setHedgeInitialDelayMillis(50)
+			.build());
+
+		delegate.then(() -> sleepAndAnswer(2000)).then(() -> OK);
+		long start = System.nanoTime();
+		assertThat(transport.makeGetRequest(request("/v1/health/service/web"))).isSameAs(OK);
+		assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+		assertThat(transport.getHedgeCount()).isEqualTo(1);
+
+		delegate.then(() -> sleepAndAnswer(200));
+		assertThat(transport.makeGetRequest(request("/v1/health/service/web?index=42&wait=1s"))).isSameAs(OK);
+		assertThat(transport.getHedgeCount()).isEqualTo(1);
+	}
+
+	@Test
+	void asyncGetIsRetriedAndHedged() {
+		ResilientAsyncHttpTransport transport = new ResilientAsyncHttpTransport(delegate.async(), ResiliencePolicy.newBuilder()
+			.setRetryBaseDelayMillis(1)
+			.setHedging(true)
+			.setHedgeInitialDelayMillis(50)
+			.build());
+
+		CompletableFuture<HttpResponse> never = new CompletableFuture<>();
+		delegate.then(ScriptedTransport::fail).then(() -> never.join()).then(() -> OK);
+
+		assertThat(transport.makeGetRequest(request("/v1/catalog/service/web")).join()).isSameAs(OK);
+		assertThat(transport.getRetryCount()).isEqualTo(1);
+		assertThat(transport.getHedgeCount()).isEqualTo(1);
+		never.complete(OK);
+	}
+
+	@Test
+	void asyncHedgeCancelsTheLoserAndCancellationReachesTheRequestInFlight() {
+		Queue<CompletableFuture<HttpResponse>> sent = new ConcurrentLinkedQueue<>();
+		Queue<CompletableFuture<HttpResponse>> answers = new ConcurrentLinkedQueue<>();
+		AsyncHttpTransport recording = new AsyncHttpTransport() {
+			@Override
+			public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+				CompletableFuture<HttpResponse> future = answers.remove();
+				sent.add(future);
+				return future;
+			}
+
+			@Override
+			public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+				return makeGetRequest(request);
+			}
+
+			@Override
+			public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+				return makeGetRequest(request);
+			}
+		};
+		ResilientAsyncHttpTransport transport = new ResilientAsyncHttpTransport(recording, ResiliencePolicy.newBuilder()
+			.setHedging(true)
+			.setHedgeInitialDelayMillis(50)
+			.build());
+
+		CompletableFuture<HttpResponse> slow = new CompletableFuture<>();
+		answers.add(slow);
+		answers.add(CompletableFuture.completedFuture(OK));
+		assertThat(transport.makeGetRequest(request("/v1/catalog/service/web")).join()).isSameAs(OK);
+		// the loser is cancelled right after the winner completed the caller's future
+		assertThat(slow).failsWithin(1, TimeUnit.SECONDS).withThrowableOfType(CancellationException.class);
+
+		CompletableFuture<HttpResponse> pending = new CompletableFuture<>();
+		answers.add(pending);
+		sent.clear();
+		CompletableFuture<HttpResponse> response = transport.makeGetRequest(request("/v1/kv/key?index=42"));
+		assertThat(sent).containsExactly(pending);
+		response.cancel(true);
+		assertThat(pending).isCancelled();
+		assertThat(transport.getCircuitBreakers().get(AGENT).getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	private static HttpRequest request(String path) {
+		return HttpRequest.Builder.newBuilder().setUrl(AGENT + path).build();
+	}
+
+	private static HttpResponse sleepAndAnswer(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return OK;
+	}
+
+	// answers every request with the next scripted response, the async view answers on a pool thread
+	private static final class ScriptedTransport implements HttpTransport {
+		private final Queue<Supplier<HttpResponse>> script = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger calls = new AtomicInteger();
+
+		ScriptedTransport then(Supplier<HttpResponse> response) {
+			script.add(response);
+			return this;
+		}
+
+		static HttpResponse fail() {
+			throw new TransportException(new ConnectException("Connection refused"));
+		}
+
+		private HttpResponse next() {
+			calls.incrementAndGet();
+			Supplier<HttpResponse> response = script.poll();
+			if (response == null) {
+				throw new TransportException(new IOException("Nothing scripted"));
+			}
+			return response.get();
+		}
+
+		@Override
+		public HttpResponse makeGetRequest(HttpRequest request) {
+			return next();
+		}
+
+		@Override
+		public HttpResponse makePutRequest(HttpRequest request) {
+			return next();
+		}
+
+		@Override
+		public HttpResponse makeDeleteRequest(HttpRequest request) {
+			return next();
+		}
+
+		AsyncHttpTransport async() {
+			return new AsyncHttpTransport() {
+				@Override
+				public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+					return CompletableFuture.supplyAsync(ScriptedTransport.this::next);
+				}
+
+				@Override
+				public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+					return CompletableFuture.supplyAsync(ScriptedTransport.this::next);
+				}
+
+				@Override
+				public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+					return CompletableFuture.supplyAsync(ScriptedTransport.this::next);
+				}
+			};
+		}
+	}
+}
@@ -13,6 +13,7 @@ import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class QueryParamsTest {
 	@Test
@@ -87,6 +88,23 @@ public class QueryParamsTest {
 		assertThat(urlParameters, hasItem("near=" + EXPECTED_NEAR));
 	}
 
+	@Test
+	public void queryParamsCacheDirectives_ShouldRenderCachedParameterAndHeader() {
+		// Given
+		QueryParams cached = Builder.builder()
+				.setCached(true)
+				.setMaxAge(30)
+				.build();
+
+		// Then
+		assertThat(cached.toUrlParameters(), hasItem("cached"));
+		assertEquals("max-age=30", cached.getCacheControl());
+		assertEquals("max-age=30, stale-if-error=5", cached.toBuilder().setStaleIfError(5).build().getCacheControl());
+		assertNull(Builder.builder().setCached(true).build().getCacheControl());
+		assertThrows(IllegalArgumentException.class, () -> Builder.builder().setMaxAge(30).build());
+		assertThrows(IllegalArgumentException.class, () -> Builder.builder().setCached(true).setConsistencyMode(ConsistencyMode.CONSISTENT).build());
+	}
+
 	@Nested
 	class EqualsAndHashCode {
 		@Test
@@ -0,0 +1,158 @@
+package com.ecwid.consul.v1.agent;
+
+import com.ecwid.consul.transport.TransportException;
+import com.ecwid.consul.v1.health.model.Check;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TtlHeartbeatManagerTest {
+
+	private final AgentClient agentClient = mock(AgentClient.class);
+	private TtlHeartbeatManager manager;
+
+	@AfterEach
+	void tearDown() {
+		if (manager != null) {
+			manager.close();
+		}
+	}
+
+	@Test
+	void checksAreRefreshedWithinTheirTtl() throws Exception {
+		manager = TtlHeartbeatManager.newBuilder(agentClient).setTickMillis(10).build();
+		manager.register("service:a", 400, TimeUnit.MILLISECONDS);
+		manager.register("service:b", 400, TimeUnit.MILLISECONDS);
+
+		Thread.sleep(1100);
+
+		// first update right away, then every 200 ms after the initial phase
+		verify(agentClient, atLeast(4)).agentCheckPass(eq("service:a"), isNull(), isNull());
+		verify(agentClient, atLeast(4)).agentCheckPass(eq("service:b"), isNull(), isNull());
+		assertThat(manager.getUpdateCount()).isLessThanOrEqualTo(2 * 7);
+	}
+
+	@Test
+	void redundantUpdatesAreSkippedAndChangesSentRightAway() throws Exception {
+		manager = TtlHeartbeatManager.newBuilder(agentClient).setTickMillis(10).build();
+		TtlHeartbeat heartbeat = manager.register("service:a", 10, TimeUnit.SECONDS);
+		await(() -> manager.getUpdateCount() == 1);
+
+		for (int i = 0; i < 100; i++) {
+			heartbeat.pass();
+		}
+		heartbeat.fail("disk full");
+		await(() -> manager.getUpdateCount() == 2);
+		Thread.sleep(100);
+
+		verify(agentClient, times(1)).agentCheckPass("service:a", null, null);
+		verify(agentClient, times(1)).agentCheckFail("service:a", "disk full", null);
+		assertThat(manager.getSkippedCount()).isEqualTo(100);
+		assertThat(manager.getUpdateCount()).isEqualTo(2);
+		assertThat(heartbeat.getStatus()).isEqualTo(Check.CheckStatus.CRITICAL);
+	}
+
+	@Test
+	void concurrentUpdatesAreCapped() throws Exception {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		when(agentClient.agentCheckPass(anyString(), any(), any())).thenAnswer(invocation -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			Thread.sleep(20);
+			inFlight.decrementAndGet();
+			return null;
+		});
+		manager = TtlHeartbeatManager.newBuilder(agentClient).setTickMillis(10).setMaxConcurrentUpdates(3).build();
+
+		for (int i = 0; i < 30; i++) {
+			manager.register("service:" + i, 60, TimeUnit.SECONDS);
+		}
+		await(() -> manager.getUpdateCount() == 30);
+
+		assertThat(maxInFlight.get()).isEqualTo(3);
+	}
+
+	@Test
+	void refreshesOfChecksRegisteredAtOnceAreSpread() throws Exception {
+		List<Long> refreshTimes = new ArrayList<>();
+		long start = System.nanoTime();
+		when(agentClient.agentCheckPass(anyString(), any(), any())).thenAnswer(invocation -> {
+			synchronized (refreshTimes) {
+				refreshTimes.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			}
+			return null;
+		});
+		manager = TtlHeartbeatManager.newBuilder(agentClient).setTickMillis(10).build();
+
+		for (int i = 0; i < 200; i++) {
+			manager.register("service:" + i, 2, TimeUnit.SECONDS);
+		}
+		Thread.sleep(1100);
+
+		// the first refreshes fall evenly into the refresh interval of 1 second
+		int firstHalf;
+		int secondHalf;
+		synchronized (refreshTimes) {
+			List<Long> refreshes = refreshTimes.subList(200, refreshTimes.size());
+			firstHalf = (int) refreshes.stream().filter(time -> time < 500).count();
+			secondHalf = (int) refreshes.stream().filter(time -> time >= 500).count();
+		}
+		assertThat(firstHalf).isBetween(60, 140);
+		assertThat(secondHalf).isBetween(60, 140);
+	}
+
+	@Test
+	void dueTimeIsComparedByDifferenceOfNanoTimes() {
+		TtlHeartbeat heartbeat = new TtlHeartbeat(null, "service:a", 1000, 0, new TtlHeartbeat.Update(Check.CheckStatus.PASSING, null));
+
+		// System.nanoTime() may be negative, a pending update is due right away unless a retry is scheduled
+		long now = -5000;
+		assertThat(heartbeat.nextDueNanos(now)).isEqualTo(now);
+
+		heartbeat.retryAtNanos = now + 100;
+		assertThat(heartbeat.nextDueNanos(now)).isEqualTo(now + 100);
+
+		heartbeat.retryAtNanos = Long.MAX_VALUE;
+		assertThat(heartbeat.nextDueNanos(Long.MAX_VALUE - 10)).isEqualTo(Long.MAX_VALUE);
+		assertThat(heartbeat.nextDueNanos(Long.MIN_VALUE)).isEqualTo(Long.MIN_VALUE);
+	}
+
+	@Test
+	void failedUpdateIsRetried() throws Exception {
+		when(agentClient.agentCheckPass(anyString(), any(), any()))
+			.thenThrow(new TransportException(new IOException("Connection reset")))
+			.thenReturn(null);
+		manager = TtlHeartbeatManager.newBuilder(agentClient).setTickMillis(10).setMinRetryDelayMillis(50).build();
+
+		manager.register("service:a", 10, TimeUnit.SECONDS);
+		await(() -> manager.getUpdateCount() == 1);
+
+		assertThat(manager.getFailureCount()).isEqualTo(1);
+		verify(agentClient, times(2)).agentCheckPass("service:a", null, null);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime() - deadline).as("condition met within 5 seconds").isNegative();
+			Thread.sleep(5);
+		}
+	}
+}
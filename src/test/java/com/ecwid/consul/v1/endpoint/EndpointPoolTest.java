@@ -0,0 +1,202 @@
+package com.ecwid.consul.v1.endpoint;
+
+import com.ecwid.consul.transport.TransportException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EndpointPoolTest {
+
+	private static final String FIRST = "http://first:8500";
+	private static final String SECOND = "http://second:8500";
+
+	@Test
+	void roundRobinAlternatesEndpoints() {
+		EndpointPool pool = pool(SelectionStrategy.ROUND_ROBIN);
+
+		List<String> addresses = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			addresses.add(send(pool));
+		}
+
+		assertThat(addresses).containsOnly(FIRST, SECOND);
+		assertThat(addresses.get(0)).isNotEqualTo(addresses.get(1));
+		assertThat(addresses.get(1)).isNotEqualTo(addresses.get(2));
+	}
+
+	@Test
+	void leastOutstandingAvoidsBusyEndpoint() {
+		EndpointPool pool = pool(SelectionStrategy.LEAST_OUTSTANDING);
+		pool.getEndpoints().get(0).requestStarted();
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(send(pool)).isEqualTo(SECOND);
+		}
+	}
+
+	@Test
+	void latencyWeightedPrefersFasterEndpoint() {
+		EndpointPool pool = pool(SelectionStrategy.LATENCY_WEIGHTED);
+		pool.getEndpoints().get(0).recordSuccess(50_000_000);
+		pool.getEndpoints().get(1).recordSuccess(1_000_000);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(send(pool)).isEqualTo(SECOND);
+		}
+	}
+
+	@Test
+	void idempotentRequestFailsOverAndEndpointIsEjected() {
+		EndpointPool pool = pool(SelectionStrategy.ROUND_ROBIN);
+
+		for (int i = 0; i < 4; i++) {
+			String address = pool.execute(true, failing(FIRST, new IOException("Connection reset")));
+			assertThat(address).isEqualTo(SECOND);
+		}
+
+		Endpoint first = pool.getEndpoints().get(0);
+		assertThat(first.isEjected()).isTrue();
+		assertThat(first.getOutstandingRequests()).isZero();
+	}
+
+	@Test
+	void nonIdempotentRequestIsRetriedOnlyIfNotSent() {
+		// a request in flight on SECOND makes FIRST the first choice
+		EndpointPool leastOutstanding = EndpointPool.newBuilder()
+			.addAddress(FIRST).addAddress(SECOND)
+			.setSelectionStrategy(SelectionStrategy.LEAST_OUTSTANDING)
+			.build();
+		leastOutstanding.getEndpoints().get(1).requestStarted();
+
+		assertThatThrownBy(() -> leastOutstanding.execute(false, failing(FIRST, new IOException("Connection reset"))))
+			.isInstanceOf(TransportException.class);
+
+		String address = leastOutstanding.execute(false, failing(FIRST, new ConnectException("Connection refused")));
+		assertThat(address).isEqualTo(SECOND);
+	}
+
+	@Test
+	void ejectedEndpointIsProbedBackIn() throws Exception {
+		EndpointPool pool = EndpointPool.newBuilder()
+			.addAddress(FIRST).addAddress(SECOND)
+			.setFailureThreshold(1)
+			.setBaseEjectionTimeMillis(500)
+			.build();
+
+		pool.execute(true, failing(FIRST, new ConnectException("Connection refused")));
+		pool.execute(true, failing(FIRST, new ConnectException("Connection refused")));
+		Endpoint first = pool.getEndpoints().get(0);
+		assertThat(first.isEjected()).isTrue();
+
+		// while ejected only the healthy endpoint gets traffic
+		for (int i = 0; i < 4; i++) {
+			assertThat(send(pool)).isEqualTo(SECOND);
+		}
+
+		Thread.sleep(550);
+
+		// the first request after the ejection time probes the endpoint, a success puts it back into rotation
+		assertThat(send(pool)).isEqualTo(FIRST);
+		assertThat(first.isEjected()).isFalse();
+	}
+
+	@Test
+	void allEndpointsEjectedStillServesRequests() {
+		EndpointPool pool = EndpointPool.newBuilder()
+			.addAddress(FIRST).addAddress(SECOND)
+			.setFailureThreshold(1)
+			.build();
+
+		assertThatThrownBy(() -> pool.execute(true, address -> {
+			throw new TransportException(new ConnectException("Connection refused"));
+		})).isInstanceOf(TransportException.class);
+		assertThat(pool.getEndpoints()).allMatch(Endpoint::isEjected);
+
+		assertThat(send(pool)).isIn(FIRST, SECOND);
+	}
+
+	@Test
+	void asyncRequestFailsOver() {
+		EndpointPool pool = pool(SelectionStrategy.ROUND_ROBIN);
+
+		for (int i = 0; i < 2; i++) {
+			String address = pool.<String>executeAsync(true, a -> FIRST.equals(a)
+				? CompletableFuture.failedFuture(new CompletionException(new TransportException(new ConnectException("Connection refused"))))
+				: CompletableFuture.completedFuture(a)).join();
+			assertThat(address).isEqualTo(SECOND);
+		}
+
+		CompletableFuture<String> failed = pool.executeAsync(true, a -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+		assertThatThrownBy(failed::join).hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void cancellingAnAsyncRequestCancelsTheAttemptInFlight() {
+		EndpointPool pool = pool(SelectionStrategy.ROUND_ROBIN);
+		List<CompletableFuture<String>> attempts = new ArrayList<>();
+
+		CompletableFuture<String> result = pool.executeAsync(true, address -> {
+			CompletableFuture<String> attempt = new CompletableFuture<>();
+			attempts.add(attempt);
+			return attempt;
+		});
+		result.cancel(true);
+
+		assertThat(attempts).hasSize(1);
+		assertThat(attempts.get(0).isCancelled()).isTrue();
+		// a cancelled request is neither retried nor held against the endpoint
+		assertThat(pool.getEndpoints()).allMatch(endpoint -> endpoint.getConsecutiveFailures() == 0
+			&& endpoint.getOutstandingRequests() == 0);
+	}
+
+	@Test
+	void blockingQueryLatencyIsNotRecorded() {
+		EndpointPool pool = EndpointPool.singleton(FIRST);
+
+		pool.execute(true, true, address -> sleep(50, address));
+		pool.executeAsync(true, true, address -> CompletableFuture.supplyAsync(() -> sleep(50, address))).join();
+		assertThat(pool.getEndpoints().get(0).getAverageLatencyNanos()).isZero();
+
+		pool.execute(true, false, address -> sleep(50, address));
+		assertThat(pool.getEndpoints().get(0).getAverageLatencyNanos()).isPositive();
+	}
+
+	private static EndpointPool pool(SelectionStrategy selectionStrategy) {
+		return EndpointPool.newBuilder()
+			.addAddress(FIRST)
+			.addAddress(SECOND)
+			.setSelectionStrategy(selectionStrategy)
+			.build();
+	}
+
+	private static String sleep(long millis, String address) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return address;
+	}
+
+	private static String send(EndpointPool pool) {
+		return pool.execute(true, address -> address);
+	}
+
+	private static Function<String, String> failing(String failingAddress, IOException error) {
+		return address -> {
+			if (failingAddress.equals(address)) {
+				throw new TransportException(error);
+			}
+			return address;
+		};
+	}
+}
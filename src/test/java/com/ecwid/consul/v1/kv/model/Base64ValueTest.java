@@ -0,0 +1,104 @@
+package com.ecwid.consul.v1.kv.model;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Base64ValueTest {
+
+	@Test
+	void valueIsDecodedOnFirstAccessOnly() {
+		Base64Value value = Base64Value.fromEncoded("aGVsbG8=");
+
+		assertThat(value.isDecoded()).isFalse();
+		assertThat(value.length()).isEqualTo(5);
+		assertThat(value.isDecoded()).isFalse();
+
+		byte[] bytes = value.getBytes();
+		assertThat(bytes).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+		assertThat(value.isDecoded()).isTrue();
+		assertThat(value.getBytes()).isSameAs(bytes);
+		assertThat(value.toString(StandardCharsets.UTF_8)).isEqualTo("hello");
+		assertThat(value.length()).isEqualTo(5);
+	}
+
+	@Test
+	void encodedStringIsDroppedOnceDecoded() {
+		String encoded = "aGVsbG8=";
+		GetValue value = new GetValue();
+		value.setValue(encoded);
+		assertThat(value.getValue()).isSameAs(encoded);
+
+		assertThat(value.getDecodedValue()).isEqualTo("hello");
+		assertThat(value.getValue()).isEqualTo(encoded).isNotSameAs(encoded);
+		assertThat(value.getBase64Value()).isEqualTo(Base64Value.fromEncoded(encoded));
+	}
+
+	@Test
+	void equalityDoesNotDependOnTheRepresentation() {
+		Base64Value encoded = Base64Value.fromEncoded("aGVsbG8=");
+		Base64Value unpadded = Base64Value.fromEncoded("aGVsbG8");
+		Base64Value decoded = Base64Value.fromBytes("hello".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(encoded).isEqualTo(decoded).hasSameHashCodeAs(decoded);
+		assertThat(unpadded).isEqualTo(encoded).hasSameHashCodeAs(encoded);
+		assertThat(encoded).isNotEqualTo(Base64Value.fromEncoded("aGVsbG8h"));
+	}
+
+	@Test
+	void lengthIsComputedWithoutDecoding() {
+		for (String text : new String[]{"", "a", "ab", "abc", "abcd"}) {
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			String encoded = Base64Value.fromBytes(bytes).getEncoded();
+
+			assertThat(Base64Value.fromEncoded(encoded).length()).isEqualTo(bytes.length);
+			assertThat(Base64Value.fromEncoded(encoded.replace("=", "")).length()).isEqualTo(bytes.length);
+		}
+	}
+
+	@Test
+	void byteBufferIsReadOnlyView() {
+		ByteBuffer buffer = Base64Value.fromEncoded("AQID").asByteBuffer();
+
+		assertThat(buffer.remaining()).isEqualTo(3);
+		assertThat(buffer.get(2)).isEqualTo((byte) 3);
+		assertThatThrownBy(() -> buffer.put(0, (byte) 0)).isInstanceOf(ReadOnlyBufferException.class);
+	}
+
+	@Test
+	void listedValuesAreNotDecodedUntilRead() {
+		String json = "[{\"Key\":\"a\",\"Value\":\"aGVsbG8=\",\"ModifyIndex\":7},{\"Key\":\"b\",\"Value\":null}]";
+
+		List<GetBinaryValue> values = GsonFactory.getGson().fromJson(json, new TypeToken<List<GetBinaryValue>>() {}.getType());
+
+		GetBinaryValue first = values.get(0);
+		assertThat(first.getModifyIndex()).isEqualTo(7);
+		assertThat(first.getBase64Value().isDecoded()).isFalse();
+		assertThat(first.getValue()).isEqualTo("hello".getBytes(StandardCharsets.UTF_8));
+		assertThat(first.getValueAsByteBuffer().remaining()).isEqualTo(5);
+		assertThat(values.get(1).getValue()).isNull();
+		assertThat(values.get(1).getValueAsByteBuffer()).isNull();
+	}
+
+	@Test
+	void getValueDecodesOnce() {
+		GetValue value = new GetValue();
+		value.setValue("aGVsbG8=");
+
+		assertThat(value.getDecodedValue()).isEqualTo("hello");
+		assertThat(value.getBase64Value().isDecoded()).isTrue();
+		assertThat(value.getDecodedValueAsByteBuffer().remaining()).isEqualTo(5);
+
+		value.setValue(null);
+		assertThat(value.getDecodedValue()).isNull();
+		assertThat(value.getBase64Value()).isNull();
+	}
+}
@@ -0,0 +1,174 @@
+package com.ecwid.consul.v1.lock;
+
+import com.ecwid.consul.stub.ConsulStubServer;
+import com.ecwid.consul.transport.DefaultHttpTransport;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.transport.HttpTransport;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.ecwid.consul.v1.session.SessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsulLockTest {
+
+	private ConsulStubServer server;
+	private ConsulClient client;
+	private SessionManager sessionManager;
+
+	@BeforeEach
+	void setUp() {
+		server = ConsulStubServer.newBuilder().build();
+		client = new ConsulClient(ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.build());
+		sessionManager = SessionManager.newBuilder(client).setLockDelay(0).build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		sessionManager.close();
+		server.close();
+	}
+
+	@Test
+	void lockIsExclusive() throws Exception {
+		ConsulLock first = lock("first");
+		ConsulLock second = lock("second");
+
+		assertThat(first.tryAcquire()).isTrue();
+		assertThat(first.isHeld()).isTrue();
+		assertThat(second.tryAcquire()).isFalse();
+		assertThat(second.acquire(1, TimeUnit.SECONDS)).isFalse();
+
+		GetValue value = client.getKVValue("locks/a").getValue();
+		assertThat(value.getDecodedValue()).isEqualTo("first");
+		assertThat(value.getSession()).isNotNull();
+
+		assertThat(first.release()).isTrue();
+		assertThat(first.isHeld()).isFalse();
+		assertThat(second.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void waiterIsWokenByReleaseWithoutPolling() throws Exception {
+		ConsulLock first = lock("first");
+		ConsulLock second = lock("second");
+		assertThat(first.tryAcquire()).isTrue();
+
+		CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+			try {
+				return second.acquire(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(500);
+		long requestsWhileWaiting = server.getRequestCount();
+		Thread.sleep(500);
+		// the waiter sits in a blocking query
+		assertThat(server.getRequestCount()).isEqualTo(requestsWhileWaiting);
+
+		long releasedAt = System.nanoTime();
+		first.release();
+		assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - releasedAt)).isLessThan(1000);
+		assertThat(second.isHeld()).isTrue();
+	}
+
+	@Test
+	void unboundedWaiterBlocksForTheWholeWaitTime() throws Exception {
+		Queue<String> blockingQueries = new ConcurrentLinkedQueue<>();
+		HttpTransport delegate = new DefaultHttpTransport();
+		ConsulClient recordingClient = new ConsulClient(ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.setHttpTransport(new HttpTransport() {
+				@Override
+				public HttpResponse makeGetRequest(HttpRequest request) {
+					if (request.getUrl().contains("index=")) {
+						blockingQueries.add(request.getUrl());
+					}
+					return delegate.makeGetRequest(request);
+				}
+
+				@Override
+				public HttpResponse makePutRequest(HttpRequest request) {
+					return delegate.makePutRequest(request);
+				}
+
+				@Override
+				public HttpResponse makeDeleteRequest(HttpRequest request) {
+					return delegate.makeDeleteRequest(request);
+				}
+			})
+			.build());
+		ConsulLock first = lock("first");
+		ConsulLock second = ConsulLock.newBuilder(recordingClient, sessionManager, "locks/a").setValue("second").build();
+		assertThat(first.tryAcquire()).isTrue();
+
+		CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> {
+			try {
+				second.acquire();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		long start = System.nanoTime();
+		while (blockingQueries.isEmpty() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+			Thread.sleep(10);
+		}
+		assertThat(blockingQueries.peek()).contains("wait=" + ConsulLock.DEFAULT_WAIT_TIME + "s");
+
+		first.release();
+		waiter.get(5, TimeUnit.SECONDS);
+		assertThat(second.isHeld()).isTrue();
+		assertThat(blockingQueries).allMatch(url -> url.contains("wait=" + ConsulLock.DEFAULT_WAIT_TIME + "s"));
+	}
+
+	@Test
+	void lockIsLostWithItsSessionAndLockDelayIsRespected() throws Exception {
+		SessionManager delayingManager = SessionManager.newBuilder(client).setLockDelay(1).build();
+		ConsulLock first = ConsulLock.newBuilder(client, delayingManager, "locks/a").setValue("first").build();
+		ConsulLock second = lock("second");
+		assertThat(first.tryAcquire()).isTrue();
+
+		delayingManager.close();
+		assertThat(first.isHeld()).isFalse();
+
+		// the key is free, but Consul holds it back for the lock delay of the invalidated session
+		assertThat(second.tryAcquire()).isFalse();
+		long start = System.nanoTime();
+		assertThat(second.acquire(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+	}
+
+	@Test
+	void closeDestroysTheOwnSession() {
+		ConsulLock lock = lock("first");
+		assertThat(lock.tryAcquire()).isTrue();
+		String session = client.getKVValue("locks/a").getValue().getSession();
+
+		lock.close();
+
+		assertThat(client.getKVValue("locks/a").getValue().getSession()).isNull();
+		assertThat(client.getSessionInfo(session, QueryParams.DEFAULT).getValue()).isNull();
+		assertThat(sessionManager.getSessionCount()).isZero();
+	}
+
+	private ConsulLock lock(String value) {
+		return ConsulLock.newBuilder(client, sessionManager, "locks/a").setValue(value).build();
+	}
+}
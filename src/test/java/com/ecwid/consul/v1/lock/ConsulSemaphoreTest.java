@@ -0,0 +1,94 @@
+package com.ecwid.consul.v1.lock;
+
+import com.ecwid.consul.stub.ConsulStubServer;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.session.ManagedSession;
+import com.ecwid.consul.v1.session.SessionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsulSemaphoreTest {
+
+	private ConsulStubServer server;
+	private ConsulClient client;
+	private SessionManager sessionManager;
+
+	@BeforeEach
+	void setUp() {
+		server = ConsulStubServer.newBuilder().build();
+		client = new ConsulClient(ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.build());
+		sessionManager = SessionManager.newBuilder(client).setLockDelay(0).build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		sessionManager.close();
+		server.close();
+	}
+
+	@Test
+	void limitIsEnforced() throws Exception {
+		ConsulSemaphore first = semaphore();
+		ConsulSemaphore second = semaphore();
+		ConsulSemaphore third = semaphore();
+
+		assertThat(first.tryAcquire()).isTrue();
+		assertThat(second.tryAcquire()).isTrue();
+		assertThat(third.tryAcquire()).isFalse();
+		assertThat(third.acquire(1, TimeUnit.SECONDS)).isFalse();
+		assertThat(client.getKVValue("semaphores/a/.lock").getValue().getDecodedValue()).contains("\"Limit\":2");
+
+		assertThat(first.release()).isTrue();
+		assertThat(third.tryAcquire()).isTrue();
+		assertThat(second.isHeld()).isTrue();
+	}
+
+	@Test
+	void waiterTakesTheSlotOfAnInvalidatedHolder() throws Exception {
+		ManagedSession crashing = sessionManager.createSession("crashing");
+		ConsulSemaphore first = ConsulSemaphore.newBuilder(client, sessionManager, "semaphores/a", 1).setSession(crashing).build();
+		ConsulSemaphore second = ConsulSemaphore.newBuilder(client, sessionManager, "semaphores/a", 1).build();
+		assertThat(first.tryAcquire()).isTrue();
+
+		CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+			try {
+				return second.acquire(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(300);
+		assertThat(waiter).isNotDone();
+
+		// the holder never releases, its session is gone
+		crashing.close();
+
+		assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(first.isHeld()).isFalse();
+	}
+
+	@Test
+	void closeRemovesTheContender() {
+		ConsulSemaphore semaphore = semaphore();
+		assertThat(semaphore.tryAcquire()).isTrue();
+
+		semaphore.close();
+
+		assertThat(client.getKVKeysOnly("semaphores/a/").getValue()).containsExactly("semaphores/a/.lock");
+		assertThat(client.getKVValue("semaphores/a/.lock").getValue().getDecodedValue()).contains("\"Holders\":{}");
+	}
+
+	private ConsulSemaphore semaphore() {
+		return ConsulSemaphore.newBuilder(client, sessionManager, "semaphores/a", 2).build();
+	}
+}
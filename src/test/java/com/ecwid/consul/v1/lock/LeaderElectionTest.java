@@ -0,0 +1,127 @@
+package com.ecwid.consul.v1.lock;
+
+import com.ecwid.consul.stub.ConsulStubServer;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.session.SessionManager;
+import com.ecwid.consul.v1.watch.WatchManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderElectionTest {
+
+	private final List<String> events = new CopyOnWriteArrayList<>();
+
+	private ConsulStubServer server;
+	private ConsulClient client;
+	private SessionManager sessionManager;
+	private WatchManager watchManager;
+
+	@BeforeEach
+	void setUp() {
+		server = ConsulStubServer.newBuilder().build();
+		ConsulRawClient rawClient = ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.build();
+		client = new ConsulClient(rawClient);
+		sessionManager = SessionManager.newBuilder(client).setLockDelay(0).build();
+		watchManager = WatchManager.newBuilder(rawClient).setMinIntervalMillis(0).build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		watchManager.close();
+		sessionManager.close();
+		server.close();
+	}
+
+	@Test
+	void singleLeaderIsElected() throws Exception {
+		LeaderElection first = election("first");
+		first.start();
+		await(first::isLeader);
+
+		LeaderElection second = election("second");
+		second.start();
+		await(() -> "first".equals(second.getLeaderValue()));
+
+		assertThat(second.isLeader()).isFalse();
+		assertThat(second.getFencingToken()).isZero();
+		assertThat(first.getFencingToken()).isPositive();
+		assertThat(first.getLeaderValue()).isEqualTo("first");
+		assertThat(events).containsExactly("first elected");
+	}
+
+	@Test
+	void failoverTakesOneRoundTripAndRaisesTheFencingToken() throws Exception {
+		LeaderElection first = election("first");
+		first.start();
+		await(first::isLeader);
+		long firstToken = first.getFencingToken();
+
+		LeaderElection second = election("second");
+		second.start();
+		await(() -> "first".equals(second.getLeaderValue()));
+
+		// the leader's session is invalidated, as if it stopped renewing
+		String session = client.getKVValue("service/leader").getValue().getSession();
+		long start = System.nanoTime();
+		client.sessionDestroy(session, QueryParams.DEFAULT);
+
+		await(second::isLeader);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+		assertThat(second.getFencingToken()).isGreaterThan(firstToken);
+		await(() -> events.contains("first revoked"));
+		assertThat(first.isLeader()).isFalse();
+	}
+
+	@Test
+	void closingResignsTheLeadership() throws Exception {
+		LeaderElection first = election("first");
+		LeaderElection second = election("second");
+		first.start();
+		await(first::isLeader);
+		second.start();
+
+		first.close();
+
+		assertThat(first.isLeader()).isFalse();
+		await(second::isLeader);
+		assertThat(events).containsExactly("first elected", "first revoked", "second elected");
+	}
+
+	private LeaderElection election(String name) {
+		return LeaderElection.newBuilder(client, sessionManager, watchManager, "service/leader")
+			.setValue(name)
+			.setListener(new LeadershipListener() {
+				@Override
+				public void onElected(long fencingToken) {
+					events.add(name + " elected");
+				}
+
+				@Override
+				public void onRevoked() {
+					events.add(name + " revoked");
+				}
+			})
+			.build();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime() - deadline).as("condition met within 5 seconds").isNegative();
+			Thread.sleep(10);
+		}
+	}
+}
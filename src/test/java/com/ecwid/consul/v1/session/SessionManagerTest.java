@@ -0,0 +1,141 @@
+package com.ecwid.consul.v1.session;
+
+import com.ecwid.consul.stub.ConsulStubServer;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SessionManagerTest {
+
+	private ConsulStubServer server;
+	private SessionConsulClient sessionClient;
+	private SessionManager sessionManager;
+
+	@BeforeEach
+	void setUp() {
+		server = ConsulStubServer.newBuilder().build();
+		sessionClient = new SessionConsulClient(ConsulRawClient.Builder.builder()
+			.setHost(server.getHost())
+			.setPort(server.getPort())
+			.build());
+		sessionManager = SessionManager.newBuilder(sessionClient).setTtl(1).setLockDelay(0).build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		sessionManager.close();
+		server.close();
+	}
+
+	@Test
+	void sessionsAreRenewedBeyondTheirTtl() throws Exception {
+		ManagedSession first = sessionManager.createSession("first");
+		ManagedSession second = sessionManager.createSession("second");
+
+		// without renewals the sessions would expire after twice the TTL
+		Thread.sleep(2500);
+
+		assertThat(first.isValid()).isTrue();
+		assertThat(second.isValid()).isTrue();
+		assertThat(sessionClient.getSessionInfo(first.getId(), QueryParams.DEFAULT).getValue().getName()).isEqualTo("first");
+		assertThat(sessionManager.getSessionCount()).isEqualTo(2);
+	}
+
+	@Test
+	void sessionDestroyedElsewhereIsRecreated() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		ManagedSession session = sessionManager.createSession("victim");
+		String originalId = session.getId();
+		session.addListener(new SessionListener() {
+			@Override
+			public void onInvalidated(String sessionId) {
+				events.add("invalidated " + sessionId);
+			}
+
+			@Override
+			public void onRecreated(String sessionId) {
+				events.add("recreated " + sessionId);
+			}
+		});
+
+		sessionClient.sessionDestroy(originalId, QueryParams.DEFAULT);
+		// the next renewal at half of the TTL finds out
+		Thread.sleep(1000);
+
+		assertThat(session.isValid()).isTrue();
+		assertThat(session.getId()).isNotEqualTo(originalId);
+		assertThat(events).containsExactly("invalidated " + originalId, "recreated " + session.getId());
+		assertThat(sessionClient.getSessionInfo(session.getId(), QueryParams.DEFAULT).getValue().getName()).isEqualTo("victim");
+		assertThat(sessionManager.getRecreationCount()).isEqualTo(1);
+	}
+
+	@Test
+	void sessionDestroyedElsewhereIsInvalidatedWithoutRecreation() throws Exception {
+		SessionManager withoutRecreation = SessionManager.newBuilder(sessionClient).setTtl(1).setRecreateInvalidated(false).build();
+		ManagedSession session = withoutRecreation.createSession("victim");
+		sessionClient.sessionDestroy(session.getId(), QueryParams.DEFAULT);
+
+		Thread.sleep(800);
+
+		assertThat(session.isValid()).isFalse();
+		assertThat(withoutRecreation.getSessionCount()).isZero();
+		withoutRecreation.close();
+	}
+
+	@Test
+	void renewalsOfManySessionsAreSpreadOverABoundedPool() throws Exception {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		AtomicInteger ids = new AtomicInteger();
+		SessionClient slowClient = mock(SessionClient.class);
+		when(slowClient.sessionCreate(any(), any(), any())).thenAnswer(invocation ->
+			new Response<>("session-" + ids.incrementAndGet(), null, null, null));
+		when(slowClient.renewSession(anyString(), any(), any())).thenAnswer(invocation -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			Thread.sleep(1);
+			inFlight.decrementAndGet();
+			return new Response<>(null, null, null, null);
+		});
+
+		SessionManager manager = SessionManager.newBuilder(slowClient)
+			.setTtl(1)
+			.setTickMillis(10)
+			.setMaxConcurrentRenewals(3)
+			.build();
+		for (int i = 0; i < 500; i++) {
+			manager.createSession("session " + i);
+		}
+		Thread.sleep(1200);
+		manager.close();
+
+		// every session is renewed within 1.2 seconds, by at most 3 threads at once
+		assertThat(manager.getRenewalCount()).isGreaterThanOrEqualTo(500);
+		assertThat(maxInFlight.get()).isEqualTo(3);
+	}
+
+	@Test
+	void closingDestroysTheSession() {
+		ManagedSession session = sessionManager.createSession("closed");
+		session.close();
+
+		assertThat(session.isValid()).isFalse();
+		assertThat(sessionClient.getSessionInfo(session.getId(), QueryParams.DEFAULT).getValue()).isNull();
+
+		sessionManager.close();
+		assertThatThrownBy(() -> sessionManager.createSession("late")).isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,147 @@
+package com.ecwid.consul.v1.txn;
+
+import com.ecwid.consul.json.GsonFactory;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.txn.model.TxnOperation;
+import com.ecwid.consul.v1.txn.model.TxnResult;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TxnConsulClientTest {
+
+	private HttpServer server;
+	private TxnConsulClient client;
+	private final List<JsonArray> requests = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/txn", exchange -> {
+			JsonArray ops = JsonParser.parseReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)).getAsJsonArray();
+			requests.add(ops);
+
+			int status = 200;
+			StringBuilder body = new StringBuilder();
+			for (int i = 0; i < ops.size(); i++) {
+				String key = ops.get(i).getAsJsonObject().getAsJsonObject("KV").get("Key").getAsString();
+				if (key.equals("fail")) {
+					status = 409;
+					body = new StringBuilder("{\"Results\":null,\"Errors\":[{\"OpIndex\":" + i + ",\"What\":\"failed\"}]}");
+					break;
+				}
+				body.append(body.length() == 0 ? "" : ",")
+					.append("{\"KV\":{\"Key\":\"").append(key).append("\",\"ModifyIndex\":7}}");
+			}
+			if (status == 200) {
+				body = new StringBuilder("{\"Results\":[" + body + "],\"Errors\":null}");
+			}
+
+			byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("X-Consul-Index", "7");
+			exchange.sendResponseHeaders(status, bytes.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(bytes);
+			}
+		});
+		server.start();
+
+		client = new TxnConsulClient(ConsulRawClient.Builder.builder()
+			.setHost("localhost")
+			.setPort(server.getAddress().getPort())
+			.build());
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void serializesOperations() {
+		TxnRequest request = TxnRequest.newBuilder()
+			.addKVSet("a", "value")
+			.addKVCas("b", "value", 5)
+			.addKVDeleteTree("c/")
+			.addKVCheckIndex("d", 3)
+			.build();
+
+		JsonArray json = GsonFactory.getGson().toJsonTree(request.getOperations()).getAsJsonArray();
+		assertThat(json.get(0).toString()).isEqualTo("{\"KV\":{\"Verb\":\"set\",\"Key\":\"a\",\"Value\":\"dmFsdWU=\"}}");
+		assertThat(json.get(1).toString()).isEqualTo("{\"KV\":{\"Verb\":\"cas\",\"Key\":\"b\",\"Value\":\"dmFsdWU=\",\"Index\":5}}");
+		assertThat(json.get(2).toString()).isEqualTo("{\"KV\":{\"Verb\":\"delete-tree\",\"Key\":\"c/\"}}");
+		assertThat(json.get(3).toString()).isEqualTo("{\"KV\":{\"Verb\":\"check-index\",\"Key\":\"d\",\"Index\":3}}");
+	}
+
+	@Test
+	void committedTransaction() {
+		Response<TxnResult> response = client.txn(TxnRequest.newBuilder()
+			.addKVSet("a", "1")
+			.addKVGet("b")
+			.build());
+
+		assertThat(response.getValue().isCommitted()).isTrue();
+		assertThat(response.getValue().getResults()).hasSize(2);
+		assertThat(response.getValue().getResults().get(1).getKv().getKey()).isEqualTo("b");
+		assertThat(response.getConsulIndex()).isEqualTo(7L);
+	}
+
+	@Test
+	void rolledBackTransactionIsNotAnException() {
+		Response<TxnResult> response = client.txn(TxnRequest.newBuilder()
+			.addKVSet("a", "1")
+			.addKVSet("fail", "1")
+			.build());
+
+		assertThat(response.getValue().isCommitted()).isFalse();
+		assertThat(response.getValue().getResults()).isEmpty();
+		assertThat(response.getValue().getErrors()).hasSize(1);
+		assertThat(response.getValue().getErrors().get(0).getOpIndex()).isEqualTo(1);
+	}
+
+	@Test
+	void chunkedTransaction() {
+		TxnRequest.Builder builder = TxnRequest.newBuilder();
+		for (int i = 0; i < 150; i++) {
+			builder.addKVSet("key" + i, "value");
+		}
+
+		Response<TxnResult> response = client.txnChunked(builder.build());
+
+		assertThat(requests).hasSize(3);
+		assertThat(requests.get(0).size()).isEqualTo(TxnRequest.MAX_OPERATIONS);
+		assertThat(requests.get(2).size()).isEqualTo(150 - 2 * TxnRequest.MAX_OPERATIONS);
+		assertThat(response.getValue().isCommitted()).isTrue();
+		assertThat(response.getValue().getResults()).hasSize(150);
+	}
+
+	@Test
+	void chunkedTransactionStopsAtFirstFailedChunk() {
+		TxnRequest.Builder builder = TxnRequest.newBuilder();
+		for (int i = 0; i < 25; i++) {
+			builder.addKVSet(i == 12 ? "fail" : "key" + i, "value");
+		}
+
+		Response<TxnResult> response = client.txnChunked(builder.build(), 10);
+
+		assertThat(requests).hasSize(2);
+		assertThat(response.getValue().isCommitted()).isFalse();
+		assertThat(response.getValue().getResults()).hasSize(10);
+		assertThat(response.getValue().getErrors().get(0).getOpIndex()).isEqualTo(12);
+	}
+}
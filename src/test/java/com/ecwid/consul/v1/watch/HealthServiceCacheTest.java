@@ -0,0 +1,107 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.ConsulException;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.health.HealthServicesRequest;
+import com.ecwid.consul.v1.health.model.HealthService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthServiceCacheTest {
+
+	private static final String SERVICES = "[{\"Node\":{\"Node\":\"node1\",\"Address\":\"10.0.0.1\"}," +
+		"\"Service\":{\"ID\":\"foo-1\",\"Service\":\"foo\",\"Port\":8080},\"Checks\":[]}]";
+
+	private HttpServer server;
+	private WatchManager watchManager;
+	private HealthServiceCache cache;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/health/service/foo", exchange -> {
+			requests.incrementAndGet();
+			if (exchange.getRequestURI().getQuery().contains("index=")) {
+				// emulate a blocking query which ends without changes
+				sleep(200);
+			}
+			respond(exchange, 200, SERVICES);
+		});
+		server.createContext("/v1/health/service/broken", exchange -> respond(exchange, 500, "rpc error"));
+		server.start();
+
+		ConsulRawClient rawClient = ConsulRawClient.Builder.builder()
+			.setHost("localhost")
+			.setPort(server.getAddress().getPort())
+			.build();
+		watchManager = WatchManager.newBuilder(rawClient).build();
+		HealthServicesRequest defaultRequest = HealthServicesRequest.newBuilder()
+			.setPassing(true)
+			.setQueryParams(QueryParams.DEFAULT)
+			.build();
+		cache = new HealthServiceCache(watchManager, defaultRequest, 5000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		cache.close();
+		watchManager.close();
+		server.stop(0);
+	}
+
+	@Test
+	void lookupsAreServedFromTheSnapshot() {
+		List<HealthService> services = cache.getHealthServices("foo");
+		assertEquals(1, services.size());
+		assertEquals("foo-1", services.get(0).getService().getId());
+
+		int requestsAfterLoad = requests.get();
+		for (int i = 0; i < 1000; i++) {
+			assertSame(services, cache.getHealthServices("foo"));
+		}
+		// the hot path does not talk to the agent
+		assertEquals(1, cache.size());
+		assertTrue(requests.get() <= requestsAfterLoad + 5);
+
+		assertThrows(UnsupportedOperationException.class, () -> services.add(new HealthService()));
+	}
+
+	@Test
+	void failedInitialLoadIsReported() {
+		assertThrows(ConsulException.class, () -> cache.getHealthServices("broken"));
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("X-Consul-Index", "42");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
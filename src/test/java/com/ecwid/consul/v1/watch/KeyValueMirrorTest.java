@@ -0,0 +1,187 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyValueMirrorTest {
+
+	private HttpServer server;
+	private WatchManager watchManager;
+
+	private volatile String body;
+	private volatile long index;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/kv/config/", exchange -> {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("X-Consul-Index", String.valueOf(index));
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(bytes);
+			}
+		});
+		server.start();
+
+		ConsulRawClient rawClient = ConsulRawClient.Builder.builder()
+			.setHost("localhost")
+			.setPort(server.getAddress().getPort())
+			.build();
+		watchManager = WatchManager.newBuilder(rawClient)
+			.setMinIntervalMillis(20)
+			.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		watchManager.close();
+		server.stop(0);
+	}
+
+	@Test
+	void emitsOnlyChangedKeysAndReusesUnchangedEntries() throws Exception {
+		setState(10, entry("config/a", 5), entry("config/b", 6), entry("config/c", 7));
+
+		BlockingQueue<Map<String, GetValue>[]> changes = new LinkedBlockingQueue<>();
+		KeyValueMirrorListener listener = (added, modified, removed) -> changes.add(new Map[]{added, modified, removed});
+		try (KeyValueMirror mirror = new KeyValueMirror(watchManager, "config/", null, QueryParams.DEFAULT, listener)) {
+			assertTrue(mirror.awaitLoaded(5, TimeUnit.SECONDS));
+
+			GetValue a = mirror.get("config/a");
+			GetValue c = mirror.get("config/c");
+			assertNotNull(a);
+			assertEquals(3, mirror.getAll().size());
+			assertEquals(10, mirror.getConsulIndex());
+
+			Map<String, GetValue>[] initial = changes.poll(5, TimeUnit.SECONDS);
+			assertNotNull(initial);
+			assertEquals(3, initial[0].size());
+
+			// b changes, c is removed, d is added
+			setState(11, entry("config/a", 5), entry("config/b", 11), entry("config/d", 11));
+
+			Map<String, GetValue>[] diff = changes.poll(5, TimeUnit.SECONDS);
+			assertNotNull(diff);
+			assertEquals(1, diff[0].size());
+			assertTrue(diff[0].containsKey("config/d"));
+			assertEquals(1, diff[1].size());
+			assertEquals(11, diff[1].get("config/b").getModifyIndex());
+			assertEquals(1, diff[2].size());
+			assertSame(c, diff[2].get("config/c"));
+
+			assertSame(a, mirror.get("config/a"));
+			assertNull(mirror.get("config/c"));
+		}
+	}
+
+	@Test
+	void staleResultIsIgnored() throws Exception {
+		setState(10, entry("config/a", 5), entry("config/b", 6));
+
+		BlockingQueue<Map<String, GetValue>[]> changes = new LinkedBlockingQueue<>();
+		KeyValueMirrorListener listener = (added, modified, removed) -> changes.add(new Map[]{added, modified, removed});
+		try (KeyValueMirror mirror = new KeyValueMirror(watchManager, "config/", null, QueryParams.DEFAULT, listener)) {
+			assertTrue(mirror.awaitLoaded(5, TimeUnit.SECONDS));
+			assertNotNull(changes.poll(5, TimeUnit.SECONDS));
+			Map<String, GetValue> loaded = mirror.getAll();
+
+			// a result of an older round arriving late must not roll the mirror back
+			mirror.update(new Response<>(Collections.singletonList(value("config/a", 4)), 8L, true, 0L));
+
+			assertSame(loaded, mirror.getAll());
+			assertEquals(10, mirror.getConsulIndex());
+			assertTrue(changes.isEmpty());
+		}
+	}
+
+	@Test
+	void concurrentResultsAreAppliedOneAtATime() throws Exception {
+		setState(10, entry("config/a", 5));
+
+		// replays the reported changes; it matches the mirror only if every diff was computed against the state before it
+		Map<String, GetValue> replayed = new ConcurrentHashMap<>();
+		KeyValueMirrorListener listener = (added, modified, removed) -> {
+			replayed.putAll(added);
+			replayed.putAll(modified);
+			replayed.keySet().removeAll(removed.keySet());
+		};
+		try (KeyValueMirror mirror = new KeyValueMirror(watchManager, "config/", null, QueryParams.DEFAULT, listener)) {
+			assertTrue(mirror.awaitLoaded(5, TimeUnit.SECONDS));
+
+			int threads = 8;
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			CountDownLatch start = new CountDownLatch(1);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < threads; i++) {
+					long newIndex = 20 + i;
+					List<GetValue> values = Arrays.asList(value("config/a", newIndex), value("config/k" + i, newIndex));
+					futures.add(executor.submit(() -> {
+						start.await();
+						mirror.update(new Response<>(values, newIndex, true, 0L));
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get(5, TimeUnit.SECONDS);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+
+			assertEquals(27, mirror.getConsulIndex());
+			assertEquals(27, mirror.get("config/a").getModifyIndex());
+			assertNotNull(mirror.get("config/k7"));
+			assertEquals(mirror.getAll(), replayed);
+		}
+	}
+
+	private void setState(long newIndex, String... entries) {
+		body = "[" + String.join(",", entries) + "]";
+		index = newIndex;
+	}
+
+	private static GetValue value(String key, long modifyIndex) {
+		GetValue value = new GetValue();
+		value.setKey(key);
+		value.setCreateIndex(1);
+		value.setModifyIndex(modifyIndex);
+		return value;
+	}
+
+	private static String entry(String key, long modifyIndex) {
+		return "{\"Key\":\"" + key + "\",\"CreateIndex\":1,\"ModifyIndex\":" + modifyIndex + ",\"Flags\":0,\"Value\":\"dmFsdWU=\"}";
+	}
+}
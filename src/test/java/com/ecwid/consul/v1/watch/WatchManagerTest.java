@@ -0,0 +1,306 @@
+package com.ecwid.consul.v1.watch;
+
+import com.ecwid.consul.stub.ConsulStubServer;
+import com.ecwid.consul.transport.AsyncHttpTransport;
+import com.ecwid.consul.transport.ContentDecoder;
+import com.ecwid.consul.transport.DecodedHttpResponse;
+import com.ecwid.consul.transport.DefaultAsyncHttpTransport;
+import com.ecwid.consul.transport.HttpRequest;
+import com.ecwid.consul.transport.HttpResponse;
+import com.ecwid.consul.v1.ConsulClient;
+import com.ecwid.consul.v1.ConsulRawClient;
+import com.ecwid.consul.v1.QueryParams;
+import com.ecwid.consul.v1.Response;
+import com.ecwid.consul.v1.kv.model.GetValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchManagerTest {
+
+	private static final WatchKey KEY = new WatchKey("/v1/kv/test", Collections.emptyList(), null);
+
+	private WatchManager manager;
+	private ScriptedQuery query;
+
+	@BeforeEach
+	void setUp() {
+		manager = WatchManager.newBuilder(null)
+			.setWaitTime(5)
+			.setMinBackoffMillis(10)
+			.setMaxBackoffMillis(20)
+			.setMinIntervalMillis(0)
+			.build();
+		query = new ScriptedQuery();
+	}
+
+	@AfterEach
+	void tearDown() {
+		manager.close();
+	}
+
+	@Test
+	void listenersOfTheSameKeyShareOneQuery() throws Exception {
+		RecordingListener first = new RecordingListener();
+		RecordingListener second = new RecordingListener();
+
+		Watch<String> firstWatch = manager.watch(KEY, QueryParams.DEFAULT, query, first);
+		query.next().complete(new Response<>("a", 5L, true, 0L));
+		assertEquals("a", first.nextUpdate());
+
+		Watch<String> secondWatch = manager.watch(KEY, QueryParams.DEFAULT, new ScriptedQuery(), second);
+		// a late subscriber receives the current value immediately
+		assertEquals("a", second.nextUpdate());
+		assertEquals(1, manager.getActiveWatchCount());
+
+		query.nextParams();
+		QueryParams params = query.nextParams();
+		assertEquals(5, params.getIndex());
+		assertEquals(5, params.getWaitTime());
+
+		query.next().complete(new Response<>("b", 6L, true, 0L));
+		assertEquals("b", first.nextUpdate());
+		assertEquals("b", second.nextUpdate());
+
+		firstWatch.close();
+		assertEquals(1, manager.getActiveWatchCount());
+		secondWatch.close();
+		assertEquals(0, manager.getActiveWatchCount());
+	}
+
+	@Test
+	void lateSubscriberNeverReceivesAStaleSnapshotAfterANewerRound() throws Exception {
+		// holds back the snapshot task of the late subscriber until the next round was delivered
+		Queue<Runnable> heldBack = new ConcurrentLinkedQueue<>();
+		AtomicBoolean holdBack = new AtomicBoolean();
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1) {
+			@Override
+			public void execute(Runnable command) {
+				if (holdBack.get()) {
+					heldBack.add(command);
+				} else {
+					super.execute(command);
+				}
+			}
+		};
+		WatchManager watchManager = WatchManager.newBuilder(null).setScheduler(scheduler).setWaitTime(5).setMinIntervalMillis(0).build();
+		try {
+			RecordingListener first = new RecordingListener();
+			RecordingListener second = new RecordingListener();
+			watchManager.watch(KEY, QueryParams.DEFAULT, query, first);
+			query.next().complete(new Response<>("a", 5L, true, 0L));
+			assertEquals("a", first.nextUpdate());
+
+			holdBack.set(true);
+			watchManager.watch(KEY, QueryParams.DEFAULT, new ScriptedQuery(), second);
+			holdBack.set(false);
+			assertEquals(1, heldBack.size());
+
+			query.next().complete(new Response<>("b", 6L, true, 0L));
+			assertEquals("b", first.nextUpdate());
+			assertEquals("b", second.nextUpdate());
+
+			heldBack.poll().run();
+			assertTrue(second.updates.isEmpty());
+		} finally {
+			watchManager.close();
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	void unchangedIndexDoesNotNotify() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		manager.watch(KEY, QueryParams.DEFAULT, query, listener);
+
+		query.next().complete(new Response<>("a", 5L, true, 0L));
+		assertEquals("a", listener.nextUpdate());
+
+		// wait timeout: same index, nothing changed
+		query.next().complete(new Response<>("a", 5L, true, 0L));
+		query.next().complete(new Response<>("c", 7L, true, 0L));
+		assertEquals("c", listener.nextUpdate());
+		assertTrue(listener.updates.isEmpty());
+	}
+
+	@Test
+	void indexRegressionResetsTheIndex() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		manager.watch(KEY, QueryParams.DEFAULT, query, listener);
+
+		assertEquals(-1, query.nextParams().getIndex());
+		query.next().complete(new Response<>("a", 100L, true, 0L));
+		assertEquals("a", listener.nextUpdate());
+
+		assertEquals(100, query.nextParams().getIndex());
+		query.next().complete(new Response<>("b", 3L, true, 0L));
+		assertEquals("b", listener.nextUpdate());
+
+		// the next query starts from scratch instead of blocking on a stale index
+		QueryParams params = query.nextParams();
+		assertEquals(-1, params.getIndex());
+		assertEquals(-1, params.getWaitTime());
+	}
+
+	@Test
+	void zeroIndexIsTreatedAsOne() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		manager.watch(KEY, QueryParams.DEFAULT, query, listener);
+
+		query.next().complete(new Response<>("a", 0L, true, 0L));
+		assertEquals("a", listener.nextUpdate());
+
+		query.nextParams();
+		assertEquals(1, query.nextParams().getIndex());
+	}
+
+	@Test
+	void errorsAreReportedAndRetried() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		manager.watch(KEY, QueryParams.DEFAULT, query, listener);
+
+		IllegalStateException error = new IllegalStateException("boom");
+		query.next().completeExceptionally(error);
+		assertEquals(error, listener.errors.poll(5, TimeUnit.SECONDS));
+
+		query.next().complete(new Response<>("a", 5L, true, 0L));
+		assertEquals("a", listener.nextUpdate());
+	}
+
+	@Test
+	void closedManagerStopsWatches() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		Watch<String> watch = manager.watch(KEY, QueryParams.DEFAULT, query, listener);
+		CompletableFuture<Response<String>> inFlight = query.next();
+
+		manager.close();
+
+		assertTrue(inFlight.isCancelled());
+		assertEquals(0, manager.getActiveWatchCount());
+		assertNull(watch.getLastResponse());
+	}
+
+	@Test
+	void closingAWatchCancelsTheHttpLongPoll() throws Exception {
+		BlockingQueue<CompletableFuture<?>> transportFutures = new LinkedBlockingQueue<>();
+		DefaultAsyncHttpTransport delegate = new DefaultAsyncHttpTransport();
+		AsyncHttpTransport recording = new AsyncHttpTransport() {
+			@Override
+			public CompletableFuture<HttpResponse> makeGetRequest(HttpRequest request) {
+				return record(delegate.makeGetRequest(request));
+			}
+
+			@Override
+			public CompletableFuture<HttpResponse> makePutRequest(HttpRequest request) {
+				return delegate.makePutRequest(request);
+			}
+
+			@Override
+			public CompletableFuture<HttpResponse> makeDeleteRequest(HttpRequest request) {
+				return delegate.makeDeleteRequest(request);
+			}
+
+			@Override
+			public <T> CompletableFuture<DecodedHttpResponse<T>> makeGetRequest(HttpRequest request, ContentDecoder<T> decoder) {
+				return record(delegate.makeGetRequest(request, decoder));
+			}
+
+			private <R> CompletableFuture<R> record(CompletableFuture<R> future) {
+				transportFutures.add(future);
+				return future;
+			}
+		};
+
+		try (ConsulStubServer server = ConsulStubServer.newBuilder().build()) {
+			ConsulRawClient rawClient = ConsulRawClient.Builder.builder()
+				.setHost(server.getHost())
+				.setPort(server.getPort())
+				.setAsyncHttpTransport(recording)
+				.setRequestMetricsListener(metrics -> {
+				})
+				.build();
+			new ConsulClient(rawClient).setKVValue("config/a", "1");
+			WatchManager watchManager = WatchManager.newBuilder(rawClient).setWaitTime(60).build();
+
+			Watch<GetValue> watch = watchManager.watchKVValue("config/a", null, QueryParams.DEFAULT, response -> {
+			});
+			CompletableFuture<?> initial = transportFutures.poll(5, TimeUnit.SECONDS);
+			CompletableFuture<?> longPoll = transportFutures.poll(5, TimeUnit.SECONDS);
+			assertNotNull(initial);
+			assertNotNull(longPoll);
+			assertFalse(longPoll.isDone());
+
+			watch.close();
+
+			assertTrue(longPoll.isCancelled());
+			watchManager.close();
+		} finally {
+			delegate.close();
+		}
+	}
+
+	private static final class ScriptedQuery implements BlockingQuery<String> {
+		private final BlockingQueue<CompletableFuture<Response<String>>> futures = new LinkedBlockingQueue<>();
+		private final List<QueryParams> params = new CopyOnWriteArrayList<>();
+		private int paramsRead;
+
+		@Override
+		public CompletableFuture<Response<String>> execute(QueryParams queryParams) {
+			params.add(queryParams);
+			CompletableFuture<Response<String>> future = new CompletableFuture<>();
+			futures.add(future);
+			return future;
+		}
+
+		CompletableFuture<Response<String>> next() throws InterruptedException {
+			CompletableFuture<Response<String>> future = futures.poll(5, TimeUnit.SECONDS);
+			assertNotNull(future, "query was not executed");
+			return future;
+		}
+
+		QueryParams nextParams() throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (params.size() <= paramsRead && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			return params.get(paramsRead++);
+		}
+	}
+
+	private static final class RecordingListener implements WatchListener<String> {
+		private final BlockingQueue<String> updates = new LinkedBlockingQueue<>();
+		private final BlockingQueue<Throwable> errors = new LinkedBlockingQueue<>();
+
+		@Override
+		public void onUpdate(Response<String> response) {
+			updates.add(response.getValue());
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			errors.add(throwable);
+		}
+
+		String nextUpdate() throws InterruptedException {
+			return updates.poll(5, TimeUnit.SECONDS);
+		}
+	}
+}